@@ -1,7 +1,132 @@
+import controller.AllocationCheck;
+import controller.BroadPhaseBenchmark;
+import controller.CombatBenchmark;
 import controller.Controller;
+import controller.ShardCluster;
+import controller.ShardNode;
+import controller.SharedMemoryBenchmark;
+import controller.SnapshotServer;
+import controller.SpectatorClient;
+import controller.SystemsBenchmark;
+import model.SharedWorldExport;
+
+import javax.swing.JOptionPane;
 
 public class Animation {
     public static void main(String[] args) {
+        // mundo repartido sin ventana:
+        //   --shards CxR bolas [ticks] [dispararCada]          lanza C*R procesos y resume
+        //   --shard i CxR bolas ticks dispararCada puertoBase   una región (la lanza --shards)
+        if (args.length >= 1 && (args[0].equals("--shards") || args[0].equals("--shard"))) {
+            try {
+                runShards(args);
+            } catch (Exception e) {
+                System.err.println("Error: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        // --alloc-check [bolas] [ticks] [bytesPorTick] -> el tick no asigna memoria (código 1 si se pasa)
+        if (args.length >= 1 && args[0].equals("--alloc-check")) {
+            int balls = args.length >= 2 ? Integer.parseInt(args[1]) : 2_000;
+            int ticks = args.length >= 3 ? Integer.parseInt(args[2]) : 500;
+            long limit = args.length >= 4 ? Long.parseLong(args[3]) : 128;
+            double perTick = AllocationCheck.measure(balls, ticks);
+            System.out.print(AllocationCheck.report(balls, ticks, perTick, limit));
+            if (!AllocationCheck.passes(perTick, limit)) System.exit(1);
+            return;
+        }
+        // --broadphase-bench [bolas] [ticks] [disparosPorTick] [periodo] -> fase amplia con y sin orden Z
+        if (args.length >= 1 && args[0].equals("--broadphase-bench")) {
+            int balls = args.length >= 2 ? Integer.parseInt(args[1]) : 100_000;
+            int ticks = args.length >= 3 ? Integer.parseInt(args[2]) : 200;
+            int shots = args.length >= 4 ? Integer.parseInt(args[3]) : 4;
+            int period = args.length >= 5 ? Integer.parseInt(args[4]) : 32;
+            System.out.print(BroadPhaseBenchmark.run(balls, ticks, shots, period));
+            return;
+        }
+        // --systems-bench [bolas] [ticks] -> sistemas de comportamiento en lote, en paralelo y en un hilo
+        // (código 1 si el hash del estado no coincide en algún tick)
+        if (args.length >= 1 && args[0].equals("--systems-bench")) {
+            int balls = args.length >= 2 ? Integer.parseInt(args[1]) : 100_000;
+            int ticks = args.length >= 3 ? Integer.parseInt(args[2]) : 200;
+            String report = SystemsBenchmark.run(balls, ticks);
+            System.out.print(report);
+            if (!SystemsBenchmark.passes(report)) System.exit(1);
+            return;
+        }
+        // --combat-bench [naves] [blancos] [ticks] -> enjambre de naves autónomas contra blancos
+        // (código 1 si una nave sola no sobrevive a sus propios disparos)
+        if (args.length >= 1 && args[0].equals("--combat-bench")) {
+            int shooters = args.length >= 2 ? Integer.parseInt(args[1]) : 1_000;
+            int targets = args.length >= 3 ? Integer.parseInt(args[2]) : 50_000;
+            int ticks = args.length >= 4 ? Integer.parseInt(args[3]) : 300;
+            long loneShots = CombatBenchmark.loneShooterShots(600);
+            System.out.print(CombatBenchmark.loneShooterReport(600, loneShots));
+            System.out.print(CombatBenchmark.run(shooters, targets, ticks));
+            if (!CombatBenchmark.loneShooterPasses(loneShots)) System.exit(1);
+            return;
+        }
+        // --shm-read [fichero] [segundos] -> leer el mundo que comparte otra ventana ("Compartir: ON")
+        if (args.length >= 1 && args[0].equals("--shm-read")) {
+            java.nio.file.Path path = args.length >= 2 ? java.nio.file.Paths.get(args[1])
+                : java.nio.file.Paths.get(System.getProperty("java.io.tmpdir"), SharedWorldExport.DEFAULT_FILE);
+            double seconds = args.length >= 3 ? Double.parseDouble(args[2]) : 10;
+            try {
+                System.out.print(SharedMemoryBenchmark.run(path, seconds));
+            } catch (Exception e) {
+                System.err.println("Error: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        // --spectate [host:]puerto -> ver la simulación que emite otro proceso
+        if (args.length >= 1 && args[0].equals("--spectate")) {
+            String host = "127.0.0.1";
+            int port = SnapshotServer.DEFAULT_PORT;
+            if (args.length >= 2) {
+                String target = args[1];
+                int colon = target.lastIndexOf(':');
+                if (colon >= 0) {
+                    host = target.substring(0, colon);
+                    target = target.substring(colon + 1);
+                }
+                port = Integer.parseInt(target);
+            }
+            try {
+                new Controller(SpectatorClient.connect(host, port));
+            } catch (java.io.IOException e) {
+                JOptionPane.showMessageDialog(null, "No se pudo conectar a " + host + ":" + port + "\n" + e.getMessage(),
+                    "Espectador", JOptionPane.ERROR_MESSAGE);
+                System.exit(1);
+            }
+            return;
+        }
+        // --swarm [naves] [blancos] -> la ventana con un enjambre de naves autónomas
+        if (args.length >= 1 && args[0].equals("--swarm")) {
+            int shooters = args.length >= 2 ? Integer.parseInt(args[1]) : 1_000;
+            int targets = args.length >= 3 ? Integer.parseInt(args[2]) : 50_000;
+            Controller controller = new Controller();
+            javax.swing.SwingUtilities.invokeLater(() -> controller.startSwarm(shooters, targets));
+            return;
+        }
         new Controller();
     }
-}
\ No newline at end of file
+
+    private static void runShards(String[] args) throws Exception {
+        boolean node = args[0].equals("--shard");
+        int a = node ? 2 : 1;
+        String[] grid = args[a].split("x");
+        int cols = Integer.parseInt(grid[0]), rows = Integer.parseInt(grid[1]);
+        int balls = Integer.parseInt(args[a + 1]);
+        int ticks = args.length > a + 2 ? Integer.parseInt(args[a + 2]) : 600;
+        int fireEvery = args.length > a + 3 ? Integer.parseInt(args[a + 3]) : 8;
+        int basePort = args.length > a + 4 ? Integer.parseInt(args[a + 4]) : ShardNode.DEFAULT_BASE_PORT;
+        if (node) {
+            int index = Integer.parseInt(args[1]);
+            System.out.println(new ShardNode(index, cols, rows, basePort, balls, 1L).run(ticks, fireEvery));
+        } else {
+            System.out.print(ShardCluster.run(cols, rows, balls, ticks, fireEvery, basePort));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package controller;
+
+import model.BallBehaviors;
+import model.BallSystems;
+import model.FrameSnapshot;
+import model.Model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Comprobar que el tick no asigna memoria en régimen estable: sistemas de comportamiento
+ * (cada bola lleva uno de los cinco de serie), fuerzas N-cuerpos, paso determinista de
+ * las bolas y volcado al frame, como en el bucle de {@link FrameScheduler}, sin disparos
+ * (proyectiles y explosiones sí crean objetos).
+ * Tras el calentamiento se suman los bytes asignados por todos los hilos vivos
+ * (simulación y ForkJoinPool común) durante {@code ticks} ticks. Los trozos del pool se
+ * reutilizan; sólo la construcción del árbol de Barnes–Hut crea tareas, y únicamente para
+ * cuadrantes de más de 4096 cuerpos (unos cientos de bytes por tick con decenas de miles
+ * de bolas). Sin ventana; una línea {@code ALLOC} con {@code ok=false} si se pasa del
+ * límite por tick.
+ */
+public final class AllocationCheck {
+    private static final int WORLD_WIDTH = 1600;
+    private static final int WORLD_HEIGHT = 1000;
+    private static final int WARMUP_TICKS = 200;
+    private static final int[] TAGS = { BallBehaviors.TAG_WANDER, BallBehaviors.TAG_FLEE,
+        BallBehaviors.TAG_SEEK, BallBehaviors.TAG_ORBIT, BallBehaviors.TAG_DAMPING };
+
+    private AllocationCheck() {}
+
+    /** true si la JVM sabe medir los bytes asignados por hilo. */
+    public static boolean isSupported() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean;
+    }
+
+    /** Bytes asignados por tick de media; negativo si la JVM no lo mide. */
+    public static double measure(int balls, int ticks) {
+        if (!isSupported()) return -1;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        Model model = new Model(WORLD_WIDTH, WORLD_HEIGHT);
+        model.setBallThreads(false);
+        model.resetWithSeed(7);
+        BallSystems systems = model.getSystems();
+        systems.register(BallBehaviors.wander(0.12, 0.004));
+        systems.register(BallBehaviors.flee(80, 4e-4, 0.3));
+        systems.register(BallBehaviors.seekNearest(0, 2e-4, 0.2));
+        systems.register(BallBehaviors.orbit(250, 0.15));
+        systems.register(BallBehaviors.damping(0.5));
+        for (int i = 0; i < balls; i++) {
+            model.setSpawnTags(TAGS[i % TAGS.length]);
+            model.addBallWithRandomSize(4, 12);
+        }
+        model.setSpawnTags(0);
+        BallController forces = new BallController();
+        forces.setNBodyEnabled(true);
+        FrameSnapshot frame = new FrameSnapshot();
+        for (int tick = 0; tick < WARMUP_TICKS; tick++) step(model, forces, frame, tick);
+
+        // los hilos del pool ya existen tras el calentamiento; los ids se piden antes de medir
+        long[] ids = threads.getAllThreadIds();
+        long before = allocated(threads, ids);
+        for (int tick = 0; tick < ticks; tick++) step(model, forces, frame, WARMUP_TICKS + tick);
+        long after = allocated(threads, ids);
+        return (after - before) / (double) Math.max(1, ticks);
+    }
+
+    /** true si {@code bytesPerTick} (de {@link #measure}) se ha medido y no pasa de {@code maxBytesPerTick}. */
+    public static boolean passes(double bytesPerTick, long maxBytesPerTick) {
+        return bytesPerTick >= 0 && bytesPerTick <= maxBytesPerTick;
+    }
+
+    public static String report(int balls, int ticks, double perTick, long maxBytesPerTick) {
+        return String.format(Locale.ROOT, "ALLOC balls=%d ticks=%d bytesPerTick=%.1f limit=%d ok=%b%n",
+            balls, ticks, perTick, maxBytesPerTick, passes(perTick, maxBytesPerTick));
+    }
+
+    private static void step(Model model, BallController forces, FrameSnapshot frame, long tick) {
+        model.runSystems(FrameScheduler.FIXED_DT_MS);
+        forces.applyForces(model);
+        model.stepDeterministic(FrameScheduler.FIXED_DT_MS);
+        model.snapshotInto(frame, tick);
+    }
+
+    // suma por hilo, sin crear arrays (la propia medida no debe contar); -1 = hilo terminado
+    private static long allocated(com.sun.management.ThreadMXBean threads, long[] ids) {
+        long total = 0;
+        for (long id : ids) {
+            long bytes = threads.getThreadAllocatedBytes(id);
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+}
@@ -1,8 +1,13 @@
 package controller;
 
 import model.Ball;
+import model.BarnesHut;
+import model.ForceField;
 import model.Model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Controller for ball physical parameters.
  * Velocities are expected in px/ms and accelerations in px/ms^2.
@@ -12,6 +17,18 @@ public class BallController {
     private volatile double defaultAccX = 0.0;
     private volatile double defaultAccY = 0.0;
 
+    // modo N-cuerpos: atracción mutua con masa proporcional a DIAMETER^2
+    private volatile boolean nBodyEnabled = false;
+    private volatile double openingAngle = 0.5;
+    private volatile double gravityConstant = 5e-4; // px^3 / (masa * ms^2)
+    private final BarnesHut barnesHut = new BarnesHut();
+    // estado de trabajo, sólo lo toca el hilo de simulación
+    private boolean forcesApplied = false;
+    private final double[] fieldSample = new double[2];
+    private final List<Ball> bodies = new ArrayList<>();
+    private double[] bodyX = new double[0], bodyY = new double[0], bodyMass = new double[0];
+    private double[] bodyAccX = new double[0], bodyAccY = new double[0];
+
     public BallController() {}
 
     /** Set default acceleration (internal units: px/ms^2) */
@@ -61,4 +78,68 @@ public class BallController {
             applyDefaultsTo(b);
         }
     }
+
+    /** Activar/desactivar la atracción N-cuerpos (Barnes–Hut). */
+    public void setNBodyEnabled(boolean enabled) { this.nBodyEnabled = enabled; }
+    public boolean isNBodyEnabled() { return nBodyEnabled; }
+
+    /** Ángulo de apertura θ de Barnes–Hut (0 = exacto, ~0.5 = típico, 1+ = rápido y aproximado). */
+    public void setOpeningAngle(double theta) { this.openingAngle = theta; }
+    public double getOpeningAngle() { return openingAngle; }
+
+    /** Constante gravitatoria en unidades internas (px^3 / (masa * ms^2)). */
+    public void setGravityConstant(double g) { this.gravityConstant = g; }
+    public double getGravityConstant() { return gravityConstant; }
+
+    /**
+     * Recalcular las aceleraciones de todas las bolas para este tick: la aceleración
+     * por defecto, más la atracción N-cuerpos si está activa, más el campo de fuerzas
+     * del modelo si tiene fuentes. Cuando no queda ninguna de las dos se restauran
+     * las aceleraciones por defecto. Se invoca desde el hilo de simulación.
+     */
+    public void applyForces(Model model) {
+        if (model == null) return;
+        boolean nBody = nBodyEnabled;
+        ForceField field = model.getForceField();
+        boolean useField = field.hasSources();
+        if (!nBody && !useField) {
+            if (forcesApplied) {
+                applyDefaultsToAll(model);
+                forcesApplied = false;
+            }
+            return;
+        }
+        model.copyBallsInto(bodies);
+        int n = bodies.size();
+        if (bodyX.length < n) {
+            int cap = Math.max(n, bodyX.length * 2);
+            bodyX = new double[cap]; bodyY = new double[cap]; bodyMass = new double[cap];
+            bodyAccX = new double[cap]; bodyAccY = new double[cap];
+        }
+        for (int i = 0; i < n; i++) {
+            Ball b = bodies.get(i);
+            double r = b.getDIAMETER() / 2.0;
+            bodyX[i] = b.getPosX() + r;
+            bodyY[i] = b.getPosY() + r;
+            bodyMass[i] = (double) b.getDIAMETER() * b.getDIAMETER();
+        }
+        if (nBody) {
+            barnesHut.setOpeningAngle(openingAngle);
+            barnesHut.setGravityConstant(gravityConstant);
+            barnesHut.computeAccelerations(bodyX, bodyY, bodyMass, n, bodyAccX, bodyAccY);
+        }
+        double ax = defaultAccX, ay = defaultAccY;
+        for (int i = 0; i < n; i++) {
+            double bx = ax, by = ay;
+            if (nBody) { bx += bodyAccX[i]; by += bodyAccY[i]; }
+            if (useField) {
+                // muestreo O(1) de la rejilla precalculada, independiente del número de fuentes
+                field.sample(bodyX[i], bodyY[i], fieldSample);
+                bx += fieldSample[0]; by += fieldSample[1];
+            }
+            bodies.get(i).setAcceleration(bx, by);
+        }
+        bodies.clear();
+        forcesApplied = true;
+    }
 }
@@ -0,0 +1,68 @@
+package controller;
+
+import model.Ball;
+import model.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Medir la fase amplia de los proyectiles con y sin el índice en orden Z
+ * ({@link Model#setProjectileBroadPhase}; las bolas del modelo no cambian de orden): dos mundos iguales (misma semilla, modo determinista,
+ * los mismos disparos) que avanzan a la vez; se compara el tiempo por tick y que el hash
+ * del estado coincida en todos los ticks. Sin ventana; imprime una línea {@code BROADPHASE}.
+ */
+public final class BroadPhaseBenchmark {
+    private static final int WORLD_WIDTH = 1600;
+    private static final int WORLD_HEIGHT = 1000;
+    private static final int WARMUP_TICKS = 50;
+
+    private BroadPhaseBenchmark() {}
+
+    public static String run(int balls, int ticks, int shotsPerTick, int period) {
+        Model linear = world(balls, 0);
+        Model indexed = world(balls, period);
+        List<Ball> scratch = new ArrayList<>();
+        long linearNanos = 0, indexedNanos = 0;
+        int mismatches = 0;
+        for (int tick = 1; tick <= WARMUP_TICKS + ticks; tick++) {
+            fire(linear, shotsPerTick, scratch);
+            fire(indexed, shotsPerTick, scratch);
+            long t0 = System.nanoTime();
+            linear.stepDeterministic(FrameScheduler.FIXED_DT_MS);
+            long t1 = System.nanoTime();
+            indexed.stepDeterministic(FrameScheduler.FIXED_DT_MS);
+            long t2 = System.nanoTime();
+            if (tick > WARMUP_TICKS) {
+                linearNanos += t1 - t0;
+                indexedNanos += t2 - t1;
+            }
+            if (linear.stateHash() != indexed.stateHash()) mismatches++;
+        }
+        return String.format(Locale.ROOT,
+            "BROADPHASE balls=%d ticks=%d shotsPerTick=%d period=%d linearMs=%.3f indexedMs=%.3f speedup=%.2f"
+                + " sorts=%d ballsLeft=%d hashMismatches=%d%n",
+            balls, ticks, shotsPerTick, period, linearNanos / 1e6 / ticks, indexedNanos / 1e6 / ticks,
+            linearNanos / (double) indexedNanos, indexed.getBroadPhaseSorts(), indexed.getBallCount(), mismatches);
+    }
+
+    private static Model world(int balls, int period) {
+        Model model = new Model(WORLD_WIDTH, WORLD_HEIGHT);
+        model.setBallThreads(false);
+        model.resetWithSeed(7);
+        model.setProjectileBroadPhase(period);
+        for (int i = 0; i < balls; i++) model.addBallWithRandomSize(4, 12);
+        return model;
+    }
+
+    /** Los mismos disparos en los dos mundos: salen del generador de control de cada uno. */
+    private static void fire(Model model, int shots, List<Ball> scratch) {
+        model.copyBallsInto(scratch);
+        for (int s = 0; s < shots && !scratch.isEmpty(); s++) {
+            Ball shooter = scratch.get((int) (model.nextControlRandom() * scratch.size()));
+            shooter.rotateOrientation(model.nextControlRandom() * 2 * Math.PI);
+            model.fireBullet(shooter);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package controller;
+
+import model.Ball;
+import model.BallBehaviors;
+import model.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Combate de carga: {@code shooters} naves autónomas ({@link BallBehaviors#shooter()})
+ * contra {@code targets} bolas, en modo determinista y con el índice en orden Z para los
+ * proyectiles. Mide por tick los sistemas (búsqueda de blancos, giro, empuje, disparos)
+ * y el paso del mundo, y lo compara con el presupuesto de un tick a 60 Hz. Como
+ * referencia, mide una vez la búsqueda de blancos con un recorrido lineal por nave.
+ * Sin ventana; una línea {@code COMBAT}.
+ */
+public final class CombatBenchmark {
+    private static final int WORLD_WIDTH = 1920;
+    private static final int WORLD_HEIGHT = 1080;
+    private static final int WARMUP_TICKS = 30;
+    private static final int BROADPHASE_PERIOD = 32;
+    private static final double TICK_BUDGET_MS = FrameScheduler.FIXED_DT_MS;
+    private static final int LONE_TARGETS = 40;
+    // resultado del recorrido lineal: volátil para que el JIT no lo descarte
+    private static volatile long linearChecksum;
+
+    private CombatBenchmark() {}
+
+    public static String run(int shooters, int targets, int ticks) {
+        Model model = new Model(WORLD_WIDTH, WORLD_HEIGHT);
+        model.setBallThreads(false);
+        populate(model, shooters, targets, 21);
+        double linearMs = linearAcquisitionMs(model);
+
+        long systemsNanos = 0, stepNanos = 0, worstNanos = 0;
+        long shots = 0;
+        int overBudget = 0;
+        for (int tick = 1; tick <= WARMUP_TICKS + ticks; tick++) {
+            long t0 = System.nanoTime();
+            model.runSystems(FrameScheduler.FIXED_DT_MS);
+            long t1 = System.nanoTime();
+            model.stepDeterministic(FrameScheduler.FIXED_DT_MS);
+            long t2 = System.nanoTime();
+            if (tick > WARMUP_TICKS) {
+                systemsNanos += t1 - t0;
+                stepNanos += t2 - t1;
+                worstNanos = Math.max(worstNanos, t2 - t0);
+                if ((t2 - t0) / 1e6 > TICK_BUDGET_MS) overBudget++;
+                shots += model.getSystems().getLastShots();
+            }
+        }
+        double systemsMs = systemsNanos / 1e6 / ticks, stepMs = stepNanos / 1e6 / ticks;
+        double acquireMs = model.getSystems().getLastSystemMs()[0];
+        return String.format(Locale.ROOT,
+            "COMBAT shooters=%d targets=%d ticks=%d systemsMs=%.3f stepMs=%.3f tickMs=%.3f worstMs=%.3f"
+                + " overBudget=%d realtime=%b acquireMs=%.3f linearAcquireMs=%.3f shots=%d ballsLeft=%d%n",
+            shooters, targets, ticks, systemsMs, stepMs, systemsMs + stepMs, worstNanos / 1e6,
+            overBudget, systemsMs + stepMs <= TICK_BUDGET_MS, acquireMs, linearMs, shots, model.getBallCount());
+    }
+
+    /**
+     * Una nave sola entre {@link #LONE_TARGETS} blancos durante {@code ticks}: disparos que
+     * ha hecho, o -1 si ya no está (ninguna otra nave dispara, así que sólo pudo darse a sí
+     * misma).
+     */
+    public static long loneShooterShots(int ticks) {
+        Model model = new Model(WORLD_WIDTH, WORLD_HEIGHT);
+        model.setBallThreads(false);
+        populate(model, 1, LONE_TARGETS, 5);
+        long shots = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            model.runSystems(FrameScheduler.FIXED_DT_MS);
+            model.stepDeterministic(FrameScheduler.FIXED_DT_MS);
+            shots += model.getSystems().getLastShots();
+        }
+        List<Ball> balls = new ArrayList<>();
+        model.copyBallsInto(balls);
+        for (int i = 0; i < balls.size(); i++) {
+            if ((balls.get(i).getTags() & BallBehaviors.TAG_SHOOTER) != 0) return shots;
+        }
+        return -1;
+    }
+
+    /** La nave sola ha disparado y sigue viva. */
+    public static boolean loneShooterPasses(long shots) {
+        return shots > 0;
+    }
+
+    public static String loneShooterReport(int ticks, long shots) {
+        return String.format(Locale.ROOT, "LONE_SHOOTER ticks=%d shots=%d survived=%b pass=%b%n",
+            ticks, Math.max(shots, 0), shots >= 0, loneShooterPasses(shots));
+    }
+
+    /**
+     * Mundo del modo enjambre con semilla: primero los blancos y luego las naves (todas
+     * con ids mayores), sin hilo por bola y con el índice espacial de los proyectiles.
+     */
+    static void populate(Model model, int shooters, int targets, long seed) {
+        model.resetWithSeed(seed);
+        model.setProjectileBroadPhase(BROADPHASE_PERIOD);
+        if (model.getSystems().getSystems().length == 0) model.getSystems().register(BallBehaviors.shooter());
+        model.setSpawnTags(BallBehaviors.TAG_TARGET);
+        for (int i = 0; i < targets; i++) model.addBallWithRandomSize(4, 12);
+        model.setSpawnTags(BallBehaviors.TAG_SHOOTER);
+        for (int i = 0; i < shooters; i++) model.addBallWithSize(14);
+        model.setSpawnTags(BallBehaviors.TAG_TARGET);
+    }
+
+    /** Lo que costaría buscar el blanco más cercano de cada nave recorriendo todas las bolas. */
+    private static double linearAcquisitionMs(Model model) {
+        List<Ball> balls = new ArrayList<>();
+        model.copyBallsInto(balls);
+        int n = balls.size();
+        double[] x = new double[n], y = new double[n];
+        boolean[] target = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Ball b = balls.get(i);
+            x[i] = b.getPosX() + b.getDIAMETER() / 2.0;
+            y[i] = b.getPosY() + b.getDIAMETER() / 2.0;
+            target[i] = (b.getTags() & BallBehaviors.TAG_TARGET) != 0;
+        }
+        long best = Long.MAX_VALUE, checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                if ((balls.get(i).getTags() & BallBehaviors.TAG_SHOOTER) == 0) continue;
+                int nearest = -1;
+                double best2 = Double.MAX_VALUE;
+                for (int j = 0; j < n; j++) {
+                    if (!target[j]) continue;
+                    double dx = x[j] - x[i], dy = y[j] - y[i], d2 = dx * dx + dy * dy;
+                    if (d2 < best2) { best2 = d2; nearest = j; }
+                }
+                checksum += nearest;
+            }
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        linearChecksum = checksum;
+        return best / 1e6;
+    }
+}
@@ -1,10 +1,15 @@
 package controller;
 
 import model.Ball;
+import model.BallBehaviors;
 import model.Habitacion;
 import model.Projectile;
 import model.Explosion;
+import model.FrameExchange;
+import model.RewindBuffer;
+import model.SharedWorldExport;
 import view.View;
+import view.Viewer;
 import model.Model;
 
 import java.util.List;
@@ -20,19 +25,77 @@ public class Controller {
     private ScheduledExecutorService scheduler;
     private ScheduledFuture<?> autoTask;
     private final BallController ballController;
+    // creado antes que la vista: el viewer puede empezar a leer frames en cuanto arranca
+    private final FrameExchange frameExchange = new FrameExchange();
+    private final FrameScheduler frameScheduler;
+    private final InputQueue inputQueue;
+    // reproducción abierta (null = se pinta la simulación en vivo)
+    private volatile ReplayController replay;
+    private boolean pausedBeforeReplay;
+    private boolean updatingTimeline = false; // sólo EDT
+    // historial de los últimos segundos; rewinding = la reproducción abierta es ese historial
+    private final RewindBuffer rewindBuffer;
+    private boolean rewinding = false; // sólo EDT
+
+    // copia del mundo en memoria compartida para otros procesos (null = apagada; sólo EDT)
+    private SharedWorldExport sharedExport;
+
+    // comportamiento que el botón pone a todas las bolas: nombre y etiquetas (0 = ninguno)
+    // (Enjambre: una de cada SWARM_STRIDE bolas es nave y el resto, y las nuevas, blancos)
+    private static final String[] BEHAVIOR_NAMES = { "Ninguno", "Vagar", "Huir", "Perseguir", "Orbitar", "Frenar", "Enjambre" };
+    private static final int[] BEHAVIOR_TAGS = { 0, BallBehaviors.TAG_WANDER, BallBehaviors.TAG_FLEE,
+        BallBehaviors.TAG_SEEK, BallBehaviors.TAG_ORBIT, BallBehaviors.TAG_DAMPING, BallBehaviors.TAG_TARGET };
+    private static final int SWARM = 6;
+    private static final int SWARM_STRIDE = 50;
+    private int behavior = 0; // sólo EDT
+    // hilos por bola de antes de startSwarm, para devolverlos al salir (sólo EDT)
+    private boolean swarmOwnsBallThreads = false;
+    private boolean ballThreadsBeforeSwarm = true;
+
+    // espectador de otro proceso (null = simulación local)
+    private final SpectatorClient spectator;
 
     public Controller() {
+        this(null);
+    }
+
+    /**
+     * Con {@code spectator} no se simula nada: se pinta lo que emite el servidor al que
+     * está conectado, en un mundo del mismo tamaño, y los controles quedan desactivados.
+     */
+    public Controller(SpectatorClient spectator) {
+        this.spectator = spectator;
         // create view first so its dimensions can be queried by the model if needed
         this.view = new View(this);
-        // create model with initial viewer dimensions
-        this.model = new Model(view.getViewerWidth(), view.getViewerHeight());
+        // create model with initial viewer dimensions (o las del mundo emitido)
+        this.model = spectator == null
+            ? new Model(view.getViewerWidth(), view.getViewerHeight())
+            : new Model(spectator.getWorldWidth(), spectator.getWorldHeight(), spectator.getRoom());
         this.ballController = new BallController();
         this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "AutoBallScheduler");
             t.setDaemon(true);
             return t;
         });
+        this.frameScheduler = new FrameScheduler(model, frameExchange);
+        // el espectador no tiene bolas propias que manejar con el teclado
+        this.inputQueue = spectator == null ? new InputQueue(this, view.getViewer()::getSelectedBall) : null;
+        if (inputQueue != null) frameScheduler.setInputHook(inputQueue::applyUntil);
+        frameScheduler.addTickTask(dtMs -> ballController.applyForces(model));
+        registerBehaviors();
+        frameScheduler.addTickTask(model::runSystems);
+        this.rewindBuffer = new RewindBuffer(model);
+        frameScheduler.setRewindBuffer(rewindBuffer);
         wireControls();
+        if (spectator != null) {
+            // el hilo del cliente es el único productor del frameExchange
+            model.setPaused(true);
+            view.getControlPanel().setControlsEnabled(false);
+            view.setTitle("Espectador");
+            spectator.start(frameExchange);
+            return;
+        }
+        frameScheduler.start();
         // start a timer to periodically update model dimensions
         Timer dimensionUpdater = new Timer(100, e -> {
             model.updateViewerDimensions(view.getViewerWidth(), view.getViewerHeight());
@@ -98,13 +161,104 @@ public class Controller {
         Timer fpsTimer = new Timer(250, e -> {
             double fps = view.getViewer().getFps();
             double paint = view.getViewer().getLastPaintMs();
-            view.getControlPanel().setFpsLabel(String.format("FPS: %.1f | Paint: %.2f ms", fps, paint));
+            double sim = frameScheduler.getLastTickMs();
+            if (spectator != null) {
+                view.getControlPanel().setFpsLabel(String.format("FPS: %.1f | Paint: %.2f ms | Calidad: %s | Tick: %d | Red: %.0f KB | Decode: %.2f ms%s",
+                    fps, paint, view.getViewer().getQualityLabel(), spectator.getLastTick(), spectator.getBytesReceived() / 1024.0,
+                    spectator.getLastDecodeMs(), spectator.isRunning() ? "" : " | Desconectado"));
+                return;
+            }
+            double input = inputQueue.getAverageLatencyMs();
+            double dirty = view.getViewer().getLastDirtyFraction() * 100;
+            String label = String.format("FPS: %.1f | Paint: %.2f ms (%.0f%%) | Calidad: %s | Sim: %.2f ms | Input: %.1f ms",
+                fps, paint, dirty, view.getViewer().getQualityLabel(), sim, input);
+            // en modo determinista, el hash del último tick permite comparar dos ejecuciones a simple vista
+            if (model.isDeterministic()) label += String.format(" | Hash: %016x", frameScheduler.getLastStateHash());
+            if (model.getSystems().getLastMembers() > 0) {
+                label += String.format(" | Sistemas: %.2f ms", model.getSystems().getLastRunMs());
+            }
+            SnapshotServer server = frameScheduler.getSnapshotServer();
+            if (server != null) {
+                label += String.format(" | Espectadores: %d (%d descartados)", server.getClientCount(), server.getFramesDropped());
+            }
+            view.getControlPanel().setFpsLabel(label);
         });
         fpsTimer.start();
         // clear button
         JButton clear = view.getControlPanel().getClearButton();
         for (java.awt.event.ActionListener al : clear.getActionListeners()) clear.removeActionListener(al);
-        clear.addActionListener(e -> model.clearBalls());
+        clear.addActionListener(e -> {
+            endSwarm();
+            model.clearBalls();
+        });
+
+        // N-body toggle
+        JButton nBody = view.getControlPanel().getNBodyButton();
+        for (java.awt.event.ActionListener al : nBody.getActionListeners()) nBody.removeActionListener(al);
+        nBody.addActionListener(e -> {
+            boolean now = !ballController.isNBodyEnabled();
+            ballController.setNBodyEnabled(now);
+            SwingUtilities.invokeLater(() -> nBody.setText(now ? "Gravedad N: ON" : "Gravedad N: OFF"));
+        });
+
+        // cargar nivel de obstáculos
+        JButton loadLevel = view.getControlPanel().getLoadLevelButton();
+        loadLevel.addActionListener(e -> chooseAndLoadLevel());
+
+        // checkpoints del mundo
+        view.getControlPanel().getSaveStateButton().addActionListener(e -> chooseAndSaveCheckpoint());
+        view.getControlPanel().getRestoreStateButton().addActionListener(e -> chooseAndRestoreCheckpoint());
+
+        // grabación de sesión
+        view.getControlPanel().getRecordButton().addActionListener(e -> toggleRecording());
+
+        // reproducción de grabaciones
+        view.getControlPanel().getOpenReplayButton().addActionListener(e -> chooseAndOpenReplay());
+        wireReplayPanel();
+
+        // modo determinista con semilla
+        view.getControlPanel().getSeedButton().addActionListener(e -> askSeedAndReset());
+
+        // emitir la simulación a espectadores en otros procesos
+        view.getControlPanel().getServerButton().addActionListener(e -> toggleServer());
+
+        // comportamiento autónomo para todas las bolas (actuales y nuevas)
+        JButton behaviorButton = view.getControlPanel().getBehaviorButton();
+        behaviorButton.addActionListener(e -> {
+            if (behavior == SWARM) endSwarm();
+            behavior = (behavior + 1) % BEHAVIOR_NAMES.length;
+            int tags = BEHAVIOR_TAGS[behavior];
+            model.setSpawnTags(tags);
+            model.setTagsOnAll(tags);
+            if (behavior == SWARM) {
+                List<Ball> balls = model.getAllBalls();
+                for (int i = 0; i < balls.size(); i += SWARM_STRIDE) balls.get(i).setTags(BallBehaviors.TAG_SHOOTER);
+                // muchos proyectiles a la vez: fase amplia con el índice en orden Z
+                if (model.getProjectileBroadPhase() == 0) model.setProjectileBroadPhase(32);
+            }
+            behaviorButton.setText("Comportamiento: " + BEHAVIOR_NAMES[behavior]);
+        });
+
+        // exportar el mundo a un fichero mapeado en memoria (ver SharedWorldExport)
+        view.getControlPanel().getShareButton().addActionListener(e -> toggleSharedExport());
+
+        // renderizador por software (escenas densas) o Java2D
+        JButton render = view.getControlPanel().getRenderButton();
+        render.addActionListener(e -> {
+            boolean now = !view.getViewer().isRasterRendering();
+            view.getViewer().setRasterRendering(now);
+            render.setText(now ? "Render: Raster" : "Render: Java2D");
+        });
+
+        // nivel de detalle: bolas una a una o mapa de calor (automático según cuántas haya)
+        JButton lod = view.getControlPanel().getLodButton();
+        lod.addActionListener(e -> {
+            Viewer.LodMode[] modes = Viewer.LodMode.values();
+            Viewer.LodMode next = modes[(view.getViewer().getLodMode().ordinal() + 1) % modes.length];
+            view.getViewer().setLodMode(next);
+            lod.setText("Vista: " + next.getLabel());
+        });
+        setDensityGridThreshold(view.getViewer().getDensityGridThreshold());
 
         // pause button
         JButton pause = view.getControlPanel().getPauseButton();
@@ -127,8 +281,8 @@ public class Controller {
             b = model.createBallWithSize(fixed);
         }
         // assign a random velocity in px/s and convert to internal px/ms
-        double vx_px_s = -150 + Math.random() * 300; // [-150,150] px/s
-        double vy_px_s = -150 + Math.random() * 300;
+        double vx_px_s = -150 + model.nextControlRandom() * 300; // [-150,150] px/s
+        double vy_px_s = -150 + model.nextControlRandom() * 300;
         double vx_px_ms = vx_px_s / 1000.0;
         double vy_px_ms = vy_px_s / 1000.0;
         b.setVelocity(vx_px_ms, vy_px_ms);
@@ -137,6 +291,26 @@ public class Controller {
     }
 
     public BallController getBallController() { return ballController; }
+
+    /** Que los frames lleven la rejilla de densidad a partir de {@code balls} bolas (mapa de calor). */
+    public void setDensityGridThreshold(int balls) {
+        if (model != null) model.setDensityGridThreshold(balls);
+        if (spectator != null) spectator.setDensityGridThreshold(balls);
+    }
+
+    /** Frames a pintar: los de la reproducción abierta o, si no hay, los de la simulación. */
+    public FrameExchange getFrameExchange() {
+        ReplayController r = replay;
+        return r != null ? r.getFrameExchange() : frameExchange;
+    }
+
+    public FrameScheduler getFrameScheduler() { return frameScheduler; }
+
+    /** Frames de la simulación para exportadores, analítica, etc. (ver {@link model.FramePublisher}). */
+    public model.FramePublisher getFramePublisher() { return frameScheduler.getFramePublisher(); }
+
+    /** Cola de comandos de teclado; puede ser null mientras el controlador se construye. */
+    public InputQueue getInputQueue() { return inputQueue; }
     
     // Métodos para delegar operaciones de la vista al modelo
     public void rotateBall(Ball ball, double radians) {
@@ -168,6 +342,19 @@ public class Controller {
     public List<Explosion> getAllExplosions() {
         return model.getAllExplosions();
     }
+
+    /** Variantes sin asignación: rellenan listas reutilizadas por el llamador. */
+    public void copyBallsInto(List<Ball> out) {
+        model.copyBallsInto(out);
+    }
+
+    public void copyProjectilesInto(List<Projectile> out) {
+        model.copyProjectilesInto(out);
+    }
+
+    public void copyExplosionsInto(List<Explosion> out) {
+        model.copyExplosionsInto(out);
+    }
     
     public void updateProjectilesAndExplosions(double deltaMs) {
         if (model != null) {
@@ -182,6 +369,320 @@ public class Controller {
         }
     }
     
+    // fuentes del campo de fuerzas colocadas desde la vista
+    private static final double FIELD_SOURCE_RADIUS = 150.0; // px
+    private static final double FIELD_SOURCE_STRENGTH = 2e-4; // px/ms^2 en el centro
+
+    public void addAttractorAt(java.awt.Point p) {
+        if (spectator != null) return;
+        model.getForceField().addAttractor(p.x, p.y, FIELD_SOURCE_RADIUS, FIELD_SOURCE_STRENGTH);
+    }
+
+    public void addRepulsorAt(java.awt.Point p) {
+        if (spectator != null) return;
+        model.getForceField().addRepulsor(p.x, p.y, FIELD_SOURCE_RADIUS, FIELD_SOURCE_STRENGTH);
+    }
+
+    /** Eliminar la fuente del campo más cercana al punto (si hay alguna a menos de 30 px). */
+    public void removeForceSourceAt(java.awt.Point p) {
+        if (spectator != null) return;
+        int id = model.getForceField().findNearestSource(p.x, p.y, 30.0);
+        if (id >= 0) model.getForceField().removeSource(id);
+    }
+
+    public model.ForceField getForceField() {
+        return model.getForceField();
+    }
+
+    public model.ObstacleBVH getObstacles() {
+        return model.getObstacles();
+    }
+
+    private void wireReplayPanel() {
+        view.ReplayPanel panel = view.getReplayPanel();
+        panel.getPlayButton().addActionListener(e -> {
+            ReplayController r = replay;
+            if (r == null) return;
+            boolean now = !r.isPlaying();
+            // al terminar la grabación, play vuelve a empezar
+            if (now && r.getCurrentTick() >= r.getLastTick()) r.seek(r.getFirstTick());
+            r.setPlaying(now);
+        });
+        panel.getSpeedBox().addActionListener(e -> {
+            ReplayController r = replay;
+            if (r != null) r.setSpeed(panel.getSelectedSpeed());
+        });
+        panel.getTimeline().addChangeListener(e -> {
+            ReplayController r = replay;
+            if (r != null && !updatingTimeline) r.seek(panel.getTimeline().getValue());
+        });
+        panel.getCloseButton().addActionListener(e -> closeReplay());
+        panel.getResumeButton().addActionListener(e -> resumeFromRewind());
+        // refrescar la línea de tiempo y el botón desde el estado del hilo de reproducción
+        Timer timelineTimer = new Timer(100, e -> {
+            ReplayController r = replay;
+            if (r == null) return;
+            if (!panel.getTimeline().getValueIsAdjusting()) {
+                updatingTimeline = true;
+                panel.getTimeline().setValue((int) r.getCurrentTick());
+                updatingTimeline = false;
+            }
+            if (rewinding) {
+                // segundos respecto al presente (tick de 16 ms)
+                double back = (r.getLastTick() - r.getCurrentTick()) * FrameScheduler.FIXED_DT_MS / 1000.0;
+                panel.setTickLabel(String.format("-%.1f s | %.2f ms", back, r.getLastDecodeMs()));
+            } else {
+                panel.setTickLabel(String.format("Tick: %d / %d | %.2f ms", r.getCurrentTick(), r.getLastTick(), r.getLastDecodeMs()));
+            }
+            panel.getPlayButton().setText(r.isPlaying() ? "Pausa" : "Play");
+        });
+        timelineTimer.start();
+    }
+
+    private void chooseAndOpenReplay() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(view) != JFileChooser.APPROVE_OPTION) return;
+        model.ReplayPlayer player;
+        try {
+            player = new model.ReplayPlayer(chooser.getSelectedFile().toPath());
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(view, "No se pudo abrir la grabación:\n" + ex.getMessage(),
+                "Abrir grabación", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        closeReplay();
+        // la física se detiene mientras se reproduce: sólo se pinta lo grabado
+        pausedBeforeReplay = model.isPaused();
+        model.setPaused(true);
+        showReplay(new ReplayController(player), false);
+    }
+
+    /**
+     * Rebobinar (tecla R): pausa la simulación y abre el historial reciente en el panel
+     * de reproducción, colocado en el presente. Desde ahí se puede recorrer y reanudar.
+     */
+    public void openRewind() {
+        if (replay != null || spectator != null) return;
+        boolean wasPaused = model.isPaused();
+        // pausar antes de abrir el cursor: el historial deja de crecer
+        model.setPaused(true);
+        RewindBuffer.Cursor cursor = rewindBuffer.openCursor();
+        if (cursor == null) {
+            model.setPaused(wasPaused);
+            return;
+        }
+        pausedBeforeReplay = wasPaused;
+        ReplayController r = new ReplayController(cursor);
+        r.setPlaying(false);
+        showReplay(r, true);
+    }
+
+    private void showReplay(ReplayController r, boolean rewind) {
+        r.setSpeed(view.getReplayPanel().getSelectedSpeed());
+        view.ReplayPanel panel = view.getReplayPanel();
+        updatingTimeline = true;
+        panel.getTimeline().setMinimum((int) r.getFirstTick());
+        panel.getTimeline().setMaximum((int) Math.max(r.getFirstTick() + 1, r.getLastTick()));
+        panel.getTimeline().setValue((int) r.getCurrentTick());
+        updatingTimeline = false;
+        panel.setRewindMode(rewind);
+        rewinding = rewind;
+        replay = r;
+        r.start();
+        view.showReplayPanel(true);
+    }
+
+    /**
+     * Reanudar la simulación en el tick mostrado: se restaura el keyframe anterior y se
+     * re-simula hasta ese tick con las mismas tareas por tick. Lo hace el hilo de
+     * simulación (dueño de esas tareas); con muchas bolas tarda un momento.
+     */
+    private void resumeFromRewind() {
+        ReplayController r = replay;
+        if (r == null || !rewinding) return;
+        long tick = r.getCurrentTick();
+        replay = null;
+        rewinding = false;
+        r.stop();
+        view.showReplayPanel(false);
+        boolean paused = pausedBeforeReplay;
+        frameScheduler.invokeLater(() -> {
+            rewindBuffer.resumeAt(tick, FrameScheduler.FIXED_DT_MS, frameScheduler::runTickTasks);
+            model.setPaused(paused);
+        });
+    }
+
+    private void closeReplay() {
+        ReplayController r = replay;
+        if (r == null) return;
+        replay = null;
+        rewinding = false;
+        r.stop();
+        model.setPaused(pausedBeforeReplay);
+        view.showReplayPanel(false);
+    }
+
+    private void toggleRecording() {
+        JButton button = view.getControlPanel().getRecordButton();
+        model.SessionRecorder current = frameScheduler.getRecorder();
+        if (current != null) {
+            // el hilo de simulación escribe el índice y cierra en su próximo tick
+            current.requestStop();
+            button.setText("Grabar: OFF");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(view) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            model.SessionRecorder rec = new model.SessionRecorder(chooser.getSelectedFile().toPath(), model);
+            model.getEventBus().subscribe(rec);
+            frameScheduler.setRecorder(rec);
+            button.setText("Grabar: ON");
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(view, "No se pudo iniciar la grabación:\n" + ex.getMessage(),
+                "Grabar", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void toggleServer() {
+        JButton button = view.getControlPanel().getServerButton();
+        SnapshotServer current = frameScheduler.getSnapshotServer();
+        if (current != null) {
+            frameScheduler.setSnapshotServer(null);
+            current.stop();
+            button.setText("Emitir: OFF");
+            return;
+        }
+        try {
+            SnapshotServer server = new SnapshotServer(SnapshotServer.DEFAULT_PORT,
+                model.getViewerWidth(), model.getViewerHeight(), model.getHabitacion());
+            server.start();
+            frameScheduler.setSnapshotServer(server);
+            button.setText("Emitir: ON (" + server.getPort() + ")");
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(view, "No se pudo abrir el servidor:\n" + ex.getMessage(),
+                "Emitir", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /** Sistemas de serie; sin bolas etiquetadas no cuestan nada más que mirar las etiquetas. */
+    private void registerBehaviors() {
+        model.getSystems().register(BallBehaviors.wander(0.12, 0.004));
+        model.getSystems().register(BallBehaviors.flee(80, 4e-4, 0.3));
+        model.getSystems().register(BallBehaviors.seekNearest(0, 2e-4, 0.2));
+        model.getSystems().register(BallBehaviors.orbit(250, 0.15));
+        model.getSystems().register(BallBehaviors.damping(0.5));
+        model.getSystems().register(BallBehaviors.shooter());
+    }
+
+    /**
+     * Modo enjambre desde cero: mundo determinista con {@code targets} blancos y
+     * {@code shooters} naves autónomas, sin hilo por bola hasta que se deje el enjambre
+     * (ver {@link #endSwarm}). Desde el EDT; el mundo lo monta el hilo de simulación.
+     */
+    public void startSwarm(int shooters, int targets) {
+        if (spectator != null) return;
+        if (!swarmOwnsBallThreads) {
+            ballThreadsBeforeSwarm = model.usesBallThreads();
+            swarmOwnsBallThreads = true;
+        }
+        model.setBallThreads(false);
+        frameScheduler.invokeLater(() -> CombatBenchmark.populate(model, shooters, targets, System.nanoTime()));
+        behavior = SWARM;
+        view.getControlPanel().getBehaviorButton().setText("Comportamiento: " + BEHAVIOR_NAMES[SWARM]);
+    }
+
+    /**
+     * Devolver los hilos por bola como estaban antes de {@link #startSwarm} (afecta a las
+     * bolas que se creen después). Al dejar el enjambre o reiniciar la escena; si el
+     * enjambre no los había cambiado, no hace nada.
+     */
+    private void endSwarm() {
+        if (!swarmOwnsBallThreads) return;
+        model.setBallThreads(ballThreadsBeforeSwarm);
+        swarmOwnsBallThreads = false;
+    }
+
+    private void toggleSharedExport() {
+        JButton button = view.getControlPanel().getShareButton();
+        if (sharedExport != null) {
+            sharedExport.close();
+            sharedExport = null;
+            button.setText("Compartir: OFF");
+            return;
+        }
+        java.nio.file.Path path = java.nio.file.Paths.get(System.getProperty("java.io.tmpdir"), SharedWorldExport.DEFAULT_FILE);
+        try {
+            sharedExport = new SharedWorldExport(path, model, model.getBallCount());
+            frameScheduler.getFramePublisher().subscribe(sharedExport);
+            button.setText("Compartir: ON");
+            button.setToolTipText(path.toString());
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(view, "No se pudo crear la memoria compartida:\n" + ex.getMessage(),
+                "Compartir", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void chooseAndSaveCheckpoint() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(view) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            model.saveCheckpoint(chooser.getSelectedFile().toPath());
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(view, "No se pudo guardar el estado:\n" + ex.getMessage(),
+                "Guardar estado", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Pedir una semilla y reiniciar el mundo en modo determinista. Vacío = volver al
+     * modo libre (hilos por bola y reloj de pared).
+     */
+    private void askSeedAndReset() {
+        String text = JOptionPane.showInputDialog(view,
+            "Semilla (entero; vacío para volver al modo libre):", Long.toString(model.getSeed()));
+        if (text == null) return;
+        text = text.trim();
+        if (text.isEmpty()) {
+            model.setDeterministic(false);
+            return;
+        }
+        try {
+            long seed = Long.parseLong(text);
+            if (autoTask != null) autoTask.cancel(false);
+            view.getControlPanel().getAutoToggleButton().setText("Auto: OFF");
+            endSwarm();
+            model.resetWithSeed(seed);
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(view, "Semilla no válida: " + text,
+                "Semilla", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void chooseAndRestoreCheckpoint() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(view) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            // las bolas restauradas arrancan (o no) su hilo según el ajuste de antes del enjambre
+            endSwarm();
+            model.loadCheckpoint(chooser.getSelectedFile().toPath());
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(view, "No se pudo restaurar el estado:\n" + ex.getMessage(),
+                "Restaurar estado", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void chooseAndLoadLevel() {
+        JFileChooser chooser = new JFileChooser(new java.io.File("levels"));
+        if (chooser.showOpenDialog(view) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            model.loadLevel(chooser.getSelectedFile().toPath());
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(view, "No se pudo cargar el nivel:\n" + ex.getMessage(),
+                "Cargar nivel", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     public Ball findBallAt(java.awt.Point p) {
         List<Ball> balls = model.getAllBalls();
         for (Ball b : balls) {
@@ -0,0 +1,222 @@
+package controller;
+
+import model.FrameExchange;
+import model.FramePublisher;
+import model.Model;
+import model.FrameSnapshot;
+import model.RewindBuffer;
+import model.SessionRecorder;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Bucle de simulación en su propio hilo, desacoplado del renderizado.
+ * En cada tick: aplica las entradas (límite de tick), avanza proyectiles y
+ * explosiones, vuelca el mundo en un {@link model.FrameSnapshot} y lo publica en
+ * el {@link FrameExchange}. El renderizador pinta el frame N mientras aquí ya se
+ * calcula el N+1, así que el coste por frame tiende a max(sim, render) en vez de sim + render.
+ */
+public class FrameScheduler implements Runnable {
+    // ~60 Hz, el mismo ritmo que tenía el bucle del viewer
+    private static final long TICK_NANOS = 16_000_000L;
+    // paso fijo del modo determinista (ms), independiente de cuánto tarde el tick real
+    public static final double FIXED_DT_MS = TICK_NANOS / 1_000_000.0;
+
+    private final Model model;
+    private final FrameExchange frames;
+    private volatile LongConsumer inputHook;
+    private volatile SessionRecorder recorder;
+    private volatile RewindBuffer rewind;
+    private volatile SnapshotServer server;
+    // flujo de frames para consumidores externos (copia sólo para quien tiene demanda)
+    private final FramePublisher publisher = new FramePublisher();
+    // tareas por tick (fuerzas, etc.) tras las entradas; array copy-on-write para iterar sin asignar
+    private volatile DoubleConsumer[] tickTasks = new DoubleConsumer[0];
+    // acciones puntuales que deben correr en este hilo (al comienzo del próximo tick)
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = false;
+    private volatile double lastTickMs = 0.0;
+    private volatile long lastStateHash = 0L;
+    private Thread thread;
+    private long tick = 0;
+
+    public FrameScheduler(Model model, FrameExchange frames) {
+        this.model = model;
+        this.frames = frames;
+    }
+
+    /**
+     * Callback invocado al comienzo de cada tick con su marca de tiempo
+     * ({@link System#nanoTime()}); ahí se aplican los comandos de entrada.
+     */
+    public void setInputHook(LongConsumer hook) {
+        this.inputHook = hook;
+    }
+
+    /**
+     * Registrar una tarea que se ejecuta en cada tick sin pausa, después de las entradas
+     * y antes de avanzar proyectiles. Recibe el delta del tick en ms.
+     */
+    public synchronized void addTickTask(DoubleConsumer task) {
+        DoubleConsumer[] next = java.util.Arrays.copyOf(tickTasks, tickTasks.length + 1);
+        next[next.length - 1] = task;
+        tickTasks = next;
+    }
+
+    public synchronized void removeTickTask(DoubleConsumer task) {
+        DoubleConsumer[] current = tickTasks;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == task) {
+                DoubleConsumer[] next = new DoubleConsumer[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                tickTasks = next;
+                return;
+            }
+        }
+    }
+
+    /** Ejecutar una acción en el hilo de simulación al comienzo del próximo tick. */
+    public void invokeLater(Runnable action) {
+        pending.offer(action);
+    }
+
+    /** Ejecutar las tareas por tick registradas (sólo desde el hilo de simulación). */
+    public void runTickTasks(double dtMs) {
+        DoubleConsumer[] tasks = tickTasks;
+        for (int i = 0; i < tasks.length; i++) tasks[i].accept(dtMs);
+    }
+
+    /**
+     * Grabar cada tick publicado. Para terminar, llamar a {@link SessionRecorder#requestStop()}:
+     * el cierre (índice y pie) lo completa este hilo, el único productor del grabador.
+     */
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public SessionRecorder getRecorder() {
+        return recorder;
+    }
+
+    /** Historial para rebobinar: se le añade cada tick publicado mientras no haya pausa. */
+    public void setRewindBuffer(RewindBuffer rewind) {
+        this.rewind = rewind;
+    }
+
+    /** Servidor de espectadores: recibe una copia de cada frame publicado (null = ninguno). */
+    public void setSnapshotServer(SnapshotServer server) {
+        this.server = server;
+    }
+
+    public SnapshotServer getSnapshotServer() {
+        return server;
+    }
+
+    /** Cada tick publicado como {@link java.util.concurrent.Flow.Publisher}, con el último frame si el suscriptor va lento. */
+    public FramePublisher getFramePublisher() {
+        return publisher;
+    }
+
+    public void start() {
+        if (thread == null || !thread.isAlive()) {
+            thread = new Thread(this, "Simulation-Thread");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+        publisher.close();
+    }
+
+    /** Hash del estado tras el último tick determinista (0 en modo libre). */
+    public long getLastStateHash() {
+        return lastStateHash;
+    }
+
+    /** Duración (ms) del último tick de simulación, sin contar la espera. */
+    public double getLastTickMs() {
+        return lastTickMs;
+    }
+
+    @Override
+    public void run() {
+        running = true;
+        long last = System.nanoTime();
+        while (running) {
+            long start = System.nanoTime();
+            double dtMs = (start - last) / 1_000_000.0;
+            last = start;
+            // en modo determinista el paso es fijo: el resultado no depende del reloj real
+            boolean deterministic = model.isDeterministic();
+            if (deterministic) dtMs = FIXED_DT_MS;
+
+            Runnable action;
+            while ((action = pending.poll()) != null) action.run();
+
+            // entradas: se aplican sólo en el límite de tick
+            LongConsumer hook = inputHook;
+            if (hook != null) hook.accept(start);
+
+            // fuerzas y sistemas sólo si el mundo avanza; al reanudar un rebobinado se
+            // llaman desde Model.resumeFrom aunque el modelo siga en pausa
+            if (!model.isPaused()) runTickTasks(dtMs);
+
+            if (deterministic) {
+                // bolas, proyectiles y explosiones en un único paso y en orden fijo
+                if (!model.isPaused()) model.stepDeterministic(dtMs);
+                lastStateHash = model.stateHash();
+            } else {
+                model.updateProjectiles(dtMs);
+                model.updateExplosions(dtMs);
+                lastStateHash = 0L;
+            }
+
+            // eventos del tick (impactos, altas, habitación...) en un único lote, antes de
+            // que la grabación cierre el tick
+            model.getEventBus().dispatch(tick + 1);
+
+            // publicar el frame N+1; el renderizador sigue con el N sin bloquearnos
+            FrameSnapshot frame = frames.getWriteSlot();
+            model.snapshotInto(frame, ++tick);
+            frames.publish();
+
+            // a la red sólo sale una copia; codificar y enviar es cosa del hilo del servidor
+            SnapshotServer srv = server;
+            if (srv != null) srv.offer(frame);
+            publisher.offer(frame);
+
+            // el frame publicado sólo lo reescribe este hilo, así que se puede grabar después de publicarlo
+            SessionRecorder rec = recorder;
+            if (rec != null) {
+                if (rec.isStopRequested()) {
+                    model.getEventBus().unsubscribe(rec);
+                    rec.finish();
+                    recorder = null;
+                } else {
+                    rec.recordTick(frame);
+                }
+            }
+            // en pausa el mundo no cambia (y mientras se rebobina no debe crecer el historial)
+            RewindBuffer rw = rewind;
+            if (rw != null && !model.isPaused()) rw.recordTick(frame);
+
+            long elapsed = System.nanoTime() - start;
+            lastTickMs = elapsed / 1_000_000.0;
+            long sleepNanos = TICK_NANOS - elapsed;
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+}
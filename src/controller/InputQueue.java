@@ -0,0 +1,140 @@
+package controller;
+
+import model.Ball;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Cola de comandos de entrada con marca de tiempo.
+ * El EDT encola pulsaciones/liberaciones (sin locks) y el hilo de simulación las
+ * consume en cada límite de tick, integrando rotación, empuje y frenado sobre el
+ * tiempo exacto que cada tecla estuvo pulsada dentro del tick. Así la respuesta
+ * no depende del framerate y una pulsación corta dentro de un mismo tick no se pierde.
+ */
+public class InputQueue {
+    /** Controles continuos (mantener pulsado) y disparo. */
+    public enum Control { ROTATE_LEFT, ROTATE_RIGHT, THRUST, BRAKE, FIRE }
+
+    // rotation speed in radians per second (adjustable)
+    public static final double ROTATION_RAD_PER_SEC = Math.toRadians(180); // 180°/s
+    // empuje en px/ms^2 mientras W está pulsada (equivale a 0.008 px/ms por frame a ~60fps)
+    public static final double THRUST_ACCEL = 0.008 / 16.0;
+    // factor de frenado por cada 16 ms pulsado
+    public static final double BRAKE_FACTOR = 0.95;
+    private static final double BRAKE_REFERENCE_MS = 16.0;
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private static final class Command {
+        final Control control;
+        final boolean pressed;
+        final long timeNanos;
+
+        Command(Control control, boolean pressed, long timeNanos) {
+            this.control = control;
+            this.pressed = pressed;
+            this.timeNanos = timeNanos;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Command> queue = new ConcurrentLinkedQueue<>();
+    private final Controller controller;
+    private final Supplier<Ball> target;
+
+    // estado propiedad del hilo de simulación
+    private static final int CONTINUOUS = Control.FIRE.ordinal();
+    private final boolean[] held = new boolean[CONTINUOUS];
+    private final long[] heldSince = new long[CONTINUOUS];
+    private final long[] heldNanos = new long[CONTINUOUS];
+    private long lastTickNanos = System.nanoTime();
+    // en el EDT: evita encolar repeticiones automáticas del teclado
+    private final boolean[] uiHeld = new boolean[CONTINUOUS];
+
+    private volatile double avgLatencyMs = 0.0;
+    private volatile double maxLatencyMs = 0.0;
+
+    public InputQueue(Controller controller, Supplier<Ball> target) {
+        this.controller = controller;
+        this.target = target;
+    }
+
+    /** Registrar una pulsación (llamar desde el EDT). */
+    public void press(Control c) {
+        if (c != Control.FIRE) {
+            if (uiHeld[c.ordinal()]) return; // autorepeat
+            uiHeld[c.ordinal()] = true;
+        }
+        queue.offer(new Command(c, true, System.nanoTime()));
+    }
+
+    /** Registrar una liberación (llamar desde el EDT). */
+    public void release(Control c) {
+        if (c == Control.FIRE || !uiHeld[c.ordinal()]) return;
+        uiHeld[c.ordinal()] = false;
+        queue.offer(new Command(c, false, System.nanoTime()));
+    }
+
+    /**
+     * Aplicar todos los comandos hasta {@code tickNanos} a la bola objetivo.
+     * Lo invoca el hilo de simulación al comienzo de cada tick.
+     */
+    public void applyUntil(long tickNanos) {
+        long tickStart = lastTickNanos;
+        lastTickNanos = tickNanos;
+        Ball ball = target.get();
+        for (int i = 0; i < CONTINUOUS; i++) heldNanos[i] = 0;
+
+        Command cmd;
+        while ((cmd = queue.peek()) != null && cmd.timeNanos <= tickNanos) {
+            queue.poll();
+            recordLatency(tickNanos - cmd.timeNanos);
+            // un comando anterior al tick en curso cuenta desde su comienzo
+            long t = Math.max(tickStart, cmd.timeNanos);
+            if (cmd.control == Control.FIRE) {
+                if (cmd.pressed && ball != null) controller.fireBullet(ball);
+                continue;
+            }
+            int c = cmd.control.ordinal();
+            if (cmd.pressed && !held[c]) {
+                held[c] = true;
+                heldSince[c] = t;
+            } else if (!cmd.pressed && held[c]) {
+                held[c] = false;
+                heldNanos[c] += t - heldSince[c];
+            }
+        }
+        // teclas que siguen pulsadas acumulan hasta el final del tick
+        for (int c = 0; c < CONTINUOUS; c++) {
+            if (held[c]) {
+                heldNanos[c] += tickNanos - Math.max(tickStart, heldSince[c]);
+                heldSince[c] = tickNanos;
+            }
+        }
+        if (ball == null) return;
+
+        double leftMs = heldNanos[Control.ROTATE_LEFT.ordinal()] / 1_000_000.0;
+        double rightMs = heldNanos[Control.ROTATE_RIGHT.ordinal()] / 1_000_000.0;
+        double thrustMs = heldNanos[Control.THRUST.ordinal()] / 1_000_000.0;
+        double brakeMs = heldNanos[Control.BRAKE.ordinal()] / 1_000_000.0;
+        // rotar orientación (no velocidad)
+        if (leftMs != rightMs) {
+            controller.rotateBallOrientation(ball, ROTATION_RAD_PER_SEC * (rightMs - leftMs) / 1000.0);
+        }
+        // empuje integrado sobre el tiempo pulsado: delta v = a * t
+        if (thrustMs > 0) controller.applyThrustToBall(ball, THRUST_ACCEL * thrustMs);
+        // frenado exponencial equivalente a BRAKE_FACTOR cada 16 ms
+        if (brakeMs > 0) controller.scaleSpeed(ball, Math.pow(BRAKE_FACTOR, brakeMs / BRAKE_REFERENCE_MS));
+    }
+
+    private void recordLatency(long nanos) {
+        double ms = nanos / 1_000_000.0;
+        avgLatencyMs = (1 - LATENCY_SMOOTHING) * avgLatencyMs + LATENCY_SMOOTHING * ms;
+        if (ms > maxLatencyMs) maxLatencyMs = ms;
+    }
+
+    /** Latencia media (suavizada) entre el evento de teclado y su aplicación a la física. */
+    public double getAverageLatencyMs() { return avgLatencyMs; }
+
+    /** Latencia máxima observada entre evento y aplicación. */
+    public double getMaxLatencyMs() { return maxLatencyMs; }
+}
@@ -0,0 +1,126 @@
+package controller;
+
+import model.FrameExchange;
+import model.FrameSource;
+
+/**
+ * Reproducción de una sesión grabada (o del historial de rebobinado) en su propio
+ * hilo. Cada ~16 ms avanza el reloj de reproducción según la velocidad, decodifica
+ * hasta el tick que toca y publica el frame en un {@link FrameExchange} propio;
+ * mientras hay una reproducción abierta el viewer pinta de ahí en lugar de la simulación.
+ *
+ * Los controles (play/pausa, velocidad, búsqueda) sólo escriben campos volatile:
+ * la {@link FrameSource} la toca únicamente este hilo.
+ */
+public class ReplayController implements Runnable {
+    private static final long FRAME_NANOS = 16_000_000L;
+    // duración nominal de un tick grabado (ver FrameScheduler)
+    private static final double TICK_NANOS = 16_000_000.0;
+    public static final double MIN_SPEED = 0.25;
+    public static final double MAX_SPEED = 16.0;
+
+    private final FrameSource player;
+    private final FrameExchange frames = new FrameExchange();
+    private volatile boolean running = false;
+    private volatile boolean playing = true;
+    private volatile double speed = 1.0;
+    private volatile long seekRequest = -1;
+    private volatile long currentTick;
+    private volatile double lastDecodeMs = 0.0;
+    private Thread thread;
+
+    public ReplayController(FrameSource player) {
+        this.player = player;
+        this.currentTick = player.getCurrentTick();
+        // primer frame disponible antes de arrancar el hilo
+        player.writeFrame(frames.getWriteSlot());
+        frames.publish();
+    }
+
+    public FrameExchange getFrameExchange() { return frames; }
+    public long getFirstTick() { return player.getFirstTick(); }
+    public long getLastTick() { return player.getLastTick(); }
+    public long getCurrentTick() { return currentTick; }
+    public double getLastDecodeMs() { return lastDecodeMs; }
+    public boolean isPlaying() { return playing; }
+    public double getSpeed() { return speed; }
+
+    public void setPlaying(boolean playing) {
+        this.playing = playing;
+    }
+
+    /** Velocidad de reproducción, acotada a [0.25, 16]. */
+    public void setSpeed(double speed) {
+        this.speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+    }
+
+    /** Pedir un salto a un tick; lo aplica el hilo de reproducción en su próximo frame. */
+    public void seek(long tick) {
+        seekRequest = tick;
+    }
+
+    public void start() {
+        if (thread == null || !thread.isAlive()) {
+            thread = new Thread(this, "Replay-Thread");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /** Detener el hilo y cerrar el fichero. */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            player.close();
+        } catch (java.io.IOException ignored) {}
+    }
+
+    @Override
+    public void run() {
+        running = true;
+        double tickCursor = player.getCurrentTick();
+        long last = System.nanoTime();
+        while (running) {
+            long start = System.nanoTime();
+            long dt = start - last;
+            last = start;
+
+            long seek = seekRequest;
+            if (seek >= 0) {
+                seekRequest = -1;
+                player.seek(seek);
+                tickCursor = player.getCurrentTick();
+            } else if (playing) {
+                tickCursor += dt / TICK_NANOS * speed;
+                if (tickCursor >= player.getLastTick()) {
+                    tickCursor = player.getLastTick();
+                    playing = false;
+                }
+                player.advanceTo((long) tickCursor);
+            }
+            currentTick = player.getCurrentTick();
+            player.writeFrame(frames.getWriteSlot());
+            frames.publish();
+
+            long elapsed = System.nanoTime() - start;
+            lastDecodeMs = elapsed / 1_000_000.0;
+            long sleepNanos = FRAME_NANOS - elapsed;
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+}
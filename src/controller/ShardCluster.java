@@ -0,0 +1,65 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lanzar un mundo repartido en {@code cols x rows} procesos en esta máquina (uno por
+ * región, ver {@link ShardNode}) y resumir su rendimiento. Cada proceso es esta misma
+ * aplicación con {@code --shard}; aquí sólo se arrancan, se espera a que terminen y se
+ * suman sus líneas {@code SHARD}.
+ */
+public final class ShardCluster {
+    private ShardCluster() {}
+
+    /**
+     * Ejecutar el reparto y devolver el resumen. {@code totalBalls} se reparte a partes
+     * iguales; el rendimiento es bolas·tick por segundo del conjunto (marca la región más lenta).
+     */
+    public static String run(int cols, int rows, int totalBalls, int ticks, int fireEvery, int basePort)
+            throws IOException, InterruptedException {
+        int count = cols * rows;
+        String javaBin = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classpath = System.getProperty("java.class.path");
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ProcessBuilder pb = new ProcessBuilder(javaBin, "-Djava.awt.headless=true", "-cp", classpath, "Animation",
+                "--shard", Integer.toString(i), cols + "x" + rows, Integer.toString(totalBalls / count),
+                Integer.toString(ticks), Integer.toString(fireEvery), Integer.toString(basePort));
+            pb.redirectErrorStream(true);
+            processes.add(pb.start());
+        }
+
+        StringBuilder report = new StringBuilder();
+        long ballTicks = 0, balls = 0;
+        double slowest = 0;
+        for (Process p : processes) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    report.append(line).append('\n');
+                    if (!line.startsWith("SHARD ")) continue;
+                    ballTicks += Long.parseLong(field(line, "ballTicks"));
+                    balls += Long.parseLong(field(line, "balls"));
+                    slowest = Math.max(slowest, Double.parseDouble(field(line, "seconds")));
+                }
+            }
+            if (p.waitFor() != 0) report.append("(una región terminó con error)\n");
+        }
+        report.append(String.format(java.util.Locale.ROOT,
+            "TOTAL regiones=%d bolas=%d ticks=%d segundos=%.3f bolasTick/s=%.0f ticks/s=%.1f%n",
+            count, balls, ticks, slowest, ballTicks / slowest, ticks / slowest));
+        return report.toString();
+    }
+
+    private static String field(String line, String key) {
+        for (String part : line.split(" ")) {
+            if (part.startsWith(key + "=")) return part.substring(key.length() + 1);
+        }
+        throw new IllegalArgumentException("falta " + key + " en: " + line);
+    }
+}
@@ -0,0 +1,239 @@
+package controller;
+
+import model.Ball;
+import model.Model;
+import model.ShardRegion;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Un proceso de un mundo repartido: simula sin ventana la región {@code index} de una
+ * rejilla (ver {@link ShardRegion}) y, tras cada tick, intercambia con las demás
+ * regiones las bolas y proyectiles que cruzan, los fantasmas del borde y las órdenes
+ * de borrado. Todas las regiones avanzan al mismo ritmo: ninguna empieza el tick N+1
+ * sin haber recibido el mensaje N de todas las demás.
+ *
+ * Las regiones se conectan todas con todas por loopback (puerto base + índice; la de
+ * índice mayor llama a la menor). Con pocas regiones un mensaje vacío cuesta 28 bytes,
+ * así que no merece la pena calcular quién es vecino de quién.
+ *
+ * Modo determinista con paso fijo y sin hilos por bola; al terminar imprime una línea
+ * {@code SHARD clave=valor ...} que recoge {@link ShardCluster}.
+ */
+public class ShardNode {
+    public static final int WORLD_WIDTH = 1600;
+    public static final int WORLD_HEIGHT = 1000;
+    public static final int DEFAULT_BASE_PORT = 47900;
+    private static final int CONNECT_RETRY_MS = 50;
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+
+    private final int index, cols, rows;
+    private final Model model;
+    private final ShardRegion region;
+    private final SocketChannel[] peers;
+    private final Selector selector;
+    // lectura de cada vecino: cabecera (longitud) y cuerpo del mensaje de este tick
+    private final ByteBuffer[] headers, bodies;
+    private final ByteBuffer[] outgoing;
+    private final boolean[] received;
+
+    public ShardNode(int index, int cols, int rows, int basePort, int balls, long seed) throws IOException {
+        this.index = index;
+        this.cols = cols;
+        this.rows = rows;
+        this.model = new Model(WORLD_WIDTH, WORLD_HEIGHT);
+        model.setBallThreads(false);
+        model.resetWithSeed(seed * 31 + index);
+        this.region = new ShardRegion(index, cols, rows, WORLD_WIDTH, WORLD_HEIGHT, model.getHabitacion().getArea());
+        model.setRegion(region);
+        for (int i = 0; i < balls; i++) model.addBallWithRandomSize(8, 24);
+
+        int count = cols * rows;
+        peers = new SocketChannel[count];
+        headers = new ByteBuffer[count];
+        bodies = new ByteBuffer[count];
+        outgoing = new ByteBuffer[count];
+        received = new boolean[count];
+        selector = Selector.open();
+        connectMesh(basePort);
+        for (int j = 0; j < count; j++) {
+            if (j == index) continue;
+            headers[j] = ByteBuffer.allocate(4);
+            bodies[j] = ByteBuffer.allocate(8192);
+            peers[j].configureBlocking(false);
+            peers[j].register(selector, 0, j);
+        }
+    }
+
+    /** Aceptar a las regiones de índice mayor y llamar a las de índice menor. */
+    private void connectMesh(int basePort) throws IOException {
+        int count = cols * rows;
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(loopback, basePort + index));
+            for (int j = 0; j < index; j++) {
+                SocketChannel ch = connectWithRetry(new InetSocketAddress(loopback, basePort + j));
+                ByteBuffer hello = ByteBuffer.allocate(4).putInt(0, index);
+                while (hello.hasRemaining()) ch.write(hello);
+                peers[j] = ch;
+            }
+            for (int k = index + 1; k < count; k++) {
+                SocketChannel ch = server.accept();
+                ByteBuffer hello = ByteBuffer.allocate(4);
+                while (hello.hasRemaining()) {
+                    if (ch.read(hello) < 0) throw new IOException("región desconectada durante el arranque");
+                }
+                int j = hello.getInt(0);
+                if (j <= index || j >= count || peers[j] != null) throw new IOException("región inesperada: " + j);
+                peers[j] = ch;
+            }
+        }
+        for (SocketChannel ch : peers) {
+            if (ch != null) ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+    }
+
+    private static SocketChannel connectWithRetry(InetSocketAddress address) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        while (true) {
+            SocketChannel ch = SocketChannel.open();
+            try {
+                ch.connect(address);
+                return ch;
+            } catch (IOException e) {
+                ch.close();
+                if (System.currentTimeMillis() > deadline) throw e;
+                try {
+                    Thread.sleep(CONNECT_RETRY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrumpido", ie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Simular {@code ticks} ticks a toda velocidad (sin esperar al reloj: se mide el
+     * rendimiento). Cada {@code fireEvery} ticks dispara una bola al azar (0 = nunca).
+     */
+    public String run(int ticks, int fireEvery) throws IOException {
+        List<Ball> scratch = new ArrayList<>();
+        long stepNanos = 0, collectNanos = 0, exchangeNanos = 0, ballTicks = 0;
+        long start = System.nanoTime();
+        for (long tick = 1; tick <= ticks; tick++) {
+            long t0 = System.nanoTime();
+            if (fireEvery > 0 && tick % fireEvery == 0) {
+                model.copyBallsInto(scratch);
+                if (!scratch.isEmpty()) {
+                    Ball shooter = scratch.get((int) (model.nextControlRandom() * scratch.size()));
+                    shooter.rotateOrientation(model.nextControlRandom() * 2 * Math.PI);
+                    model.fireBullet(shooter);
+                }
+            }
+            model.stepDeterministic(FrameScheduler.FIXED_DT_MS);
+            long t1 = System.nanoTime();
+            model.collectBorderTraffic();
+            long tc = System.nanoTime();
+            exchange(tick);
+            for (int j = 0; j < peers.length; j++) {
+                if (j != index) model.applyBorderTraffic(bodies[j], j);
+            }
+            long t2 = System.nanoTime();
+            stepNanos += t1 - t0;
+            collectNanos += tc - t1;
+            exchangeNanos += t2 - tc;
+            ballTicks += model.getBallCount();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        close();
+        return String.format(java.util.Locale.ROOT,
+            "SHARD index=%d balls=%d ticks=%d seconds=%.3f ballTicks=%d stepMs=%.3f collectMs=%.3f exchangeMs=%.3f"
+                + " migrated=%d received=%d ghosts=%d kills=%d roomOwner=%b",
+            index, model.getBallCount(), ticks, seconds, ballTicks,
+            stepNanos / 1e6 / ticks, collectNanos / 1e6 / ticks, exchangeNanos / 1e6 / ticks,
+            region.getBallsSent(), region.getBallsReceived(), region.getGhostsSent(), region.getKills(),
+            region.getRoomOwner() == index);
+    }
+
+    /** Enviar el mensaje de este tick a cada región y recibir el suyo, sin bloquear en ningún socket. */
+    private void exchange(long tick) throws IOException {
+        int count = peers.length;
+        int left = 0;
+        for (int j = 0; j < count; j++) {
+            if (j == index) continue;
+            outgoing[j] = region.messageFor(j, tick);
+            headers[j].clear();
+            received[j] = false;
+            left += 2;
+        }
+        while (left > 0) {
+            boolean progress = false;
+            for (int j = 0; j < count; j++) {
+                if (j == index) continue;
+                if (outgoing[j] != null) {
+                    if (peers[j].write(outgoing[j]) > 0) progress = true;
+                    if (!outgoing[j].hasRemaining()) { outgoing[j] = null; left--; }
+                }
+                if (!received[j]) {
+                    if (readSome(j) > 0) progress = true;
+                    if (received[j]) left--;
+                }
+            }
+            if (!progress && left > 0) {
+                // nada avanza: esperar a que algún socket esté listo
+                for (SelectionKey key : selector.keys()) {
+                    int j = (Integer) key.attachment();
+                    key.interestOps((outgoing[j] != null ? SelectionKey.OP_WRITE : 0)
+                        | (received[j] ? 0 : SelectionKey.OP_READ));
+                }
+                selector.select(100);
+                selector.selectedKeys().clear();
+            }
+        }
+    }
+
+    /** Leer lo que haya del mensaje del vecino {@code j}; marca {@code received[j]} al completarlo. */
+    private int readSome(int j) throws IOException {
+        SocketChannel ch = peers[j];
+        ByteBuffer header = headers[j];
+        int n = 0;
+        if (header.hasRemaining()) {
+            int r = ch.read(header);
+            if (r < 0) throw new IOException("la región " + j + " se ha desconectado");
+            n += r;
+            if (header.hasRemaining()) return n;
+            int length = header.getInt(0);
+            if (bodies[j].capacity() < length) bodies[j] = ByteBuffer.allocate(Math.max(length, bodies[j].capacity() * 2));
+            bodies[j].clear().limit(length);
+        }
+        ByteBuffer body = bodies[j];
+        int r = ch.read(body);
+        if (r < 0) throw new IOException("la región " + j + " se ha desconectado");
+        n += r;
+        if (!body.hasRemaining()) {
+            body.flip();
+            received[j] = true;
+        }
+        return n;
+    }
+
+    private void close() {
+        for (SocketChannel ch : peers) {
+            if (ch != null) {
+                try { ch.close(); } catch (IOException ignored) {}
+            }
+        }
+        try { selector.close(); } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,43 @@
+package controller;
+
+import model.FrameSnapshot;
+import model.SharedWorldReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Leer el mundo que comparte otra ventana ("Compartir: ON", ver {@link SharedWorldReader})
+ * durante unos segundos: cuántos frames enteros, cuántos ticks se han saltado, cuántos
+ * intentos rotos y cuánto cuesta leer uno. Sin ventana; una línea {@code SHM}.
+ */
+public final class SharedMemoryBenchmark {
+    private SharedMemoryBenchmark() {}
+
+    public static String run(Path path, double seconds) throws IOException {
+        FrameSnapshot frame = new FrameSnapshot();
+        long frames = 0, nanos = 0, firstTick = -1, skipped = 0, lastTick = -1;
+        try (SharedWorldReader reader = new SharedWorldReader(path)) {
+            long end = System.nanoTime() + (long) (seconds * 1e9);
+            while (System.nanoTime() < end) {
+                if (!reader.hasNewFrame()) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                long t0 = System.nanoTime();
+                if (!reader.readInto(frame)) continue;
+                nanos += System.nanoTime() - t0;
+                if (firstTick < 0) firstTick = frame.getTick();
+                else if (frame.getTick() > lastTick + 1) skipped += frame.getTick() - lastTick - 1;
+                lastTick = frame.getTick();
+                frames++;
+            }
+            return String.format(Locale.ROOT,
+                "SHM frames=%d ticks=%d..%d skipped=%d torn=%d balls=%d projectiles=%d world=%dx%d readUs=%.1f%n",
+                frames, firstTick, lastTick, skipped, reader.getTornFrames(), frame.getBallCount(),
+                frame.getProjectileCount(), reader.getWorldWidth(), reader.getWorldHeight(),
+                frames == 0 ? 0.0 : nanos / 1e3 / frames);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package controller;
+
+import model.FrameExchange;
+import model.FrameSnapshot;
+import model.Habitacion;
+import model.NetFrame;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Servidor TCP (NIO, sin bloqueo) que emite los frames de la simulación a cualquier
+ * número de espectadores ({@link SpectatorClient}), sólo en loopback.
+ *
+ * El hilo de simulación únicamente copia el frame publicado en un {@link FrameExchange}
+ * propio del servidor ({@link #offer}); todo lo demás (codificar, enviar, leer acks) lo
+ * hace el hilo "Snapshot-Server". Cada frame se codifica como delta respecto al último
+ * tick que ha confirmado cada cliente ({@link NetFrame}); los clientes que confirman el
+ * mismo tick comparten la misma codificación. Si un cliente aún no ha terminado de
+ * recibir el frame anterior no se le encola otro: se salta los intermedios y recibe
+ * el más reciente en cuanto su socket admite más datos.
+ *
+ * Protocolo (big-endian): cada mensaje del servidor es {@code int longitud, byte tipo, ...}.
+ * HELLO: magic, versión, ancho y alto del mundo, rectángulo de la habitación.
+ * FRAME: tick, tick base (-1 = completo) y la codificación. El cliente responde a cada
+ * frame con ACK: {@code byte tipo, long tick} (-1 pide un frame completo).
+ */
+public class SnapshotServer implements Runnable {
+    public static final int DEFAULT_PORT = 47800;
+    static final int MAGIC = 0x42534E50; // "BSNP"
+    static final int VERSION = 1;
+    static final byte MSG_HELLO = 1;
+    static final byte MSG_FRAME = 2;
+    static final byte MSG_ACK = 3;
+    static final int ACK_SIZE = 9;
+    // tope de un mensaje (sin el prefijo de longitud): un frame completo de ~5M bolas
+    static final int MAX_FRAME = 1 << 28;
+    // frames recientes que pueden servir de base para un delta (~0.5 s a 60 Hz)
+    private static final int HISTORY = 32;
+    private static final long SELECT_TIMEOUT_MS = 100;
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final int worldWidth, worldHeight;
+    private final Habitacion room;
+    // el hilo de simulación escribe, el del servidor lee
+    private final FrameExchange frames = new FrameExchange();
+    private final NetFrame[] history = new NetFrame[HISTORY];
+    private NetFrame latest;
+    // codificaciones del frame más reciente, una por base distinta (sólo hilo del servidor)
+    private final List<Encoded> encodedForLatest = new ArrayList<>();
+    private ByteBuffer scratch = ByteBuffer.allocate(1 << 16);
+    private final List<Client> clients = new ArrayList<>();
+    private volatile boolean running = false;
+    private Thread thread;
+
+    // estadísticas (escritas por el hilo del servidor)
+    private volatile int clientCount = 0;
+    private volatile long framesSent = 0;
+    private volatile long framesDropped = 0;
+    private volatile long bytesSent = 0;
+    private volatile double lastEncodeMs = 0.0;
+
+    /**
+     * Abrir el servidor en 127.0.0.1:{@code port} (0 = puerto libre cualquiera).
+     * {@code worldWidth}/{@code worldHeight} y la habitación se envían en el saludo para
+     * que el espectador monte un mundo del mismo tamaño.
+     */
+    public SnapshotServer(int port, int worldWidth, int worldHeight, Habitacion room) throws IOException {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.room = room;
+        for (int i = 0; i < HISTORY; i++) history[i] = new NetFrame();
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getClientCount() { return clientCount; }
+    public long getFramesSent() { return framesSent; }
+    public long getFramesDropped() { return framesDropped; }
+    public long getBytesSent() { return bytesSent; }
+    public double getLastEncodeMs() { return lastEncodeMs; }
+
+    public void start() {
+        if (thread == null || !thread.isAlive()) {
+            running = true;
+            thread = new Thread(this, "Snapshot-Server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /** Cerrar el servidor y todas las conexiones. */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Entregar un frame publicado (desde el hilo de simulación, único productor). Sin
+     * espectadores no cuesta nada; con ellos, una copia del frame y un wakeup.
+     */
+    public void offer(FrameSnapshot frame) {
+        if (clientCount == 0) return;
+        frames.getWriteSlot().copyFrom(frame);
+        frames.publish();
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MS);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Client c = (Client) key.attachment();
+                    try {
+                        if (key.isReadable()) readAcks(c);
+                        if (key.isValid() && key.isWritable()) flush(c);
+                    } catch (IOException e) {
+                        drop(c);
+                    }
+                }
+                if (frames.hasFreshFrame()) takeLatest();
+                if (latest != null) broadcast();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // el servidor se cierra
+        } finally {
+            for (Client c : new ArrayList<>(clients)) drop(c);
+            try { serverChannel.close(); } catch (IOException ignored) {}
+            try { selector.close(); } catch (IOException ignored) {}
+            running = false;
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = serverChannel.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Client c = new Client(ch);
+        c.key = ch.register(selector, SelectionKey.OP_READ, c);
+        clients.add(c);
+        clientCount = clients.size();
+
+        ByteBuffer hello = ByteBuffer.allocate(4 + 1 + 4 * 8);
+        hello.putInt(1 + 4 * 8).put(MSG_HELLO)
+            .putInt(MAGIC).putInt(VERSION).putInt(worldWidth).putInt(worldHeight)
+            .putInt(room.getX()).putInt(room.getY()).putInt(room.getWidth()).putInt(room.getHeight());
+        hello.flip();
+        c.out = hello;
+        try {
+            flush(c);
+        } catch (IOException e) {
+            drop(c);
+        }
+    }
+
+    private void drop(Client c) {
+        c.key.cancel();
+        try { c.channel.close(); } catch (IOException ignored) {}
+        clients.remove(c);
+        clientCount = clients.size();
+    }
+
+    /** Leer los acks completos; sólo importa el último (TCP los entrega en orden). */
+    private void readAcks(Client c) throws IOException {
+        int n = c.channel.read(c.in);
+        if (n < 0) throw new IOException("conexión cerrada");
+        c.in.flip();
+        while (c.in.remaining() >= ACK_SIZE) {
+            byte type = c.in.get();
+            long tick = c.in.getLong();
+            if (type != MSG_ACK) throw new IOException("mensaje desconocido: " + type);
+            c.ackedTick = tick;
+        }
+        c.in.compact();
+    }
+
+    /** Escribir lo pendiente; cuando termina se deja de vigilar OP_WRITE. */
+    private void flush(Client c) throws IOException {
+        ByteBuffer out = c.out;
+        if (out == null) return;
+        int n = c.channel.write(out);
+        bytesSent += n;
+        if (out.hasRemaining()) {
+            c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } else {
+            c.out = null;
+            c.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void takeLatest() {
+        // reutilizar el frame más antiguo del historial
+        NetFrame slot = history[0];
+        for (int i = 1; i < HISTORY; i++) {
+            if (history[i].getTick() < slot.getTick()) slot = history[i];
+        }
+        slot.copyFrom(frames.acquireLatest());
+        latest = slot;
+        encodedForLatest.clear();
+    }
+
+    private void broadcast() {
+        long tick = latest.getTick();
+        for (int i = 0; i < clients.size(); i++) {
+            Client c = clients.get(i);
+            if (c.lastSentTick >= tick) continue;
+            if (c.out != null) {
+                // aún enviando el anterior: este frame se lo salta (se cuenta una vez)
+                if (c.lastSkippedTick != tick) {
+                    c.lastSkippedTick = tick;
+                    framesDropped++;
+                }
+                continue;
+            }
+            c.out = encodingFor(c.ackedTick).duplicate();
+            c.lastSentTick = tick;
+            framesSent++;
+            try {
+                flush(c);
+            } catch (IOException e) {
+                drop(c);
+                i--;
+            }
+        }
+    }
+
+    /** Mensaje FRAME para un cliente que ha confirmado {@code ackedTick}, codificado una sola vez. */
+    private ByteBuffer encodingFor(long ackedTick) {
+        NetFrame base = null;
+        if (ackedTick >= 0 && ackedTick < latest.getTick()) {
+            for (NetFrame f : history) {
+                if (f.getTick() == ackedTick) { base = f; break; }
+            }
+        }
+        long baseTick = base == null ? -1 : base.getTick();
+        for (Encoded e : encodedForLatest) {
+            if (e.baseTick == baseTick) return e.message;
+        }
+
+        long start = System.nanoTime();
+        int header = 4 + 1 + 8 + 8;
+        int max = header + NetFrame.maxEncodedSize(latest, base);
+        if (scratch.capacity() < max) scratch = ByteBuffer.allocate(Math.max(max, scratch.capacity() * 2));
+        scratch.clear();
+        scratch.position(header);
+        NetFrame.encode(latest, base, scratch);
+        int length = scratch.position();
+        scratch.putInt(0, length - 4).put(4, MSG_FRAME).putLong(5, latest.getTick()).putLong(13, baseTick);
+        // copia exacta: los clientes pueden tardar varios frames en terminar de enviarla
+        ByteBuffer message = ByteBuffer.allocate(length);
+        scratch.flip();
+        message.put(scratch).flip();
+        encodedForLatest.add(new Encoded(baseTick, message));
+        lastEncodeMs = (System.nanoTime() - start) / 1_000_000.0;
+        return message;
+    }
+
+    private static final class Encoded {
+        final long baseTick;
+        final ByteBuffer message;
+
+        Encoded(long baseTick, ByteBuffer message) {
+            this.baseTick = baseTick;
+            this.message = message;
+        }
+    }
+
+    private static final class Client {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(ACK_SIZE * 64);
+        SelectionKey key;
+        ByteBuffer out;
+        long ackedTick = -1;
+        long lastSentTick = -1;
+        long lastSkippedTick = -1;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
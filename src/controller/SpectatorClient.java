@@ -0,0 +1,189 @@
+package controller;
+
+import model.FrameExchange;
+import model.FrameSnapshot;
+import model.Model;
+import model.NetFrame;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Cliente espectador de un {@link SnapshotServer}: recibe los frames, los reconstruye a
+ * partir de los deltas y los publica en un {@link FrameExchange}, del que pinta el
+ * {@link view.Viewer} igual que si vinieran de la simulación local.
+ *
+ * Un único hilo con el socket en modo bloqueante: leer, decodificar, confirmar. Guarda
+ * los últimos frames decodificados porque el servidor puede usar como base cualquiera
+ * de los que ya ha confirmado.
+ */
+public class SpectatorClient implements Runnable {
+    private static final int HISTORY = 16;
+
+    private final SocketChannel channel;
+    private final int worldWidth, worldHeight;
+    private final java.awt.Rectangle room;
+    private final NetFrame[] history = new NetFrame[HISTORY];
+    private final ByteBuffer header = ByteBuffer.allocate(4);
+    private final ByteBuffer ack = ByteBuffer.allocate(SnapshotServer.ACK_SIZE);
+    private ByteBuffer body = ByteBuffer.allocate(1 << 16);
+    private FrameExchange frames;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    private volatile long framesReceived = 0;
+    private volatile long bytesReceived = 0;
+    private volatile long lastTick = -1;
+    private volatile double lastDecodeMs = 0.0;
+    // rejilla de densidad para el mapa de calor (la red no la lleva: se agrupa aquí)
+    private volatile int densityGridThreshold = Integer.MAX_VALUE;
+
+    private SpectatorClient(SocketChannel channel, int worldWidth, int worldHeight, java.awt.Rectangle room) {
+        this.channel = channel;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.room = room;
+        for (int i = 0; i < HISTORY; i++) history[i] = new NetFrame();
+    }
+
+    /** Conectar y leer el saludo (bloquea hasta recibirlo). */
+    public static SpectatorClient connect(String host, int port) throws IOException {
+        SocketChannel ch = SocketChannel.open();
+        try {
+            ch.connect(new InetSocketAddress(host, port));
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer len = ByteBuffer.allocate(4);
+            readFully(ch, len);
+            int n = len.getInt(0);
+            if (n != 1 + 4 * 8) throw new IOException("saludo no válido");
+            ByteBuffer hello = ByteBuffer.allocate(n);
+            readFully(ch, hello);
+            hello.flip();
+            if (hello.get() != SnapshotServer.MSG_HELLO || hello.getInt() != SnapshotServer.MAGIC) {
+                throw new IOException("no es un servidor de la simulación");
+            }
+            int version = hello.getInt();
+            if (version != SnapshotServer.VERSION) throw new IOException("versión de protocolo no soportada: " + version);
+            int w = hello.getInt(), h = hello.getInt();
+            java.awt.Rectangle room = new java.awt.Rectangle(hello.getInt(), hello.getInt(), hello.getInt(), hello.getInt());
+            return new SpectatorClient(ch, w, h, room);
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public int getWorldWidth() { return worldWidth; }
+    public int getWorldHeight() { return worldHeight; }
+    public java.awt.Rectangle getRoom() { return room; }
+    public long getFramesReceived() { return framesReceived; }
+    public long getBytesReceived() { return bytesReceived; }
+    public long getLastTick() { return lastTick; }
+    public double getLastDecodeMs() { return lastDecodeMs; }
+
+    /** Como {@link Model#setDensityGridThreshold}, para los frames recibidos (sin velocidades). */
+    public void setDensityGridThreshold(int balls) { this.densityGridThreshold = Math.max(0, balls); }
+    public boolean isRunning() { return running; }
+
+    /** Empezar a recibir y publicar en {@code frames} (este hilo es su único productor). */
+    public void start(FrameExchange frames) {
+        this.frames = frames;
+        if (thread == null || !thread.isAlive()) {
+            running = true;
+            thread = new Thread(this, "Spectator-Client");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                header.clear();
+                readFully(channel, header);
+                int length = header.getInt(0);
+                // longitud corrupta o de otro protocolo: cortar antes de reservar nada
+                if (length <= 0 || length > SnapshotServer.MAX_FRAME) {
+                    throw new IOException("longitud de frame no válida: " + length);
+                }
+                if (body.capacity() < length) body = ByteBuffer.allocate(Math.max(length, body.capacity() * 2));
+                body.clear().limit(length);
+                readFully(channel, body);
+                body.flip();
+                bytesReceived += 4 + length;
+                if (body.get() != SnapshotServer.MSG_FRAME) continue;
+                long tick = body.getLong();
+                long baseTick = body.getLong();
+
+                NetFrame base = null;
+                if (baseTick >= 0) {
+                    base = find(baseTick);
+                    if (base == null) {
+                        // ya no tenemos esa base: pedir un frame completo
+                        sendAck(-1);
+                        continue;
+                    }
+                }
+                long start = System.nanoTime();
+                NetFrame target = victim(base);
+                NetFrame.decode(body, tick, base, target);
+                FrameSnapshot slot = frames.getWriteSlot();
+                target.writeTo(slot);
+                if (slot.getBallCount() >= densityGridThreshold) {
+                    slot.buildDensityGrid(Model.DENSITY_GRID_CELL, worldWidth, worldHeight);
+                }
+                frames.publish();
+                lastDecodeMs = (System.nanoTime() - start) / 1_000_000.0;
+                lastTick = tick;
+                framesReceived++;
+                sendAck(tick);
+            }
+        } catch (IOException e) {
+            // servidor cerrado o conexión perdida: se deja de actualizar
+        } finally {
+            running = false;
+            try { channel.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    private NetFrame find(long tick) {
+        for (NetFrame f : history) {
+            if (f.getTick() == tick) return f;
+        }
+        return null;
+    }
+
+    /** El frame más antiguo que no sea la base del que se va a decodificar. */
+    private NetFrame victim(NetFrame base) {
+        NetFrame v = null;
+        for (NetFrame f : history) {
+            if (f == base) continue;
+            if (v == null || f.getTick() < v.getTick()) v = f;
+        }
+        return v;
+    }
+
+    private void sendAck(long tick) throws IOException {
+        ack.clear();
+        ack.put(SnapshotServer.MSG_ACK).putLong(tick).flip();
+        while (ack.hasRemaining()) channel.write(ack);
+    }
+
+    private static void readFully(SocketChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf) < 0) throw new EOFException("conexión cerrada");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package controller;
+
+import model.BallBehaviors;
+import model.BallSystem;
+import model.BallSystems;
+import model.Model;
+
+import java.util.Locale;
+
+/**
+ * Medir los sistemas de comportamiento ({@link BallSystems}) con muchas bolas: cada bola
+ * lleva uno de los cinco de serie. Dos mundos iguales en modo determinista, uno con los
+ * sistemas en el ForkJoinPool y otro en el hilo actual; se compara el tiempo por tick y
+ * que el hash del estado coincida en todos los ticks. Sin ventana; una línea {@code SYSTEMS}
+ * con {@code ok=false} si algún tick no coincide.
+ */
+public final class SystemsBenchmark {
+    private static final int WORLD_WIDTH = 1600;
+    private static final int WORLD_HEIGHT = 1000;
+    private static final int WARMUP_TICKS = 30;
+    private static final int[] TAGS = { BallBehaviors.TAG_WANDER, BallBehaviors.TAG_FLEE,
+        BallBehaviors.TAG_SEEK, BallBehaviors.TAG_ORBIT, BallBehaviors.TAG_DAMPING };
+
+    private SystemsBenchmark() {}
+
+    public static String run(int balls, int ticks) {
+        Model parallel = world(balls, true), sequential = world(balls, false);
+        long parallelNanos = 0, sequentialNanos = 0;
+        double[] systemMs = new double[TAGS.length];
+        int mismatches = 0;
+        for (int tick = 1; tick <= WARMUP_TICKS + ticks; tick++) {
+            long t0 = System.nanoTime();
+            parallel.runSystems(FrameScheduler.FIXED_DT_MS);
+            long t1 = System.nanoTime();
+            sequential.runSystems(FrameScheduler.FIXED_DT_MS);
+            long t2 = System.nanoTime();
+            parallel.stepDeterministic(FrameScheduler.FIXED_DT_MS);
+            sequential.stepDeterministic(FrameScheduler.FIXED_DT_MS);
+            if (tick > WARMUP_TICKS) {
+                parallelNanos += t1 - t0;
+                sequentialNanos += t2 - t1;
+                double[] ms = parallel.getSystems().getLastSystemMs();
+                for (int s = 0; s < ms.length; s++) systemMs[s] += ms[s];
+            }
+            if (parallel.stateHash() != sequential.stateHash()) mismatches++;
+        }
+        StringBuilder perSystem = new StringBuilder();
+        BallSystem[] systems = parallel.getSystems().getSystems();
+        for (int s = 0; s < systems.length; s++) {
+            perSystem.append(String.format(Locale.ROOT, " %s=%.3f", systems[s].getName(), systemMs[s] / ticks));
+        }
+        return String.format(Locale.ROOT,
+            "SYSTEMS balls=%d ticks=%d threads=%d parallelMs=%.3f sequentialMs=%.3f nsPerBall=%.1f%s hashMismatches=%d ok=%b%n",
+            balls, ticks, java.util.concurrent.ForkJoinPool.getCommonPoolParallelism(),
+            parallelNanos / 1e6 / ticks, sequentialNanos / 1e6 / ticks, parallelNanos / (double) ticks / balls,
+            perSystem, mismatches, mismatches == 0);
+    }
+
+    /** true si la línea de {@link #run} no tiene discrepancias de hash. */
+    public static boolean passes(String report) {
+        return report.contains(" ok=true");
+    }
+
+    private static Model world(int balls, boolean parallel) {
+        Model model = new Model(WORLD_WIDTH, WORLD_HEIGHT);
+        model.setBallThreads(false);
+        model.resetWithSeed(11);
+        BallSystems systems = model.getSystems();
+        systems.register(BallBehaviors.wander(0.12, 0.004));
+        systems.register(BallBehaviors.flee(80, 4e-4, 0.3));
+        systems.register(BallBehaviors.seekNearest(0, 2e-4, 0.2));
+        systems.register(BallBehaviors.orbit(250, 0.15));
+        systems.register(BallBehaviors.damping(0.5));
+        systems.setParallel(parallel);
+        for (int i = 0; i < balls; i++) {
+            model.setSpawnTags(TAGS[i % TAGS.length]);
+            model.addBallWithRandomSize(4, 12);
+        }
+        model.setSpawnTags(0);
+        return model;
+    }
+}
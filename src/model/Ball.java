@@ -1,9 +1,19 @@
 package model;
 
 import java.awt.Color;
-import java.awt.Rectangle;
 
 public class Ball implements Runnable {
+    // ids crecientes: el orden de ballList (orden de creación) coincide con el orden por id
+    private static final java.util.concurrent.atomic.AtomicInteger NEXT_ID = new java.util.concurrent.atomic.AtomicInteger();
+    private final int id = NEXT_ID.incrementAndGet();
+    // clave global cuando el mundo está repartido entre procesos (ver ShardRegion); si no, el id
+    long shardKey = id;
+    // hueco y marca en el índice espacial del modelo (ver MortonIndex); sólo desde el hilo de simulación
+    int spatialSlot, spatialStamp;
+    // etiquetas de componente (bits): qué sistemas de comportamiento la procesan (ver BallSystems)
+    private volatile int tags;
+    // tiempo hasta poder volver a disparar (ms) de los sistemas que disparan; bajo posLock
+    private double fireCooldownMs;
     private final Model model;
     private double posX, posY;
     private double velX, velY;
@@ -11,16 +21,25 @@ public class Ball implements Runnable {
     private double accX = 0.0, accY = 0.0;
     // orientación de la bola en radianes (estilo Asteroids)
     private double angle = -Math.PI / 2; // apunta hacia arriba inicialmente
-    // estela de partículas (trail)
-    private final java.util.LinkedList<TrailPoint> trail = new java.util.LinkedList<>();
+    // estela de partículas (trail) en un buffer circular para no asignar nodos por tick
     private static final int MAX_TRAIL_LENGTH = 15;
-    private long lastTrailUpdate = System.currentTimeMillis();
+    private final double[] trailX = new double[MAX_TRAIL_LENGTH];
+    private final double[] trailY = new double[MAX_TRAIL_LENGTH];
+    private int trailHead = 0; // índice del punto más reciente
+    private int trailSize = 0;
+    private double trailClockMs = 0;
     private final int DIAMETER;
     private final Color COLOR;
     private volatile boolean running = true;
     private volatile boolean hasLock = false;
     private Thread myThread;
     private final Object posLock = new Object();
+    // serializa step(): al cambiar de modo, el hilo de la bola y el de simulación no se solapan
+    private final Object stepLock = new Object();
+    private boolean inside = false; // dentro de la habitación (sólo bajo stepLock)
+    // normal (y profundidad) de contacto de las pruebas de colisión; sólo la usa el hilo de la bola
+    private final double[] contactNormal = new double[6];
+    private static final int MAX_OBSTACLE_ITERATIONS = 3;
 
     public Ball(Model model) {
         this(model, 15);
@@ -28,21 +47,143 @@ public class Ball implements Runnable {
 
     public Ball(Model model, int diameter) {
         this.model = model;
+        int ax = 0, ay = 0;
         int vw = Math.max(1, model.getViewerWidth());
         int vh = Math.max(1, model.getViewerHeight());
+        // en un mundo repartido, las bolas nuevas aparecen en la región propia
+        ShardRegion region = model.getRegion();
+        if (region != null) {
+            java.awt.Rectangle cell = region.getSpawnArea();
+            ax = cell.x; ay = cell.y; vw = cell.width; vh = cell.height;
+            shardKey = region.newKey(id);
+        }
+        // generador de aparición del modelo: con semilla fija, mismas bolas en cada ejecución
+        SimRandom rnd = model.spawnRandom();
         // colocar en posición aleatoria dentro del viewer
-        posX = Math.random() * Math.max(1, vw - diameter);
-        posY = Math.random() * Math.max(1, vh - diameter);
+        posX = ax + rnd.nextDouble() * Math.max(1, vw - diameter);
+        posY = ay + rnd.nextDouble() * Math.max(1, vh - diameter);
     // velocidades iniciales en px/ms (aleatorias). We pick speeds near previous px/s values but converted to px/ms
     // previous range was roughly [-150,150] px/s -> convert to px/ms: divide by 1000
-    velX = (-150 + Math.random() * 300) / 1000.0; // [-0.15,0.15] px/ms
-    velY = (-150 + Math.random() * 300) / 1000.0; // [-0.15,0.15] px/ms
+    velX = (-150 + rnd.nextDouble() * 300) / 1000.0; // [-0.15,0.15] px/ms
+    velY = (-150 + rnd.nextDouble() * 300) / 1000.0; // [-0.15,0.15] px/ms
         DIAMETER = Math.max(2, diameter);
-        COLOR = new Color((float)Math.random(), (float)Math.random(), (float)Math.random());
-    Thread thread = new Thread(this, "Ball-Thread");
-    thread.setDaemon(true);
-    this.myThread = thread;
-    thread.start();
+        COLOR = new Color(rnd.nextFloat(), rnd.nextFloat(), rnd.nextFloat());
+        startThread();
+    }
+
+    /**
+     * Reconstruir una bola guardada en un checkpoint, con sus etiquetas y su espera de
+     * disparo. Si ocupaba la habitación se vuelve a registrar como ocupante antes de
+     * arrancar su hilo.
+     */
+    Ball(Model model, WorldCheckpoint cp, int i, boolean occupant) {
+        this.model = model;
+        posX = cp.ballPosX[i]; posY = cp.ballPosY[i];
+        velX = cp.ballVelX[i]; velY = cp.ballVelY[i];
+        accX = cp.ballAccX[i]; accY = cp.ballAccY[i];
+        angle = cp.ballAngle[i];
+        DIAMETER = Math.max(2, cp.ballDiameter[i]);
+        COLOR = new Color(cp.ballRgb[i], true);
+        tags = cp.ballTags[i];
+        fireCooldownMs = cp.ballFireCooldown[i];
+        model.noteTags(tags);
+        if (occupant && model.getHabitacion().tryGoIn(this)) {
+            hasLock = true;
+            inside = true;
+        }
+        startThread();
+    }
+
+    /**
+     * Bola que llega de otra región del mundo repartido, leída de un mensaje de borde
+     * (ver {@link #writeState}). La habitación nunca viaja: su ocupante no cambia de región.
+     */
+    Ball(Model model, java.nio.ByteBuffer in) {
+        this.model = model;
+        shardKey = in.getLong();
+        posX = in.getDouble(); posY = in.getDouble();
+        velX = in.getDouble(); velY = in.getDouble();
+        accX = in.getDouble(); accY = in.getDouble();
+        angle = in.getDouble();
+        fireCooldownMs = in.getDouble();
+        DIAMETER = Math.max(2, in.getInt());
+        COLOR = new Color(in.getInt(), true);
+        tags = in.getInt();
+        model.noteTags(tags);
+        startThread();
+    }
+
+    /** Bytes que ocupa {@link #writeState}. */
+    static final int STATE_BYTES = 8 + 8 * 8 + 4 + 4 + 4;
+
+    /**
+     * Estado completo para pasar la bola a otra región, con sus etiquetas y su espera
+     * de disparo (la estela no viaja).
+     */
+    void writeState(java.nio.ByteBuffer out) {
+        out.putLong(shardKey);
+        synchronized (posLock) {
+            out.putDouble(posX).putDouble(posY);
+            out.putDouble(velX).putDouble(velY);
+            out.putDouble(accX).putDouble(accY);
+            out.putDouble(angle);
+            out.putDouble(fireCooldownMs);
+        }
+        out.putInt(DIAMETER).putInt(COLOR.getRGB());
+        out.putInt(tags);
+    }
+
+    /** Centro de la bola en {@code out[0..1]}, con una sola toma del lock. */
+    void centerInto(double[] out) {
+        double r = DIAMETER / 2.0;
+        synchronized (posLock) {
+            out[0] = posX + r;
+            out[1] = posY + r;
+        }
+    }
+
+    /** Volcar centro, velocidad, ángulo y radio en el hueco {@code i} del lote, con una sola toma del lock. */
+    void gatherInto(BallBatch batch, int i) {
+        double r = DIAMETER / 2.0;
+        synchronized (posLock) {
+            batch.load(i, this, posX + r, posY + r, velX, velY, angle, r, tags, fireCooldownMs);
+        }
+    }
+
+    /**
+     * Aplicar lo que han decidido los sistemas: la velocidad como diferencia (si el hilo
+     * de la bola ha rebotado entre medias, el rebote no se pierde), el ángulo (normalizado
+     * como en {@link #rotateOrientation}) y la espera de disparo tal cual.
+     */
+    void steer(double dvx, double dvy, double newAngle, double cooldownMs) {
+        synchronized (posLock) {
+            velX += dvx;
+            velY += dvy;
+            angle = newAngle;
+            // normalizar entre -PI y PI
+            while (angle > Math.PI) angle -= 2 * Math.PI;
+            while (angle < -Math.PI) angle += 2 * Math.PI;
+            fireCooldownMs = cooldownMs;
+        }
+    }
+
+    /** true si ocupa la habitación (no puede cambiar de región hasta salir). */
+    boolean holdsRoom() {
+        return hasLock;
+    }
+
+    private void startThread() {
+        // sin hilo propio cuando sólo la avanza el hilo de simulación (modo determinista)
+        if (!model.usesBallThreads()) return;
+        Thread thread = new Thread(this, "Ball-Thread");
+        thread.setDaemon(true);
+        this.myThread = thread;
+        thread.start();
+    }
+
+    /** Identificador estable de la bola durante toda la sesión. */
+    public int getId() {
+        return id;
     }
 
     public Color getCOLOR() {
@@ -57,22 +198,26 @@ public class Ball implements Runnable {
         synchronized (posLock) { return (int) Math.round(posY); }
     }
 
+    /** Posición exacta (px), sin redondear. */
+    public double getPosX() {
+        synchronized (posLock) { return posX; }
+    }
+
+    public double getPosY() {
+        synchronized (posLock) { return posY; }
+    }
+
     public int getDIAMETER() {
         return this.DIAMETER;
     }
 
     @Override
     public void run() {
-        Habitacion hab = model.getHabitacion();
-        boolean inside = false;
-    // physics parameters
-    // To preserve the classic bouncing trajectory, gravity is 0 and damping is 1.0 by default.
-    // These can be tuned later to get more 'physical' behaviour.
-    final double damping = 1.0; // no air damping so speed magnitude preserved
-    final double tickMs = 10.0; // milliseconds per tick (10 ms)
+        // tick de 10 ms del hilo propio de la bola (modo no determinista)
+        final double tickMs = 10.0;
         while (running) {
-            // Respect pause flag from model: if paused, sleep in this thread until resumed
-            if (model.isPaused()) {
+            // en pausa, o si la simulación determinista avanza las bolas desde su hilo, esperar
+            if (model.isPaused() || model.isDeterministic()) {
                 try {
                     Thread.sleep(50);
                     continue;
@@ -81,39 +226,57 @@ public class Ball implements Runnable {
                     break;
                 }
             }
+            step(tickMs);
+            try {
+                Thread.sleep((long)(tickMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Avanzar la física un paso de {@code dtMs}: integración, habitación, obstáculos,
+     * estela y bordes. Lo llama el hilo de la bola o, en modo determinista, el hilo
+     * de simulación para todas las bolas en orden fijo.
+     */
+    void step(double dtMs) {
+        synchronized (stepLock) {
+            Habitacion hab = model.getHabitacion();
+            // physics parameters
+            // To preserve the classic bouncing trajectory, gravity is 0 and damping is 1.0 by default.
+            // These can be tuned later to get more 'physical' behaviour.
+            final double damping = 1.0; // no air damping so speed magnitude preserved
             double nextX, nextY, nextVelX, nextVelY;
             // física básica: integrate acceleration -> velocity -> position
-            double dt = tickMs; // milliseconds per tick (10 ms)
             // accX/accY are in px/ms^2, vel in px/ms, dt in ms
-            nextVelX = velX + accX * dt;
-            nextVelY = velY + accY * dt;
+            nextVelX = velX + accX * dtMs;
+            nextVelY = velY + accY * dtMs;
             // integrate velocity -> position (vel in px/ms, dt in ms => delta pos in px)
-            nextX = posX + nextVelX * dt;
-            nextY = posY + nextVelY * dt;
+            nextX = posX + nextVelX * dtMs;
+            nextY = posY + nextVelY * dtMs;
 
-            Rectangle area = hab.getArea();
-            // rectángulo de la bola (posible solapamiento)
-            Rectangle bolaRect = new Rectangle((int)Math.round(nextX), (int)Math.round(nextY), DIAMETER, DIAMETER);
+            // el área de la habitación es inmutable: leerla como primitivos evita copias por tick
+            final int areaX = hab.getX(), areaY = hab.getY();
+            final int areaW = hab.getWidth(), areaH = hab.getHeight();
 
-            if (!inside && area.intersects(bolaRect)) {
-                // Nos colocamos justo fuera del área según la dirección y esperamos a entrar (bloqueante)
-                // Ajustar posición fuera de la habitación con lock para evitar race con el viewer
-                synchronized (posLock) {
-                    if (nextX + DIAMETER > area.x && posX + DIAMETER <= area.x) {
-                        posX = area.x - DIAMETER; // pared izquierda
-                    } else if (nextX < area.x + area.width && posX >= area.x + area.width) {
-                        posX = area.x + area.width; // pared derecha
-                    }
-                    if (nextY + DIAMETER > area.y && posY + DIAMETER <= area.y) {
-                        posY = area.y - DIAMETER; // pared superior
-                    } else if (nextY < area.y + area.height && posY >= area.y + area.height) {
-                        posY = area.y + area.height; // pared inferior
-                    }
-                }
+            // prueba barrida (círculo contra rectángulo): instante exacto de contacto dentro
+            // de este paso, aunque el desplazamiento sea mayor que el grosor de la pared
+            double toi = Sweep.NO_HIT;
+            if (!inside) {
+                double radius = DIAMETER / 2.0;
+                toi = Sweep.circleRect(posX + radius, posY + radius, nextX - posX, nextY - posY, radius,
+                                       areaX, areaY, areaW, areaH, contactNormal);
+            }
+
+            if (toi != Sweep.NO_HIT) {
                 // Intento no bloqueante de entrar; si la habitación está ocupada, rebotar contra la pared
-            if (hab.tryGoIn(this)) {
+                if (hab.tryGoIn(this)) {
                     hasLock = true;
                     inside = true;
+                    EventBus bus = model.getEventBus();
+                    if (bus.hasSubscribers()) bus.publish(new WorldEvent.RoomEntered(id));
                     // ya podemos avanzar dentro
                     synchronized (posLock) {
                         posX = nextX;
@@ -121,48 +284,36 @@ public class Ball implements Runnable {
                         velX = nextVelX; velY = nextVelY;
                     }
                 } else {
-                    // habitación ocupada: simular rebote contra la pared más próxima
-                        synchronized (posLock) {
-                        boolean bounced = false;
-                        // si venimos por la izquierda
-                        if (nextX + DIAMETER > area.x && posX + DIAMETER <= area.x) {
-                            posX = area.x - DIAMETER;
-                            velX = -Math.abs(velX);
-                            bounced = true;
-                        }
-                        // desde la derecha
-                        if (nextX < area.x + area.width && posX >= area.x + area.width) {
-                            posX = area.x + area.width;
-                            velX = Math.abs(velX);
-                            bounced = true;
-                        }
-                        // desde arriba
-                        if (nextY + DIAMETER > area.y && posY + DIAMETER <= area.y) {
-                            posY = area.y - DIAMETER;
-                            velY = -Math.abs(velY);
-                            bounced = true;
-                        }
-                        // desde abajo
-                        if (nextY < area.y + area.height && posY >= area.y + area.height) {
-                            posY = area.y + area.height;
-                            velY = Math.abs(velY);
-                            bounced = true;
-                        }
-                        // si por alguna razón no detectamos una cara (caso corner), invertir ambas componentes
-                        if (!bounced) {
-                            velX = -velX; velY = -velY;
+                    // habitación ocupada: avanzar hasta el punto de contacto, reflejar la
+                    // velocidad según la normal de la superficie (cara o esquina redondeada)
+                    // y recorrer con ella el resto del paso, para no perder distancia
+                    synchronized (posLock) {
+                        posX += (nextX - posX) * toi;
+                        posY += (nextY - posY) * toi;
+                        double nx = contactNormal[0], ny = contactNormal[1];
+                        double vn = nextVelX * nx + nextVelY * ny;
+                        velX = nextVelX; velY = nextVelY;
+                        if (vn < 0) {
+                            velX -= 2 * vn * nx;
+                            velY -= 2 * vn * ny;
                         }
+                        double restMs = (1 - toi) * dtMs;
+                        posX += velX * restMs;
+                        posY += velY * restMs;
                     }
                 }
             } else if (inside) {
                 // estamos dentro, avanzar
                 synchronized (posLock) { posX = nextX; posY = nextY; velX = nextVelX; velY = nextVelY; }
-                Rectangle current = new Rectangle((int)Math.round(posX), (int)Math.round(posY), DIAMETER, DIAMETER);
-                // si ya hemos salido completamente, liberamos la habitación
-                if (!area.intersects(current)) {
+                // si ya hemos salido completamente, liberamos la habitación (el mismo
+                // círculo que la prueba de entrada, no el cuadrado que lo contiene)
+                double radius = DIAMETER / 2.0;
+                if (!Sweep.circleOverlapsRect(nextX + radius, nextY + radius, radius, areaX, areaY, areaW, areaH)) {
                     if (hasLock) {
                         hab.exit();
                         hasLock = false;
+                        EventBus bus = model.getEventBus();
+                        if (bus.hasSubscribers()) bus.publish(new WorldEvent.RoomExited(id));
                     }
                     inside = false;
                 }
@@ -171,38 +322,60 @@ public class Ball implements Runnable {
                 synchronized (posLock) { posX = nextX; posY = nextY; velX = nextVelX; velY = nextVelY; }
             }
 
+            // obstáculos estáticos del nivel: consulta logarítmica en el BVH; se expulsa la
+            // bola por la normal de mayor penetración y se refleja la velocidad si entraba
+            ObstacleBVH obstacles = model.getObstacles();
+            if (!obstacles.isEmpty()) {
+                double radius = DIAMETER / 2.0;
+                synchronized (posLock) {
+                    for (int it = 0; it < MAX_OBSTACLE_ITERATIONS; it++) {
+                        if (!obstacles.deepestPenetration(posX + radius, posY + radius, radius, contactNormal)) break;
+                        double nx = contactNormal[0], ny = contactNormal[1];
+                        posX += nx * contactNormal[2];
+                        posY += ny * contactNormal[2];
+                        double vn = velX * nx + velY * ny;
+                        if (vn < 0) {
+                            velX -= 2 * vn * nx;
+                            velY -= 2 * vn * ny;
+                        }
+                    }
+                }
+            }
+
             int w = model.getViewerWidth();
             int h = model.getViewerHeight();
             // fronteras: sincronizar para actualizar posiciones atómicas y reflejar velocidades
             synchronized (posLock) {
-                // actualizar estela
-                long now = System.currentTimeMillis();
-                if (now - lastTrailUpdate > 30) { // actualizar cada 30ms
-                    trail.addFirst(new TrailPoint(posX + DIAMETER/2.0, posY + DIAMETER/2.0));
-                    if (trail.size() > MAX_TRAIL_LENGTH) {
-                        trail.removeLast();
-                    }
-                    lastTrailUpdate = now;
+                // actualizar estela (cada 30 ms de simulación)
+                trailClockMs += dtMs;
+                if (trailClockMs > 30) {
+                    trailHead = (trailHead + 1) % MAX_TRAIL_LENGTH;
+                    trailX[trailHead] = posX + DIAMETER/2.0;
+                    trailY[trailHead] = posY + DIAMETER/2.0;
+                    if (trailSize < MAX_TRAIL_LENGTH) trailSize++;
+                    trailClockMs = 0;
                 }
-                
+            
+                // el tramo que se ha pasado del borde se recorre de vuelta (reflejado), así
+                // una bola rápida no pierde distancia en el rebote
                 if (w > 0) {
+                    int maxX = Math.max(0, w - DIAMETER);
                     if (posX <= 0) {
-                        posX = 0;
+                        posX = Math.min(-posX, maxX);
                         // reflect X keeping the magnitude (classic bounce)
                         velX = Math.abs(velX);
-                    }
-                    if (posX + DIAMETER >= w) {
-                        posX = Math.max(0, w - DIAMETER);
+                    } else if (posX >= maxX) {
+                        posX = Math.max(0, 2 * maxX - posX);
                         velX = -Math.abs(velX);
                     }
                 }
                 if (h > 0) {
+                    int maxY = Math.max(0, h - DIAMETER);
                     if (posY <= 0) {
-                        posY = 0;
+                        posY = Math.min(-posY, maxY);
                         velY = Math.abs(velY);
-                    }
-                    if (posY + DIAMETER >= h) {
-                        posY = Math.max(0, h - DIAMETER);
+                    } else if (posY >= maxY) {
+                        posY = Math.max(0, 2 * maxY - posY);
                         velY = -Math.abs(velY);
                     }
                 }
@@ -210,13 +383,6 @@ public class Ball implements Runnable {
                 velX *= damping;
                 velY *= damping;
             }
-
-            try {
-                Thread.sleep((long)(tickMs));
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
         }
     }
 
@@ -227,6 +393,8 @@ public class Ball implements Runnable {
             if (hasLock && hab != null) {
                 hab.exit();
                 hasLock = false;
+                EventBus bus = model.getEventBus();
+                if (bus.hasSubscribers()) bus.publish(new WorldEvent.RoomExited(id));
             }
         } catch (Exception ignored) {}
         // interrupt if waiting on enter()
@@ -234,6 +402,69 @@ public class Ball implements Runnable {
         running = false;
     }
 
+    /** Volcar posición, orientación y aspecto en un frame con una sola toma del lock. */
+    void writeTo(FrameSnapshot frame) {
+        synchronized (posLock) {
+            int i = frame.addBall(this, id, (int) Math.round(posX), (int) Math.round(posY), DIAMETER, angle, COLOR);
+            frame.setBallSpeed(i, (float) Math.sqrt(velX * velX + velY * velY));
+        }
+    }
+
+    /** Mezclar el estado físico completo en un hash (ver {@link Model#stateHash()}). */
+    long mixState(long h) {
+        synchronized (posLock) {
+            h = Model.mixHash(h, Double.doubleToLongBits(posX));
+            h = Model.mixHash(h, Double.doubleToLongBits(posY));
+            h = Model.mixHash(h, Double.doubleToLongBits(velX));
+            h = Model.mixHash(h, Double.doubleToLongBits(velY));
+            h = Model.mixHash(h, Double.doubleToLongBits(accX));
+            h = Model.mixHash(h, Double.doubleToLongBits(accY));
+            h = Model.mixHash(h, Double.doubleToLongBits(angle));
+            h = Model.mixHash(h, Double.doubleToLongBits(fireCooldownMs));
+        }
+        h = Model.mixHash(h, ((long) DIAMETER << 32) | (COLOR.getRGB() & 0xffffffffL));
+        return Model.mixHash(h, tags);
+    }
+
+    /** Copiar el estado completo en la posición i de un checkpoint (una sola toma del lock). */
+    void writeTo(WorldCheckpoint cp, int i) {
+        synchronized (posLock) {
+            cp.ballPosX[i] = posX; cp.ballPosY[i] = posY;
+            cp.ballVelX[i] = velX; cp.ballVelY[i] = velY;
+            cp.ballAccX[i] = accX; cp.ballAccY[i] = accY;
+            cp.ballAngle[i] = angle;
+            cp.ballFireCooldown[i] = fireCooldownMs;
+        }
+        cp.ballDiameter[i] = DIAMETER;
+        cp.ballRgb[i] = COLOR.getRGB();
+        cp.ballTags[i] = tags;
+    }
+
+    /** Etiquetas de componente de la bola (bits; ver {@link BallBehaviors}). */
+    public int getTags() {
+        return tags;
+    }
+
+    public void setTags(int tags) {
+        synchronized (posLock) {
+            this.tags = tags;
+        }
+        model.noteTags(tags);
+    }
+
+    public void addTags(int mask) {
+        synchronized (posLock) {
+            this.tags |= mask;
+        }
+        model.noteTags(mask);
+    }
+
+    public void removeTags(int mask) {
+        synchronized (posLock) {
+            this.tags &= ~mask;
+        }
+    }
+
     /** Set acceleration (px per ms^2) for this ball. */
     public void setAcceleration(double ax, double ay) {
         synchronized (posLock) {
@@ -345,9 +576,35 @@ public class Ball implements Runnable {
      */
     public java.util.List<TrailPoint> getTrail() {
         synchronized (posLock) {
-            return new java.util.ArrayList<>(trail);
+            java.util.List<TrailPoint> out = new java.util.ArrayList<>(trailSize);
+            for (int i = 0; i < trailSize; i++) {
+                int idx = (trailHead - i + MAX_TRAIL_LENGTH) % MAX_TRAIL_LENGTH;
+                out.add(new TrailPoint(trailX[idx], trailY[idx]));
+            }
+            return out;
         }
     }
+
+    /**
+     * Copiar la estela (del punto más reciente al más antiguo) en arrays del llamador,
+     * sin asignar memoria. Devuelve el número de puntos escritos.
+     */
+    public int copyTrail(double[] xs, double[] ys) {
+        synchronized (posLock) {
+            int n = Math.min(trailSize, Math.min(xs.length, ys.length));
+            for (int i = 0; i < n; i++) {
+                int idx = (trailHead - i + MAX_TRAIL_LENGTH) % MAX_TRAIL_LENGTH;
+                xs[i] = trailX[idx];
+                ys[i] = trailY[idx];
+            }
+            return n;
+        }
+    }
+
+    /** Capacidad máxima de la estela (para dimensionar los arrays de {@link #copyTrail}). */
+    public static int getMaxTrailLength() {
+        return MAX_TRAIL_LENGTH;
+    }
     
     /**
      * Punto en la estela.
@@ -0,0 +1,247 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Las bolas del mundo de un tick en arrays de primitivos, para los sistemas de
+ * comportamiento ({@link BallSystem}). El índice de cada bola es su posición en la
+ * lista del modelo (orden de id), así que no depende de cuántos hilos haya ni del
+ * reparto en trozos.
+ *
+ * Posiciones, radios y etiquetas son de sólo lectura. Velocidad, ángulo, espera de
+ * disparo y peticiones de disparo los escriben los sistemas, cada trozo sólo en las
+ * bolas que procesa; al terminar todos, {@link BallSystems} los aplica de una vez.
+ *
+ * La rejilla de vecinos ({@link #nearest}) se construye a petición en
+ * {@link BallSystem#prepare}, en el hilo de simulación, y después sólo se lee.
+ */
+public final class BallBatch {
+    // lado de las celdas de la rejilla de vecinos (px): ~4 bolas por celda, entre estos límites
+    private static final int MIN_CELL = 8, MAX_CELL = 64;
+    private static final int GATHER_CHUNK = 8192;
+
+    private int count;
+    private Ball[] balls = new Ball[0];
+    private double[] posX = new double[0], posY = new double[0];
+    private double[] velX = new double[0], velY = new double[0];
+    private double[] startVelX = new double[0], startVelY = new double[0];
+    private double[] angle = new double[0], radius = new double[0];
+    private int[] tags = new int[0];
+    private double[] cooldown = new double[0];
+    private boolean[] fire = new boolean[0];
+    private int width, height;
+    private long tick;
+    private long seed;
+    // volcado por trozos en el pool (tareas reutilizadas entre ticks)
+    private List<Ball> gatherList;
+    private final ParallelChunks gatherChunks = new ParallelChunks(GATHER_CHUNK) {
+        @Override
+        protected void compute(int chunk, int from, int to) {
+            for (int i = from; i < to; i++) gatherList.get(i).gatherInto(BallBatch.this, i);
+        }
+    };
+
+    // rejilla de vecinos en CSR: bolas de la celda c en items[start[c], start[c + 1])
+    private boolean gridBuilt;
+    private int gridCell = MAX_CELL, gridCols, gridRows;
+    private int[] gridStart = new int[1], gridFill = new int[0], gridItems = new int[0], ballCell = new int[0];
+
+    /** Volcar {@code list}; con {@code parallel}, por trozos en el ForkJoinPool común (cada bola en su hueco). */
+    void gather(List<Ball> list, int width, int height, long tick, long seed, boolean parallel) {
+        int n = list.size();
+        if (balls.length < n) grow(Math.max(n, balls.length * 2));
+        if (parallel && n > GATHER_CHUNK) {
+            gatherList = list;
+            gatherChunks.invoke(n);
+            gatherList = null;
+        } else {
+            for (int i = 0; i < n; i++) list.get(i).gatherInto(this, i);
+        }
+        // soltar referencias de un tick con más bolas
+        for (int i = n; i < count; i++) balls[i] = null;
+        count = n;
+        this.width = width;
+        this.height = height;
+        this.tick = tick;
+        this.seed = seed;
+        gridBuilt = false;
+    }
+
+    void load(int i, Ball b, double x, double y, double vx, double vy, double a, double r, int t, double c) {
+        balls[i] = b;
+        posX[i] = x;
+        posY[i] = y;
+        velX[i] = vx;
+        velY[i] = vy;
+        startVelX[i] = vx;
+        startVelY[i] = vy;
+        angle[i] = a;
+        radius[i] = r;
+        tags[i] = t;
+        cooldown[i] = c;
+        fire[i] = false;
+    }
+
+    /** Aplicar a las bolas los cambios de velocidad, ángulo y espera de disparo de los sistemas. */
+    void scatter(int[] members, int n) {
+        for (int k = 0; k < n; k++) {
+            int i = members[k];
+            balls[i].steer(velX[i] - startVelX[i], velY[i] - startVelY[i], angle[i], cooldown[i]);
+        }
+    }
+
+    boolean wantsToFire(int i) { return fire[i]; }
+
+    public int size() { return count; }
+    public int getWorldWidth() { return width; }
+    public int getWorldHeight() { return height; }
+    /** Número de ejecución de los sistemas (crece en cada tick en que corren). */
+    public long getTick() { return tick; }
+
+    // arrays del lote (sin copia): índice = bola
+    public double[] getPosX() { return posX; }
+    public double[] getPosY() { return posY; }
+    public double[] getVelX() { return velX; }
+    public double[] getVelY() { return velY; }
+    public double[] getAngle() { return angle; }
+    public double[] getRadius() { return radius; }
+    public int[] getTags() { return tags; }
+    /** Tiempo (ms) hasta que cada bola pueda volver a disparar; lo conserva la bola entre ticks. */
+    public double[] getCooldown() { return cooldown; }
+    public Ball getBall(int i) { return balls[i]; }
+
+    /**
+     * Uniforme en [0, 1) que sólo depende de la semilla del modelo, el tick, la bola y
+     * {@code salt}: el mismo resultado con cualquier reparto entre hilos.
+     */
+    public double random(int i, int salt) {
+        long z = SimRandom.mix64(seed ^ (tick * 0x9e3779b97f4a7c15L) ^ ((long) i << 20) ^ salt);
+        return (SimRandom.mix64(z) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Pedir que la bola {@code i} dispare en su orientación de este tick. Los disparos se
+     * hacen al final, con los ángulos ya aplicados, en orden de índice.
+     */
+    public void requestFire(int i) {
+        fire[i] = true;
+    }
+
+    /** Limitar el módulo de la velocidad de la bola {@code i} a {@code max} px/ms. */
+    public void limitSpeed(int i, double max) {
+        double v2 = velX[i] * velX[i] + velY[i] * velY[i];
+        if (v2 > max * max) {
+            double f = max / Math.sqrt(v2);
+            velX[i] *= f;
+            velY[i] *= f;
+        }
+    }
+
+    /** Orientar la bola {@code i} según su velocidad (si se mueve). */
+    public void faceVelocity(int i) {
+        if (velX[i] != 0.0 || velY[i] != 0.0) angle[i] = Math.atan2(velY[i], velX[i]);
+    }
+
+    /**
+     * Agrupar las bolas en celdas (más pequeñas cuantas más bolas haya, ~4 por celda);
+     * O(bolas + celdas), una vez por tick aunque la pidan varios sistemas. Sólo desde
+     * {@link BallSystem#prepare}.
+     */
+    public void buildNeighbourGrid() {
+        if (gridBuilt) return;
+        int cell = (int) Math.sqrt(4.0 * width * height / Math.max(1, count));
+        cell = Math.max(MIN_CELL, Math.min(MAX_CELL, cell));
+        gridCell = cell;
+        int cols = Math.max(1, (width + cell - 1) / cell);
+        int rows = Math.max(1, (height + cell - 1) / cell);
+        int cells = cols * rows;
+        if (gridFill.length < cells) {
+            gridStart = new int[cells + 1];
+            gridFill = new int[cells];
+        } else {
+            java.util.Arrays.fill(gridStart, 0, cells + 1, 0);
+        }
+        if (gridItems.length < count) {
+            gridItems = new int[balls.length];
+            ballCell = new int[balls.length];
+        }
+        for (int i = 0; i < count; i++) {
+            int c = cell(posY[i], rows) * cols + cell(posX[i], cols);
+            ballCell[i] = c;
+            gridStart[c + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            gridStart[c + 1] += gridStart[c];
+            gridFill[c] = gridStart[c];
+        }
+        for (int i = 0; i < count; i++) gridItems[gridFill[ballCell[i]]++] = i;
+        gridCols = cols;
+        gridRows = rows;
+        gridBuilt = true;
+    }
+
+    /**
+     * Bola más cercana a la {@code i} (centro a centro), distinta de ella, con todas las
+     * etiquetas de {@code requiredTags} (0 = cualquiera) y a menos de {@code maxDistance}
+     * px; -1 si no hay. Recorre anillos de celdas alrededor de la bola hasta que lo que
+     * queda fuera está más lejos que el mejor candidato. Requiere {@link #buildNeighbourGrid}.
+     */
+    public int nearest(int i, int requiredTags, double maxDistance) {
+        if (!gridBuilt) throw new IllegalStateException("rejilla de vecinos sin construir");
+        double x = posX[i], y = posY[i];
+        int cx = cell(x, gridCols), cy = cell(y, gridRows);
+        int size = gridCell;
+        int maxRing = Math.max(gridCols, gridRows);
+        if (maxDistance < Double.POSITIVE_INFINITY) {
+            maxRing = Math.min(maxRing, (int) Math.ceil(maxDistance / size) + 1);
+        }
+        // distancia de la bola al borde más cercano de su celda (0 si está fuera del mundo)
+        double inside = Math.max(0.0, Math.min(Math.min(x - cx * size, (cx + 1) * size - x),
+            Math.min(y - cy * size, (cy + 1) * size - y)));
+        int best = -1;
+        double best2 = maxDistance * maxDistance;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // lo que está en este anillo o más allá queda al menos a esta distancia
+            double reach = ring == 0 ? 0.0 : inside + (ring - 1) * (double) size;
+            if (reach * reach > best2) break;
+            int x0 = cx - ring, x1 = cx + ring, y0 = cy - ring, y1 = cy + ring;
+            for (int gy = Math.max(0, y0); gy <= Math.min(gridRows - 1, y1); gy++) {
+                boolean edgeRow = gy == y0 || gy == y1;
+                // en las filas interiores del anillo sólo cuentan las dos columnas de los lados
+                int step = edgeRow ? 1 : Math.max(1, x1 - x0);
+                for (int gx = x0; gx <= x1; gx += step) {
+                    if (gx < 0 || gx >= gridCols) continue;
+                    int c = gy * gridCols + gx;
+                    for (int k = gridStart[c]; k < gridStart[c + 1]; k++) {
+                        int j = gridItems[k];
+                        if (j == i || (tags[j] & requiredTags) != requiredTags) continue;
+                        double dx = posX[j] - x, dy = posY[j] - y;
+                        double d2 = dx * dx + dy * dy;
+                        // a igual distancia, la de menor índice (no depende del orden de la celda)
+                        if (d2 < best2 || (d2 == best2 && best >= 0 && j < best)) {
+                            best2 = d2;
+                            best = j;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int cell(double v, int cells) {
+        int c = (int) Math.floor(v / gridCell);
+        return c < 0 ? 0 : Math.min(c, cells - 1);
+    }
+
+    private void grow(int n) {
+        balls = java.util.Arrays.copyOf(balls, n);
+        posX = new double[n]; posY = new double[n];
+        velX = new double[n]; velY = new double[n];
+        startVelX = new double[n]; startVelY = new double[n];
+        angle = new double[n]; radius = new double[n];
+        tags = new int[n];
+        cooldown = new double[n];
+        fire = new boolean[n];
+    }
+}
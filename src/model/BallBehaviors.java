@@ -0,0 +1,215 @@
+package model;
+
+/**
+ * Etiquetas de componente y sistemas de comportamiento de serie. Cada sistema toca
+ * sólo la velocidad (y la orientación, que sigue a la velocidad) de las bolas con su
+ * etiqueta; la física de {@link Ball} sigue haciendo el resto (rebotes, habitación...).
+ *
+ * Unidades como en el resto del modelo: px, ms, px/ms y px/ms^2.
+ */
+public final class BallBehaviors {
+    public static final int TAG_WANDER = 1;
+    public static final int TAG_FLEE = 1 << 1;
+    public static final int TAG_SEEK = 1 << 2;
+    public static final int TAG_ORBIT = 1 << 3;
+    public static final int TAG_DAMPING = 1 << 4;
+    /** Nave autónoma: apunta a la bola con {@link #TAG_TARGET} más cercana, se acerca y dispara. */
+    public static final int TAG_SHOOTER = 1 << 5;
+    public static final int TAG_TARGET = 1 << 6;
+
+    private BallBehaviors() {}
+
+    /**
+     * Vagar: el rumbo gira al azar como mucho {@code turnRadPerMs} y la velocidad se
+     * acerca a {@code speed} en esa dirección.
+     */
+    public static BallSystem wander(double speed, double turnRadPerMs) {
+        return new Steering("Vagar", TAG_WANDER, false) {
+            @Override
+            public void update(BallBatch b, int[] members, int from, int to, double dtMs) {
+                double[] vx = b.getVelX(), vy = b.getVelY(), angle = b.getAngle();
+                double blend = Math.min(1.0, dtMs / 250.0);
+                for (int k = from; k < to; k++) {
+                    int i = members[k];
+                    // el rumbo parte de la velocidad actual, así los rebotes lo giran
+                    double heading = vx[i] != 0.0 || vy[i] != 0.0 ? Math.atan2(vy[i], vx[i]) : angle[i];
+                    double a = heading + (b.random(i, 1) - 0.5) * 2 * turnRadPerMs * dtMs;
+                    vx[i] += (Math.cos(a) * speed - vx[i]) * blend;
+                    vy[i] += (Math.sin(a) * speed - vy[i]) * blend;
+                    // normalizar entre -PI y PI (el giro puede sacar de rango un rumbo de atan2)
+                    if (a > Math.PI) a -= 2 * Math.PI;
+                    else if (a < -Math.PI) a += 2 * Math.PI;
+                    angle[i] = a;
+                }
+            }
+        };
+    }
+
+    /** Huir: alejarse con aceleración {@code accel} de la bola más cercana a menos de {@code radius} px. */
+    public static BallSystem flee(double radius, double accel, double maxSpeed) {
+        return new Steering("Huir", TAG_FLEE, true) {
+            @Override
+            public void update(BallBatch b, int[] members, int from, int to, double dtMs) {
+                double[] x = b.getPosX(), y = b.getPosY(), vx = b.getVelX(), vy = b.getVelY();
+                for (int k = from; k < to; k++) {
+                    int i = members[k];
+                    int j = b.nearest(i, 0, radius);
+                    if (j < 0) continue;
+                    double dx = x[i] - x[j], dy = y[i] - y[j];
+                    double d = Math.sqrt(dx * dx + dy * dy);
+                    if (d == 0) continue;
+                    vx[i] += dx / d * accel * dtMs;
+                    vy[i] += dy / d * accel * dtMs;
+                    b.limitSpeed(i, maxSpeed);
+                    b.faceVelocity(i);
+                }
+            }
+        };
+    }
+
+    /**
+     * Perseguir: acelerar hacia la bola más cercana que lleve {@code targetTags}
+     * (0 = cualquiera), sin pasar de {@code maxSpeed}.
+     */
+    public static BallSystem seekNearest(int targetTags, double accel, double maxSpeed) {
+        return new Steering("Perseguir", TAG_SEEK, true) {
+            @Override
+            public void update(BallBatch b, int[] members, int from, int to, double dtMs) {
+                double[] x = b.getPosX(), y = b.getPosY(), vx = b.getVelX(), vy = b.getVelY();
+                for (int k = from; k < to; k++) {
+                    int i = members[k];
+                    int j = b.nearest(i, targetTags, Double.POSITIVE_INFINITY);
+                    if (j < 0) continue;
+                    double dx = x[j] - x[i], dy = y[j] - y[i];
+                    double d = Math.sqrt(dx * dx + dy * dy);
+                    if (d == 0) continue;
+                    vx[i] += dx / d * accel * dtMs;
+                    vy[i] += dy / d * accel * dtMs;
+                    b.limitSpeed(i, maxSpeed);
+                    b.faceVelocity(i);
+                }
+            }
+        };
+    }
+
+    /**
+     * Orbitar el centro del mundo a {@code radius} px y {@code speed} px/ms en sentido
+     * antihorario (en pantalla), corrigiendo poco a poco la distancia al centro.
+     */
+    public static BallSystem orbit(double radius, double speed) {
+        return new Steering("Orbitar", TAG_ORBIT, false) {
+            @Override
+            public void update(BallBatch b, int[] members, int from, int to, double dtMs) {
+                double[] x = b.getPosX(), y = b.getPosY(), vx = b.getVelX(), vy = b.getVelY();
+                double cx = b.getWorldWidth() / 2.0, cy = b.getWorldHeight() / 2.0;
+                double blend = Math.min(1.0, dtMs / 200.0);
+                for (int k = from; k < to; k++) {
+                    int i = members[k];
+                    double dx = x[i] - cx, dy = y[i] - cy;
+                    double d = Math.sqrt(dx * dx + dy * dy);
+                    if (d == 0) continue;
+                    double ux = dx / d, uy = dy / d;
+                    // tangente + corrección radial (acotada) hacia el radio pedido
+                    double radial = Math.max(-speed, Math.min(speed, (radius - d) / 200.0));
+                    double tx = uy * speed + ux * radial, ty = -ux * speed + uy * radial;
+                    vx[i] += (tx - vx[i]) * blend;
+                    vy[i] += (ty - vy[i]) * blend;
+                    b.faceVelocity(i);
+                }
+            }
+        };
+    }
+
+    /** Amortiguar: la velocidad pierde {@code ratePerSecond} de su valor por segundo (exponencial). */
+    public static BallSystem damping(double ratePerSecond) {
+        return new Steering("Amortiguar", TAG_DAMPING, false) {
+            @Override
+            public void update(BallBatch b, int[] members, int from, int to, double dtMs) {
+                double f = Math.exp(-ratePerSecond * dtMs / 1000.0);
+                double[] vx = b.getVelX(), vy = b.getVelY();
+                for (int k = from; k < to; k++) {
+                    int i = members[k];
+                    vx[i] *= f;
+                    vy[i] *= f;
+                }
+            }
+        };
+    }
+
+    /**
+     * Nave autónoma ({@link #TAG_SHOOTER}): cada tick busca el blanco más cercano con
+     * {@code targetTags} en la rejilla de vecinos (una consulta por nave, todas en el mismo
+     * lote), gira hacia él como mucho {@code turnRadPerMs}, empuja hacia delante con
+     * {@code thrust} px/ms^2 mientras esté a más de la mitad de {@code range}, y dispara si
+     * está a tiro, apuntado a menos de {@code aimTolerance} rad y sin espera pendiente
+     * (después espera {@code cooldownMs}).
+     */
+    public static BallSystem shooter(int targetTags, double turnRadPerMs, double thrust, double maxSpeed,
+                                     double range, double aimTolerance, double cooldownMs) {
+        return new Steering("Naves", TAG_SHOOTER, true) {
+            @Override
+            public void update(BallBatch b, int[] members, int from, int to, double dtMs) {
+                double[] x = b.getPosX(), y = b.getPosY(), vx = b.getVelX(), vy = b.getVelY();
+                double[] angle = b.getAngle(), cooldown = b.getCooldown();
+                double maxTurn = turnRadPerMs * dtMs;
+                for (int k = from; k < to; k++) {
+                    int i = members[k];
+                    cooldown[i] = Math.max(0.0, cooldown[i] - dtMs);
+                    int j = b.nearest(i, targetTags, Double.POSITIVE_INFINITY);
+                    if (j < 0) continue;
+                    double dx = x[j] - x[i], dy = y[j] - y[i];
+                    double d = Math.sqrt(dx * dx + dy * dy);
+                    // girar lo justo hacia el blanco, en (-PI, PI], con el límite de giro del tick
+                    double diff = Math.atan2(dy, dx) - angle[i];
+                    diff -= 2 * Math.PI * Math.floor((diff + Math.PI) / (2 * Math.PI));
+                    double turn = Math.max(-maxTurn, Math.min(maxTurn, diff));
+                    double a = angle[i] + turn;
+                    if (a > Math.PI) a -= 2 * Math.PI;
+                    else if (a < -Math.PI) a += 2 * Math.PI;
+                    angle[i] = a;
+                    if (d > range / 2) {
+                        vx[i] += Math.cos(a) * thrust * dtMs;
+                        vy[i] += Math.sin(a) * thrust * dtMs;
+                        b.limitSpeed(i, maxSpeed);
+                    }
+                    if (cooldown[i] == 0.0 && d <= range && Math.abs(diff - turn) <= aimTolerance) {
+                        b.requestFire(i);
+                        cooldown[i] = cooldownMs;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Naves del modo enjambre: persiguen y disparan a las bolas con {@link #TAG_TARGET},
+     * giran hasta ~0.35 vueltas por segundo y disparan como mucho 2.5 veces por segundo.
+     */
+    public static BallSystem shooter() {
+        return shooter(TAG_TARGET, 0.006, 3e-4, 0.2, 400, 0.15, 400);
+    }
+
+    /** Base de los sistemas de serie: nombre, etiqueta y si necesita la rejilla de vecinos. */
+    private abstract static class Steering implements BallSystem {
+        private final String name;
+        private final int tags;
+        private final boolean neighbours;
+
+        Steering(String name, int tags, boolean neighbours) {
+            this.name = name;
+            this.tags = tags;
+            this.neighbours = neighbours;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public int getTags() { return tags; }
+
+        @Override
+        public void prepare(BallBatch batch, double dtMs) {
+            if (neighbours) batch.buildNeighbourGrid();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package model;
+
+/**
+ * Comportamiento que se aplica una vez por tick, en lote, a todas las bolas que llevan
+ * sus etiquetas ({@link #getTags}). Recibe el mundo en arrays ({@link BallBatch}) y los
+ * índices de sus bolas, por trozos: una llamada por trozo, no por bola. Se registra en
+ * {@link BallSystems} ({@link Model#getSystems()}).
+ */
+public interface BallSystem {
+    /** Nombre para mostrar y para las mediciones. */
+    String getName();
+
+    /** Etiquetas que debe llevar una bola (todas) para que este sistema la procese. */
+    int getTags();
+
+    /**
+     * Antes de {@link #update}, una vez por tick y en el hilo de simulación: lo que
+     * compartan los trozos (por ejemplo {@link BallBatch#buildNeighbourGrid()}).
+     */
+    default void prepare(BallBatch batch, double dtMs) {}
+
+    /**
+     * Procesar las bolas {@code members[from..to)}. Si {@link #isParallel()}, varios
+     * trozos pueden correr a la vez: escribir sólo en las posiciones de esas bolas.
+     */
+    void update(BallBatch batch, int[] members, int from, int to, double dtMs);
+
+    /** false = un único {@link #update} con todos los miembros, en el hilo de simulación. */
+    default boolean isParallel() {
+        return true;
+    }
+}
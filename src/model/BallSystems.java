@@ -0,0 +1,191 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sistemas de comportamiento registrados y su ejecución por tick. Cada tick vuelca las
+ * bolas en un {@link BallBatch} (sólo si alguna ha recibido etiquetas),
+ * ejecuta los sistemas en orden de registro, cada uno repartido por trozos en el
+ * ForkJoinPool común si lo admite, y aplica velocidades y ángulos a las bolas al final
+ * (y después los disparos pedidos, con la orientación ya girada).
+ * Como los trozos sólo escriben en sus bolas y el azar sale de {@link BallBatch#random},
+ * el resultado no depende del número de hilos (vale en modo determinista).
+ *
+ * {@link #run} sólo desde el hilo de simulación; registrar, desde cualquiera.
+ */
+public final class BallSystems {
+    // bolas por tarea hoja del ForkJoinPool; por debajo, el sistema corre en el hilo actual
+    private static final int CHUNK = 4096;
+
+    // array copy-on-write para iterar sin asignar (como las tareas por tick)
+    private volatile BallSystem[] systems = new BallSystem[0];
+    private volatile boolean parallel = true;
+    private volatile double lastRunMs = 0.0;
+    private volatile double[] lastSystemMs = new double[0];
+    private volatile int lastMembers = 0;
+    private volatile int lastShots = 0;
+    // estado de trabajo, sólo lo toca el hilo de simulación
+    private final BallBatch batch = new BallBatch();
+    private final List<Ball> balls = new ArrayList<>();
+    private int[][] members = new int[0][];
+    private int[] touched = new int[0];
+    // miembros y duración de cada sistema; crecen al registrar más sistemas, no en cada tick
+    private int[] counts = new int[0];
+    private double[] systemMs = new double[0];
+    private long runs = 0;
+    // reparto por trozos del sistema en curso (tareas reutilizadas entre ticks)
+    private BallSystem chunkSystem;
+    private int[] chunkMembers;
+    private double chunkDtMs;
+    private final ParallelChunks chunks = new ParallelChunks(CHUNK) {
+        @Override
+        protected void compute(int chunk, int from, int to) {
+            chunkSystem.update(batch, chunkMembers, from, to, chunkDtMs);
+        }
+    };
+
+    public synchronized void register(BallSystem system) {
+        BallSystem[] next = java.util.Arrays.copyOf(systems, systems.length + 1);
+        next[next.length - 1] = system;
+        systems = next;
+    }
+
+    public synchronized void unregister(BallSystem system) {
+        BallSystem[] current = systems;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == system) {
+                BallSystem[] next = new BallSystem[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                systems = next;
+                return;
+            }
+        }
+    }
+
+    public BallSystem[] getSystems() {
+        return systems.clone();
+    }
+
+    /** false = todos los sistemas en el hilo de simulación (para comparar). */
+    public void setParallel(boolean parallel) { this.parallel = parallel; }
+    public boolean isParallel() { return parallel; }
+
+    /** Duración (ms) de la última ejecución completa, con volcado y aplicación. */
+    public double getLastRunMs() { return lastRunMs; }
+
+    /**
+     * Duración (ms) de cada sistema en la última ejecución, en orden de registro. El
+     * array de trabajo se reutiliza, así que la copia puede mezclar dos ejecuciones.
+     */
+    public double[] getLastSystemMs() { return lastSystemMs.clone(); }
+
+    /** Bolas procesadas por algún sistema en la última ejecución. */
+    public int getLastMembers() { return lastMembers; }
+
+    /** Disparos pedidos por los sistemas en la última ejecución. */
+    public int getLastShots() { return lastShots; }
+
+    // número de ejecuciones: lo guardan los checkpoints para que el azar siga igual al restaurar
+    long getRuns() { return runs; }
+    void setRuns(long runs) { this.runs = runs; }
+
+    /** Un tick de todos los sistemas sobre las bolas de {@code model}. */
+    void run(Model model, double dtMs) {
+        BallSystem[] current = systems;
+        if (current.length == 0) {
+            lastMembers = 0;
+            lastShots = 0;
+            return;
+        }
+        long start = System.nanoTime();
+        // sin bolas etiquetadas ni se vuelca el mundo
+        if (!model.hasTaggedBalls()) {
+            lastMembers = 0;
+            lastShots = 0;
+            lastSystemMs = sized(current.length);
+            java.util.Arrays.fill(systemMs, 0.0);
+            lastRunMs = 0.0;
+            return;
+        }
+        model.copyBallsInto(balls);
+        int n = balls.size();
+        batch.gather(balls, model.getViewerWidth(), model.getViewerHeight(), ++runs, model.getSeed(), parallel);
+        balls.clear();
+
+        // miembros de cada sistema y de alguno (los que hay que aplicar al final)
+        if (members.length < current.length) members = java.util.Arrays.copyOf(members, current.length);
+        if (touched.length < n) touched = new int[Math.max(n, touched.length * 2)];
+        int[] tags = batch.getTags();
+        int touchedCount = 0;
+        double[] systemMs = sized(current.length);
+        int[] counts = this.counts;
+        java.util.Arrays.fill(counts, 0);
+        java.util.Arrays.fill(systemMs, 0.0);
+        for (int s = 0; s < current.length; s++) {
+            if (members[s] == null || members[s].length < n) members[s] = new int[Math.max(64, n)];
+        }
+        for (int i = 0; i < n; i++) {
+            int t = tags[i];
+            if (t == 0) continue;
+            boolean member = false;
+            for (int s = 0; s < current.length; s++) {
+                int need = current[s].getTags();
+                if ((t & need) == need) {
+                    members[s][counts[s]++] = i;
+                    member = true;
+                }
+            }
+            if (member) touched[touchedCount++] = i;
+        }
+
+        if (touchedCount == 0) {
+            lastMembers = 0;
+            lastShots = 0;
+            lastSystemMs = systemMs;
+            lastRunMs = (System.nanoTime() - start) / 1_000_000.0;
+            return;
+        }
+        boolean forkJoin = parallel;
+        for (int s = 0; s < current.length; s++) {
+            if (counts[s] == 0) continue;
+            long t0 = System.nanoTime();
+            BallSystem system = current[s];
+            system.prepare(batch, dtMs);
+            if (forkJoin && system.isParallel() && counts[s] > CHUNK) {
+                chunkSystem = system;
+                chunkMembers = members[s];
+                chunkDtMs = dtMs;
+                chunks.invoke(counts[s]);
+                chunkSystem = null;
+                chunkMembers = null;
+            } else {
+                system.update(batch, members[s], 0, counts[s], dtMs);
+            }
+            systemMs[s] = (System.nanoTime() - t0) / 1_000_000.0;
+        }
+        batch.scatter(touched, touchedCount);
+        int shots = 0;
+        for (int k = 0; k < touchedCount; k++) {
+            int i = touched[k];
+            if (batch.wantsToFire(i)) {
+                model.fireBullet(batch.getBall(i));
+                shots++;
+            }
+        }
+        lastShots = shots;
+        lastSystemMs = systemMs;
+        lastMembers = touchedCount;
+        lastRunMs = (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    // arrays de trabajo para n sistemas (sólo se sustituyen si cambia el número registrado)
+    private double[] sized(int n) {
+        if (counts.length != n) {
+            counts = new int[n];
+            systemMs = new double[n];
+        }
+        return systemMs;
+    }
+}
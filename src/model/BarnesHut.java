@@ -0,0 +1,294 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Atracción gravitatoria N-cuerpos con un quadtree de Barnes–Hut, O(n log n) por tick.
+ * El árbol se guarda en arrays primitivos reutilizados entre ticks; cada nodo
+ * cubre un rango contiguo del array de índices, que se particiona en sitio por
+ * cuadrantes. Tanto la construcción como el cálculo de fuerzas se reparten en
+ * el ForkJoinPool común.
+ *
+ * Unidades: posiciones en px, aceleraciones resultantes en px/ms^2.
+ */
+public class BarnesHut {
+    private static final int LEAF_SIZE = 8;
+    private static final int MAX_DEPTH = 40;
+    // por debajo de este número de cuerpos un subárbol se construye en el hilo actual
+    private static final int PARALLEL_BUILD_THRESHOLD = 4096;
+    private static final int FORCE_CHUNK = 1024;
+    private static final int STACK_SIZE = MAX_DEPTH * 4 + 8;
+
+    // cuerpos de este tick (referencias a los arrays del llamador)
+    private double[] x, y, m;
+    private int[] index = new int[0];
+    // cuerpos copiados en el orden del árbol: las hojas quedan contiguas en memoria
+    private double[] sortedX = new double[0], sortedY = new double[0], sortedM = new double[0];
+
+    // nodos
+    private int capacity = 0;
+    private int[] child = new int[0];      // 4 hijos por nodo, -1 si vacío
+    private int[] start = new int[0];      // rango de cuerpos [start, end) en index
+    private int[] end = new int[0];
+    private boolean[] leaf = new boolean[0];
+    private double[] size = new double[0]; // lado del cuadrado del nodo
+    private double[] mass = new double[0];
+    private double[] comX = new double[0];
+    private double[] comY = new double[0];
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private volatile boolean overflow;
+
+    // trozos de fuerzas reutilizados entre ticks, cada uno con su pila de recorrido (los
+    // hilos del pool común borran sus ThreadLocal tras cada tarea: no sirven para esto)
+    private int[][] stacks = new int[0][];
+    private double[] outX, outY;
+    private final ParallelChunks forceChunks = new ParallelChunks(FORCE_CHUNK) {
+        @Override
+        protected void compute(int chunk, int from, int to) {
+            forces(from, to, outX, outY, stacks[chunk]);
+        }
+    };
+
+    private double theta = 0.5;
+    private double gravity = 1.0;
+    private double softening2 = 16.0;
+
+    /** Ángulo de apertura θ: tamaño/distancia por debajo del cual un nodo se aproxima por su centro de masas. */
+    public void setOpeningAngle(double theta) { this.theta = Math.max(0.0, theta); }
+    public double getOpeningAngle() { return theta; }
+
+    /** Constante gravitatoria G en px^3 / (masa * ms^2). */
+    public void setGravityConstant(double g) { this.gravity = g; }
+    public double getGravityConstant() { return gravity; }
+
+    /** Distancia de suavizado (px) para evitar aceleraciones infinitas en encuentros cercanos. */
+    public void setSoftening(double eps) { this.softening2 = eps * eps; }
+
+    /**
+     * Calcular la aceleración gravitatoria de cada cuerpo debida a todos los demás.
+     * Los arrays de salida deben tener al menos {@code count} elementos.
+     */
+    public void computeAccelerations(double[] xs, double[] ys, double[] masses, int count,
+                                     double[] accX, double[] accY) {
+        this.x = xs; this.y = ys; this.m = masses;
+        if (count == 0) return;
+        if (index.length < count) index = new int[count];
+        for (int i = 0; i < count; i++) index[i] = i;
+
+        // caja contenedora cuadrada
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, xs[i]); maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]); maxY = Math.max(maxY, ys[i]);
+        }
+        double side = Math.max(1.0, Math.max(maxX - minX, maxY - minY)) * 1.0001;
+        double cx = minX + side / 2, cy = minY + side / 2;
+
+        // construir; si se agotan los nodos se amplía la capacidad y se reintenta
+        ensureCapacity(Math.max(64, count / 2));
+        while (true) {
+            nodeCount.set(1);
+            overflow = false;
+            if (count > PARALLEL_BUILD_THRESHOLD) {
+                ForkJoinPool.commonPool().invoke(new Build(0, 0, count, cx, cy, side, 0));
+            } else {
+                build(0, 0, count, cx, cy, side, 0);
+            }
+            if (!overflow) break;
+            ensureCapacity(capacity * 2);
+        }
+
+        if (sortedX.length < count) {
+            sortedX = new double[count]; sortedY = new double[count]; sortedM = new double[count];
+        }
+        for (int k = 0; k < count; k++) {
+            int b = index[k];
+            sortedX[k] = xs[b]; sortedY[k] = ys[b]; sortedM[k] = masses[b];
+        }
+        // recorrer los cuerpos en orden del árbol: cuerpos vecinos visitan los mismos nodos
+        int chunks = forceChunks.chunksFor(count);
+        if (stacks.length < chunks) {
+            int old = stacks.length;
+            stacks = Arrays.copyOf(stacks, chunks);
+            for (int c = old; c < chunks; c++) stacks[c] = new int[STACK_SIZE];
+        }
+        outX = accX;
+        outY = accY;
+        forceChunks.invoke(count);
+        outX = outY = null;
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= capacity) return;
+        capacity = nodes;
+        child = new int[nodes * 4];
+        start = new int[nodes];
+        end = new int[nodes];
+        leaf = new boolean[nodes];
+        size = new double[nodes];
+        mass = new double[nodes];
+        comX = new double[nodes];
+        comY = new double[nodes];
+    }
+
+    private int allocNode() {
+        int id = nodeCount.getAndIncrement();
+        if (id >= capacity) {
+            overflow = true;
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * Construir el subárbol de {@code node} con los cuerpos [from, to). Los cuadrantes de más
+     * de {@link #PARALLEL_BUILD_THRESHOLD} cuerpos se bifurcan en el pool; el resto se
+     * construye aquí mismo por recursión, sin crear tareas.
+     */
+    private void build(int node, int from, int to, double cx, double cy, double side, int depth) {
+        start[node] = from;
+        end[node] = to;
+        size[node] = side;
+        Arrays.fill(child, node * 4, node * 4 + 4, -1);
+        if (to - from <= LEAF_SIZE || depth >= MAX_DEPTH) {
+            leaf[node] = true;
+            double sm = 0, sx = 0, sy = 0;
+            for (int k = from; k < to; k++) {
+                int b = index[k];
+                sm += m[b]; sx += m[b] * x[b]; sy += m[b] * y[b];
+            }
+            setCenterOfMass(node, sm, sx, sy, from, to);
+            return;
+        }
+        leaf[node] = false;
+
+        // particionar [from,to) en cuadrantes: primero por y, luego cada mitad por x
+        int midY = partition(from, to, false, cy);
+        int midX0 = partition(from, midY, true, cx);
+        int midX1 = partition(midY, to, true, cx);
+        double h = side / 2, q = side / 4;
+
+        Build[] forked = null;
+        int forkedCount = 0;
+        for (int quad = 0; quad < 4; quad++) {
+            int a = quad == 0 ? from : quad == 1 ? midX0 : quad == 2 ? midY : midX1;
+            int b = quad == 0 ? midX0 : quad == 1 ? midY : quad == 2 ? midX1 : to;
+            if (a == b) continue;
+            int id = allocNode();
+            if (id < 0) break; // sin capacidad: el llamador reintentará
+            child[node * 4 + quad] = id;
+            double ccx = cx + ((quad & 1) == 0 ? -q : q);
+            double ccy = cy + ((quad & 2) == 0 ? -q : q);
+            if (b - a > PARALLEL_BUILD_THRESHOLD) {
+                if (forked == null) forked = new Build[4];
+                Build task = new Build(id, a, b, ccx, ccy, h, depth + 1);
+                forked[forkedCount++] = task;
+                task.fork();
+            } else {
+                build(id, a, b, ccx, ccy, h, depth + 1);
+            }
+        }
+        for (int i = 0; i < forkedCount; i++) forked[i].join();
+        if (overflow) return;
+
+        double sm = 0, sx = 0, sy = 0;
+        for (int quad = 0; quad < 4; quad++) {
+            int c = child[node * 4 + quad];
+            if (c < 0) continue;
+            sm += mass[c]; sx += mass[c] * comX[c]; sy += mass[c] * comY[c];
+        }
+        setCenterOfMass(node, sm, sx, sy, from, to);
+    }
+
+    private void setCenterOfMass(int node, double sm, double sx, double sy, int from, int to) {
+        mass[node] = sm;
+        if (sm > 0) {
+            comX[node] = sx / sm;
+            comY[node] = sy / sm;
+        } else {
+            // cuerpos sin masa: usar el centro geométrico
+            comX[node] = x[index[from]];
+            comY[node] = y[index[from]];
+        }
+    }
+
+    /** Partición en sitio: cuerpos con coordenada < pivot primero. Devuelve el punto de corte. */
+    private int partition(int a, int b, boolean byX, double pivot) {
+        int i = a, j = b - 1;
+        while (i <= j) {
+            int bi = index[i];
+            double v = byX ? x[bi] : y[bi];
+            if (v < pivot) {
+                i++;
+            } else {
+                index[i] = index[j];
+                index[j] = bi;
+                j--;
+            }
+        }
+        return i;
+    }
+
+    /** Subárbol grande construido en otro hilo del pool (ver {@link #build}). */
+    @SuppressWarnings("serial")
+    private final class Build extends RecursiveAction {
+        private final int node, from, to, depth;
+        private final double cx, cy, side;
+
+        Build(int node, int from, int to, double cx, double cy, double side, int depth) {
+            this.node = node; this.from = from; this.to = to;
+            this.cx = cx; this.cy = cy; this.side = side; this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            build(node, from, to, cx, cy, side, depth);
+        }
+    }
+
+    /** Aceleración de los cuerpos [from, to) en orden del árbol; escribe sólo en sus posiciones. */
+    private void forces(int from, int to, double[] accX, double[] accY, int[] stack) {
+        double theta2 = theta * theta;
+        double[] sx = sortedX, sy = sortedY, sm = sortedM;
+        for (int self = from; self < to; self++) {
+            double px = sx[self], py = sy[self];
+            double ax = 0, ay = 0;
+            int sp = 0;
+            stack[sp++] = 0;
+            while (sp > 0) {
+                int node = stack[--sp];
+                if (leaf[node]) {
+                    for (int k = start[node]; k < end[node]; k++) {
+                        if (k == self) continue;
+                        double dx = sx[k] - px, dy = sy[k] - py;
+                        double r2 = dx * dx + dy * dy + softening2;
+                        double f = sm[k] / (r2 * Math.sqrt(r2));
+                        ax += f * dx; ay += f * dy;
+                    }
+                    continue;
+                }
+                double dx = comX[node] - px, dy = comY[node] - py;
+                double d2 = dx * dx + dy * dy;
+                double s = size[node];
+                // criterio de apertura s/d < θ (comparado al cuadrado)
+                if (s * s < theta2 * d2) {
+                    double r2 = d2 + softening2;
+                    double f = mass[node] / (r2 * Math.sqrt(r2));
+                    ax += f * dx; ay += f * dy;
+                } else {
+                    for (int quad = 0; quad < 4; quad++) {
+                        int c = child[node * 4 + quad];
+                        if (c >= 0) stack[sp++] = c;
+                    }
+                }
+            }
+            int i = index[self];
+            accX[i] = gravity * ax;
+            accY[i] = gravity * ay;
+        }
+    }
+}
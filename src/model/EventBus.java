@@ -0,0 +1,92 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Bus de eventos del mundo por lotes. Los productores (bucle de colisiones, hilos de
+ * bola, controles) sólo encolan en una cola sin locks de varios productores; el hilo de
+ * simulación la vacía una vez por tick ({@link #dispatch}) y entrega el lote completo a
+ * cada suscriptor. Así puntuación, sonido, métricas o la grabación se enganchan sin
+ * añadir trabajo ni locks dentro del bucle de colisiones.
+ *
+ * Sin suscriptores publicar no hace nada; los productores pueden comprobar
+ * {@link #hasSubscribers()} para no construir el evento.
+ */
+public final class EventBus {
+    /** Receptor de los eventos de un tick, en orden de publicación. */
+    public interface Subscriber {
+        /** El lote sólo es válido durante la llamada. Se invoca en el hilo de simulación. */
+        void onEvents(List<WorldEvent> batch, long tick);
+    }
+
+    private final ConcurrentLinkedQueue<WorldEvent> queue = new ConcurrentLinkedQueue<>();
+    // copy-on-write para iterar sin asignar (como las tareas por tick del FrameScheduler)
+    private volatile Subscriber[] subscribers = new Subscriber[0];
+    // lote reutilizado (sólo hilo de simulación)
+    private final ArrayList<WorldEvent> batch = new ArrayList<>();
+
+    public boolean hasSubscribers() {
+        return subscribers.length > 0;
+    }
+
+    /** Encolar un evento; lo recibirán los suscriptores en el próximo {@link #dispatch}. */
+    public void publish(WorldEvent event) {
+        if (subscribers.length > 0) queue.offer(event);
+    }
+
+    public synchronized void subscribe(Subscriber s) {
+        Subscriber[] next = java.util.Arrays.copyOf(subscribers, subscribers.length + 1);
+        next[next.length - 1] = s;
+        subscribers = next;
+    }
+
+    /**
+     * Suscribirse sólo a un tipo de evento: el manejador recibe, en cada tick con algún
+     * evento de ese tipo, la lista filtrada. Devuelve la suscripción (para darla de baja).
+     */
+    public <T extends WorldEvent> Subscriber subscribe(Class<T> type, Consumer<List<T>> handler) {
+        ArrayList<T> filtered = new ArrayList<>();
+        Subscriber s = (events, tick) -> {
+            filtered.clear();
+            for (int i = 0; i < events.size(); i++) {
+                WorldEvent e = events.get(i);
+                if (type.isInstance(e)) filtered.add(type.cast(e));
+            }
+            if (!filtered.isEmpty()) handler.accept(filtered);
+        };
+        subscribe(s);
+        return s;
+    }
+
+    public synchronized void unsubscribe(Subscriber s) {
+        Subscriber[] current = subscribers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == s) {
+                Subscriber[] next = new Subscriber[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                subscribers = next;
+                if (next.length == 0) queue.clear();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Vaciar la cola y entregar el lote del tick a todos los suscriptores. Sólo desde el
+     * hilo de simulación; los eventos publicados mientras tanto van al siguiente lote.
+     */
+    public void dispatch(long tick) {
+        if (queue.isEmpty()) return;
+        WorldEvent e;
+        // tope por lote: si los productores no paran, el resto pasa al siguiente tick
+        int limit = 1 << 16;
+        while (limit-- > 0 && (e = queue.poll()) != null) batch.add(e);
+        Subscriber[] subs = subscribers;
+        for (int i = 0; i < subs.length; i++) subs[i].onEvents(batch, tick);
+        batch.clear();
+    }
+}
@@ -9,39 +9,58 @@ import java.util.List;
  */
 public class Explosion {
     private final List<Particle> particles;
-    private long startTime;
+    // tiempo de simulación transcurrido (ms); avanza en update(), no con el reloj de pared
+    private double elapsedMs = 0;
     private static final long DURATION_MS = 800; // duración de la explosión
     
-    public Explosion(double x, double y, Color color, int ballDiameter) {
-        this.startTime = System.currentTimeMillis();
+    public Explosion(double x, double y, Color color, int ballDiameter, SimRandom rnd) {
         this.particles = new ArrayList<>();
         
         // crear partículas en todas direcciones
         int numParticles = Math.min(20, ballDiameter / 2);
         for (int i = 0; i < numParticles; i++) {
             double angle = (2 * Math.PI * i) / numParticles;
-            double speed = 0.1 + Math.random() * 0.2; // px/ms
+            double speed = 0.1 + rnd.nextDouble() * 0.2; // px/ms
             particles.add(new Particle(x, y, angle, speed, color));
         }
     }
     
+    /** Reconstruir una explosión guardada en un checkpoint, con {@code elapsedMs} ya transcurridos. */
+    Explosion(double elapsedMs, Color color, double[] xs, double[] ys, double[] vxs, double[] vys, int from, int count) {
+        this.elapsedMs = elapsedMs;
+        this.particles = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            particles.add(new Particle(color, xs[i], ys[i], vxs[i], vys[i]));
+        }
+    }
+
     public void update(double deltaMs) {
-        for (Particle p : particles) {
-            p.update(deltaMs);
+        elapsedMs += deltaMs;
+        for (int i = 0; i < particles.size(); i++) {
+            particles.get(i).update(deltaMs);
         }
     }
     
     public boolean isFinished() {
-        return System.currentTimeMillis() - startTime > DURATION_MS;
+        return elapsedMs > DURATION_MS;
     }
     
     public List<Particle> getParticles() {
         return particles;
     }
     
+    /** Milisegundos desde que empezó la explosión. */
+    public long getElapsedMs() {
+        return (long) elapsedMs;
+    }
+
+    // sin truncar, para checkpoints y el hash de estado
+    double elapsedExactMs() {
+        return elapsedMs;
+    }
+
     public double getProgress() {
-        long elapsed = System.currentTimeMillis() - startTime;
-        return Math.min(1.0, elapsed / (double) DURATION_MS);
+        return Math.min(1.0, elapsedMs / DURATION_MS);
     }
     
     /**
@@ -60,6 +79,15 @@ public class Explosion {
             this.color = color;
         }
         
+        // estado exacto guardado en un checkpoint (velocidad ya descompuesta)
+        private Particle(Color color, double x, double y, double velX, double velY) {
+            this.x = x;
+            this.y = y;
+            this.velX = velX;
+            this.velY = velY;
+            this.color = color;
+        }
+
         public void update(double deltaMs) {
             x += velX * deltaMs;
             y += velY * deltaMs;
@@ -67,6 +95,8 @@ public class Explosion {
         
         public double getX() { return x; }
         public double getY() { return y; }
+        public double getVelX() { return velX; }
+        public double getVelY() { return velY; }
         public Color getColor() { return color; }
     }
 }
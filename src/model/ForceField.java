@@ -0,0 +1,285 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Campo de fuerzas colocado por el diseñador: atractores, repulsores y zonas de viento.
+ * El campo no se evalúa fuente a fuente para cada bola: se precalcula en una
+ * rejilla de vectores y cada bola lo muestrea con interpolación bilineal, así que
+ * el coste por bola es O(1) tenga el campo 1 o 1000 fuentes.
+ *
+ * Al editar una fuente sólo se recalcula la región de la rejilla afectada, en un
+ * hilo de fondo, sobre una copia de la rejilla actual; la copia terminada se
+ * publica de golpe (referencia volatile), de modo que los lectores siempre ven
+ * una rejilla completa y coherente.
+ *
+ * Unidades: posiciones en px, aceleraciones en px/ms^2.
+ */
+public class ForceField {
+    public enum Type { ATTRACTOR, REPULSOR, WIND }
+
+    /** Fuente inmutable; editar una fuente equivale a sustituirla. */
+    public static final class Source {
+        private final int id;
+        private final Type type;
+        private final double x, y;          // centro (atractor/repulsor) o esquina (viento)
+        private final double width, height; // zona de viento; para atractores width = radio
+        private final double ax, ay;        // intensidad (ax) o vector de viento (ax, ay)
+
+        Source(int id, Type type, double x, double y, double width, double height, double ax, double ay) {
+            this.id = id; this.type = type; this.x = x; this.y = y;
+            this.width = width; this.height = height; this.ax = ax; this.ay = ay;
+        }
+
+        public int getId() { return id; }
+        public Type getType() { return type; }
+        public double getX() { return x; }
+        public double getY() { return y; }
+        /** Radio de influencia de un atractor/repulsor. */
+        public double getRadius() { return width; }
+        public double getWidth() { return width; }
+        public double getHeight() { return height; }
+        public double getStrength() { return ax; }
+        public double getWindX() { return ax; }
+        public double getWindY() { return ay; }
+
+        Source movedTo(double nx, double ny) {
+            return new Source(id, type, nx, ny, width, height, ax, ay);
+        }
+
+        double minX() { return type == Type.WIND ? x : x - width; }
+        double minY() { return type == Type.WIND ? y : y - width; }
+        double maxX() { return x + width; }
+        double maxY() { return type == Type.WIND ? y + height : y + width; }
+
+        /** Sumar la aceleración de esta fuente en (px, py) a out[0..1]. */
+        void accumulate(double px, double py, double[] out) {
+            if (type == Type.WIND) {
+                if (px >= x && px <= x + width && py >= y && py <= y + height) {
+                    out[0] += ax; out[1] += ay;
+                }
+                return;
+            }
+            double dx = x - px, dy = y - py;
+            double d = Math.hypot(dx, dy);
+            if (d >= width || d < 1e-9) return;
+            // caída lineal: intensidad completa en el centro, cero en el radio
+            double a = ax * (1.0 - d / width);
+            if (type == Type.REPULSOR) a = -a;
+            out[0] += a * dx / d;
+            out[1] += a * dy / d;
+        }
+    }
+
+    /** Rejilla inmutable una vez publicada. Nodos en (i*cell, j*cell). */
+    private static final class Grid {
+        final int cols, rows;
+        final double[] fx, fy;
+
+        Grid(int cols, int rows, double[] fx, double[] fy) {
+            this.cols = cols; this.rows = rows; this.fx = fx; this.fy = fy;
+        }
+    }
+
+    private final double cellSize;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ForceField-Rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile Source[] sources = new Source[0];
+    private volatile Grid grid;
+    // región sucia pendiente (en celdas), protegida por 'this'
+    private int width, height;
+    private int dirtyMinCol = Integer.MAX_VALUE, dirtyMinRow = Integer.MAX_VALUE;
+    private int dirtyMaxCol = -1, dirtyMaxRow = -1;
+    private boolean rebuildScheduled = false;
+
+    public ForceField(int width, int height, double cellSize) {
+        this.cellSize = Math.max(1.0, cellSize);
+        this.width = width;
+        this.height = height;
+        this.grid = emptyGrid(width, height);
+    }
+
+    private Grid emptyGrid(int w, int h) {
+        int cols = (int) Math.ceil(Math.max(1, w) / cellSize) + 2;
+        int rows = (int) Math.ceil(Math.max(1, h) / cellSize) + 2;
+        return new Grid(cols, rows, new double[cols * rows], new double[cols * rows]);
+    }
+
+    public int addAttractor(double x, double y, double radius, double strength) {
+        return add(Type.ATTRACTOR, x, y, radius, radius, strength, 0);
+    }
+
+    public int addRepulsor(double x, double y, double radius, double strength) {
+        return add(Type.REPULSOR, x, y, radius, radius, strength, 0);
+    }
+
+    /** Zona rectangular de viento con aceleración constante (ax, ay). */
+    public int addWind(double x, double y, double width, double height, double ax, double ay) {
+        return add(Type.WIND, x, y, width, height, ax, ay);
+    }
+
+    private int add(Type type, double x, double y, double w, double h, double ax, double ay) {
+        Source s = new Source(nextId.getAndIncrement(), type, x, y, Math.max(1, w), Math.max(1, h), ax, ay);
+        synchronized (this) {
+            Source[] next = Arrays.copyOf(sources, sources.length + 1);
+            next[next.length - 1] = s;
+            sources = next;
+            markDirty(s);
+        }
+        return s.getId();
+    }
+
+    /** Mover una fuente; se recalcula la unión de su región anterior y la nueva. */
+    public synchronized boolean moveSource(int id, double x, double y) {
+        Source[] current = sources;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getId() == id) {
+                Source[] next = current.clone();
+                next[i] = current[i].movedTo(x, y);
+                sources = next;
+                markDirty(current[i]);
+                markDirty(next[i]);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized boolean removeSource(int id) {
+        Source[] current = sources;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getId() == id) {
+                Source[] next = new Source[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                sources = next;
+                markDirty(current[i]);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Id de la fuente cuyo centro está más cerca de (x, y) dentro de maxDist, o -1. */
+    public int findNearestSource(double x, double y, double maxDist) {
+        Source[] current = sources;
+        int best = -1;
+        double bestD = maxDist;
+        for (Source s : current) {
+            double cx = s.getType() == Type.WIND ? s.x + s.width / 2 : s.x;
+            double cy = s.getType() == Type.WIND ? s.y + s.height / 2 : s.y;
+            double d = Math.hypot(cx - x, cy - y);
+            if (d <= bestD) { bestD = d; best = s.getId(); }
+        }
+        return best;
+    }
+
+    /** Fuentes actuales (array publicado; no modificar). */
+    public Source[] getSources() {
+        return sources;
+    }
+
+    public boolean hasSources() {
+        return sources.length > 0;
+    }
+
+    /** Adaptar la rejilla a un nuevo tamaño del mundo (reconstrucción completa en segundo plano). */
+    public synchronized void ensureSize(int w, int h) {
+        if (w == width && h == height) return;
+        width = w;
+        height = h;
+        dirtyMinCol = 0; dirtyMinRow = 0;
+        dirtyMaxCol = Integer.MAX_VALUE; dirtyMaxRow = Integer.MAX_VALUE;
+        scheduleRebuild();
+    }
+
+    /**
+     * Muestrear el campo en (x, y) con interpolación bilineal y escribir la
+     * aceleración en out[0] (x) y out[1] (y). No asigna memoria.
+     */
+    public void sample(double x, double y, double[] out) {
+        Grid g = grid;
+        double gx = x / cellSize, gy = y / cellSize;
+        int i = (int) Math.floor(gx), j = (int) Math.floor(gy);
+        if (i < 0 || j < 0 || i >= g.cols - 1 || j >= g.rows - 1) {
+            out[0] = 0; out[1] = 0;
+            return;
+        }
+        double tx = gx - i, ty = gy - j;
+        int k00 = j * g.cols + i, k10 = k00 + 1, k01 = k00 + g.cols, k11 = k01 + 1;
+        double w00 = (1 - tx) * (1 - ty), w10 = tx * (1 - ty), w01 = (1 - tx) * ty, w11 = tx * ty;
+        out[0] = g.fx[k00] * w00 + g.fx[k10] * w10 + g.fx[k01] * w01 + g.fx[k11] * w11;
+        out[1] = g.fy[k00] * w00 + g.fy[k10] * w10 + g.fy[k01] * w01 + g.fy[k11] * w11;
+    }
+
+    private void markDirty(Source s) {
+        // +1 celda de margen: los nodos vecinos interpolan hacia la región
+        dirtyMinCol = Math.min(dirtyMinCol, (int) Math.floor(s.minX() / cellSize) - 1);
+        dirtyMinRow = Math.min(dirtyMinRow, (int) Math.floor(s.minY() / cellSize) - 1);
+        dirtyMaxCol = Math.max(dirtyMaxCol, (int) Math.ceil(s.maxX() / cellSize) + 1);
+        dirtyMaxRow = Math.max(dirtyMaxRow, (int) Math.ceil(s.maxY() / cellSize) + 1);
+        scheduleRebuild();
+    }
+
+    private void scheduleRebuild() {
+        // las ediciones que llegan mientras hay una reconstrucción pendiente se agrupan
+        if (rebuildScheduled) return;
+        rebuildScheduled = true;
+        rebuilder.execute(this::rebuildDirtyRegion);
+    }
+
+    private void rebuildDirtyRegion() {
+        int minC, minR, maxC, maxR, w, h;
+        Source[] snapshot;
+        synchronized (this) {
+            minC = dirtyMinCol; minR = dirtyMinRow; maxC = dirtyMaxCol; maxR = dirtyMaxRow;
+            w = width; h = height;
+            snapshot = sources;
+            dirtyMinCol = Integer.MAX_VALUE; dirtyMinRow = Integer.MAX_VALUE;
+            dirtyMaxCol = -1; dirtyMaxRow = -1;
+            rebuildScheduled = false;
+        }
+        Grid current = grid;
+        Grid target = emptyGrid(w, h);
+        boolean resized = target.cols != current.cols || target.rows != current.rows;
+        if (resized) {
+            minC = 0; minR = 0; maxC = target.cols - 1; maxR = target.rows - 1;
+        } else {
+            // copia de la rejilla vigente; sólo se reescribe la región sucia
+            System.arraycopy(current.fx, 0, target.fx, 0, current.fx.length);
+            System.arraycopy(current.fy, 0, target.fy, 0, current.fy.length);
+            minC = Math.max(0, minC); minR = Math.max(0, minR);
+            maxC = Math.min(target.cols - 1, maxC); maxR = Math.min(target.rows - 1, maxR);
+        }
+
+        // fuentes que tocan la región, para no recorrerlas todas en cada nodo
+        double rx0 = minC * cellSize, ry0 = minR * cellSize;
+        double rx1 = maxC * cellSize, ry1 = maxR * cellSize;
+        Source[] relevant = new Source[snapshot.length];
+        int count = 0;
+        for (Source s : snapshot) {
+            if (s.maxX() >= rx0 && s.minX() <= rx1 && s.maxY() >= ry0 && s.minY() <= ry1) {
+                relevant[count++] = s;
+            }
+        }
+        double[] acc = new double[2];
+        for (int j = minR; j <= maxR; j++) {
+            for (int i = minC; i <= maxC; i++) {
+                acc[0] = 0; acc[1] = 0;
+                double px = i * cellSize, py = j * cellSize;
+                for (int k = 0; k < count; k++) relevant[k].accumulate(px, py, acc);
+                target.fx[j * target.cols + i] = acc[0];
+                target.fy[j * target.cols + i] = acc[1];
+            }
+        }
+        grid = target;
+    }
+}
@@ -0,0 +1,53 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Intercambio de frames de tres huecos (triple buffer) entre un único productor
+ * (el hilo de simulación) y un único consumidor (el renderizador).
+ * Ninguno de los dos bloquea: el productor siempre tiene un hueco libre donde
+ * escribir el tick N+1 mientras el consumidor pinta el tick N, y si el
+ * renderizador se retrasa los frames intermedios simplemente se descartan.
+ */
+public class FrameExchange {
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4;
+
+    private final FrameSnapshot[] slots = {
+        new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot()
+    };
+    // índice del hueco intermedio (último publicado) + bit FRESH si el lector aún no lo ha tomado
+    private final AtomicInteger middle = new AtomicInteger(1);
+    // propiedad exclusiva del productor
+    private int writeIndex = 0;
+    // propiedad exclusiva del consumidor
+    private int readIndex = 2;
+
+    /** Hueco donde el productor debe escribir el siguiente frame. */
+    public FrameSnapshot getWriteSlot() {
+        return slots[writeIndex];
+    }
+
+    /** Publicar el hueco de escritura y quedarse con el antiguo hueco intermedio. */
+    public void publish() {
+        int previous = middle.getAndSet(writeIndex | FRESH);
+        writeIndex = previous & INDEX_MASK;
+    }
+
+    /**
+     * Devolver el frame publicado más reciente. Si no hay uno nuevo se devuelve
+     * otra vez el último leído, que sigue siendo válido hasta la siguiente llamada.
+     */
+    public FrameSnapshot acquireLatest() {
+        if ((middle.get() & FRESH) != 0) {
+            int previous = middle.getAndSet(readIndex);
+            readIndex = previous & INDEX_MASK;
+        }
+        return slots[readIndex];
+    }
+
+    /** true si hay un frame publicado que el consumidor todavía no ha tomado. */
+    public boolean hasFreshFrame() {
+        return (middle.get() & FRESH) != 0;
+    }
+}
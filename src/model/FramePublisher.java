@@ -0,0 +1,269 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Flujo de frames de la simulación ({@link Flow.Publisher}) para consumidores fuera del
+ * viewer: exportadores, analítica, grabadores lentos...
+ *
+ * Cada suscripción tiene su propio {@link FrameExchange} y su hilo de entrega. El hilo
+ * de simulación ({@link #offer}, único productor) sólo copia el frame en el exchange de
+ * las suscripciones que han pedido alguno; si el suscriptor aún está con el anterior, el
+ * nuevo sustituye al que esperaba (se queda el más reciente, nunca se acumulan). Un
+ * suscriptor sin demanda no cuesta nada y nunca frena la simulación.
+ *
+ * El frame que recibe {@code onNext} es válido hasta la siguiente llamada a
+ * {@code onNext} de esa misma suscripción; para guardarlo hay que copiarlo
+ * ({@link FrameSnapshot#copyFrom}).
+ */
+public final class FramePublisher implements Flow.Publisher<FrameSnapshot> {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    // copy-on-write para iterar sin asignar desde el hilo de simulación
+    private volatile FrameSubscription[] subscriptions = new FrameSubscription[0];
+    private volatile boolean closed = false;
+    // frames sustituidos antes de entregarse (escrito sólo por el hilo de simulación)
+    private volatile long framesConflated = 0;
+
+    public long getFramesConflated() { return framesConflated; }
+
+    public int getSubscriberCount() { return subscriptions.length; }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super FrameSnapshot> subscriber) {
+        if (subscriber == null) throw new NullPointerException("subscriber");
+        FrameSubscription s = new FrameSubscription(subscriber);
+        synchronized (this) {
+            if (!closed) {
+                FrameSubscription[] next = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+                next[next.length - 1] = s;
+                subscriptions = next;
+            } else {
+                s.done = true;
+            }
+        }
+        s.start();
+    }
+
+    /**
+     * Entregar el frame recién publicado (sólo desde el hilo de simulación). Sin
+     * suscriptores, o sin demanda, no hace nada.
+     */
+    public void offer(FrameSnapshot frame) {
+        FrameSubscription[] subs = subscriptions;
+        for (int i = 0; i < subs.length; i++) {
+            FrameSubscription s = subs[i];
+            if (s.cancelled) {
+                remove(s);
+            } else if (s.demand.get() > 0) {
+                if (s.frames.hasFreshFrame()) framesConflated++;
+                s.frames.getWriteSlot().copyFrom(frame);
+                s.frames.publish();
+                LockSupport.unpark(s.thread);
+            }
+        }
+    }
+
+    /** Terminar el flujo: cada suscriptor recibe {@code onComplete} tras su último frame. */
+    public void close() {
+        FrameSubscription[] subs;
+        synchronized (this) {
+            closed = true;
+            subs = subscriptions;
+            subscriptions = new FrameSubscription[0];
+        }
+        for (FrameSubscription s : subs) {
+            s.done = true;
+            LockSupport.unpark(s.thread);
+        }
+    }
+
+    private synchronized void remove(FrameSubscription s) {
+        FrameSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == s) {
+                FrameSubscription[] next = new FrameSubscription[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                subscriptions = next;
+                return;
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ suscriptores
+
+    /**
+     * Limitar a {@code hz} frames por segundo como mucho: los que llegan antes de tiempo
+     * se descartan (y se pide el siguiente, que ya será el más reciente).
+     */
+    public static Flow.Subscriber<FrameSnapshot> sampled(double hz, Flow.Subscriber<? super FrameSnapshot> downstream) {
+        if (!(hz > 0)) throw new IllegalArgumentException("frecuencia no válida: " + hz);
+        long periodNanos = (long) (1e9 / hz);
+        return new FilterSubscriber(downstream) {
+            private long last;
+            private boolean first = true;
+
+            @Override
+            boolean accept(FrameSnapshot frame) {
+                long now = System.nanoTime();
+                if (!first && now - last < periodNanos) return false;
+                first = false;
+                last = now;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Un frame de cada {@code n} ticks: el siguiente que llega tras {@code n} ticks desde el
+     * último entregado. Si el suscriptor va al día, exactamente cada n-ésimo tick.
+     */
+    public static Flow.Subscriber<FrameSnapshot> decimated(int n, Flow.Subscriber<? super FrameSnapshot> downstream) {
+        if (n < 1) throw new IllegalArgumentException("n no válido: " + n);
+        return new FilterSubscriber(downstream) {
+            private long lastTick = Long.MIN_VALUE;
+
+            @Override
+            boolean accept(FrameSnapshot frame) {
+                long tick = frame.getTick();
+                if (lastTick != Long.MIN_VALUE && tick - lastTick < n) return false;
+                lastTick = tick;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Base de los filtros: mientras el de abajo tenga demanda mantiene pedido un frame
+     * arriba, así que lo que descarta nunca se acumula.
+     */
+    private abstract static class FilterSubscriber implements Flow.Subscriber<FrameSnapshot>, Flow.Subscription {
+        private final Flow.Subscriber<? super FrameSnapshot> downstream;
+        private final AtomicLong demand = new AtomicLong();
+        // hay un frame pedido arriba que aún no ha llegado
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile Flow.Subscription upstream;
+
+        FilterSubscriber(Flow.Subscriber<? super FrameSnapshot> downstream) {
+            if (downstream == null) throw new NullPointerException("downstream");
+            this.downstream = downstream;
+        }
+
+        /** true si el frame pasa al suscriptor de abajo (sólo desde el hilo de entrega). */
+        abstract boolean accept(FrameSnapshot frame);
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(FrameSnapshot frame) {
+            if (accept(frame)) {
+                demand.decrementAndGet();
+                downstream.onNext(frame);
+            }
+            pending.set(false);
+            pullIfNeeded();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            downstream.onError(error);
+        }
+
+        @Override
+        public void onComplete() {
+            downstream.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                upstream.request(n); // el de arriba lo rechaza con onError
+                return;
+            }
+            demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            pullIfNeeded();
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+        }
+
+        private void pullIfNeeded() {
+            if (demand.get() > 0 && pending.compareAndSet(false, true)) upstream.request(1);
+        }
+    }
+
+    // ------------------------------------------------------------------ suscripción
+
+    private final class FrameSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super FrameSnapshot> subscriber;
+        private final FrameExchange frames = new FrameExchange();
+        private final AtomicLong demand = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+        private volatile Throwable failure;
+
+        FrameSubscription(Flow.Subscriber<? super FrameSnapshot> subscriber) {
+            this.subscriber = subscriber;
+            this.thread = new Thread(this, "Frame-Subscriber-" + NEXT_ID.incrementAndGet());
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("demanda no positiva: " + n);
+                cancelled = true;
+            } else {
+                demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            }
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            try {
+                subscriber.onSubscribe(this);
+                while (!cancelled) {
+                    if (demand.get() > 0 && frames.hasFreshFrame()) {
+                        FrameSnapshot frame = frames.acquireLatest();
+                        if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                        subscriber.onNext(frame);
+                    } else if (done) {
+                        subscriber.onComplete();
+                        break;
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+                if (failure != null) subscriber.onError(failure);
+            } catch (Throwable t) {
+                // un suscriptor que lanza excepciones queda dado de baja
+                cancelled = true;
+            }
+            remove(this);
+        }
+    }
+}
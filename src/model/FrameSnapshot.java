@@ -0,0 +1,259 @@
+package model;
+
+import java.awt.Color;
+
+/**
+ * Copia inmutable (para el lector) del estado visible del mundo en un tick.
+ * Los arrays se reutilizan entre ticks y sólo crecen cuando aumenta el número
+ * de entidades, de modo que producir un frame no asigna memoria en régimen estacionario.
+ */
+public class FrameSnapshot {
+    private long tick;
+
+    private int ballCount;
+    private Ball[] balls = new Ball[64];
+    private int[] ballId = new int[64];
+    private int[] ballX = new int[64];
+    private int[] ballY = new int[64];
+    private int[] ballDiameter = new int[64];
+    private double[] ballAngle = new double[64];
+    private Color[] ballColor = new Color[64];
+    private float[] ballSpeed = new float[64];
+
+    // Rejilla de densidad (sólo si se pide, ver buildDensityGrid): bolas y suma de
+    // velocidades por celda, y los índices de las bolas agrupados por celda para
+    // encontrar las vecinas de una sin recorrer el frame entero
+    private int gridCell, gridCols, gridRows;
+    private int[] gridCount = new int[0];
+    private float[] gridSpeed = new float[0];
+    private int[] gridStart = new int[1];
+    private int[] gridFill = new int[0];
+    private int[] gridItems = new int[0];
+    private int[] ballCell = new int[0];
+
+    private int projectileCount;
+    private double[] projectileX = new double[16];
+    private double[] projectileY = new double[16];
+    private int[] projectileSize = new int[16];
+    private Color[] projectileColor = new Color[16];
+
+    private int particleCount;
+    private double[] particleX = new double[64];
+    private double[] particleY = new double[64];
+    private float[] particleAlpha = new float[64];
+    private int[] particleSize = new int[64];
+    private Color[] particleColor = new Color[64];
+
+    void begin(long tick) {
+        this.tick = tick;
+        // soltar referencias de frames anteriores que ya no se van a sobrescribir
+        for (int i = 0; i < ballCount; i++) { balls[i] = null; ballColor[i] = null; }
+        ballCount = 0;
+        gridCols = 0;
+        gridRows = 0;
+        projectileCount = 0;
+        particleCount = 0;
+    }
+
+    /**
+     * Reserva un hueco para una bola y devuelve su índice. {@code b} puede ser null
+     * cuando el frame no viene de la simulación (reproducción de una grabación).
+     */
+    int addBall(Ball b, int id, int x, int y, int diameter, double angle, Color color) {
+        if (ballCount == balls.length) growBalls();
+        int i = ballCount++;
+        balls[i] = b;
+        ballId[i] = id;
+        ballX[i] = x;
+        ballY[i] = y;
+        ballDiameter[i] = diameter;
+        ballAngle[i] = angle;
+        ballColor[i] = color;
+        ballSpeed[i] = 0f;
+        return i;
+    }
+
+    /** Módulo de la velocidad de la bola {@code i} (0 si el frame no lo conoce). */
+    void setBallSpeed(int i, float speed) {
+        ballSpeed[i] = speed;
+    }
+
+    /**
+     * Agrupar las bolas ya añadidas en una rejilla de celdas de {@code cell} px que cubre
+     * {@code width} x {@code height}: cuántas hay en cada celda, su velocidad media y
+     * qué bolas son. Coste O(bolas + celdas); lo hace el productor del frame (el hilo de
+     * simulación) para que quien pinta el mapa de calor sólo recorra celdas.
+     */
+    public void buildDensityGrid(int cell, int width, int height) {
+        int cols = Math.max(1, (width + cell - 1) / cell);
+        int rows = Math.max(1, (height + cell - 1) / cell);
+        int cells = cols * rows;
+        if (gridCount.length < cells) {
+            gridCount = new int[cells];
+            gridSpeed = new float[cells];
+            gridStart = new int[cells + 1];
+            gridFill = new int[cells];
+        } else {
+            java.util.Arrays.fill(gridCount, 0, cells, 0);
+            java.util.Arrays.fill(gridSpeed, 0, cells, 0f);
+        }
+        if (gridItems.length < ballCount) {
+            gridItems = new int[balls.length];
+            ballCell = new int[balls.length];
+        }
+        for (int i = 0; i < ballCount; i++) {
+            // celda del centro de la bola; las que se salen del mundo van al borde
+            int r = ballDiameter[i] / 2;
+            int cx = Math.max(0, Math.min(cols - 1, (ballX[i] + r) / cell));
+            int cy = Math.max(0, Math.min(rows - 1, (ballY[i] + r) / cell));
+            int c = cy * cols + cx;
+            ballCell[i] = c;
+            gridCount[c]++;
+            gridSpeed[c] += ballSpeed[i];
+        }
+        gridStart[0] = 0;
+        for (int c = 0; c < cells; c++) {
+            gridStart[c + 1] = gridStart[c] + gridCount[c];
+            gridFill[c] = gridStart[c];
+        }
+        for (int i = 0; i < ballCount; i++) gridItems[gridFill[ballCell[i]]++] = i;
+        gridCell = cell;
+        gridCols = cols;
+        gridRows = rows;
+    }
+
+    void addProjectile(double x, double y, int size, Color color) {
+        if (projectileCount == projectileX.length) growProjectiles();
+        int i = projectileCount++;
+        projectileX[i] = x;
+        projectileY[i] = y;
+        projectileSize[i] = size;
+        projectileColor[i] = color;
+    }
+
+    void addParticle(double x, double y, int size, float alpha, Color color) {
+        if (particleCount == particleX.length) growParticles();
+        int i = particleCount++;
+        particleX[i] = x;
+        particleY[i] = y;
+        particleSize[i] = size;
+        particleAlpha[i] = alpha;
+        particleColor[i] = color;
+    }
+
+    /**
+     * Copiar otro frame sin las referencias a las bolas, para entregarlo a un consumidor
+     * que no debe compartir el hueco con el renderizador (ej. el servidor de red).
+     */
+    public void copyFrom(FrameSnapshot src) {
+        begin(src.tick);
+        int n = src.ballCount;
+        while (balls.length < n) growBalls();
+        System.arraycopy(src.ballId, 0, ballId, 0, n);
+        System.arraycopy(src.ballX, 0, ballX, 0, n);
+        System.arraycopy(src.ballY, 0, ballY, 0, n);
+        System.arraycopy(src.ballDiameter, 0, ballDiameter, 0, n);
+        System.arraycopy(src.ballAngle, 0, ballAngle, 0, n);
+        System.arraycopy(src.ballColor, 0, ballColor, 0, n);
+        System.arraycopy(src.ballSpeed, 0, ballSpeed, 0, n);
+        ballCount = n;
+        if (src.hasDensityGrid()) copyGridFrom(src);
+        for (int i = 0; i < src.projectileCount; i++) {
+            addProjectile(src.projectileX[i], src.projectileY[i], src.projectileSize[i], src.projectileColor[i]);
+        }
+        for (int i = 0; i < src.particleCount; i++) {
+            addParticle(src.particleX[i], src.particleY[i], src.particleSize[i], src.particleAlpha[i], src.particleColor[i]);
+        }
+    }
+
+    private void copyGridFrom(FrameSnapshot src) {
+        int cells = src.gridCols * src.gridRows;
+        if (gridCount.length < cells) {
+            gridCount = new int[cells];
+            gridSpeed = new float[cells];
+            gridStart = new int[cells + 1];
+            gridFill = new int[cells];
+        }
+        if (gridItems.length < ballCount) {
+            gridItems = new int[balls.length];
+            ballCell = new int[balls.length];
+        }
+        System.arraycopy(src.gridCount, 0, gridCount, 0, cells);
+        System.arraycopy(src.gridSpeed, 0, gridSpeed, 0, cells);
+        System.arraycopy(src.gridStart, 0, gridStart, 0, cells + 1);
+        System.arraycopy(src.gridItems, 0, gridItems, 0, ballCount);
+        gridCell = src.gridCell;
+        gridCols = src.gridCols;
+        gridRows = src.gridRows;
+    }
+
+    private void growBalls() {
+        int n = balls.length * 2;
+        balls = java.util.Arrays.copyOf(balls, n);
+        ballX = java.util.Arrays.copyOf(ballX, n);
+        ballY = java.util.Arrays.copyOf(ballY, n);
+        ballDiameter = java.util.Arrays.copyOf(ballDiameter, n);
+        ballId = java.util.Arrays.copyOf(ballId, n);
+        ballAngle = java.util.Arrays.copyOf(ballAngle, n);
+        ballColor = java.util.Arrays.copyOf(ballColor, n);
+        ballSpeed = java.util.Arrays.copyOf(ballSpeed, n);
+    }
+
+    private void growProjectiles() {
+        int n = projectileX.length * 2;
+        projectileX = java.util.Arrays.copyOf(projectileX, n);
+        projectileY = java.util.Arrays.copyOf(projectileY, n);
+        projectileSize = java.util.Arrays.copyOf(projectileSize, n);
+        projectileColor = java.util.Arrays.copyOf(projectileColor, n);
+    }
+
+    private void growParticles() {
+        int n = particleX.length * 2;
+        particleX = java.util.Arrays.copyOf(particleX, n);
+        particleY = java.util.Arrays.copyOf(particleY, n);
+        particleSize = java.util.Arrays.copyOf(particleSize, n);
+        particleAlpha = java.util.Arrays.copyOf(particleAlpha, n);
+        particleColor = java.util.Arrays.copyOf(particleColor, n);
+    }
+
+    public long getTick() { return tick; }
+
+    public int getBallCount() { return ballCount; }
+    public Ball getBall(int i) { return balls[i]; }
+    public int getBallId(int i) { return ballId[i]; }
+    public int getBallX(int i) { return ballX[i]; }
+    public int getBallY(int i) { return ballY[i]; }
+    public int getBallDiameter(int i) { return ballDiameter[i]; }
+    public double getBallAngle(int i) { return ballAngle[i]; }
+    public Color getBallColor(int i) { return ballColor[i]; }
+    public float getBallSpeed(int i) { return ballSpeed[i]; }
+
+    /** Índice de la bola con ese id (los ids del frame van ordenados), o -1. */
+    public int indexOfBallId(int id) {
+        int i = java.util.Arrays.binarySearch(ballId, 0, ballCount, id);
+        return i >= 0 ? i : -1;
+    }
+
+    public boolean hasDensityGrid() { return gridCols > 0; }
+    public int getGridCellSize() { return gridCell; }
+    public int getGridCols() { return gridCols; }
+    public int getGridRows() { return gridRows; }
+    public int getGridCount(int c) { return gridCount[c]; }
+    public float getGridMeanSpeed(int c) { return gridCount[c] > 0 ? gridSpeed[c] / gridCount[c] : 0f; }
+    /** Las bolas de la celda {@code c} son {@code getGridItem(k)} con k en [start(c), start(c + 1)). */
+    public int getGridStart(int c) { return gridStart[c]; }
+    public int getGridItem(int k) { return gridItems[k]; }
+
+    public int getProjectileCount() { return projectileCount; }
+    public double getProjectileX(int i) { return projectileX[i]; }
+    public double getProjectileY(int i) { return projectileY[i]; }
+    public int getProjectileSize(int i) { return projectileSize[i]; }
+    public Color getProjectileColor(int i) { return projectileColor[i]; }
+
+    public int getParticleCount() { return particleCount; }
+    public double getParticleX(int i) { return particleX[i]; }
+    public double getParticleY(int i) { return particleY[i]; }
+    public int getParticleSize(int i) { return particleSize[i]; }
+    public float getParticleAlpha(int i) { return particleAlpha[i]; }
+    public Color getParticleColor(int i) { return particleColor[i]; }
+}
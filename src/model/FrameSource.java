@@ -0,0 +1,25 @@
+package model;
+
+import java.io.Closeable;
+
+/**
+ * Fuente de frames ya calculados que se recorre por ticks: una grabación en disco
+ * ({@link ReplayPlayer}) o el historial en memoria ({@link RewindBuffer}). El
+ * controlador de reproducción sólo necesita esto para avanzar, buscar y pintar.
+ *
+ * No es thread-safe: la usa un único hilo de reproducción.
+ */
+public interface FrameSource extends Closeable {
+    long getFirstTick();
+    long getLastTick();
+    long getCurrentTick();
+
+    /** Colocarse exactamente en {@code tick} (acotado al rango disponible). */
+    void seek(long tick);
+
+    /** Avanzar hasta {@code tick}; si está por detrás del actual equivale a {@link #seek}. */
+    void advanceTo(long tick);
+
+    /** Volcar el estado del tick actual en un frame. */
+    void writeFrame(FrameSnapshot frame);
+}
@@ -9,6 +9,8 @@ import java.awt.Rectangle;
  */
 public class Habitacion {
     private final Rectangle area; // coordenadas relativas al viewer
+    // copia primitiva e inmutable del área para consultas sin asignar objetos
+    private final int areaX, areaY, areaWidth, areaHeight;
     // true cuando la habitación está ocupada
     private boolean occupied = false;
     // referencia opcional a la bola que actualmente ocupa la habitación
@@ -16,6 +18,10 @@ public class Habitacion {
 
     public Habitacion(int x, int y, int width, int height) {
         this.area = new Rectangle(x, y, width, height);
+        this.areaX = x;
+        this.areaY = y;
+        this.areaWidth = width;
+        this.areaHeight = height;
     }
 
     public Rectangle getArea() {
@@ -25,6 +31,11 @@ public class Habitacion {
         }
     }
 
+    public int getX() { return areaX; }
+    public int getY() { return areaY; }
+    public int getWidth() { return areaWidth; }
+    public int getHeight() { return areaHeight; }
+
     /**
      * Intento no bloqueante de entrar registrando la bola que solicita acceso.
      * @param b la bola que intenta entrar
@@ -0,0 +1,107 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Carga niveles de obstáculos estáticos desde un fichero de texto. Una línea por
+ * obstáculo, coordenadas en px del viewer; '#' inicia un comentario:
+ * <pre>
+ * rect   x y ancho alto
+ * circle cx cy radio
+ * poly   x1 y1 x2 y2 x3 y3 ...      (polígono convexo)
+ * wall   x1 y1 x2 y2 [grosor]       (segmento de pared con grosor, por defecto 4 px)
+ * </pre>
+ */
+public final class LevelLoader {
+    private static final double DEFAULT_WALL_THICKNESS = 4.0;
+
+    private LevelLoader() {}
+
+    public static List<Obstacle> load(Path file) throws IOException {
+        List<Obstacle> obstacles = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                try {
+                    obstacles.add(parse(line.split("\\s+")));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return obstacles;
+    }
+
+    private static Obstacle parse(String[] t) {
+        switch (t[0].toLowerCase()) {
+            case "rect":
+                expect(t, 5);
+                return new Obstacle.Rect(num(t[1]), num(t[2]), num(t[3]), num(t[4]));
+            case "circle":
+                expect(t, 4);
+                return new Obstacle.Circle(num(t[1]), num(t[2]), num(t[3]));
+            case "poly": {
+                if (t.length < 7 || (t.length - 1) % 2 != 0) {
+                    throw new IllegalArgumentException("poly necesita pares x y (mínimo 3 vértices)");
+                }
+                int n = (t.length - 1) / 2;
+                double[] xs = new double[n], ys = new double[n];
+                for (int i = 0; i < n; i++) {
+                    xs[i] = num(t[1 + 2 * i]);
+                    ys[i] = num(t[2 + 2 * i]);
+                }
+                return new Obstacle.ConvexPolygon(xs, ys);
+            }
+            case "wall": {
+                if (t.length != 5 && t.length != 6) {
+                    throw new IllegalArgumentException("wall espera x1 y1 x2 y2 [grosor]");
+                }
+                double thickness = t.length == 6 ? num(t[5]) : DEFAULT_WALL_THICKNESS;
+                return wall(num(t[1]), num(t[2]), num(t[3]), num(t[4]), thickness);
+            }
+            default:
+                throw new IllegalArgumentException("tipo de obstáculo desconocido: " + t[0]);
+        }
+    }
+
+    /** Segmento de pared con grosor como rectángulo orientado (polígono convexo de 4 vértices). */
+    public static Obstacle wall(double x1, double y1, double x2, double y2, double thickness) {
+        double dx = x2 - x1, dy = y2 - y1;
+        double len = Math.hypot(dx, dy);
+        if (len == 0) throw new IllegalArgumentException("pared de longitud cero");
+        double h = thickness / 2.0;
+        double px = -dy / len * h, py = dx / len * h;
+        return new Obstacle.ConvexPolygon(
+            new double[]{ x1 + px, x2 + px, x2 - px, x1 - px },
+            new double[]{ y1 + py, y2 + py, y2 - py, y1 - py });
+    }
+
+    private static void expect(String[] t, int n) {
+        if (t.length != n) {
+            throw new IllegalArgumentException(t[0] + " espera " + (n - 1) + " números");
+        }
+    }
+
+    private static double num(String s) {
+        double v;
+        try {
+            v = Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("número no válido: " + s);
+        }
+        if (!Double.isFinite(v)) throw new IllegalArgumentException("número no finito: " + s);
+        return v;
+    }
+}
@@ -2,67 +2,334 @@ package model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoubleConsumer;
 
 public class Model {
     private final List<Ball> ballList;
     private final List<Projectile> projectileList;
     private final List<Explosion> explosionList;
     private final Habitacion habitacion;
+    private final ForceField forceField;
+    // geometría estática del nivel; se sustituye entera al cargar otro nivel
+    private volatile ObstacleBVH obstacles = ObstacleBVH.empty();
+    // resolución de la rejilla del campo de fuerzas (px por celda)
+    private static final double FORCE_FIELD_CELL = 8.0;
     private volatile boolean paused = false;
+    // eventos discretos (impactos, altas, habitación...) para grabación, métricas, etc.
+    private final EventBus eventBus = new EventBus();
     private int viewerWidth;
     private int viewerHeight;
+    // generadores con semilla, uno por subsistema, para que añadir tiradas en uno
+    // no desplace la secuencia de los demás (bajo el monitor del modelo)
+    private long seed;
+    private SimRandom spawnRandom, sizeRandom, controlRandom, explosionRandom;
+    // modo determinista: el hilo de simulación avanza todas las bolas con dt fijo
+    private volatile boolean deterministic = false;
+    // lista de trabajo reutilizada por updateProjectiles (sin asignaciones por frame)
+    private final List<Ball> hitBalls = new ArrayList<>();
+    // bolas en orden Z para la fase amplia de los proyectiles (null = recorrerlas todas)
+    private MortonIndex broadPhase;
+    private final int[][] candidates = { new int[64] };
+    // mundo repartido entre procesos: región que simula éste (null = el mundo entero)
+    private volatile ShardRegion region;
+    // false = las bolas nuevas no arrancan hilo propio (sólo las avanza stepDeterministic)
+    private volatile boolean ballThreads = true;
+    // a partir de cuántas bolas cada frame lleva la rejilla de densidad (ver FrameSnapshot)
+    public static final int DENSITY_GRID_CELL = 8;
+    private volatile int densityGridThreshold = Integer.MAX_VALUE;
+    // comportamientos por etiqueta, en lote (ver BallSystems) y etiquetas de las bolas nuevas
+    private final BallSystems systems = new BallSystems();
+    private volatile int spawnTags = 0;
+    // alguna bola ha recibido etiquetas (si no, los sistemas ni vuelcan el mundo)
+    private volatile boolean tagsInUse = false;
 
     public Model(int viewerWidth, int viewerHeight) {
+        this(viewerWidth, viewerHeight, null);
+    }
+
+    /**
+     * Modelo con la habitación dada (null = una central de 1/4 del tamaño). El espectador
+     * la recibe del servidor para que su mundo coincida con el que se está emitiendo.
+     */
+    public Model(int viewerWidth, int viewerHeight, java.awt.Rectangle room) {
         this.viewerWidth = Math.max(200, viewerWidth);
         this.viewerHeight = Math.max(200, viewerHeight);
         this.ballList = new ArrayList<>();
         this.projectileList = new ArrayList<>();
         this.explosionList = new ArrayList<>();
-        // create a central room
-        int rw = Math.max(100, this.viewerWidth / 4);
-        int rh = Math.max(100, this.viewerHeight / 4);
-        int rx = (this.viewerWidth - rw) / 2;
-        int ry = (this.viewerHeight - rh) / 2;
-        this.habitacion = new Habitacion(rx, ry, rw, rh);
+        if (room != null) {
+            this.habitacion = new Habitacion(room.x, room.y, room.width, room.height);
+        } else {
+            // create a central room
+            int rw = Math.max(100, this.viewerWidth / 4);
+            int rh = Math.max(100, this.viewerHeight / 4);
+            int rx = (this.viewerWidth - rw) / 2;
+            int ry = (this.viewerHeight - rh) / 2;
+            this.habitacion = new Habitacion(rx, ry, rw, rh);
+        }
+        this.forceField = new ForceField(this.viewerWidth, this.viewerHeight, FORCE_FIELD_CELL);
+        setSeed(System.nanoTime());
+    }
+
+    /** Reiniciar los generadores a partir de una semilla (orden de división fijo). */
+    public synchronized void setSeed(long seed) {
+        this.seed = seed;
+        SimRandom root = new SimRandom(seed);
+        spawnRandom = root.split();
+        sizeRandom = root.split();
+        controlRandom = root.split();
+        explosionRandom = root.split();
+    }
+
+    public synchronized long getSeed() {
+        return seed;
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /** Generador de posición, velocidad y color de las bolas nuevas (lo usa el constructor de Ball). */
+    SimRandom spawnRandom() {
+        return spawnRandom;
+    }
+
+    /** Tirada uniforme en [0, 1) para parámetros que decide el controlador (ej. velocidad inicial). */
+    public synchronized double nextControlRandom() {
+        return controlRandom.nextDouble();
+    }
+
+    /**
+     * Vaciar el mundo y pasar a modo determinista con la semilla dada: mismas
+     * entradas en los mismos ticks producen exactamente el mismo estado.
+     */
+    public synchronized void resetWithSeed(long seed) {
+        clearBalls();
+        habitacion.exit();
+        projectileList.clear();
+        explosionList.clear();
+        setSeed(seed);
+        deterministic = true;
+    }
+
+    /** Volver al modo libre (cada bola en su hilo, con reloj de pared). */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * Un tick de simulación determinista: todas las bolas en el orden de la lista y
+     * después proyectiles y explosiones, con el mismo {@code dtMs} en cada tick.
+     */
+    public synchronized void stepDeterministic(double dtMs) {
+        for (int i = 0; i < ballList.size(); i++) {
+            ballList.get(i).step(dtMs);
+        }
+        updateProjectiles(dtMs);
+        updateExplosions(dtMs);
+    }
+
+    /**
+     * Resumen de 64 bits del estado completo (bolas, proyectiles y explosiones) en
+     * orden de lista. Dos ejecuciones con la misma semilla y entradas deben coincidir
+     * tick a tick; los ids de bola no entran porque son globales al proceso.
+     */
+    public synchronized long stateHash() {
+        long h = mixHash(seed, ballList.size());
+        for (int i = 0; i < ballList.size(); i++) {
+            h = ballList.get(i).mixState(h);
+        }
+        for (int i = 0; i < projectileList.size(); i++) {
+            Projectile p = projectileList.get(i);
+            if (!p.isActive()) continue;
+            h = mixHash(h, Double.doubleToLongBits(p.getX()));
+            h = mixHash(h, Double.doubleToLongBits(p.getY()));
+            h = mixHash(h, Double.doubleToLongBits(p.getVelX()));
+            h = mixHash(h, Double.doubleToLongBits(p.getVelY()));
+        }
+        for (int i = 0; i < explosionList.size(); i++) {
+            Explosion e = explosionList.get(i);
+            h = mixHash(h, Double.doubleToLongBits(e.elapsedExactMs()));
+            List<Explosion.Particle> parts = e.getParticles();
+            for (int j = 0; j < parts.size(); j++) {
+                h = mixHash(h, Double.doubleToLongBits(parts.get(j).getX()));
+                h = mixHash(h, Double.doubleToLongBits(parts.get(j).getY()));
+            }
+        }
+        return h;
+    }
+
+    static long mixHash(long h, long v) {
+        h = (h ^ v) * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 29);
+    }
+    /**
+     * Simular sólo una región de un mundo repartido entre varios procesos (ver
+     * {@link ShardRegion}). Se fija antes de crear bolas y en modo determinista.
+     */
+    public void setRegion(ShardRegion region) {
+        this.region = region;
+    }
+
+    public ShardRegion getRegion() {
+        return region;
+    }
+
+    /**
+     * Con miles de bolas por proceso, un hilo por bola que sólo duerme (modo determinista)
+     * cuesta más que la propia física. Afecta a las bolas creadas después.
+     */
+    public void setBallThreads(boolean ballThreads) {
+        this.ballThreads = ballThreads;
+    }
+
+    /** true si las bolas nuevas arrancan hilo propio (ver {@link #setBallThreads}). */
+    public boolean usesBallThreads() {
+        return ballThreads;
+    }
+
+    /**
+     * Con al menos {@code balls} bolas, {@link #snapshotInto} agrupa además las bolas en
+     * una rejilla de {@link #DENSITY_GRID_CELL} px (para el mapa de calor del viewer).
+     * {@code Integer.MAX_VALUE} = nunca, 0 = siempre.
+     */
+    public void setDensityGridThreshold(int balls) {
+        this.densityGridThreshold = Math.max(0, balls);
+    }
+
+    public int getDensityGridThreshold() {
+        return densityGridThreshold;
+    }
+
+    /**
+     * Fase amplia de los proyectiles. Con {@code periodTicks > 0} buscan impactos en una
+     * copia de las bolas reordenada por código de Morton cada {@code periodTicks} ticks
+     * ({@link MortonIndex}) y sólo miran las bolas de las celdas que cruza su recorrido;
+     * 0 = recorrer todas las bolas. Las bolas del modelo no se mueven de sitio (la lista y los
+     * frames siguen en orden de id) y el resultado es el mismo en ambos casos.
+     */
+    public synchronized void setProjectileBroadPhase(int periodTicks) {
+        if (periodTicks <= 0) {
+            broadPhase = null;
+            return;
+        }
+        if (broadPhase == null) broadPhase = new MortonIndex();
+        broadPhase.setPeriod(periodTicks);
+    }
+
+    /** Período de reordenación de la fase amplia (0 = recorrer todas las bolas). */
+    public synchronized int getProjectileBroadPhase() {
+        return broadPhase != null ? broadPhase.getPeriod() : 0;
+    }
+
+    /** Reordenaciones hechas por la fase amplia (0 si no hay índice). */
+    public synchronized long getBroadPhaseSorts() {
+        return broadPhase != null ? broadPhase.getSorts() : 0;
+    }
+
+    /**
+     * Fin de tick en un mundo repartido: las bolas y proyectiles cuyo centro pertenece ya
+     * a otra región salen del modelo hacia el buzón de esa región, y las bolas cerca de
+     * otra región se le envían como fantasmas (ver {@link ShardRegion}).
+     */
+    public synchronized void collectBorderTraffic() {
+        ShardRegion r = region;
+        r.beginCollect();
+        int w = 0;
+        for (int i = 0; i < ballList.size(); i++) {
+            Ball b = ballList.get(i);
+            if (r.collectBall(b)) {
+                b.stop();
+            } else {
+                ballList.set(w++, b);
+            }
+        }
+        // compactar en sitio conserva el orden por id
+        for (int i = ballList.size() - 1; i >= w; i--) ballList.remove(i);
+        w = 0;
+        for (int i = 0; i < projectileList.size(); i++) {
+            Projectile p = projectileList.get(i);
+            if (!r.collectProjectile(p)) projectileList.set(w++, p);
+        }
+        for (int i = projectileList.size() - 1; i >= w; i--) projectileList.remove(i);
+    }
+
+    /** Aplicar el mensaje de borde que ha enviado la región {@code from} en este tick. */
+    public synchronized void applyBorderTraffic(java.nio.ByteBuffer message, int from) {
+        region.apply(this, message, from);
+    }
+
+    // llamados desde ShardRegion.apply, bajo el monitor del modelo
+    void adoptBall(Ball b) {
+        // id nuevo y mayor que todos: la lista sigue ordenada por id
+        ballList.add(b);
+    }
+
+    void adoptProjectile(Projectile p) {
+        projectileList.add(p);
+    }
+
+    /** Quitar la bola con esa clave (alcanzada en otra región); false si ya no está aquí. */
+    boolean killBall(long key) {
+        for (int i = 0; i < ballList.size(); i++) {
+            Ball b = ballList.get(i);
+            if (b.shardKey == key) {
+                b.stop();
+                ballList.remove(i);
+                if (eventBus.hasSubscribers()) {
+                    eventBus.publish(new WorldEvent.BallDestroyed(b.getId(), WorldEvent.Cause.HIT));
+                }
+                return true;
+            }
+        }
+        return false;
     }
+
     public synchronized void addBall() {
-        Ball ball = new Ball(this);
-        ballList.add(ball);
+        spawned(new Ball(this));
     }
 
     /**
      * Create a Ball and return it (adds to internal list). Caller may configure it.
      */
     public synchronized Ball createBall() {
-        Ball ball = new Ball(this);
-        ballList.add(ball);
-        return ball;
+        return spawned(new Ball(this));
     }
 
     public synchronized void addBallWithSize(int diameter) {
-        Ball ball = new Ball(this, diameter);
-        ballList.add(ball);
+        spawned(new Ball(this, diameter));
     }
 
     public synchronized Ball createBallWithSize(int diameter) {
-        Ball ball = new Ball(this, diameter);
-        ballList.add(ball);
-        return ball;
+        return spawned(new Ball(this, diameter));
     }
 
     public synchronized void addBallWithRandomSize(int minDiameter, int maxDiameter) {
-        int d = minDiameter + (int)(Math.random() * (maxDiameter - minDiameter + 1));
+        int d = minDiameter + (int)(sizeRandom.nextDouble() * (maxDiameter - minDiameter + 1));
         addBallWithSize(d);
     }
 
     public synchronized Ball createBallWithRandomSize(int minDiameter, int maxDiameter) {
-        int d = minDiameter + (int)(Math.random() * (maxDiameter - minDiameter + 1));
+        int d = minDiameter + (int)(sizeRandom.nextDouble() * (maxDiameter - minDiameter + 1));
         return createBallWithSize(d);
     }
 
+    public synchronized int getBallCount() {
+        return ballList.size();
+    }
+
     public synchronized List<Ball> getAllBalls() {
         return new ArrayList<>(ballList);
     }
+
+    /**
+     * Copiar las bolas en una lista del llamador (que se vacía antes). Permite
+     * reutilizar la misma lista en cada frame en lugar de crear una copia nueva.
+     */
+    public synchronized void copyBallsInto(List<Ball> out) {
+        out.clear();
+        for (int i = 0; i < ballList.size(); i++) out.add(ballList.get(i));
+    }
     
     public int getViewerWidth() {
         return viewerWidth;
@@ -75,12 +342,88 @@ public class Model {
     public void updateViewerDimensions(int width, int height) {
         this.viewerWidth = Math.max(1, width);
         this.viewerHeight = Math.max(1, height);
+        forceField.ensureSize(this.viewerWidth, this.viewerHeight);
     }
 
     public Habitacion getHabitacion() {
         return habitacion;
     }
 
+    /** Obstáculos estáticos del nivel actual (BVH inmutable, consultable sin lock). */
+    public ObstacleBVH getObstacles() {
+        return obstacles;
+    }
+
+    /** Sustituir la geometría estática; el BVH se construye aquí, una sola vez. */
+    public void setObstacles(List<Obstacle> list) {
+        this.obstacles = list == null || list.isEmpty() ? ObstacleBVH.empty() : new ObstacleBVH(list);
+    }
+
+    /** Cargar un nivel de obstáculos desde fichero (ver {@link LevelLoader}). */
+    public void loadLevel(java.nio.file.Path file) throws java.io.IOException {
+        setObstacles(LevelLoader.load(file));
+    }
+
+    /** Campo de fuerzas (atractores, repulsores, viento) muestreado por BallController. */
+    public ForceField getForceField() {
+        return forceField;
+    }
+
+    /** Sistemas de comportamiento; se ejecutan con {@link #runSystems}. */
+    public BallSystems getSystems() {
+        return systems;
+    }
+
+    /**
+     * Un tick de los sistemas de comportamiento. Desde el hilo de simulación, antes de
+     * avanzar las bolas; sin el monitor del modelo mientras corren. No mira la pausa: la
+     * decide quien avanza el mundo (el bucle de FrameScheduler no corre las tareas por
+     * tick en pausa, y la re-simulación de {@link #resumeFrom} sí).
+     */
+    public void runSystems(double dtMs) {
+        systems.run(this, dtMs);
+    }
+
+    /** Etiquetas de componente que reciben las bolas que se creen a partir de ahora. */
+    public void setSpawnTags(int tags) {
+        this.spawnTags = tags;
+    }
+
+    public int getSpawnTags() {
+        return spawnTags;
+    }
+
+    /** Poner las mismas etiquetas a todas las bolas actuales. */
+    public synchronized void setTagsOnAll(int tags) {
+        for (int i = 0; i < ballList.size(); i++) ballList.get(i).setTags(tags);
+        if (tags == 0) tagsInUse = false;
+    }
+
+    /** Lo avisa una bola al recibir etiquetas. */
+    void noteTags(int tags) {
+        if (tags != 0) tagsInUse = true;
+    }
+
+    /** false si ninguna bola ha recibido etiquetas desde el último borrado. */
+    boolean hasTaggedBalls() {
+        return tagsInUse;
+    }
+
+    /** Bus de eventos del mundo; lo vacía el hilo de simulación una vez por tick. */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    private Ball spawned(Ball b) {
+        int tags = spawnTags;
+        if (tags != 0) b.setTags(tags);
+        ballList.add(b);
+        if (eventBus.hasSubscribers()) {
+            eventBus.publish(new WorldEvent.BallSpawned(b.getId(), b.getPosX(), b.getPosY(), b.getDIAMETER(), b.getCOLOR()));
+        }
+        return b;
+    }
+
     public void setPaused(boolean p) {
         this.paused = p;
     }
@@ -90,10 +433,13 @@ public class Model {
     }
 
     public synchronized void clearBalls() {
+        boolean publish = eventBus.hasSubscribers();
         for (Ball b : new ArrayList<>(ballList)) {
             b.stop();
+            if (publish) eventBus.publish(new WorldEvent.BallDestroyed(b.getId(), WorldEvent.Cause.CLEARED));
         }
         ballList.clear();
+        tagsInUse = false;
     }
     
     public synchronized void fireBullet(Ball shooter) {
@@ -105,7 +451,10 @@ public class Model {
         double tipDistance = shooter.getDIAMETER() * 0.7;
         double startX = cx + Math.cos(angle) * tipDistance;
         double startY = cy + Math.sin(angle) * tipDistance;
-        projectileList.add(new Projectile(startX, startY, angle, shooter.getCOLOR()));
+        projectileList.add(new Projectile(startX, startY, angle, shooter.getCOLOR(), shooter.shardKey));
+        if (eventBus.hasSubscribers()) {
+            eventBus.publish(new WorldEvent.ProjectileFired(shooter.getId(), startX, startY, angle));
+        }
     }
     
     public synchronized List<Projectile> getAllProjectiles() {
@@ -115,71 +464,284 @@ public class Model {
     public synchronized List<Explosion> getAllExplosions() {
         return new ArrayList<>(explosionList);
     }
+
+    /** Variante sin asignación de {@link #getAllProjectiles()}. */
+    public synchronized void copyProjectilesInto(List<Projectile> out) {
+        out.clear();
+        for (int i = 0; i < projectileList.size(); i++) out.add(projectileList.get(i));
+    }
+
+    /** Variante sin asignación de {@link #getAllExplosions()}. */
+    public synchronized void copyExplosionsInto(List<Explosion> out) {
+        out.clear();
+        for (int i = 0; i < explosionList.size(); i++) out.add(explosionList.get(i));
+    }
     
+    /**
+     * Volcar el estado visible del mundo en un frame reutilizable. Es la única
+     * sección que el renderizador necesita bajo el monitor del modelo; después
+     * pinta desde el frame sin competir con la simulación.
+     */
+    public synchronized void snapshotInto(FrameSnapshot frame, long tick) {
+        frame.begin(tick);
+        for (int i = 0; i < ballList.size(); i++) {
+            ballList.get(i).writeTo(frame);
+        }
+        for (int i = 0; i < projectileList.size(); i++) {
+            Projectile p = projectileList.get(i);
+            if (p.isActive()) frame.addProjectile(p.getX(), p.getY(), p.getSize(), p.getColor());
+        }
+        for (int i = 0; i < explosionList.size(); i++) {
+            Explosion e = explosionList.get(i);
+            if (e.isFinished()) continue;
+            double progress = e.getProgress();
+            // alfa decrece con el tiempo y las partículas se encogen
+            float alpha = (float)(1.0 - progress) * 0.8f;
+            int size = (int)(4 * (1.0 - progress * 0.5));
+            List<Explosion.Particle> particles = e.getParticles();
+            for (int j = 0; j < particles.size(); j++) {
+                Explosion.Particle pt = particles.get(j);
+                frame.addParticle(pt.getX(), pt.getY(), size, alpha, pt.getColor());
+            }
+        }
+        if (ballList.size() >= densityGridThreshold) {
+            frame.buildDensityGrid(DENSITY_GRID_CELL, viewerWidth, viewerHeight);
+        }
+    }
+
+    /**
+     * Copiar el estado del mundo en un checkpoint. Sólo copia campos bajo el monitor
+     * (sin E/S), así que la simulación apenas se detiene; la escritura a disco se hace
+     * después con {@link WorldCheckpoint#write}.
+     */
+    public synchronized WorldCheckpoint captureCheckpoint() {
+        int projectiles = 0;
+        for (int i = 0; i < projectileList.size(); i++) {
+            if (projectileList.get(i).isActive()) projectiles++;
+        }
+        int particles = 0;
+        for (int i = 0; i < explosionList.size(); i++) particles += explosionList.get(i).getParticles().size();
+
+        WorldCheckpoint cp = new WorldCheckpoint(ballList.size(), projectiles, explosionList.size(), particles);
+        cp.createdAtMillis = System.currentTimeMillis();
+        cp.width = viewerWidth;
+        cp.height = viewerHeight;
+        Ball occupant = habitacion.getOccupant();
+        for (int i = 0; i < ballList.size(); i++) {
+            Ball b = ballList.get(i);
+            b.writeTo(cp, i);
+            if (b == occupant) cp.occupant = i;
+        }
+        // dueño de cada proyectil como índice de bola en el checkpoint (los ids cambian al restaurar)
+        java.util.Map<Long, Integer> ballIndex = new java.util.HashMap<>();
+        if (projectiles > 0) {
+            for (int i = 0; i < ballList.size(); i++) ballIndex.put(ballList.get(i).shardKey, i);
+        }
+        int k = 0;
+        for (int i = 0; i < projectileList.size(); i++) {
+            Projectile p = projectileList.get(i);
+            if (!p.isActive()) continue;
+            cp.projOwner[k] = ballIndex.getOrDefault(p.getOwnerKey(), -1);
+            cp.projX[k] = p.getX(); cp.projY[k] = p.getY();
+            cp.projPrevX[k] = p.getPrevX(); cp.projPrevY[k] = p.getPrevY();
+            cp.projVelX[k] = p.getVelX(); cp.projVelY[k] = p.getVelY();
+            cp.projRgb[k] = p.getColor().getRGB();
+            k++;
+        }
+        k = 0;
+        for (int i = 0; i < explosionList.size(); i++) {
+            Explosion e = explosionList.get(i);
+            List<Explosion.Particle> parts = e.getParticles();
+            cp.explosionElapsed[i] = e.elapsedExactMs();
+            cp.explosionParticles[i] = parts.size();
+            cp.explosionRgb[i] = parts.isEmpty() ? 0 : parts.get(0).getColor().getRGB();
+            for (int j = 0; j < parts.size(); j++, k++) {
+                Explosion.Particle pt = parts.get(j);
+                cp.partX[k] = pt.getX(); cp.partY[k] = pt.getY();
+                cp.partVelX[k] = pt.getVelX(); cp.partVelY[k] = pt.getVelY();
+            }
+        }
+        cp.seed = seed;
+        cp.deterministic = deterministic;
+        SimRandom[] streams = { spawnRandom, sizeRandom, controlRandom, explosionRandom };
+        for (int i = 0; i < streams.length; i++) {
+            cp.rngState[i] = streams[i].getState();
+            cp.rngGamma[i] = streams[i].getGamma();
+        }
+        cp.systemRuns = systems.getRuns();
+        return cp;
+    }
+
+    /** Guardar el mundo en disco: captura breve bajo el monitor y escritura fuera de él. */
+    public void saveCheckpoint(java.nio.file.Path file) throws java.io.IOException {
+        captureCheckpoint().write(file);
+    }
+
+    /** Cargar un checkpoint de disco y sustituir el mundo actual. */
+    public void loadCheckpoint(java.nio.file.Path file) throws java.io.IOException {
+        restoreCheckpoint(WorldCheckpoint.read(file));
+    }
+
+    /** Sustituir bolas, proyectiles, explosiones y ocupación de la habitación por las del checkpoint. */
+    public synchronized void restoreCheckpoint(WorldCheckpoint cp) {
+        clearBalls();
+        habitacion.exit();
+        // mismos generadores y modo: la ejecución sigue igual que desde el punto guardado.
+        // Antes de crear las bolas, para que sus hilos no den un paso libre
+        seed = cp.seed;
+        spawnRandom = SimRandom.restore(cp.rngState[0], cp.rngGamma[0]);
+        sizeRandom = SimRandom.restore(cp.rngState[1], cp.rngGamma[1]);
+        controlRandom = SimRandom.restore(cp.rngState[2], cp.rngGamma[2]);
+        explosionRandom = SimRandom.restore(cp.rngState[3], cp.rngGamma[3]);
+        deterministic = cp.deterministic;
+        systems.setRuns(cp.systemRuns);
+        for (int i = 0; i < cp.ballCount; i++) {
+            ballList.add(new Ball(this, cp, i, i == cp.occupant));
+        }
+        projectileList.clear();
+        for (int i = 0; i < cp.projectileCount; i++) {
+            long owner = cp.projOwner[i] >= 0 ? ballList.get(cp.projOwner[i]).shardKey : Projectile.NO_OWNER;
+            projectileList.add(new Projectile(cp.projX[i], cp.projY[i], cp.projPrevX[i], cp.projPrevY[i],
+                cp.projVelX[i], cp.projVelY[i], new java.awt.Color(cp.projRgb[i], true), owner));
+        }
+        explosionList.clear();
+        for (int i = 0, first = 0; i < cp.explosionCount; i++) {
+            explosionList.add(cp.explosionAt(i, first));
+            first += cp.explosionParticles[i];
+        }
+    }
+
+    /**
+     * Restaurar un checkpoint y avanzar {@code ticks} pasos deterministas de {@code dtMs},
+     * todo bajo el monitor (ver RewindBuffer). {@code beforeStep} (puede ser null) se
+     * invoca antes de cada paso, como las tareas por tick del bucle de simulación.
+     */
+    public synchronized void resumeFrom(WorldCheckpoint cp, int ticks, double dtMs, DoubleConsumer beforeStep) {
+        restoreCheckpoint(cp);
+        for (int i = 0; i < ticks; i++) {
+            if (beforeStep != null) beforeStep.accept(dtMs);
+            stepDeterministic(dtMs);
+        }
+    }
+
     public synchronized void updateProjectiles(double deltaMs) {
-        // Lista de proyectiles a eliminar
-        List<Projectile> projectilesToRemove = new ArrayList<>();
-        List<Ball> ballsToRemove = new ArrayList<>();
-        List<Explosion> explosionsToAdd = new ArrayList<>();
-        
+        hitBalls.clear();
+
         // Actualizar posición de proyectiles
-        for (Projectile p : projectileList) {
+        for (int i = 0; i < projectileList.size(); i++) {
+            Projectile p = projectileList.get(i);
             if (!p.isActive()) continue;
             p.update(deltaMs);
-            p.checkBounds(viewerWidth, viewerHeight);
-            if (!p.isActive()) {
-                projectilesToRemove.add(p);
-            }
         }
-        
-        // Detectar colisiones (solo proyectiles activos)
-        for (Projectile p : projectileList) {
-            if (!p.isActive() || projectilesToRemove.contains(p)) continue;
-            
-            for (Ball b : ballList) {
-                if (ballsToRemove.contains(b)) continue;
-                
-                if (p.collidesWith(b)) {
-                    // Crear explosión
-                    explosionsToAdd.add(new Explosion(
-                        b.getX() + b.getDIAMETER() / 2.0,
-                        b.getY() + b.getDIAMETER() / 2.0,
-                        b.getCOLOR(),
-                        b.getDIAMETER()
-                    ));
-                    
-                    // Marcar para eliminar
-                    ballsToRemove.add(b);
-                    projectilesToRemove.add(p);
-                    p.deactivate();
-                    break; // Un proyectil solo puede golpear una bola
+
+        // Detectar colisiones con prueba barrida sobre todo el segmento recorrido en el paso:
+        // gana la bola tocada antes, así el resultado no depende de la duración del frame
+        ObstacleBVH walls = obstacles;
+        boolean publish = eventBus.hasSubscribers();
+        MortonIndex index = broadPhase;
+        boolean indexFresh = false;
+        for (int i = 0; i < projectileList.size(); i++) {
+            Projectile p = projectileList.get(i);
+            if (!p.isActive()) continue;
+
+            Ball target = null;
+            // un obstáculo estático detiene el proyectil si se alcanza antes que cualquier bola
+            double wallHit = walls.firstSegmentHit(p.getPrevX(), p.getPrevY(), p.getX(), p.getY());
+            double firstHit = wallHit == Sweep.NO_HIT ? Double.MAX_VALUE : wallHit;
+            if (index != null) {
+                // fase amplia: sólo las bolas cerca del segmento recorrido en este paso
+                if (!indexFresh) {
+                    index.refresh(ballList, viewerWidth, viewerHeight);
+                    indexFresh = true;
+                }
+                double half = p.getSize() / 2.0;
+                int n = index.query(Math.min(p.getPrevX(), p.getX()) - half, Math.min(p.getPrevY(), p.getY()) - half,
+                                    Math.max(p.getPrevX(), p.getX()) + half, Math.max(p.getPrevY(), p.getY()) + half,
+                                    candidates);
+                int[] found = candidates[0];
+                for (int k = 0; k < n; k++) {
+                    Ball b = index.ball(found[k]);
+                    if (hitBalls.contains(b)) continue;
+                    double t = p.hitTime(b);
+                    // a igual instante gana el id menor, como en el recorrido por orden de id
+                    if (t != Sweep.NO_HIT && (t < firstHit || (t == firstHit && target != null && b.getId() < target.getId()))) {
+                        firstHit = t;
+                        target = b;
+                    }
+                }
+            } else {
+                for (int j = 0; j < ballList.size(); j++) {
+                    Ball b = ballList.get(j);
+                    if (hitBalls.contains(b)) continue;
+                    double t = p.hitTime(b);
+                    if (t != Sweep.NO_HIT && t < firstHit) {
+                        firstHit = t;
+                        target = b;
+                    }
                 }
             }
+            // bolas fantasma de las regiones vecinas (mundo repartido)
+            ShardRegion shard = region;
+            int ghost = -1;
+            if (shard != null) {
+                for (int g = 0; g < shard.getGhostCount(); g++) {
+                    double t = shard.ghostHitTime(p, g);
+                    if (t != Sweep.NO_HIT && t < firstHit) {
+                        firstHit = t;
+                        ghost = g;
+                        target = null;
+                    }
+                }
+            }
+            if (ghost >= 0) {
+                // la explosión se ve aquí; la bola la quita la región que la simula
+                int d = shard.getGhostDiameter(ghost);
+                double ex = shard.getGhostX(ghost) + d / 2.0;
+                double ey = shard.getGhostY(ghost) + d / 2.0;
+                java.awt.Color c = new java.awt.Color(shard.getGhostRgb(ghost), true);
+                explosionList.add(new Explosion(ex, ey, c, d, explosionRandom));
+                if (publish) eventBus.publish(new WorldEvent.Hit(-1, ex, ey, c, d));
+                shard.killGhost(ghost);
+                p.deactivate();
+            } else if (target != null) {
+                // Crear explosión
+                double ex = target.getX() + target.getDIAMETER() / 2.0;
+                double ey = target.getY() + target.getDIAMETER() / 2.0;
+                explosionList.add(new Explosion(ex, ey, target.getCOLOR(), target.getDIAMETER(), explosionRandom));
+                if (publish) eventBus.publish(new WorldEvent.Hit(target.getId(), ex, ey, target.getCOLOR(), target.getDIAMETER()));
+
+                // Marcar para eliminar (un proyectil solo puede golpear una bola)
+                hitBalls.add(target);
+                p.deactivate();
+            } else if (wallHit != Sweep.NO_HIT) {
+                p.deactivate();
+            } else {
+                // los que salen del visor sin impactar quedan inactivos
+                p.checkBounds(viewerWidth, viewerHeight);
+            }
         }
-        
+
         // Eliminar bolas golpeadas
-        for (Ball b : ballsToRemove) {
+        for (int i = 0; i < hitBalls.size(); i++) {
+            Ball b = hitBalls.get(i);
             b.stop();
             ballList.remove(b);
+            if (publish) eventBus.publish(new WorldEvent.BallDestroyed(b.getId(), WorldEvent.Cause.HIT));
         }
-        
-        // Eliminar proyectiles
-        projectileList.removeAll(projectilesToRemove);
-        
-        // Añadir explosiones
-        explosionList.addAll(explosionsToAdd);
+        hitBalls.clear();
+
+        // Eliminar proyectiles inactivos (removeIf sólo asigna si hay algo que borrar)
+        projectileList.removeIf(Model::isInactive);
     }
-    
+
     public synchronized void updateExplosions(double deltaMs) {
-        List<Explosion> explosionsToRemove = new ArrayList<>();
-        
-        for (Explosion e : explosionList) {
-            e.update(deltaMs);
-            if (e.isFinished()) {
-                explosionsToRemove.add(e);
-            }
+        for (int i = 0; i < explosionList.size(); i++) {
+            explosionList.get(i).update(deltaMs);
         }
-        
-        explosionList.removeAll(explosionsToRemove);
+        explosionList.removeIf(Explosion::isFinished);
+    }
+
+    private static boolean isInactive(Projectile p) {
+        return !p.isActive();
     }
 }
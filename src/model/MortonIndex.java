@@ -0,0 +1,240 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Copia de las bolas ordenada por código de Morton (orden Z) de la celda de 32 px de su
+ * centro, con posiciones en arrays de primitivos. En orden Z todas las bolas de una celda
+ * quedan seguidas y las celdas vecinas cerca unas de otras, así que una consulta por
+ * zona recorre unos pocos tramos contiguos en vez de todas las bolas.
+ *
+ * Reordenar cuesta O(bolas + celdas) (ordenación por recuento sobre la clave de celda) y
+ * sólo se hace cada {@code period} ticks, o antes si el orden se ha degradado demasiado
+ * (las bolas se alejan de su celda, o hay muchas altas sin ordenar). Entre medias,
+ * {@link #refresh} sólo copia posiciones, quita las bajas y añade las altas al final; las
+ * consultas amplían la zona con lo que se han movido las bolas desde la última ordenación.
+ * Los ids de las bolas no cambian: el orden es interno al índice.
+ *
+ * Sólo desde el hilo de simulación, bajo el monitor del modelo.
+ */
+final class MortonIndex {
+    static final int CELL_SHIFT = 5; // celdas de 32 px
+    private static final int CELL = 1 << CELL_SHIFT;
+    private static final int DEFAULT_PERIOD = 32;
+
+    private Ball[] balls = new Ball[0];
+    private double[] centerX = new double[0], centerY = new double[0], radius = new double[0];
+    // centro en la última ordenación (para saber cuánto se han movido desde entonces)
+    private double[] sortedX = new double[0], sortedY = new double[0];
+    private int count;        // huecos ocupados (las bajas quedan como null hasta reordenar)
+    private int sortedCount;  // [0, sortedCount) en orden Z; el resto son altas posteriores
+    private int live;
+    private double drift;     // máximo desplazamiento desde la última ordenación
+    private double maxRadius;
+
+    // celdas: inicio de cada código de Morton en [0, sortedCount)
+    private int bits = 0;
+    private int[] cellStart = new int[2];
+    private int[] scratch = new int[0], fill = new int[0];
+    // destino de la siguiente ordenación
+    private Ball[] spareBalls = new Ball[0];
+    private double[] spareX = new double[0], spareY = new double[0], spareRadius = new double[0];
+
+    private int period = DEFAULT_PERIOD;
+    private long ticksSinceSort = Long.MAX_VALUE / 2;
+    // refresco en el que se vio viva cada hueco / marca de las bolas ya en el índice (0 = bola nueva)
+    private int[] slotEpoch = new int[0];
+    private int epoch, stamp = 1;
+    private final double[] center = new double[2];
+    private long sorts;
+
+    void setPeriod(int ticks) { this.period = Math.max(1, ticks); }
+    int getPeriod() { return period; }
+    long getSorts() { return sorts; }
+
+    /**
+     * Poner el índice al día con {@code list} (las bolas del modelo) en su estado actual.
+     * Reordena si toca; si no, O(bolas) sin asignar memoria.
+     */
+    void refresh(List<Ball> list, int width, int height) {
+        int e = ++epoch;
+        int n = list.size();
+        // una sola pasada por las bolas: marcar su hueco como vivo y copiar su centro
+        for (int i = 0; i < n; i++) {
+            Ball b = list.get(i);
+            if (b.spatialStamp != stamp) {
+                // alta desde la última ordenación
+                b.spatialStamp = stamp;
+                b.spatialSlot = append(b);
+            }
+            int s = b.spatialSlot;
+            double r = b.getDIAMETER() / 2.0;
+            // centro con una sola toma del lock de la bola
+            b.centerInto(center);
+            slotEpoch[s] = e;
+            centerX[s] = center[0];
+            centerY[s] = center[1];
+            radius[s] = r;
+        }
+        live = 0;
+        drift = 0;
+        maxRadius = 0;
+        for (int i = 0; i < count; i++) {
+            if (balls[i] == null) continue;
+            if (slotEpoch[i] != e) {
+                balls[i] = null; // baja
+                continue;
+            }
+            double r = radius[i];
+            if (r > maxRadius) maxRadius = r;
+            if (i < sortedCount) {
+                drift = Math.max(drift, Math.max(Math.abs(centerX[i] - sortedX[i]), Math.abs(centerY[i] - sortedY[i])));
+            }
+            live++;
+        }
+        ticksSinceSort++;
+        if (ticksSinceSort >= period || drift > CELL || (count - sortedCount) * 8 > live || count > 2 * live + 64) {
+            sort(width, height);
+        }
+    }
+
+    private int append(Ball b) {
+        if (count == balls.length) grow(Math.max(64, count * 2));
+        balls[count] = b;
+        return count++;
+    }
+
+    /** Ordenación por recuento según el código de Morton de la celda del centro. */
+    private void sort(int width, int height) {
+        int cells = Math.max(width, height) >> CELL_SHIFT;
+        int b = 0;
+        while ((1 << b) <= cells) b++;
+        bits = b;
+        int keys = 1 << (2 * bits);
+        if (cellStart.length < keys + 1) cellStart = new int[keys + 1];
+        else java.util.Arrays.fill(cellStart, 0, keys + 1, 0);
+        if (scratch.length < count) scratch = new int[balls.length];
+        int max = (1 << bits) - 1;
+        for (int i = 0; i < count; i++) {
+            if (balls[i] == null) continue;
+            int key = key(centerX[i], centerY[i], max);
+            scratch[i] = key;
+            cellStart[key + 1]++;
+        }
+        for (int k = 0; k < keys; k++) cellStart[k + 1] += cellStart[k];
+
+        // colocar en orden (estable: dentro de una celda se conserva el orden anterior)
+        if (spareBalls.length != balls.length) {
+            spareBalls = new Ball[balls.length];
+            spareX = new double[balls.length];
+            spareY = new double[balls.length];
+            spareRadius = new double[balls.length];
+            fill = new int[keys];
+        }
+        if (fill.length < keys) fill = new int[keys];
+        System.arraycopy(cellStart, 0, fill, 0, keys);
+        Ball[] nb = spareBalls;
+        double[] nx = spareX, ny = spareY, nr = spareRadius;
+        for (int i = 0; i < count; i++) {
+            if (balls[i] == null) continue;
+            int j = fill[scratch[i]]++;
+            nb[j] = balls[i];
+            nx[j] = centerX[i];
+            ny[j] = centerY[i];
+            nr[j] = radius[i];
+        }
+        // intercambiar con los arrays de reserva (sin asignar en régimen estacionario)
+        java.util.Arrays.fill(balls, 0, count, null);
+        spareBalls = balls; balls = nb;
+        spareX = centerX; centerX = nx;
+        spareY = centerY; centerY = ny;
+        spareRadius = radius; radius = nr;
+        System.arraycopy(nx, 0, sortedX, 0, live);
+        System.arraycopy(ny, 0, sortedY, 0, live);
+        count = live;
+        sortedCount = live;
+        drift = 0;
+        stamp++;
+        for (int i = 0; i < count; i++) {
+            balls[i].spatialStamp = stamp;
+            balls[i].spatialSlot = i;
+        }
+        ticksSinceSort = 0;
+        sorts++;
+    }
+
+    /**
+     * Índices de las bolas cuyo círculo puede tocar la caja [x0, x1] x [y0, y1], en
+     * {@code out[0]} (crece si hace falta). Devuelve cuántos hay.
+     */
+    int query(double x0, double y0, double x1, double y1, int[][] out) {
+        int n = 0;
+        double m = maxRadius;
+        if (sortedCount > 0) {
+            // las celdas se asignaron con las posiciones de la última ordenación
+            double slack = m + drift;
+            int max = (1 << bits) - 1;
+            int cx0 = cell(x0 - slack, max), cx1 = cell(x1 + slack, max);
+            int cy0 = cell(y0 - slack, max), cy1 = cell(y1 + slack, max);
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    int key = interleave(cx) | (interleave(cy) << 1);
+                    for (int i = cellStart[key]; i < cellStart[key + 1]; i++) {
+                        if (balls[i] != null && touches(i, x0, y0, x1, y1)) n = add(out, n, i);
+                    }
+                }
+            }
+        }
+        for (int i = sortedCount; i < count; i++) {
+            if (balls[i] != null && touches(i, x0, y0, x1, y1)) n = add(out, n, i);
+        }
+        return n;
+    }
+
+    private boolean touches(int i, double x0, double y0, double x1, double y1) {
+        double r = radius[i];
+        return centerX[i] + r >= x0 && centerX[i] - r <= x1 && centerY[i] + r >= y0 && centerY[i] - r <= y1;
+    }
+
+    private static int add(int[][] out, int n, int i) {
+        if (n == out[0].length) out[0] = java.util.Arrays.copyOf(out[0], Math.max(64, n * 2));
+        out[0][n] = i;
+        return n + 1;
+    }
+
+    Ball ball(int i) { return balls[i]; }
+    double centerX(int i) { return centerX[i]; }
+    double centerY(int i) { return centerY[i]; }
+    double radius(int i) { return radius[i]; }
+    int size() { return count; }
+    int liveCount() { return live; }
+
+    private static int key(double x, double y, int max) {
+        return interleave(cell(x, max)) | (interleave(cell(y, max)) << 1);
+    }
+
+    private static int cell(double v, int max) {
+        int c = (int) Math.floor(v) >> CELL_SHIFT;
+        return c < 0 ? 0 : Math.min(c, max);
+    }
+
+    /** Separar los bits de {@code v} (hasta 16) con un cero entre cada dos. */
+    private static int interleave(int v) {
+        v &= 0xFFFF;
+        v = (v | (v << 8)) & 0x00FF00FF;
+        v = (v | (v << 4)) & 0x0F0F0F0F;
+        v = (v | (v << 2)) & 0x33333333;
+        v = (v | (v << 1)) & 0x55555555;
+        return v;
+    }
+
+    private void grow(int n) {
+        balls = java.util.Arrays.copyOf(balls, n);
+        centerX = java.util.Arrays.copyOf(centerX, n);
+        centerY = java.util.Arrays.copyOf(centerY, n);
+        radius = java.util.Arrays.copyOf(radius, n);
+        slotEpoch = java.util.Arrays.copyOf(slotEpoch, n);
+        sortedX = java.util.Arrays.copyOf(sortedX, n);
+        sortedY = java.util.Arrays.copyOf(sortedY, n);
+    }
+}
@@ -0,0 +1,379 @@
+package model;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+
+/**
+ * Frame en forma de columnas de enteros para enviarlo por la red, y su codificación
+ * delta respecto a otro frame (el último que el cliente ha confirmado).
+ *
+ * La codificación sigue la misma idea que el historial de rebobinado: como los ids de
+ * bola son crecientes, dos frames se alinean recorriéndolos a la vez. Se envían los
+ * índices de las bolas que desaparecen, las nuevas completas, los cambios de orientación
+ * y, para las supervivientes, sólo el desplazamiento (zigzag + varint: casi siempre 1 byte
+ * por eje). Proyectiles y partículas son pocos y viven poco: van enteros cada vez.
+ *
+ * Las posiciones de proyectiles y partículas se redondean a píxel y el alfa a 8 bits;
+ * para pintar no se nota. No es thread-safe.
+ */
+public final class NetFrame {
+    private long tick = -1;
+
+    private int ballCount;
+    private int[] ids = new int[64];
+    private int[] xs = new int[64];
+    private int[] ys = new int[64];
+    private int[] diameters = new int[64];
+    private int[] rgbs = new int[64];
+    private float[] angles = new float[64];
+    // sólo en el lado que decodifica: objetos Color reutilizados mientras la bola vive
+    private Color[] colors = new Color[64];
+
+    private int projectileCount;
+    private int[] projX = new int[16];
+    private int[] projY = new int[16];
+    private int[] projSize = new int[16];
+    private int[] projRgb = new int[16];
+
+    private int particleCount;
+    private int[] partX = new int[64];
+    private int[] partY = new int[64];
+    private int[] partSize = new int[64];
+    private int[] partRgb = new int[64];
+    private byte[] partAlpha = new byte[64];
+
+    // cachés de color para proyectiles y partículas (pocos colores distintos)
+    private Color lastProjColor, lastPartColor;
+
+    public long getTick() { return tick; }
+    public int getBallCount() { return ballCount; }
+
+    /** Copiar un frame publicado (lado servidor). */
+    public void copyFrom(FrameSnapshot f) {
+        tick = f.getTick();
+        int n = f.getBallCount();
+        ensureBalls(n);
+        ballCount = n;
+        for (int i = 0; i < n; i++) {
+            ids[i] = f.getBallId(i);
+            xs[i] = f.getBallX(i);
+            ys[i] = f.getBallY(i);
+            diameters[i] = f.getBallDiameter(i);
+            angles[i] = (float) f.getBallAngle(i);
+            Color c = f.getBallColor(i);
+            rgbs[i] = c == null ? 0 : c.getRGB();
+        }
+        int p = f.getProjectileCount();
+        ensureProjectiles(p);
+        projectileCount = p;
+        for (int i = 0; i < p; i++) {
+            projX[i] = (int) Math.round(f.getProjectileX(i));
+            projY[i] = (int) Math.round(f.getProjectileY(i));
+            projSize[i] = f.getProjectileSize(i);
+            Color c = f.getProjectileColor(i);
+            projRgb[i] = c == null ? 0 : c.getRGB();
+        }
+        int q = f.getParticleCount();
+        ensureParticles(q);
+        particleCount = q;
+        for (int i = 0; i < q; i++) {
+            partX[i] = (int) Math.round(f.getParticleX(i));
+            partY[i] = (int) Math.round(f.getParticleY(i));
+            partSize[i] = f.getParticleSize(i);
+            Color c = f.getParticleColor(i);
+            partRgb[i] = c == null ? 0 : c.getRGB();
+            float a = Math.max(0f, Math.min(1f, f.getParticleAlpha(i)));
+            partAlpha[i] = (byte) Math.round(a * 255f);
+        }
+    }
+
+    /** Volcar el frame decodificado para pintarlo (lado cliente). */
+    public void writeTo(FrameSnapshot f) {
+        f.begin(tick);
+        for (int i = 0; i < ballCount; i++) {
+            f.addBall(null, ids[i], xs[i], ys[i], diameters[i], angles[i], colors[i]);
+        }
+        for (int i = 0; i < projectileCount; i++) {
+            f.addProjectile(projX[i], projY[i], projSize[i], projectileColor(projRgb[i]));
+        }
+        for (int i = 0; i < particleCount; i++) {
+            f.addParticle(partX[i], partY[i], partSize[i], (partAlpha[i] & 0xff) / 255f, particleColor(partRgb[i]));
+        }
+    }
+
+    /** Cota superior de lo que ocupa {@code encode(cur, base, ...)}, para dimensionar el buffer. */
+    public static int maxEncodedSize(NetFrame cur, NetFrame base) {
+        int baseCount = base == null ? 0 : base.ballCount;
+        return 32 + baseCount * 5 + cur.ballCount * 51
+            + cur.projectileCount * 19 + cur.particleCount * 20;
+    }
+
+    /**
+     * Codificar {@code cur} respecto a {@code base} (null = frame completo). {@code out}
+     * debe tener al menos {@link #maxEncodedSize} bytes libres.
+     */
+    public static void encode(NetFrame cur, NetFrame base, ByteBuffer out) {
+        int baseCount = base == null ? 0 : base.ballCount;
+        int[] baseIds = base == null ? null : base.ids;
+
+        // 1) bolas de la base que ya no están (índices en la base, crecientes)
+        int countPos = out.position();
+        out.putInt(0);
+        int removed = 0;
+        int i = 0, j = 0, prev = -1;
+        while (i < baseCount) {
+            int id = baseIds[i];
+            while (j < cur.ballCount && cur.ids[j] < id) j++;
+            if (j >= cur.ballCount || cur.ids[j] != id) {
+                putVarint(out, i - prev - 1);
+                prev = i;
+                removed++;
+            }
+            i++;
+        }
+        out.putInt(countPos, removed);
+
+        // 2) nuevas, con su índice en cur
+        countPos = out.position();
+        out.putInt(0);
+        int spawns = 0;
+        i = 0; prev = -1;
+        for (j = 0; j < cur.ballCount; j++) {
+            int id = cur.ids[j];
+            while (i < baseCount && baseIds[i] < id) i++;
+            if (i < baseCount && baseIds[i] == id) continue;
+            putVarint(out, j - prev - 1);
+            prev = j;
+            out.putInt(id);
+            putVarint(out, zigzag(cur.xs[j]));
+            putVarint(out, zigzag(cur.ys[j]));
+            putVarint(out, cur.diameters[j]);
+            out.putInt(cur.rgbs[j]);
+            out.putFloat(cur.angles[j]);
+            spawns++;
+        }
+        out.putInt(countPos, spawns);
+
+        if (base != null) {
+            // cambios de orientación de supervivientes (índice en cur)
+            countPos = out.position();
+            out.putInt(0);
+            int turned = 0;
+            i = 0; prev = -1;
+            for (j = 0; j < cur.ballCount; j++) {
+                int id = cur.ids[j];
+                while (i < baseCount && baseIds[i] < id) i++;
+                if (i >= baseCount || baseIds[i] != id) continue;
+                if (Float.floatToRawIntBits(cur.angles[j]) != Float.floatToRawIntBits(base.angles[i])) {
+                    putVarint(out, j - prev - 1);
+                    prev = j;
+                    out.putFloat(cur.angles[j]);
+                    turned++;
+                }
+            }
+            out.putInt(countPos, turned);
+
+            // desplazamiento de supervivientes, en el orden de cur
+            i = 0;
+            for (j = 0; j < cur.ballCount; j++) {
+                int id = cur.ids[j];
+                while (i < baseCount && baseIds[i] < id) i++;
+                if (i >= baseCount || baseIds[i] != id) continue;
+                putVarint(out, zigzag(cur.xs[j] - base.xs[i]));
+                putVarint(out, zigzag(cur.ys[j] - base.ys[i]));
+            }
+        }
+
+        putVarint(out, cur.projectileCount);
+        for (int k = 0; k < cur.projectileCount; k++) {
+            putVarint(out, zigzag(cur.projX[k]));
+            putVarint(out, zigzag(cur.projY[k]));
+            putVarint(out, cur.projSize[k]);
+            out.putInt(cur.projRgb[k]);
+        }
+        putVarint(out, cur.particleCount);
+        for (int k = 0; k < cur.particleCount; k++) {
+            putVarint(out, zigzag(cur.partX[k]));
+            putVarint(out, zigzag(cur.partY[k]));
+            putVarint(out, cur.partSize[k]);
+            out.putInt(cur.partRgb[k]);
+            out.put(cur.partAlpha[k]);
+        }
+    }
+
+    /**
+     * Decodificar en {@code out} un frame codificado respecto a {@code base} (null si es
+     * completo). {@code out} no puede ser {@code base}.
+     */
+    public static void decode(ByteBuffer in, long tick, NetFrame base, NetFrame out) {
+        if (out == base) throw new IllegalArgumentException("out no puede ser la base");
+        int baseCount = base == null ? 0 : base.ballCount;
+
+        // índices de la base eliminados: se marcan con id -1 en un recorrido posterior
+        int removed = in.getInt();
+        int[] removedIdx = out.scratch(removed);
+        int idx = -1;
+        for (int k = 0; k < removed; k++) {
+            idx += getVarint(in) + 1;
+            removedIdx[k] = idx;
+        }
+        int spawns = in.getInt();
+        int count = baseCount - removed + spawns;
+        if (count < 0) throw new IllegalStateException("frame de red corrupto");
+        out.ensureBalls(count);
+        out.tick = tick;
+        out.ballCount = count;
+
+        // supervivientes y nuevas se intercalan según los índices de las nuevas
+        int[] spawnIdx = out.spawnScratch(spawns);
+        int spawnLeft = spawns;
+        int nextSpawn = spawnLeft > 0 ? getVarint(in) : Integer.MAX_VALUE;
+        int src = 0, r = 0;
+        for (int j = 0; j < count; j++) {
+            if (j == nextSpawn) {
+                out.ids[j] = in.getInt();
+                out.xs[j] = unzigzag(getVarint(in));
+                out.ys[j] = unzigzag(getVarint(in));
+                out.diameters[j] = getVarint(in);
+                out.rgbs[j] = in.getInt();
+                out.angles[j] = in.getFloat();
+                out.colors[j] = new Color(out.rgbs[j], true);
+                spawnIdx[spawns - spawnLeft] = j;
+                spawnLeft--;
+                nextSpawn = spawnLeft > 0 ? j + 1 + getVarint(in) : Integer.MAX_VALUE;
+            } else {
+                while (r < removed && removedIdx[r] == src) { src++; r++; }
+                out.ids[j] = base.ids[src];
+                out.xs[j] = base.xs[src];
+                out.ys[j] = base.ys[src];
+                out.diameters[j] = base.diameters[src];
+                out.rgbs[j] = base.rgbs[src];
+                out.angles[j] = base.angles[src];
+                out.colors[j] = base.colors[src];
+                src++;
+            }
+        }
+        // soltar colores de frames anteriores más grandes
+        for (int j = count; j < out.colors.length && out.colors[j] != null; j++) out.colors[j] = null;
+
+        if (base != null) {
+            int turned = in.getInt();
+            int j = -1;
+            for (int k = 0; k < turned; k++) {
+                j += getVarint(in) + 1;
+                out.angles[j] = in.getFloat();
+            }
+            // desplazamientos: todas las que no son nuevas, en orden
+            int s = 0;
+            for (j = 0; j < count; j++) {
+                if (s < spawns && spawnIdx[s] == j) { s++; continue; }
+                out.xs[j] += unzigzag(getVarint(in));
+                out.ys[j] += unzigzag(getVarint(in));
+            }
+        }
+
+        int p = getVarint(in);
+        out.ensureProjectiles(p);
+        out.projectileCount = p;
+        for (int k = 0; k < p; k++) {
+            out.projX[k] = unzigzag(getVarint(in));
+            out.projY[k] = unzigzag(getVarint(in));
+            out.projSize[k] = getVarint(in);
+            out.projRgb[k] = in.getInt();
+        }
+        int q = getVarint(in);
+        out.ensureParticles(q);
+        out.particleCount = q;
+        for (int k = 0; k < q; k++) {
+            out.partX[k] = unzigzag(getVarint(in));
+            out.partY[k] = unzigzag(getVarint(in));
+            out.partSize[k] = getVarint(in);
+            out.partRgb[k] = in.getInt();
+            out.partAlpha[k] = in.get();
+        }
+    }
+
+    // --- utilidades ---
+
+    private int[] removedScratch = new int[64];
+    private int[] spawnScratch = new int[64];
+
+    private int[] scratch(int n) {
+        if (removedScratch.length < n) removedScratch = new int[Math.max(n, removedScratch.length * 2)];
+        return removedScratch;
+    }
+
+    private int[] spawnScratch(int n) {
+        if (spawnScratch.length < n) spawnScratch = new int[Math.max(n, spawnScratch.length * 2)];
+        return spawnScratch;
+    }
+
+    private Color projectileColor(int rgb) {
+        Color c = lastProjColor;
+        if (c == null || c.getRGB() != rgb) lastProjColor = c = new Color(rgb, true);
+        return c;
+    }
+
+    private Color particleColor(int rgb) {
+        Color c = lastPartColor;
+        if (c == null || c.getRGB() != rgb) lastPartColor = c = new Color(rgb, true);
+        return c;
+    }
+
+    private void ensureBalls(int n) {
+        if (ids.length >= n) return;
+        int cap = Math.max(n, ids.length * 2);
+        ids = java.util.Arrays.copyOf(ids, cap);
+        xs = java.util.Arrays.copyOf(xs, cap);
+        ys = java.util.Arrays.copyOf(ys, cap);
+        diameters = java.util.Arrays.copyOf(diameters, cap);
+        rgbs = java.util.Arrays.copyOf(rgbs, cap);
+        angles = java.util.Arrays.copyOf(angles, cap);
+        colors = java.util.Arrays.copyOf(colors, cap);
+    }
+
+    private void ensureProjectiles(int n) {
+        if (projX.length >= n) return;
+        int cap = Math.max(n, projX.length * 2);
+        projX = java.util.Arrays.copyOf(projX, cap);
+        projY = java.util.Arrays.copyOf(projY, cap);
+        projSize = java.util.Arrays.copyOf(projSize, cap);
+        projRgb = java.util.Arrays.copyOf(projRgb, cap);
+    }
+
+    private void ensureParticles(int n) {
+        if (partX.length >= n) return;
+        int cap = Math.max(n, partX.length * 2);
+        partX = java.util.Arrays.copyOf(partX, cap);
+        partY = java.util.Arrays.copyOf(partY, cap);
+        partSize = java.util.Arrays.copyOf(partSize, cap);
+        partRgb = java.util.Arrays.copyOf(partRgb, cap);
+        partAlpha = java.util.Arrays.copyOf(partAlpha, cap);
+    }
+
+    private static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void putVarint(ByteBuffer out, int v) {
+        while ((v & ~0x7f) != 0) {
+            out.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            v |= (b & 0x7f) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalStateException("varint demasiado largo");
+    }
+}
@@ -0,0 +1,254 @@
+package model;
+
+/**
+ * Geometría estática del nivel (paredes, pilares, bloques). Los obstáculos son
+ * inmutables: se crean al cargar el nivel y se indexan en un {@link ObstacleBVH}.
+ * Cada tipo sabe resolver su solape con un círculo (bolas) y su primer impacto
+ * con un segmento (proyectiles).
+ */
+public abstract class Obstacle {
+    protected final double minX, minY, maxX, maxY;
+
+    protected Obstacle(double minX, double minY, double maxX, double maxY) {
+        this.minX = minX; this.minY = minY; this.maxX = maxX; this.maxY = maxY;
+    }
+
+    public double getMinX() { return minX; }
+    public double getMinY() { return minY; }
+    public double getMaxX() { return maxX; }
+    public double getMaxY() { return maxY; }
+
+    /**
+     * Si el círculo (cx, cy, r) solapa el obstáculo escribe la normal de salida
+     * en out[0], out[1] y la profundidad de penetración en out[2], y devuelve true.
+     */
+    public abstract boolean penetration(double cx, double cy, double r, double[] out);
+
+    /** Primer instante t ∈ [0, 1] en que el segmento toca el obstáculo, o {@link Sweep#NO_HIT}. */
+    public abstract double segmentHit(double x0, double y0, double x1, double y1);
+
+    /** Rectángulo alineado con los ejes. */
+    public static final class Rect extends Obstacle {
+        public Rect(double x, double y, double width, double height) {
+            super(x, y, x + width, y + height);
+        }
+
+        @Override
+        public boolean penetration(double cx, double cy, double r, double[] out) {
+            double qx = Math.max(minX, Math.min(cx, maxX));
+            double qy = Math.max(minY, Math.min(cy, maxY));
+            double dx = cx - qx, dy = cy - qy;
+            double d2 = dx * dx + dy * dy;
+            if (d2 >= r * r) return false;
+            if (d2 > 0) {
+                double d = Math.sqrt(d2);
+                out[0] = dx / d; out[1] = dy / d; out[2] = r - d;
+                return true;
+            }
+            // centro dentro: salir por la cara más cercana
+            double l = cx - minX, rt = maxX - cx, t = cy - minY, b = maxY - cy;
+            double m = Math.min(Math.min(l, rt), Math.min(t, b));
+            out[0] = m == l ? -1 : m == rt ? 1 : 0;
+            out[1] = out[0] != 0 ? 0 : (m == t ? -1 : 1);
+            out[2] = m + r;
+            return true;
+        }
+
+        @Override
+        public double segmentHit(double x0, double y0, double x1, double y1) {
+            return Sweep.segmentRect(x0, y0, x1, y1, minX, minY, maxX, maxY);
+        }
+
+        public double getX() { return minX; }
+        public double getY() { return minY; }
+        public double getWidth() { return maxX - minX; }
+        public double getHeight() { return maxY - minY; }
+    }
+
+    /** Círculo macizo. */
+    public static final class Circle extends Obstacle {
+        private final double cx, cy, radius;
+
+        public Circle(double cx, double cy, double radius) {
+            super(cx - radius, cy - radius, cx + radius, cy + radius);
+            this.cx = cx; this.cy = cy; this.radius = radius;
+        }
+
+        @Override
+        public boolean penetration(double px, double py, double r, double[] out) {
+            double dx = px - cx, dy = py - cy;
+            double d2 = dx * dx + dy * dy;
+            double rr = radius + r;
+            if (d2 >= rr * rr) return false;
+            double d = Math.sqrt(d2);
+            if (d == 0) { out[0] = 0; out[1] = -1; }
+            else { out[0] = dx / d; out[1] = dy / d; }
+            out[2] = rr - d;
+            return true;
+        }
+
+        @Override
+        public double segmentHit(double x0, double y0, double x1, double y1) {
+            return Sweep.segmentCircle(x0, y0, x1, y1, cx, cy, radius);
+        }
+
+        public double getCenterX() { return cx; }
+        public double getCenterY() { return cy; }
+        public double getRadius() { return radius; }
+    }
+
+    /**
+     * Polígono convexo en cualquier sentido de giro; los vértices se reordenan para que el
+     * área con signo sea positiva. Vértices no finitos, repetidos, área nula o un contorno
+     * cóncavo o que da más de una vuelta lanzan IllegalArgumentException.
+     */
+    public static final class ConvexPolygon extends Obstacle {
+        private final double[] xs, ys;
+        // normal exterior unitaria de la arista i (de i a i+1)
+        private final double[] nx, ny;
+
+        public ConvexPolygon(double[] xs, double[] ys) {
+            super(min(checked(xs, ys)), min(ys), max(xs), max(ys));
+            int n = xs.length;
+            double area = signedArea(xs, ys);
+            if (area == 0) throw new IllegalArgumentException("Polígono de área nula");
+            checkConvex(xs, ys, area);
+            this.xs = xs.clone();
+            this.ys = ys.clone();
+            if (area < 0) { reverse(this.xs); reverse(this.ys); }
+            this.nx = new double[n];
+            this.ny = new double[n];
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                double ex = this.xs[j] - this.xs[i], ey = this.ys[j] - this.ys[i];
+                double len = Math.hypot(ex, ey);
+                // con área positiva (x hacia la derecha, y hacia abajo) la normal exterior es (ey, -ex)
+                nx[i] = ey / len;
+                ny[i] = -ex / len;
+            }
+        }
+
+        @Override
+        public boolean penetration(double cx, double cy, double r, double[] out) {
+            int n = xs.length;
+            // distancia con signo a cada arista: si todas son negativas el centro está dentro
+            double maxSep = Double.NEGATIVE_INFINITY;
+            int maxEdge = 0;
+            for (int i = 0; i < n; i++) {
+                double sep = (cx - xs[i]) * nx[i] + (cy - ys[i]) * ny[i];
+                if (sep > r) return false; // eje separador
+                if (sep > maxSep) { maxSep = sep; maxEdge = i; }
+            }
+            if (maxSep <= 0) {
+                out[0] = nx[maxEdge]; out[1] = ny[maxEdge]; out[2] = r - maxSep;
+                return true;
+            }
+            // fuera: punto más cercano del contorno
+            double best = Double.MAX_VALUE, bx = 0, by = 0;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                double ex = xs[j] - xs[i], ey = ys[j] - ys[i];
+                double t = ((cx - xs[i]) * ex + (cy - ys[i]) * ey) / (ex * ex + ey * ey);
+                t = Math.max(0, Math.min(1, t));
+                double qx = xs[i] + ex * t, qy = ys[i] + ey * t;
+                double d2 = (cx - qx) * (cx - qx) + (cy - qy) * (cy - qy);
+                if (d2 < best) { best = d2; bx = qx; by = qy; }
+            }
+            if (best >= r * r) return false;
+            double d = Math.sqrt(best);
+            if (d == 0) { out[0] = nx[maxEdge]; out[1] = ny[maxEdge]; }
+            else { out[0] = (cx - bx) / d; out[1] = (cy - by) / d; }
+            out[2] = r - d;
+            return true;
+        }
+
+        @Override
+        public double segmentHit(double x0, double y0, double x1, double y1) {
+            // recorte de Cyrus–Beck contra los semiplanos de las aristas
+            double dx = x1 - x0, dy = y1 - y0;
+            double tEnter = 0, tExit = 1;
+            for (int i = 0; i < xs.length; i++) {
+                double num = (x0 - xs[i]) * nx[i] + (y0 - ys[i]) * ny[i];
+                double den = dx * nx[i] + dy * ny[i];
+                if (den == 0) {
+                    if (num > 0) return Sweep.NO_HIT;
+                    continue;
+                }
+                double t = -num / den;
+                if (den < 0) { if (t > tEnter) tEnter = t; }
+                else if (t < tExit) tExit = t;
+                if (tEnter > tExit) return Sweep.NO_HIT;
+            }
+            return tEnter;
+        }
+
+        public int getVertexCount() { return xs.length; }
+        public double getVertexX(int i) { return xs[i]; }
+        public double getVertexY(int i) { return ys[i]; }
+
+        /** Devuelve {@code xs} si los dos arrays describen al menos 3 vértices finitos. */
+        private static double[] checked(double[] xs, double[] ys) {
+            if (xs.length != ys.length) {
+                throw new IllegalArgumentException("Distinto número de x (" + xs.length + ") que de y (" + ys.length + ")");
+            }
+            if (xs.length < 3) throw new IllegalArgumentException("Un polígono necesita al menos 3 vértices");
+            for (int i = 0; i < xs.length; i++) {
+                if (!Double.isFinite(xs[i]) || !Double.isFinite(ys[i])) {
+                    throw new IllegalArgumentException("Vértice " + i + " no finito");
+                }
+            }
+            return xs;
+        }
+
+        private static double signedArea(double[] xs, double[] ys) {
+            int n = xs.length;
+            double area = 0;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                area += xs[i] * ys[j] - xs[j] * ys[i];
+            }
+            return area;
+        }
+
+        /**
+         * Todos los giros del contorno hacia el mismo lado que el área (los colineales valen)
+         * y una sola vuelta en total: una estrella gira siempre igual pero da dos vueltas.
+         */
+        private static void checkConvex(double[] xs, double[] ys, double area) {
+            int n = xs.length;
+            double turn = 0;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n, k = (i + 2) % n;
+                double ax = xs[j] - xs[i], ay = ys[j] - ys[i];
+                double bx = xs[k] - xs[j], by = ys[k] - ys[j];
+                if (ax == 0 && ay == 0) throw new IllegalArgumentException("Vértices repetidos en el polígono");
+                double cross = ax * by - ay * bx;
+                if (cross * area < 0 || (cross == 0 && ax * bx + ay * by < 0)) {
+                    throw new IllegalArgumentException("Polígono no convexo en el vértice " + j);
+                }
+                turn += Math.atan2(cross, ax * bx + ay * by);
+            }
+            if (Math.abs(Math.abs(turn) - 2 * Math.PI) > 1e-6) {
+                throw new IllegalArgumentException("El contorno del polígono se corta a sí mismo");
+            }
+        }
+
+        private static double min(double[] v) {
+            double m = Double.POSITIVE_INFINITY;
+            for (double d : v) m = Math.min(m, d);
+            return m;
+        }
+
+        private static double max(double[] v) {
+            double m = Double.NEGATIVE_INFINITY;
+            for (double d : v) m = Math.max(m, d);
+            return m;
+        }
+
+        private static void reverse(double[] v) {
+            for (int i = 0, j = v.length - 1; i < j; i++, j--) {
+                double t = v[i]; v[i] = v[j]; v[j] = t;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Jerarquía de volúmenes envolventes (AABB) sobre los obstáculos estáticos de un
+ * nivel. Se construye una sola vez al cargar el nivel (partición por la mediana
+ * del eje más largo) y es inmutable, así que la consultan a la vez los hilos de
+ * las bolas y el de simulación sin sincronizar. Las consultas cuestan
+ * O(log n) en el número de obstáculos y no asignan memoria.
+ */
+public class ObstacleBVH {
+    private static final int LEAF_SIZE = 4;
+    private static final ObstacleBVH EMPTY = new ObstacleBVH(new Obstacle[0]);
+
+    private final Obstacle[] items;
+    // nodos en arrays: hijos (left/right) o rango [first, first+count) de items en hojas
+    private final double[] nodeMinX, nodeMinY, nodeMaxX, nodeMaxY;
+    private final int[] left, right, first, count;
+    private int nodeCount = 0;
+
+    public ObstacleBVH(List<Obstacle> obstacles) {
+        this(obstacles.toArray(new Obstacle[0]));
+    }
+
+    private ObstacleBVH(Obstacle[] obstacles) {
+        this.items = obstacles;
+        int maxNodes = Math.max(1, 2 * obstacles.length);
+        nodeMinX = new double[maxNodes]; nodeMinY = new double[maxNodes];
+        nodeMaxX = new double[maxNodes]; nodeMaxY = new double[maxNodes];
+        left = new int[maxNodes]; right = new int[maxNodes];
+        first = new int[maxNodes]; count = new int[maxNodes];
+        if (obstacles.length > 0) build(0, obstacles.length);
+    }
+
+    /** BVH sin obstáculos (nivel vacío). */
+    public static ObstacleBVH empty() {
+        return EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return items.length == 0;
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    public Obstacle get(int i) {
+        return items[i];
+    }
+
+    private int build(int from, int to) {
+        int node = nodeCount++;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            Obstacle o = items[i];
+            minX = Math.min(minX, o.getMinX()); minY = Math.min(minY, o.getMinY());
+            maxX = Math.max(maxX, o.getMaxX()); maxY = Math.max(maxY, o.getMaxY());
+        }
+        nodeMinX[node] = minX; nodeMinY[node] = minY;
+        nodeMaxX[node] = maxX; nodeMaxY[node] = maxY;
+        if (to - from <= LEAF_SIZE) {
+            left[node] = -1; right[node] = -1;
+            first[node] = from; count[node] = to - from;
+            return node;
+        }
+        // ordenar por el centro en el eje más largo y partir por la mediana
+        Comparator<Obstacle> byCenter = (maxX - minX) >= (maxY - minY)
+            ? Comparator.comparingDouble(o -> o.getMinX() + o.getMaxX())
+            : Comparator.comparingDouble(o -> o.getMinY() + o.getMaxY());
+        Arrays.sort(items, from, to, byCenter);
+        int mid = (from + to) >>> 1;
+        count[node] = 0;
+        left[node] = build(from, mid);
+        right[node] = build(mid, to);
+        return node;
+    }
+
+    /**
+     * Buscar el obstáculo con mayor penetración sobre el círculo (cx, cy, r).
+     * Si hay alguno escribe normal (out[0], out[1]) y profundidad (out[2]) y devuelve true.
+     * {@code out} necesita 6 posiciones: out[3..5] guarda el mejor candidato durante la búsqueda.
+     */
+    public boolean deepestPenetration(double cx, double cy, double r, double[] out) {
+        if (items.length == 0) return false;
+        out[5] = 0;
+        if (!penetration(0, cx, cy, r, out, false)) return false;
+        out[0] = out[3]; out[1] = out[4]; out[2] = out[5];
+        return true;
+    }
+
+    private boolean penetration(int node, double cx, double cy, double r, double[] out, boolean found) {
+        if (cx + r < nodeMinX[node] || cx - r > nodeMaxX[node]
+                || cy + r < nodeMinY[node] || cy - r > nodeMaxY[node]) {
+            return found;
+        }
+        if (left[node] < 0) {
+            for (int i = first[node], end = first[node] + count[node]; i < end; i++) {
+                // out[0..2] como espacio de trabajo; quedarse con el más profundo en out[3..5]
+                if (items[i].penetration(cx, cy, r, out) && out[2] > out[5]) {
+                    out[3] = out[0]; out[4] = out[1]; out[5] = out[2];
+                    found = true;
+                }
+            }
+            return found;
+        }
+        found = penetration(left[node], cx, cy, r, out, found);
+        return penetration(right[node], cx, cy, r, out, found);
+    }
+
+    /** Primer instante t ∈ [0, 1] en que el segmento toca algún obstáculo, o {@link Sweep#NO_HIT}. */
+    public double firstSegmentHit(double x0, double y0, double x1, double y1) {
+        if (items.length == 0) return Sweep.NO_HIT;
+        double best = segmentHit(0, x0, y0, x1, y1, Double.MAX_VALUE);
+        return best == Double.MAX_VALUE ? Sweep.NO_HIT : best;
+    }
+
+    private double segmentHit(int node, double x0, double y0, double x1, double y1, double best) {
+        double tNode = Sweep.segmentRect(x0, y0, x1, y1, nodeMinX[node], nodeMinY[node], nodeMaxX[node], nodeMaxY[node]);
+        // podar nodos que no toca el segmento o que sólo se alcanzan después del mejor impacto
+        if (tNode == Sweep.NO_HIT || tNode >= best) return best;
+        if (left[node] < 0) {
+            for (int i = first[node], end = first[node] + count[node]; i < end; i++) {
+                double t = items[i].segmentHit(x0, y0, x1, y1);
+                if (t != Sweep.NO_HIT && t < best) best = t;
+            }
+            return best;
+        }
+        best = segmentHit(left[node], x0, y0, x1, y1, best);
+        return segmentHit(right[node], x0, y0, x1, y1, best);
+    }
+}
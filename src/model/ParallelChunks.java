@@ -0,0 +1,81 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reparto de un rango [0, n) en trozos fijos por el ForkJoinPool común, con tareas que se
+ * reutilizan de un tick a otro (sólo se crean al necesitar más trozos que nunca). Cada
+ * trozo tiene su número, para que el llamador le asocie memoria de trabajo propia.
+ * Un mismo objeto no admite dos repartos a la vez.
+ */
+abstract class ParallelChunks {
+    private final int chunkSize;
+    private Chunk[] chunks = new Chunk[0];
+    private final Root root = new Root();
+
+    ParallelChunks(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /** Trabajo del trozo número {@code chunk}, que cubre [from, to). */
+    protected abstract void compute(int chunk, int from, int to);
+
+    /** Trozos en que se parte un rango de {@code n}. */
+    int chunksFor(int n) {
+        return (n + chunkSize - 1) / chunkSize;
+    }
+
+    /** Ejecutar todos los trozos de [0, n) y esperar a que terminen. */
+    void invoke(int n) {
+        int count = chunksFor(n);
+        if (count <= 1) {
+            if (n > 0) compute(0, 0, n);
+            return;
+        }
+        if (chunks.length < count) {
+            int old = chunks.length;
+            chunks = Arrays.copyOf(chunks, count);
+            for (int c = old; c < count; c++) chunks[c] = new Chunk(c);
+        }
+        for (int c = 0; c < count; c++) chunks[c].set(c * chunkSize, Math.min(n, (c + 1) * chunkSize));
+        root.count = count;
+        root.reinitialize();
+        ForkJoinPool.commonPool().invoke(root);
+    }
+
+    @SuppressWarnings("serial")
+    private final class Root extends RecursiveAction {
+        int count;
+
+        @Override
+        protected void compute() {
+            Chunk[] tasks = chunks;
+            for (int c = 1; c < count; c++) tasks[c].fork();
+            tasks[0].compute();
+            for (int c = count - 1; c >= 1; c--) tasks[c].join();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class Chunk extends RecursiveAction {
+        private final int index;
+        private int from, to;
+
+        Chunk(int index) {
+            this.index = index;
+        }
+
+        void set(int from, int to) {
+            this.from = from;
+            this.to = to;
+            reinitialize();
+        }
+
+        @Override
+        protected void compute() {
+            ParallelChunks.this.compute(index, from, to);
+        }
+    }
+}
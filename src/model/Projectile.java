@@ -7,25 +7,64 @@ import java.awt.Color;
  */
 public class Projectile {
     private double x, y;
+    // posición al comienzo del último paso (para la prueba barrida)
+    private double prevX, prevY;
     private double velX, velY;
     private final Color color;
+    // clave (Ball.shardKey) de la bola que lo disparó: nunca la alcanza su propio proyectil
+    private final long ownerKey;
     private volatile boolean active = true;
     private static final int SIZE = 5;
     private static final double SPEED = 0.5; // px/ms
     // Color fijo rojo brillante para buena visibilidad contra fondo blanco
     private static final Color PROJECTILE_COLOR = new Color(220, 20, 20); // Rojo brillante
+    /** Clave de dueño de un proyectil sin bola que lo disparase (o cuya bola ya no existe). */
+    static final long NO_OWNER = -1;
     
     public Projectile(double startX, double startY, double angle, Color shipColor) {
+        this(startX, startY, angle, shipColor, NO_OWNER);
+    }
+
+    /** Proyectil disparado por la bola de clave {@code ownerKey}, que queda a salvo de él. */
+    Projectile(double startX, double startY, double angle, Color shipColor, long ownerKey) {
         this.x = startX;
         this.y = startY;
+        this.prevX = startX;
+        this.prevY = startY;
         // velocidad del proyectil en la dirección del ángulo
         this.velX = Math.cos(angle) * SPEED;
         this.velY = Math.sin(angle) * SPEED;
         this.color = PROJECTILE_COLOR; // Color fijo visible
+        this.ownerKey = ownerKey;
     }
     
+    /** Reconstruir un proyectil guardado en un checkpoint. */
+    Projectile(double x, double y, double prevX, double prevY, double velX, double velY, Color color, long ownerKey) {
+        this.x = x;
+        this.y = y;
+        this.prevX = prevX;
+        this.prevY = prevY;
+        this.velX = velX;
+        this.velY = velY;
+        this.color = color;
+        this.ownerKey = ownerKey;
+    }
+
+    /** Proyectil que llega de otra región del mundo repartido (ver {@link #writeState}). */
+    Projectile(java.nio.ByteBuffer in) {
+        this(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble(),
+             in.getDouble(), in.getDouble(), new Color(in.getInt(), true), in.getLong());
+    }
+
+    void writeState(java.nio.ByteBuffer out) {
+        out.putDouble(x).putDouble(y).putDouble(prevX).putDouble(prevY)
+           .putDouble(velX).putDouble(velY).putInt(color.getRGB()).putLong(ownerKey);
+    }
+
     public void update(double deltaMs) {
         if (!active) return;
+        prevX = x;
+        prevY = y;
         x += velX * deltaMs;
         y += velY * deltaMs;
     }
@@ -46,8 +85,13 @@ public class Projectile {
     
     public double getX() { return x; }
     public double getY() { return y; }
+    public double getPrevX() { return prevX; }
+    public double getPrevY() { return prevY; }
+    public double getVelX() { return velX; }
+    public double getVelY() { return velY; }
     public int getSize() { return SIZE; }
     public Color getColor() { return color; }
+    long getOwnerKey() { return ownerKey; }
     
     /**
      * Verifica si este proyectil colisiona con una bola.
@@ -70,4 +114,22 @@ public class Projectile {
         // Colisión si la distancia es menor que la suma de radios
         return dist < (ballRadius + projRadius);
     }
+
+    /**
+     * Prueba barrida: instante t ∈ [0, 1] del último paso en que el proyectil
+     * tocó la bola, o {@link Sweep#NO_HIT}. A diferencia de {@link #collidesWith}
+     * no se salta bolas pequeñas cuando el paso es largo. La bola que lo disparó
+     * nunca se toca: sale de dentro de ella (o casi) y se mueve antes de la prueba.
+     */
+    public double hitTime(Ball ball) {
+        if (!active || ball == null || ball.shardKey == ownerKey) return Sweep.NO_HIT;
+        double r = ball.getDIAMETER() / 2.0;
+        return hitTime(ball.getPosX() + r, ball.getPosY() + r, r);
+    }
+
+    /** Igual que {@link #hitTime(Ball)} contra un círculo dado por centro y radio. */
+    public double hitTime(double cx, double cy, double radius) {
+        if (!active) return Sweep.NO_HIT;
+        return Sweep.segmentCircle(prevX, prevY, x, y, cx, cy, radius + SIZE / 2.0);
+    }
 }
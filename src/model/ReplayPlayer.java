@@ -0,0 +1,473 @@
+package model;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Lector de sesiones grabadas ({@link SessionLog}) que reconstruye el mundo tick a
+ * tick sin ejecutar física.
+ *
+ * El fichero se mapea en memoria por segmentos (así puede superar los 2 GB) y el
+ * índice de keyframes se lee del pie; si la grabación se cortó sin pie se
+ * reconstruye recorriendo el fichero una vez al abrir. Buscar un tick cuesta como
+ * mucho un intervalo de keyframes: se salta al keyframe anterior y se avanza desde ahí.
+ *
+ * Las bolas se guardan por columnas ordenadas por id. Los cambios de un tick llegan
+ * en orden de id, así que se aplican en su sitio con un cursor que sólo avanza;
+ * únicamente las altas y bajas obligan a recompactar.
+ *
+ * No es thread-safe: lo usa un único hilo de reproducción.
+ */
+public class ReplayPlayer implements FrameSource {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+    // solape entre segmentos: cualquier primitivo que empiece en un segmento cabe entero en él
+    private static final int SEGMENT_OVERLAP = 16;
+    private static final long EXPLOSION_NANOS = 800_000_000L;
+    // velocidad media de las partículas de Explosion (0.1..0.3 px/ms)
+    private static final double REPLAY_PARTICLE_SPEED = 0.2;
+    private static final Color PROJECTILE_COLOR = new Color(220, 20, 20);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long dataEnd;
+    private final long startMillis;
+    private final int width, height;
+    private long[] keyframeTicks;
+    private long[] keyframeOffsets;
+    private int keyframeCount;
+    private final long lastTick;
+
+    // --- estado reconstruido ---
+    private long pos;
+    private long currentTick = -1;
+    private long currentNanos = 0;
+    private int count = 0;
+    private int[] ids = new int[256];
+    private float[] xs = new float[256], ys = new float[256], angles = new float[256];
+    private int[] diameters = new int[256];
+    private Color[] colors = new Color[256];
+    private boolean[] removed = new boolean[256];
+    private int occupant = -1;
+    private int projectileCount = 0;
+    private float[] projX = new float[16], projY = new float[16];
+    // explosiones vivas: (inicio en ns de la grabación, x, y, color, diámetro)
+    private int explosionCount = 0;
+    private long[] explosionStart = new long[16];
+    private float[] explosionX = new float[16], explosionY = new float[16];
+    private Color[] explosionColor = new Color[16];
+    private int[] explosionDiameter = new int[16];
+    // altas pendientes del tick en curso (se mezclan al cerrar el tick)
+    private int spawnCount = 0;
+    private int[] spawnId = new int[16], spawnDiameter = new int[16], spawnRgb = new int[16];
+    private float[] spawnX = new float[16], spawnY = new float[16], spawnAngle = new float[16];
+    private boolean compactPending = false;
+
+    public ReplayPlayer(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < SessionLog.HEADER_BYTES) {
+            channel.close();
+            throw new IOException(file + ": no es una grabación (demasiado corta)");
+        }
+        int n = (int) ((size + SEGMENT_BYTES - 1) >>> SEGMENT_SHIFT);
+        segments = new MappedByteBuffer[n];
+        for (int k = 0; k < n; k++) {
+            long start = (long) k << SEGMENT_SHIFT;
+            long len = Math.min(size - start, SEGMENT_BYTES + SEGMENT_OVERLAP);
+            segments[k] = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+            segments[k].order(ByteOrder.BIG_ENDIAN);
+        }
+        if (getInt(0) != SessionLog.MAGIC) {
+            channel.close();
+            throw new IOException(file + ": no es una grabación (cabecera)");
+        }
+        int version = getInt(4);
+        if (version != SessionLog.VERSION) {
+            channel.close();
+            throw new IOException(file + ": versión de grabación no soportada: " + version);
+        }
+        startMillis = getLong(8);
+        width = getInt(16);
+        height = getInt(20);
+
+        // índice del pie si existe; si no (grabación interrumpida), recorrer el fichero
+        long indexOffset = -1;
+        if (size >= SessionLog.HEADER_BYTES + SessionLog.FOOTER_BYTES
+                && getInt(size - 4) == SessionLog.FOOTER_MAGIC) {
+            long off = getLong(size - SessionLog.FOOTER_BYTES);
+            if (off >= SessionLog.HEADER_BYTES && off < size && get(off) == SessionLog.INDEX) indexOffset = off;
+        }
+        keyframeTicks = new long[64];
+        keyframeOffsets = new long[64];
+        if (indexOffset >= 0) {
+            dataEnd = indexOffset;
+            int k = getInt(indexOffset + 1);
+            keyframeTicks = new long[Math.max(1, k)];
+            keyframeOffsets = new long[Math.max(1, k)];
+            for (int i = 0; i < k; i++) {
+                keyframeTicks[i] = getLong(indexOffset + 5 + 16L * i);
+                keyframeOffsets[i] = getLong(indexOffset + 13 + 16L * i);
+            }
+            keyframeCount = k;
+            lastTick = keyframeCount > 0 ? scan(keyframeOffsets[keyframeCount - 1], false) : -1;
+        } else {
+            dataEnd = size;
+            lastTick = scan(SessionLog.HEADER_BYTES, true);
+        }
+        if (keyframeCount == 0) {
+            channel.close();
+            throw new IOException(file + ": la grabación no contiene ningún keyframe");
+        }
+        seek(keyframeTicks[0]);
+    }
+
+    public long getFirstTick() { return keyframeTicks[0]; }
+    public long getLastTick() { return lastTick; }
+    public long getCurrentTick() { return currentTick; }
+    public long getStartMillis() { return startMillis; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getBallCount() { return count; }
+
+    /**
+     * Recorrer registros desde {@code from} sin decodificar el estado. Devuelve el
+     * último tick completo; con {@code collect} registra los keyframes encontrados.
+     */
+    private long scan(long from, boolean collect) {
+        long p = from, last = -1;
+        // comienzo del tick en curso: es lo que el índice guarda para cada keyframe
+        long tickStart = from;
+        while (p < dataEnd) {
+            byte type = get(p);
+            long next = p + 1;
+            switch (type) {
+                case SessionLog.TICK:
+                    if (next + 16 > dataEnd) return last;
+                    last = getLong(next);
+                    next += 16;
+                    tickStart = next;
+                    break;
+                case SessionLog.KEYFRAME:
+                    if (next + 8 > dataEnd) return last;
+                    if (collect) addKeyframe(p, tickStart);
+                    next += 8 + (long) getInt(next) * SessionLog.ENTRY_BYTES;
+                    break;
+                case SessionLog.SPAWN: next += SessionLog.ENTRY_BYTES; break;
+                case SessionLog.STATE: next += SessionLog.STATE_BYTES - 1; break;
+                case SessionLog.REMOVE:
+                case SessionLog.ROOM_ENTER:
+                case SessionLog.ROOM_EXIT: next += 4; break;
+                case SessionLog.HIT: next += 12; break;
+                case SessionLog.EXPLOSION: next += 16; break;
+                case SessionLog.PROJECTILES:
+                    if (next + 4 > dataEnd) return last;
+                    next += 4 + (long) getInt(next) * 8;
+                    break;
+                default:
+                    return last; // índice o cola truncada
+            }
+            if (next > dataEnd) return last;
+            p = next;
+        }
+        return last;
+    }
+
+    private void addKeyframe(long keyframe, long offset) {
+        // el tick del keyframe es el del próximo registro TICK
+        long tick = scanTickAfter(keyframe);
+        if (tick < 0) return;
+        if (keyframeCount == keyframeTicks.length) {
+            keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeTicks[keyframeCount] = tick;
+        keyframeOffsets[keyframeCount] = offset;
+        keyframeCount++;
+    }
+
+    private long scanTickAfter(long keyframeOffset) {
+        long p = keyframeOffset + 1;
+        p += 8 + (long) getInt(p) * SessionLog.ENTRY_BYTES;
+        if (p + 5 > dataEnd || get(p) != SessionLog.PROJECTILES) return -1;
+        p += 5 + (long) getInt(p + 1) * 8;
+        if (p + 17 > dataEnd || get(p) != SessionLog.TICK) return -1;
+        return getLong(p + 1);
+    }
+
+    /** Colocarse exactamente en {@code tick} (acotado a la grabación). */
+    public void seek(long tick) {
+        tick = Math.max(getFirstTick(), Math.min(lastTick, tick));
+        int k = keyframeFor(tick);
+        pos = keyframeOffsets[k];
+        currentTick = -1;
+        explosionCount = 0;
+        while (currentTick < tick && decodeTick()) { }
+    }
+
+    /**
+     * Avanzar hasta {@code tick}. Si está detrás, o hay un keyframe entre el tick
+     * actual y el pedido, se salta directamente (coste acotado por el intervalo de keyframes).
+     */
+    public void advanceTo(long tick) {
+        tick = Math.min(lastTick, tick);
+        if (tick == currentTick) return;
+        if (tick < currentTick || keyframeTicks[keyframeFor(tick)] > currentTick) {
+            seek(tick);
+            return;
+        }
+        while (currentTick < tick && decodeTick()) { }
+    }
+
+    private int keyframeFor(long tick) {
+        int lo = 0, hi = keyframeCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (keyframeTicks[mid] <= tick) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /** Decodificar registros hasta cerrar un tick. Devuelve false al llegar al final. */
+    private boolean decodeTick() {
+        int cursor = 0;
+        while (pos < dataEnd) {
+            byte type = get(pos++);
+            switch (type) {
+                case SessionLog.KEYFRAME:
+                    readKeyframe();
+                    cursor = count;
+                    break;
+                case SessionLog.STATE: {
+                    int id = getInt(pos);
+                    while (cursor < count && ids[cursor] < id) cursor++;
+                    if (cursor < count && ids[cursor] == id) {
+                        xs[cursor] = getFloat(pos + 4);
+                        ys[cursor] = getFloat(pos + 8);
+                        angles[cursor] = getFloat(pos + 12);
+                    }
+                    pos += 16;
+                    break;
+                }
+                case SessionLog.REMOVE: {
+                    int id = getInt(pos);
+                    while (cursor < count && ids[cursor] < id) cursor++;
+                    if (cursor < count && ids[cursor] == id) {
+                        removed[cursor] = true;
+                        compactPending = true;
+                    }
+                    pos += 4;
+                    break;
+                }
+                case SessionLog.SPAWN:
+                    addSpawn();
+                    pos += SessionLog.ENTRY_BYTES;
+                    break;
+                case SessionLog.HIT:
+                    pos += 12;
+                    break;
+                case SessionLog.EXPLOSION:
+                    addExplosion(getFloat(pos), getFloat(pos + 4), getInt(pos + 8), getInt(pos + 12));
+                    pos += 16;
+                    break;
+                case SessionLog.ROOM_ENTER:
+                    occupant = getInt(pos);
+                    pos += 4;
+                    break;
+                case SessionLog.ROOM_EXIT:
+                    if (occupant == getInt(pos)) occupant = -1;
+                    pos += 4;
+                    break;
+                case SessionLog.PROJECTILES: {
+                    int n = getInt(pos);
+                    if (n > projX.length) {
+                        projX = new float[Math.max(n, projX.length * 2)];
+                        projY = new float[projX.length];
+                    }
+                    for (int i = 0; i < n; i++) {
+                        projX[i] = getFloat(pos + 4 + 8L * i);
+                        projY[i] = getFloat(pos + 8 + 8L * i);
+                    }
+                    projectileCount = n;
+                    pos += 4 + 8L * n;
+                    break;
+                }
+                case SessionLog.TICK:
+                    if (spawnCount > 0 || compactPending) applySpawnsAndRemovals();
+                    currentTick = getLong(pos);
+                    currentNanos = getLong(pos + 8);
+                    pos += 16;
+                    return true;
+                default:
+                    // INDEX o datos corruptos: fin de la reproducción
+                    pos = dataEnd;
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    private void readKeyframe() {
+        int n = getInt(pos);
+        occupant = getInt(pos + 4);
+        long p = pos + 8;
+        int[] newIds = new int[Math.max(n, 16)];
+        float[] nx = new float[newIds.length], ny = new float[newIds.length], na = new float[newIds.length];
+        int[] nd = new int[newIds.length];
+        Color[] nc = new Color[newIds.length];
+        // reutilizar los Color de las bolas que ya teníamos (mismo id y mismo rgb)
+        int old = 0;
+        for (int i = 0; i < n; i++, p += SessionLog.ENTRY_BYTES) {
+            int id = getInt(p);
+            newIds[i] = id;
+            nx[i] = getFloat(p + 4);
+            ny[i] = getFloat(p + 8);
+            na[i] = getFloat(p + 12);
+            nd[i] = getInt(p + 16);
+            int rgb = getInt(p + 20);
+            while (old < count && ids[old] < id) old++;
+            nc[i] = old < count && ids[old] == id && colors[old].getRGB() == rgb ? colors[old] : new Color(rgb, true);
+        }
+        ids = newIds; xs = nx; ys = ny; angles = na; diameters = nd; colors = nc;
+        removed = new boolean[newIds.length];
+        count = n;
+        spawnCount = 0;
+        compactPending = false;
+        pos = p;
+    }
+
+    private void addSpawn() {
+        if (spawnCount == spawnId.length) {
+            int size = spawnCount * 2;
+            spawnId = Arrays.copyOf(spawnId, size);
+            spawnX = Arrays.copyOf(spawnX, size);
+            spawnY = Arrays.copyOf(spawnY, size);
+            spawnAngle = Arrays.copyOf(spawnAngle, size);
+            spawnDiameter = Arrays.copyOf(spawnDiameter, size);
+            spawnRgb = Arrays.copyOf(spawnRgb, size);
+        }
+        int s = spawnCount++;
+        spawnId[s] = getInt(pos);
+        spawnX[s] = getFloat(pos + 4);
+        spawnY[s] = getFloat(pos + 8);
+        spawnAngle[s] = getFloat(pos + 12);
+        spawnDiameter[s] = getInt(pos + 16);
+        spawnRgb[s] = getInt(pos + 20);
+    }
+
+    /** Mezclar las altas (en orden de id) y quitar las bajas, en una pasada. */
+    private void applySpawnsAndRemovals() {
+        int total = count + spawnCount;
+        int[] nIds = new int[Math.max(16, total)];
+        float[] nx = new float[nIds.length], ny = new float[nIds.length], na = new float[nIds.length];
+        int[] nd = new int[nIds.length];
+        Color[] nc = new Color[nIds.length];
+        int i = 0, s = 0, k = 0;
+        while (i < count || s < spawnCount) {
+            if (i < count && removed[i]) { i++; continue; }
+            boolean takeSpawn = i >= count || (s < spawnCount && spawnId[s] < ids[i]);
+            if (takeSpawn) {
+                nIds[k] = spawnId[s]; nx[k] = spawnX[s]; ny[k] = spawnY[s]; na[k] = spawnAngle[s];
+                nd[k] = spawnDiameter[s]; nc[k] = new Color(spawnRgb[s], true);
+                s++;
+            } else {
+                nIds[k] = ids[i]; nx[k] = xs[i]; ny[k] = ys[i]; na[k] = angles[i];
+                nd[k] = diameters[i]; nc[k] = colors[i];
+                i++;
+            }
+            k++;
+        }
+        ids = nIds; xs = nx; ys = ny; angles = na; diameters = nd; colors = nc;
+        removed = new boolean[nIds.length];
+        count = k;
+        spawnCount = 0;
+        compactPending = false;
+    }
+
+    private void addExplosion(float x, float y, int rgb, int diameter) {
+        if (explosionCount == explosionStart.length) {
+            int size = explosionCount * 2;
+            explosionStart = Arrays.copyOf(explosionStart, size);
+            explosionX = Arrays.copyOf(explosionX, size);
+            explosionY = Arrays.copyOf(explosionY, size);
+            explosionColor = Arrays.copyOf(explosionColor, size);
+            explosionDiameter = Arrays.copyOf(explosionDiameter, size);
+        }
+        int e = explosionCount++;
+        explosionStart[e] = currentNanos;
+        explosionX[e] = x;
+        explosionY[e] = y;
+        explosionColor[e] = new Color(rgb, true);
+        explosionDiameter[e] = diameter;
+    }
+
+    /**
+     * Volcar el estado del tick actual en un frame, como haría {@link Model#snapshotInto}.
+     * Las explosiones se animan con el reloj de la grabación, así que al pausar o
+     * buscar se congelan en el instante correcto.
+     */
+    public void writeFrame(FrameSnapshot frame) {
+        frame.begin(currentTick);
+        for (int i = 0; i < count; i++) {
+            frame.addBall(null, ids[i], Math.round(xs[i]), Math.round(ys[i]), diameters[i], angles[i], colors[i]);
+        }
+        for (int i = 0; i < projectileCount; i++) {
+            frame.addProjectile(projX[i], projY[i], 5, PROJECTILE_COLOR);
+        }
+        int live = 0;
+        for (int e = 0; e < explosionCount; e++) {
+            long age = currentNanos - explosionStart[e];
+            if (age > EXPLOSION_NANOS || age < 0) continue;
+            // compactar las vivas al principio
+            explosionStart[live] = explosionStart[e]; explosionX[live] = explosionX[e]; explosionY[live] = explosionY[e];
+            explosionColor[live] = explosionColor[e]; explosionDiameter[live] = explosionDiameter[e];
+            live++;
+            double progress = age / (double) EXPLOSION_NANOS;
+            float alpha = (float) (1.0 - progress) * 0.8f;
+            int size = (int) (4 * (1.0 - progress * 0.5));
+            int particles = Math.min(20, explosionDiameter[e] / 2);
+            double travel = REPLAY_PARTICLE_SPEED * age / 1_000_000.0;
+            for (int j = 0; j < particles; j++) {
+                double a = (2 * Math.PI * j) / particles;
+                frame.addParticle(explosionX[e] + Math.cos(a) * travel, explosionY[e] + Math.sin(a) * travel,
+                    size, alpha, explosionColor[e]);
+            }
+        }
+        explosionCount = live;
+    }
+
+    /** Id del ocupante de la habitación en el tick actual, o -1. */
+    public int getOccupant() {
+        return occupant;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // los segmentos mapeados se liberan cuando el GC recoge los buffers
+        channel.close();
+    }
+
+    // --- lectura por posición absoluta sobre los segmentos ---
+
+    private byte get(long p) {
+        return segments[(int) (p >>> SEGMENT_SHIFT)].get((int) (p & (SEGMENT_BYTES - 1)));
+    }
+
+    private int getInt(long p) {
+        return segments[(int) (p >>> SEGMENT_SHIFT)].getInt((int) (p & (SEGMENT_BYTES - 1)));
+    }
+
+    private long getLong(long p) {
+        return segments[(int) (p >>> SEGMENT_SHIFT)].getLong((int) (p & (SEGMENT_BYTES - 1)));
+    }
+
+    private float getFloat(long p) {
+        return segments[(int) (p >>> SEGMENT_SHIFT)].getFloat((int) (p & (SEGMENT_BYTES - 1)));
+    }
+}
@@ -0,0 +1,682 @@
+package model;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Historial en memoria de los últimos segundos de simulación, para rebobinar,
+ * recorrer la línea de tiempo y reanudar desde cualquier tick.
+ *
+ * Es un anillo de segmentos de {@link #KEYFRAME_INTERVAL} ticks. Cada segmento
+ * empieza con un {@link WorldCheckpoint} exacto (desde el que se reanuda) y sigue
+ * con un registro compacto por tick del estado visible:
+ * <ul>
+ * <li>bajas y altas de bolas (cruce por id; las altas llevan todo su aspecto),</li>
+ * <li>ángulos sólo de las bolas cuyo ángulo cambió,</li>
+ * <li>posiciones (px) como residuo de segundo orden: desplazamiento de este tick
+ *     menos el del anterior. En movimiento rectilíneo vale 0 o ±1, que se guardan
+ *     en 2 bits por eje; los demás valores (rebotes, empuje) van aparte como varint,</li>
+ * <li>proyectiles y partículas completos (son pocos).</li>
+ * </ul>
+ * El primer tick de cada segmento se codifica contra un mundo vacío, así que cada
+ * segmento se decodifica sin depender del anterior y expulsar el más antiguo es O(1).
+ * Con 50k bolas un tick ocupa ~30 KB y un keyframe ~4 MB: 60 s caben en ~160 MB,
+ * y decodificar un tick cuesta ~0.2 ms (buscar, como mucho ~50 ms).
+ *
+ * Lo escribe el hilo de simulación ({@link #recordTick}); los cursores que se abren
+ * para rebobinar leen copias de las referencias y no bloquean la grabación.
+ */
+public class RewindBuffer {
+    /** Ticks por segmento (~4 s a 60 Hz); acota lo que hay que re-simular al reanudar. */
+    public static final int KEYFRAME_INTERVAL = 240;
+    /** Historial por defecto: ~60 s a 60 Hz. */
+    public static final int DEFAULT_HISTORY_TICKS = 60 * 60;
+    /** Tope de memoria por defecto; si se supera se acorta el historial. */
+    public static final long DEFAULT_MAX_BYTES = 192L << 20;
+
+    private static final int CODE_ESCAPE = 3;
+    // valor de cada código de 2 bits; tabla en vez de switch: los códigos 0/±1 llegan
+    // mezclados al azar y un salto por bola se predice mal
+    private static final int[] CODE_VALUE = { 0, 1, -1, 0 };
+    // código de (residuo + 1) para -1, 0, +1
+    private static final int[] CODE_OF = { 2, 0, 1 };
+
+    private final Model model;
+    private final int maxTicks;
+    private final long maxBytes;
+    private final ArrayList<Segment> segments = new ArrayList<>();
+    private long nextTick = 0;
+    private boolean forceKeyframe = true;
+
+    // --- estado del codificador: el último tick grabado, en orden de id ---
+    private int encCount = 0;
+    private int[] encId = new int[256], encX = new int[256], encY = new int[256];
+    private int[] encDx = new int[256], encDy = new int[256];
+    private float[] encAngle = new float[256];
+    private int[] nextId = new int[256], nextX = new int[256], nextY = new int[256];
+    private int[] nextDx = new int[256], nextDy = new int[256];
+    private float[] nextAngle = new float[256];
+    // secciones del tick en curso, se concatenan al final
+    private final ByteSink removedOut = new ByteSink(256), spawnOut = new ByteSink(1024);
+    private final ByteSink angleOut = new ByteSink(64), codeOut = new ByteSink(1024);
+    private final ByteSink escapeOut = new ByteSink(256);
+
+    public RewindBuffer(Model model) {
+        this(model, DEFAULT_HISTORY_TICKS, DEFAULT_MAX_BYTES);
+    }
+
+    public RewindBuffer(Model model, int maxTicks, long maxBytes) {
+        this.model = model;
+        this.maxTicks = Math.max(KEYFRAME_INTERVAL, maxTicks);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Añadir el frame recién publicado al historial. Al empezar segmento captura un
+     * checkpoint del modelo (bajo su monitor, sin E/S). Sólo desde el hilo de simulación.
+     */
+    public synchronized void recordTick(FrameSnapshot frame) {
+        Segment seg = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (forceKeyframe || seg == null || seg.ticks == KEYFRAME_INTERVAL) {
+            if (seg != null) seg.trim();
+            seg = new Segment(nextTick, model.captureCheckpoint());
+            segments.add(seg);
+            // el primer tick del segmento sale entero, como altas sobre un mundo vacío
+            encCount = 0;
+            forceKeyframe = false;
+        }
+        encodeTick(frame, seg.data);
+        seg.offsets[++seg.ticks] = seg.data.size;
+        nextTick++;
+        evict();
+    }
+
+    private void evict() {
+        while (segments.size() > 1) {
+            Segment oldest = segments.get(0);
+            long held = nextTick - oldest.firstTick;
+            if (held - oldest.ticks < maxTicks && getMemoryBytes() <= maxBytes) break;
+            segments.remove(0);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public synchronized long getFirstTick() {
+        return segments.isEmpty() ? 0 : segments.get(0).firstTick;
+    }
+
+    public synchronized long getLastTick() {
+        return nextTick - 1;
+    }
+
+    /** Memoria ocupada (keyframes + registros, con la holgura del segmento abierto). */
+    public synchronized long getMemoryBytes() {
+        long total = 0;
+        for (int i = 0; i < segments.size(); i++) total += segments.get(i).bytes();
+        return total;
+    }
+
+    /**
+     * Abrir un cursor sobre el historial actual, colocado en el último tick, o null si
+     * aún no hay nada. Lo que se grabe después no aparece en este cursor.
+     */
+    public synchronized Cursor openCursor() {
+        if (segments.isEmpty()) return null;
+        SegmentView[] views = new SegmentView[segments.size()];
+        for (int i = 0; i < views.length; i++) {
+            Segment s = segments.get(i);
+            views[i] = new SegmentView(s.firstTick, s.data.buf, s.offsets, s.ticks);
+        }
+        Cursor c = new Cursor(views);
+        c.seek(c.getLastTick());
+        return c;
+    }
+
+    /**
+     * Reanudar la simulación en {@code tick}: restaura el keyframe de su segmento y
+     * re-simula en orden fijo los ticks que faltan con paso {@code dtMs}, ejecutando
+     * {@code tickTasks} (fuerzas y sistemas de comportamiento) antes de cada uno, aunque
+     * el modelo esté en pausa. En modo determinista el resultado
+     * es exacto salvo las acciones del usuario de ese tramo (bolas añadidas, disparos,
+     * teclas), que no se guardan; en modo libre es una continuación plausible. Se
+     * descarta el historial posterior. Llamar desde el hilo de simulación.
+     */
+    public synchronized void resumeAt(long tick, double dtMs, DoubleConsumer tickTasks) {
+        if (segments.isEmpty()) return;
+        int si = segmentFor(tick);
+        Segment s = segments.get(si);
+        int n = (int) Math.max(0, Math.min(s.ticks - 1, tick - s.firstTick));
+        while (segments.size() > si + 1) segments.remove(segments.size() - 1);
+        s.ticks = n + 1;
+        s.data.size = s.offsets[n + 1];
+        s.trim();
+        nextTick = s.firstTick + n + 1;
+        // lo que se grabe a partir de aquí es otra línea de tiempo: segmento nuevo
+        forceKeyframe = true;
+        model.resumeFrom(s.key, n, dtMs, tickTasks);
+    }
+
+    private int segmentFor(long tick) {
+        int lo = 0, hi = segments.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segments.get(mid).firstTick <= tick) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    // --- codificación ---
+
+    private void encodeTick(FrameSnapshot f, ByteSink out) {
+        int n = f.getBallCount();
+        if (nextId.length < n) growEncoder(n);
+        removedOut.reset(); spawnOut.reset(); angleOut.reset(); codeOut.reset(); escapeOut.reset();
+        int removed = 0, spawned = 0, angles = 0, survivors = 0;
+        int lastRemoved = 0, lastSpawn = 0, lastAngle = 0, pendingCode = 0;
+        int p = 0;
+        for (int c = 0; c < n; c++) {
+            int id = f.getBallId(c);
+            // ids ordenados en ambos lados: todo lo anterior que no sigue es una baja
+            while (p < encCount && encId[p] < id) {
+                removedOut.putVarint(p - lastRemoved);
+                lastRemoved = p++;
+                removed++;
+            }
+            int x = f.getBallX(c), y = f.getBallY(c);
+            float angle = (float) f.getBallAngle(c);
+            nextId[c] = id; nextX[c] = x; nextY[c] = y; nextAngle[c] = angle;
+            if (p < encCount && encId[p] == id) {
+                int dx = x - encX[p], dy = y - encY[p];
+                int code = residualCode(dx - encDx[p]) | residualCode(dy - encDy[p]) << 2;
+                if ((survivors & 1) == 0) pendingCode = code;
+                else codeOut.putByte(pendingCode | code << 4);
+                survivors++;
+                if (Float.floatToIntBits(angle) != Float.floatToIntBits(encAngle[p])) {
+                    angleOut.putVarint(c - lastAngle);
+                    angleOut.putFloat(angle);
+                    lastAngle = c;
+                    angles++;
+                }
+                nextDx[c] = dx; nextDy[c] = dy;
+                p++;
+            } else {
+                spawnOut.putVarint(c - lastSpawn);
+                spawnOut.putInt(id);
+                spawnOut.putZigzag(x);
+                spawnOut.putZigzag(y);
+                spawnOut.putVarint(f.getBallDiameter(c));
+                spawnOut.putInt(f.getBallColor(c).getRGB());
+                spawnOut.putFloat(angle);
+                lastSpawn = c;
+                spawned++;
+                nextDx[c] = 0; nextDy[c] = 0;
+            }
+        }
+        while (p < encCount) {
+            removedOut.putVarint(p - lastRemoved);
+            lastRemoved = p++;
+            removed++;
+        }
+        if ((survivors & 1) == 1) codeOut.putByte(pendingCode);
+
+        out.putVarint(removed); out.append(removedOut);
+        out.putVarint(spawned); out.append(spawnOut);
+        out.putVarint(angles); out.append(angleOut);
+        out.append(codeOut);
+        out.append(escapeOut);
+
+        int projectiles = f.getProjectileCount();
+        out.putVarint(projectiles);
+        for (int i = 0; i < projectiles; i++) {
+            out.putZigzag((int) Math.round(f.getProjectileX(i)));
+            out.putZigzag((int) Math.round(f.getProjectileY(i)));
+            out.putVarint(f.getProjectileSize(i));
+            out.putInt(f.getProjectileColor(i).getRGB());
+        }
+        int particles = f.getParticleCount();
+        out.putVarint(particles);
+        for (int i = 0; i < particles; i++) {
+            out.putZigzag((int) Math.round(f.getParticleX(i)));
+            out.putZigzag((int) Math.round(f.getParticleY(i)));
+            out.putVarint(f.getParticleSize(i));
+            out.putByte(Math.round(Math.max(0f, Math.min(1f, f.getParticleAlpha(i))) * 255));
+            out.putInt(f.getParticleColor(i).getRGB());
+        }
+
+        int[] ti = encId; encId = nextId; nextId = ti;
+        ti = encX; encX = nextX; nextX = ti;
+        ti = encY; encY = nextY; nextY = ti;
+        ti = encDx; encDx = nextDx; nextDx = ti;
+        ti = encDy; encDy = nextDy; nextDy = ti;
+        float[] tf = encAngle; encAngle = nextAngle; nextAngle = tf;
+        encCount = n;
+    }
+
+    /** 0 -> 0, +1 -> 1, -1 -> 2; cualquier otro valor va a la sección de escapes. */
+    private int residualCode(int r) {
+        int u = r + 1;
+        if (u >= 0 && u < 3) return CODE_OF[u];
+        escapeOut.putZigzag(r);
+        return CODE_ESCAPE;
+    }
+
+    private void growEncoder(int n) {
+        int cap = Math.max(n, encId.length * 2);
+        encId = Arrays.copyOf(encId, cap); encX = Arrays.copyOf(encX, cap); encY = Arrays.copyOf(encY, cap);
+        encDx = Arrays.copyOf(encDx, cap); encDy = Arrays.copyOf(encDy, cap); encAngle = Arrays.copyOf(encAngle, cap);
+        nextId = new int[cap]; nextX = new int[cap]; nextY = new int[cap];
+        nextDx = new int[cap]; nextDy = new int[cap]; nextAngle = new float[cap];
+    }
+
+    private static final class Segment {
+        final long firstTick;
+        final WorldCheckpoint key;
+        final ByteSink data = new ByteSink(1 << 16);
+        // offsets[i] = inicio del tick i del segmento; offsets[ticks] = fin del último
+        final int[] offsets = new int[KEYFRAME_INTERVAL + 1];
+        int ticks;
+
+        Segment(long firstTick, WorldCheckpoint key) {
+            this.firstTick = firstTick;
+            this.key = key;
+        }
+
+        /** Ajustar el buffer a lo usado (al cerrar el segmento). */
+        void trim() {
+            if (data.buf.length != data.size) data.buf = Arrays.copyOf(data.buf, data.size);
+        }
+
+        long bytes() {
+            return key.byteSize() + data.buf.length + (long) offsets.length * Integer.BYTES;
+        }
+    }
+
+    /** Copia inmutable de lo que un cursor puede leer de un segmento. */
+    private static final class SegmentView {
+        final long firstTick;
+        final byte[] buf;
+        final int[] offsets;
+        final int ticks;
+
+        SegmentView(long firstTick, byte[] buf, int[] offsets, int ticks) {
+            this.firstTick = firstTick;
+            this.buf = buf;
+            this.offsets = offsets;
+            this.ticks = ticks;
+        }
+    }
+
+    /** Buffer de bytes creciente con varints (LEB128) y zigzag. */
+    private static final class ByteSink {
+        byte[] buf;
+        int size;
+
+        ByteSink(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(size + extra, buf.length * 2));
+        }
+
+        void putByte(int v) {
+            ensure(1);
+            buf[size++] = (byte) v;
+        }
+
+        void putVarint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void putZigzag(int v) {
+            putVarint((v << 1) ^ (v >> 31));
+        }
+
+        void putInt(int v) {
+            ensure(4);
+            buf[size++] = (byte) (v >>> 24);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        void putFloat(float v) {
+            putInt(Float.floatToRawIntBits(v));
+        }
+
+        void append(ByteSink other) {
+            ensure(other.size);
+            System.arraycopy(other.buf, 0, buf, size, other.size);
+            size += other.size;
+        }
+    }
+
+    /**
+     * Recorrido del historial como {@link FrameSource}. Buscar hacia atrás vuelve al
+     * principio del segmento y decodifica hacia delante: como mucho
+     * {@link #KEYFRAME_INTERVAL} ticks. Lo usa un único hilo.
+     */
+    public static final class Cursor implements FrameSource {
+        private final SegmentView[] segs;
+        private int segIndex = -1;
+        private long currentTick = -1;
+
+        // estado reconstruido, en orden de id
+        private int count = 0;
+        private int[] ids = new int[256], xs = new int[256], ys = new int[256];
+        private int[] dxs = new int[256], dys = new int[256], diameters = new int[256];
+        private float[] angles = new float[256];
+        private Color[] colors = new Color[256];
+        private boolean[] spawnedNow = new boolean[256];
+        private int[] nIds = new int[256], nXs = new int[256], nYs = new int[256];
+        private int[] nDxs = new int[256], nDys = new int[256], nDiameters = new int[256];
+        private float[] nAngles = new float[256];
+        private Color[] nColors = new Color[256];
+        private boolean[] removed = new boolean[256];
+        private int[] spawnAt = new int[16], spawnId = new int[16], spawnX = new int[16], spawnY = new int[16];
+        private int[] spawnDiameter = new int[16], spawnRgb = new int[16];
+        private float[] spawnAngle = new float[16];
+
+        private int projectileCount = 0;
+        private int[] projX = new int[16], projY = new int[16], projSize = new int[16];
+        private Color[] projColor = new Color[16];
+        private int particleCount = 0;
+        private int[] partX = new int[64], partY = new int[64], partSize = new int[64];
+        private float[] partAlpha = new float[64];
+        private Color[] partColor = new Color[64];
+
+        private byte[] in;
+        private int pos;
+
+        private Cursor(SegmentView[] segs) {
+            this.segs = segs;
+        }
+
+        @Override
+        public long getFirstTick() { return segs[0].firstTick; }
+
+        @Override
+        public long getLastTick() {
+            SegmentView last = segs[segs.length - 1];
+            return last.firstTick + last.ticks - 1;
+        }
+
+        @Override
+        public long getCurrentTick() { return currentTick; }
+
+        public int getBallCount() { return count; }
+
+        @Override
+        public void seek(long tick) {
+            tick = Math.max(getFirstTick(), Math.min(getLastTick(), tick));
+            int lo = 0, hi = segs.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (segs[mid].firstTick <= tick) lo = mid; else hi = mid - 1;
+            }
+            SegmentView s = segs[lo];
+            // hacia delante dentro del mismo segmento se sigue desde donde estamos
+            int from = lo == segIndex && currentTick <= tick ? (int) (currentTick - s.firstTick) + 1 : 0;
+            segIndex = lo;
+            for (int i = from; i <= tick - s.firstTick; i++) decodeTick(s, i);
+            currentTick = tick;
+        }
+
+        @Override
+        public void advanceTo(long tick) {
+            tick = Math.min(getLastTick(), tick);
+            if (tick == currentTick) return;
+            SegmentView s = segIndex < 0 ? null : segs[segIndex];
+            if (s == null || tick < currentTick || tick >= s.firstTick + s.ticks) {
+                seek(tick);
+                return;
+            }
+            for (long t = currentTick + 1; t <= tick; t++) decodeTick(s, (int) (t - s.firstTick));
+            currentTick = tick;
+        }
+
+        @Override
+        public void writeFrame(FrameSnapshot frame) {
+            frame.begin(currentTick);
+            for (int i = 0; i < count; i++) {
+                frame.addBall(null, ids[i], xs[i], ys[i], diameters[i], angles[i], colors[i]);
+            }
+            for (int i = 0; i < projectileCount; i++) {
+                frame.addProjectile(projX[i], projY[i], projSize[i], projColor[i]);
+            }
+            for (int i = 0; i < particleCount; i++) {
+                frame.addParticle(partX[i], partY[i], partSize[i], partAlpha[i], partColor[i]);
+            }
+        }
+
+        @Override
+        public void close() {
+            // sólo referencias a memoria del historial; nada que liberar
+        }
+
+        private void decodeTick(SegmentView s, int i) {
+            in = s.buf;
+            pos = s.offsets[i];
+            // el primer tick de un segmento se codificó contra un mundo vacío
+            if (i == 0) count = 0;
+
+            int removedCount = readVarint();
+            if (removed.length < count) removed = new boolean[ids.length];
+            Arrays.fill(removed, 0, count, false);
+            for (int k = 0, idx = 0; k < removedCount; k++) {
+                idx += readVarint();
+                removed[idx] = true;
+            }
+            int spawns = readVarint();
+            if (spawnAt.length < spawns) growSpawns(spawns);
+            for (int k = 0, idx = 0; k < spawns; k++) {
+                idx += readVarint();
+                spawnAt[k] = idx;
+                spawnId[k] = readInt();
+                spawnX[k] = readZigzag();
+                spawnY[k] = readZigzag();
+                spawnDiameter[k] = readVarint();
+                spawnRgb[k] = readInt();
+                spawnAngle[k] = Float.intBitsToFloat(readInt());
+            }
+
+            int survivors = count - removedCount;
+            int newCount = survivors + spawns;
+            if (nIds.length < newCount) growState(newCount);
+            // caso habitual: los ids nuevos son mayores que todos los vivos, así que las altas
+            // van al final y basta compactar las bajas en su sitio
+            boolean appended = spawns == 0 || spawnAt[0] == survivors;
+            if (appended) {
+                if (removedCount > 0) compactRemoved();
+                for (int k = 0, c = survivors; k < spawns; k++, c++) {
+                    ids[c] = spawnId[k]; xs[c] = spawnX[k]; ys[c] = spawnY[k];
+                    dxs[c] = 0; dys[c] = 0;
+                    diameters[c] = spawnDiameter[k]; angles[c] = spawnAngle[k];
+                    colors[c] = new Color(spawnRgb[k], true);
+                }
+                count = newCount;
+            } else {
+                mergeSpawns(newCount, spawns);
+            }
+
+            int angleChanges = readVarint();
+            for (int k = 0, idx = 0; k < angleChanges; k++) {
+                idx += readVarint();
+                angles[idx] = Float.intBitsToFloat(readInt());
+            }
+
+            // residuos: 4 bits por superviviente y después los escapes, en el mismo orden
+            int codePos = pos;
+            pos += (survivors + 1) >> 1;
+            if (appended) {
+                for (int c = 0; c < survivors; c++) {
+                    int code = (in[codePos + (c >> 1)] >> ((c & 1) << 2)) & 0xF;
+                    int cx = code & 3, cy = code >> 2;
+                    int dx = dxs[c] + CODE_VALUE[cx], dy = dys[c] + CODE_VALUE[cy];
+                    if (cx == CODE_ESCAPE) dx += readZigzag();
+                    if (cy == CODE_ESCAPE) dy += readZigzag();
+                    dxs[c] = dx; dys[c] = dy;
+                    xs[c] += dx;
+                    ys[c] += dy;
+                }
+            } else {
+                for (int c = 0, sv = 0; c < count; c++) {
+                    if (spawnedNow[c]) continue;
+                    int code = (in[codePos + (sv >> 1)] >> ((sv & 1) << 2)) & 0xF;
+                    sv++;
+                    dxs[c] += residual(code & 3);
+                    dys[c] += residual(code >> 2);
+                    xs[c] += dxs[c];
+                    ys[c] += dys[c];
+                }
+            }
+
+            projectileCount = readVarint();
+            if (projX.length < projectileCount) {
+                int cap = Math.max(projectileCount, projX.length * 2);
+                projX = new int[cap]; projY = new int[cap]; projSize = new int[cap]; projColor = new Color[cap];
+            }
+            for (int k = 0; k < projectileCount; k++) {
+                projX[k] = readZigzag();
+                projY[k] = readZigzag();
+                projSize[k] = readVarint();
+                projColor[k] = color(readInt(), k > 0 ? projColor[k - 1] : null);
+            }
+            particleCount = readVarint();
+            if (partX.length < particleCount) {
+                int cap = Math.max(particleCount, partX.length * 2);
+                partX = new int[cap]; partY = new int[cap]; partSize = new int[cap];
+                partAlpha = new float[cap]; partColor = new Color[cap];
+            }
+            for (int k = 0; k < particleCount; k++) {
+                partX[k] = readZigzag();
+                partY[k] = readZigzag();
+                partSize[k] = readVarint();
+                partAlpha[k] = (in[pos++] & 0xFF) / 255f;
+                partColor[k] = color(readInt(), k > 0 ? partColor[k - 1] : null);
+            }
+        }
+
+        /** Mezcla general: supervivientes en orden y altas intercaladas en sus posiciones. */
+        private void mergeSpawns(int newCount, int spawns) {
+            for (int c = 0, p = 0, k = 0; c < newCount; c++) {
+                if (k < spawns && spawnAt[k] == c) {
+                    nIds[c] = spawnId[k]; nXs[c] = spawnX[k]; nYs[c] = spawnY[k];
+                    nDxs[c] = 0; nDys[c] = 0;
+                    nDiameters[c] = spawnDiameter[k]; nAngles[c] = spawnAngle[k];
+                    nColors[c] = new Color(spawnRgb[k], true);
+                    spawnedNow[c] = true;
+                    k++;
+                } else {
+                    while (removed[p]) p++;
+                    nIds[c] = ids[p]; nXs[c] = xs[p]; nYs[c] = ys[p];
+                    nDxs[c] = dxs[p]; nDys[c] = dys[p];
+                    nDiameters[c] = diameters[p]; nAngles[c] = angles[p]; nColors[c] = colors[p];
+                    spawnedNow[c] = false;
+                    p++;
+                }
+            }
+            for (int c = newCount; c < count; c++) colors[c] = null;
+            swapState();
+            count = newCount;
+        }
+
+        /** Quitar las bajas marcadas moviendo en bloque los tramos entre ellas. */
+        private void compactRemoved() {
+            int dst = 0;
+            for (int src = 0; src < count; ) {
+                if (removed[src]) { src++; continue; }
+                int end = src;
+                while (end < count && !removed[end]) end++;
+                int len = end - src;
+                if (dst != src) {
+                    System.arraycopy(ids, src, ids, dst, len);
+                    System.arraycopy(xs, src, xs, dst, len);
+                    System.arraycopy(ys, src, ys, dst, len);
+                    System.arraycopy(dxs, src, dxs, dst, len);
+                    System.arraycopy(dys, src, dys, dst, len);
+                    System.arraycopy(diameters, src, diameters, dst, len);
+                    System.arraycopy(angles, src, angles, dst, len);
+                    System.arraycopy(colors, src, colors, dst, len);
+                }
+                dst += len;
+                src = end;
+            }
+            for (int c = dst; c < count; c++) colors[c] = null;
+        }
+
+        private int residual(int code) {
+            return code == CODE_ESCAPE ? readZigzag() : CODE_VALUE[code];
+        }
+
+        // las partículas de una explosión comparten color: reutilizar el anterior si coincide
+        private static Color color(int rgb, Color previous) {
+            return previous != null && previous.getRGB() == rgb ? previous : new Color(rgb, true);
+        }
+
+        private void swapState() {
+            int[] t = ids; ids = nIds; nIds = t;
+            t = xs; xs = nXs; nXs = t;
+            t = ys; ys = nYs; nYs = t;
+            t = dxs; dxs = nDxs; nDxs = t;
+            t = dys; dys = nDys; nDys = t;
+            t = diameters; diameters = nDiameters; nDiameters = t;
+            float[] tf = angles; angles = nAngles; nAngles = tf;
+            Color[] tc = colors; colors = nColors; nColors = tc;
+        }
+
+        private void growState(int n) {
+            int cap = Math.max(n, nIds.length * 2);
+            ids = Arrays.copyOf(ids, cap); xs = Arrays.copyOf(xs, cap); ys = Arrays.copyOf(ys, cap);
+            dxs = Arrays.copyOf(dxs, cap); dys = Arrays.copyOf(dys, cap);
+            diameters = Arrays.copyOf(diameters, cap); angles = Arrays.copyOf(angles, cap);
+            colors = Arrays.copyOf(colors, cap);
+            removed = Arrays.copyOf(removed, cap);
+            spawnedNow = new boolean[cap];
+            nIds = new int[cap]; nXs = new int[cap]; nYs = new int[cap];
+            nDxs = new int[cap]; nDys = new int[cap]; nDiameters = new int[cap];
+            nAngles = new float[cap]; nColors = new Color[cap];
+        }
+
+        private void growSpawns(int n) {
+            int cap = Math.max(n, spawnAt.length * 2);
+            spawnAt = new int[cap]; spawnId = new int[cap]; spawnX = new int[cap]; spawnY = new int[cap];
+            spawnDiameter = new int[cap]; spawnRgb = new int[cap]; spawnAngle = new float[cap];
+        }
+
+        private int readVarint() {
+            int v = 0, shift = 0, b;
+            do {
+                b = in[pos++];
+                v |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return v;
+        }
+
+        private int readZigzag() {
+            int v = readVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private int readInt() {
+            int v = (in[pos] & 0xFF) << 24 | (in[pos + 1] & 0xFF) << 16 | (in[pos + 2] & 0xFF) << 8 | (in[pos + 3] & 0xFF);
+            pos += 4;
+            return v;
+        }
+    }
+}
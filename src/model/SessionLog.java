@@ -0,0 +1,55 @@
+package model;
+
+/**
+ * Formato binario de las sesiones grabadas por {@link SessionRecorder} (big-endian).
+ *
+ * <pre>
+ * cabecera: int MAGIC, int VERSION, long inicio (ms epoch), int ancho, int alto, int intervalo de keyframes
+ * registros: byte tipo + carga
+ *   EVENTOS y ESTADO de un tick ... TICK (cierra el tick)
+ * final:    INDEX con (tick, offset) de cada keyframe, y pie: long offset del INDEX, int FOOTER_MAGIC
+ * </pre>
+ *
+ * Cada tick escribe primero sus eventos (impactos, explosiones, habitación), después
+ * un KEYFRAME completo o sólo los cambios (SPAWN / STATE / REMOVE) respecto al tick
+ * anterior, los proyectiles, y por último el registro TICK que lo cierra. El índice
+ * apunta al comienzo del tick de cada KEYFRAME (justo después del TICK anterior), no al
+ * registro KEYFRAME: así un lector que empieza ahí no se salta los eventos de ese tick.
+ * Las grabaciones antiguas apuntan al KEYFRAME; se leen igual, sin esos eventos.
+ */
+public final class SessionLog {
+    public static final int MAGIC = 0x42524543;        // "BREC"
+    public static final int FOOTER_MAGIC = 0x42494458; // "BIDX"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4;
+    public static final int FOOTER_BYTES = 8 + 4;
+
+    /** long tick, long nanos desde el inicio de la grabación. Cierra el tick. */
+    public static final byte TICK = 1;
+    /** int n, int id del ocupante de la habitación (-1 libre), n x ENTRADA completa. */
+    public static final byte KEYFRAME = 2;
+    /** ENTRADA completa de una bola nueva. */
+    public static final byte SPAWN = 3;
+    /** int id, float x, float y, float ángulo. */
+    public static final byte STATE = 4;
+    /** int id de una bola que ya no existe. */
+    public static final byte REMOVE = 5;
+    /** int id, float x, float y: proyectil contra bola. */
+    public static final byte HIT = 6;
+    /** float x, float y, int rgb, int diámetro de la bola que explota. */
+    public static final byte EXPLOSION = 7;
+    /** int id. */
+    public static final byte ROOM_ENTER = 8;
+    /** int id. */
+    public static final byte ROOM_EXIT = 9;
+    /** int n, n x (float x, float y) de los proyectiles activos. */
+    public static final byte PROJECTILES = 10;
+    /** int n, n x (long tick, long offset del comienzo del tick del KEYFRAME). */
+    public static final byte INDEX = 11;
+
+    /** ENTRADA completa: int id, float x, float y, float ángulo, int diámetro, int rgb. */
+    public static final int ENTRY_BYTES = 4 + 4 + 4 + 4 + 4 + 4;
+    public static final int STATE_BYTES = 1 + 4 + 4 + 4 + 4;
+
+    private SessionLog() {}
+}
@@ -0,0 +1,371 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Grabador de sesiones (formato en {@link SessionLog}).
+ *
+ * El hilo de simulación es el único productor: {@link #recordTick} codifica el
+ * frame recién publicado en bloques de memoria directa de un pool fijo, y los
+ * bloques llenos pasan a un hilo escritor por una cola SPSC sin locks. El escritor
+ * los vuelca por lotes con una escritura gather de {@link FileChannel} y los
+ * devuelve al pool. Si el disco no da abasto el productor espera a que quede un
+ * bloque libre (contado en {@link #getStallCount()}): nunca se descartan datos.
+ *
+ * Las bolas del frame están ordenadas por id (se añaden en orden de creación bajo
+ * el monitor del modelo), así que el delta respecto al tick anterior es una mezcla
+ * lineal de dos listas ordenadas, sin tablas hash ni asignaciones.
+ */
+public class SessionRecorder implements EventBus.Subscriber {
+    /** Ticks entre keyframes completos (~1 s a 60 Hz). */
+    public static final int KEYFRAME_INTERVAL = 60;
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int CHUNK_COUNT = 64;
+    private static final int MAX_BATCH = 16;
+
+    private final FileChannel channel;
+    private final Model model;
+    private final ChunkQueue filled = new ChunkQueue(CHUNK_COUNT);
+    private final ChunkQueue free = new ChunkQueue(CHUNK_COUNT);
+    private final Thread writer;
+    private final long startNanos;
+    private volatile boolean finished = false;
+    private volatile boolean stopRequested = false;
+    private volatile IOException failure;
+
+    // --- estado del productor (sólo hilo de simulación) ---
+    private ByteBuffer current;
+    private long publishedBytes = 0;
+    private long ticksRecorded = 0;
+    private int prevCount = 0, curCount = 0;
+    private int[] prevId = new int[256], curId = new int[256];
+    private float[] prevX = new float[256], curX = new float[256];
+    private float[] prevY = new float[256], curY = new float[256];
+    private float[] prevAngle = new float[256], curAngle = new float[256];
+    private int prevOccupant = -1;
+    // posición en el flujo donde empieza el tick en curso (sus eventos llegan antes que el frame)
+    private long tickStart;
+    private long[] keyframeTicks = new long[64];
+    private long[] keyframeOffsets = new long[64];
+    private int keyframeCount = 0;
+
+    // --- métricas ---
+    private volatile long stallCount = 0;
+    private volatile double lastRecordMs = 0.0;
+    private final AtomicLong bytesOnDisk = new AtomicLong();
+
+    public SessionRecorder(Path file, Model model) throws IOException {
+        this.model = model;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        for (int i = 0; i < CHUNK_COUNT - 1; i++) free.offer(ByteBuffer.allocateDirect(CHUNK_BYTES));
+        current = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        startNanos = System.nanoTime();
+        current.putInt(SessionLog.MAGIC).putInt(SessionLog.VERSION).putLong(System.currentTimeMillis());
+        current.putInt(model.getViewerWidth()).putInt(model.getViewerHeight()).putInt(KEYFRAME_INTERVAL);
+        tickStart = streamPosition();
+        writer = new Thread(this::writeLoop, "Telemetry-Writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Pedir el cierre; lo completa el hilo de simulación en su próximo tick (ver {@link #finish()}). */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    public boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    /** Error de E/S del escritor, o null. Tras un error la grabación deja de escribir. */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    public long getStallCount() { return stallCount; }
+    public double getLastRecordMs() { return lastRecordMs; }
+    public long getBytesWritten() { return bytesOnDisk.get(); }
+    public long getTicksRecorded() { return ticksRecorded; }
+
+    // ------------------------------------------------------------------ productor
+
+    /** Impactos del tick (llegan por el bus antes de {@link #recordTick}); el resto no se graba. */
+    @Override
+    public void onEvents(List<WorldEvent> batch, long tick) {
+        if (finished) return;
+        for (int i = 0; i < batch.size(); i++) {
+            if (!(batch.get(i) instanceof WorldEvent.Hit hit)) continue;
+            if (hit.ballId() >= 0) {
+                ensure(1 + 12);
+                current.put(SessionLog.HIT).putInt(hit.ballId()).putFloat((float) hit.x()).putFloat((float) hit.y());
+            }
+            ensure(1 + 16);
+            current.put(SessionLog.EXPLOSION).putFloat((float) hit.x()).putFloat((float) hit.y())
+                .putInt(hit.color().getRGB()).putInt(hit.diameter());
+        }
+    }
+
+    /**
+     * Codificar el frame del tick: eventos de habitación, keyframe o delta,
+     * proyectiles y el cierre del tick. Sólo desde el hilo de simulación.
+     */
+    public void recordTick(FrameSnapshot frame) {
+        if (finished) return;
+        long t0 = System.nanoTime();
+        long tick = frame.getTick();
+
+        // copiar el frame a las columnas "cur" comprobando el orden por id
+        int n = frame.getBallCount();
+        ensureCapacity(n);
+        boolean sorted = true;
+        for (int i = 0; i < n; i++) {
+            int id = frame.getBallId(i);
+            if (i > 0 && id <= curId[i - 1]) sorted = false;
+            curId[i] = id;
+            curX[i] = frame.getBallX(i);
+            curY[i] = frame.getBallY(i);
+            curAngle[i] = (float) frame.getBallAngle(i);
+        }
+        curCount = n;
+
+        Ball occ = model.getHabitacion().getOccupant();
+        int occupant = occ != null ? occ.getId() : -1;
+        if (occupant != prevOccupant) {
+            ensure(10);
+            if (prevOccupant >= 0) current.put(SessionLog.ROOM_EXIT).putInt(prevOccupant);
+            if (occupant >= 0) current.put(SessionLog.ROOM_ENTER).putInt(occupant);
+        }
+
+        if (!sorted || keyframeDue(tick)) {
+            writeKeyframe(frame, tick, occupant);
+        } else {
+            writeDelta(frame);
+        }
+        prevOccupant = occupant;
+
+        int projectiles = frame.getProjectileCount();
+        ensure(5);
+        current.put(SessionLog.PROJECTILES).putInt(projectiles);
+        for (int i = 0; i < projectiles; i++) {
+            ensure(8);
+            current.putFloat((float) frame.getProjectileX(i)).putFloat((float) frame.getProjectileY(i));
+        }
+
+        ensure(17);
+        current.put(SessionLog.TICK).putLong(tick).putLong(System.nanoTime() - startNanos);
+        tickStart = streamPosition();
+
+        // intercambiar columnas: el frame actual es la referencia del próximo delta
+        int[] ti = prevId; prevId = curId; curId = ti;
+        float[] tf = prevX; prevX = curX; curX = tf;
+        tf = prevY; prevY = curY; curY = tf;
+        tf = prevAngle; prevAngle = curAngle; curAngle = tf;
+        prevCount = curCount;
+        ticksRecorded++;
+        lastRecordMs = (System.nanoTime() - t0) / 1_000_000.0;
+    }
+
+    private boolean keyframeDue(long tick) {
+        return keyframeCount == 0 || tick - keyframeTicks[keyframeCount - 1] >= KEYFRAME_INTERVAL;
+    }
+
+    private void writeKeyframe(FrameSnapshot frame, long tick, int occupant) {
+        // el índice apunta al límite del tick, antes de sus impactos y eventos de habitación
+        if (keyframeCount == keyframeTicks.length) {
+            keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeTicks[keyframeCount] = tick;
+        keyframeOffsets[keyframeCount] = tickStart;
+        keyframeCount++;
+        // vaciar el bloque en curso: lo ya grabado llega a disco
+        if (current.position() > 0) flushChunk();
+
+        ensure(9);
+        current.put(SessionLog.KEYFRAME).putInt(curCount).putInt(occupant);
+        for (int i = 0; i < curCount; i++) {
+            ensure(SessionLog.ENTRY_BYTES);
+            putEntry(frame, i);
+        }
+    }
+
+    private void writeDelta(FrameSnapshot frame) {
+        int i = 0, j = 0;
+        while (i < prevCount || j < curCount) {
+            int pid = i < prevCount ? prevId[i] : Integer.MAX_VALUE;
+            int cid = j < curCount ? curId[j] : Integer.MAX_VALUE;
+            if (pid == cid) {
+                if (prevX[i] != curX[j] || prevY[i] != curY[j] || prevAngle[i] != curAngle[j]) {
+                    ensure(SessionLog.STATE_BYTES);
+                    current.put(SessionLog.STATE).putInt(cid).putFloat(curX[j]).putFloat(curY[j]).putFloat(curAngle[j]);
+                }
+                i++; j++;
+            } else if (cid < pid) {
+                ensure(1 + SessionLog.ENTRY_BYTES);
+                current.put(SessionLog.SPAWN);
+                putEntry(frame, j);
+                j++;
+            } else {
+                ensure(5);
+                current.put(SessionLog.REMOVE).putInt(pid);
+                i++;
+            }
+        }
+    }
+
+    private void putEntry(FrameSnapshot frame, int i) {
+        current.putInt(curId[i]).putFloat(curX[i]).putFloat(curY[i]).putFloat(curAngle[i])
+            .putInt(frame.getBallDiameter(i)).putInt(frame.getBallColor(i).getRGB());
+    }
+
+    /**
+     * Escribir el índice de keyframes y el pie, entregar el último bloque y
+     * esperar a que el escritor cierre el fichero. Sólo desde el hilo de simulación
+     * (o cuando ya no hay productor).
+     */
+    public void finish() {
+        if (finished) return;
+        long indexOffset = streamPosition();
+        ensure(5);
+        current.put(SessionLog.INDEX).putInt(keyframeCount);
+        for (int i = 0; i < keyframeCount; i++) {
+            ensure(16);
+            current.putLong(keyframeTicks[i]).putLong(keyframeOffsets[i]);
+        }
+        ensure(SessionLog.FOOTER_BYTES);
+        current.putLong(indexOffset).putInt(SessionLog.FOOTER_MAGIC);
+        flushChunk();
+        finished = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long streamPosition() {
+        return publishedBytes + current.position();
+    }
+
+    private void ensure(int bytes) {
+        if (current.remaining() < bytes) flushChunk();
+    }
+
+    private void flushChunk() {
+        if (failure != null) {
+            // el escritor ha fallado: descartar sin bloquear la simulación
+            current.clear();
+            return;
+        }
+        current.flip();
+        publishedBytes += current.limit();
+        filled.offer(current);
+        LockSupport.unpark(writer);
+        current = takeFree();
+    }
+
+    private ByteBuffer takeFree() {
+        ByteBuffer b;
+        while ((b = free.poll()) == null) {
+            if (failure != null) return ByteBuffer.allocateDirect(CHUNK_BYTES);
+            stallCount++;
+            LockSupport.parkNanos(50_000);
+        }
+        return b;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= curId.length) return;
+        int size = Math.max(n, curId.length * 2);
+        curId = Arrays.copyOf(curId, size);
+        curX = Arrays.copyOf(curX, size);
+        curY = Arrays.copyOf(curY, size);
+        curAngle = Arrays.copyOf(curAngle, size);
+        prevId = Arrays.copyOf(prevId, size);
+        prevX = Arrays.copyOf(prevX, size);
+        prevY = Arrays.copyOf(prevY, size);
+        prevAngle = Arrays.copyOf(prevAngle, size);
+    }
+
+    // ------------------------------------------------------------------ escritor
+
+    private void writeLoop() {
+        ByteBuffer[] batch = new ByteBuffer[MAX_BATCH];
+        try {
+            while (true) {
+                // leer 'finished' antes de vaciar la cola: si ya estaba, lo que quede es lo último
+                boolean done = finished;
+                int n = 0;
+                ByteBuffer b;
+                while (n < MAX_BATCH && (b = filled.poll()) != null) batch[n++] = b;
+                if (n == 0) {
+                    if (done) break;
+                    LockSupport.parkNanos(1_000_000);
+                    continue;
+                }
+                while (batch[n - 1].hasRemaining()) {
+                    bytesOnDisk.addAndGet(channel.write(batch, 0, n));
+                }
+                for (int i = 0; i < n; i++) {
+                    batch[i].clear();
+                    free.offer(batch[i]);
+                    batch[i] = null;
+                }
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            // devolver al pool lo que haya para que el productor no se quede esperando
+            ByteBuffer b;
+            while ((b = filled.poll()) != null) { b.clear(); free.offer(b); }
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+    }
+
+    /** Cola de un productor y un consumidor sobre un array circular (sin locks). */
+    private static final class ChunkQueue {
+        private final ByteBuffer[] slots;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        ChunkQueue(int minCapacity) {
+            int cap = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+            slots = new ByteBuffer[cap];
+            mask = cap - 1;
+        }
+
+        boolean offer(ByteBuffer b) {
+            long t = tail.get();
+            if (t - head.get() == slots.length) return false;
+            slots[(int) (t & mask)] = b;
+            tail.lazySet(t + 1); // publicación ordenada: el consumidor ve el slot ya escrito
+            return true;
+        }
+
+        ByteBuffer poll() {
+            long h = head.get();
+            if (h == tail.get()) return null;
+            int i = (int) (h & mask);
+            ByteBuffer b = slots[i];
+            slots[i] = null;
+            head.lazySet(h + 1);
+            return b;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package model;
+
+import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Región de un mundo repartido entre varios procesos, uno por celda de una rejilla
+ * de {@code cols x rows} (ver controller.ShardNode). Cada bola y cada proyectil
+ * pertenece a la región que contiene su centro; al final de cada tick lo que ha
+ * cruzado se envía entero a su nueva región, y las bolas a menos de
+ * {@link #GHOST_MARGIN} px de otra región se le envían como fantasmas, para que los
+ * proyectiles de allí las puedan alcanzar. Si alcanzan a un fantasma, la región
+ * dueña recibe la orden de quitar la bola en el siguiente intercambio.
+ *
+ * La habitación sólo admite un ocupante, así que no puede repartirse: la zona de la
+ * habitación más el margen pertenece entera a una región (la de su centro). Cualquier
+ * bola que pueda tocar la habitación está en esa zona, y la exclusión mutua sigue
+ * siendo local a un proceso.
+ *
+ * Sólo la usa el hilo de simulación de su proceso, bajo el monitor del modelo.
+ */
+public final class ShardRegion {
+    /** Ancho de la franja de fantasmas (px): cubre el radio de la bola más un paso de proyectil. */
+    public static final int GHOST_MARGIN = 64;
+    /** Diámetro máximo para que la franja y la zona de la habitación sean suficientes. */
+    public static final int MAX_DIAMETER = 2 * (GHOST_MARGIN - 16);
+
+    private static final int GHOST_BYTES = 8 + 8 + 8 + 4 + 4;
+    private static final int PROJECTILE_BYTES = 6 * 8 + 4 + 8;
+
+    private final int index, cols, rows, count;
+    private final int worldWidth, worldHeight;
+    private final Rectangle cell;
+    // zona de la habitación ampliada con el margen, y la región que la simula
+    private final int zoneX0, zoneY0, zoneX1, zoneY1;
+    private final int roomOwner;
+    // interior de la celda (a más del margen de otra celda y de la zona): ni sale ni es fantasma
+    private final double innerX0, innerY0, innerX1, innerY1;
+    private final boolean nearZone;
+
+    private final Outbox[] outboxes;
+    // órdenes de borrar (fantasmas alcanzados o reenvíos) que salen en el próximo intercambio
+    private long[] pendingKey = new long[16];
+    private int[] pendingDest = new int[16];
+    private int pendingCount;
+    // bolas que han salido en este tick: a dónde reenviar una orden de borrado que llegue tarde
+    private final Map<Long, Integer> emigrants = new HashMap<>();
+
+    // fantasmas recibidos en el último intercambio
+    private int ghostCount;
+    private long[] ghostKey = new long[256];
+    private double[] ghostX = new double[256], ghostY = new double[256];
+    private int[] ghostDiameter = new int[256], ghostRgb = new int[256], ghostOwner = new int[256];
+    private boolean[] ghostDead = new boolean[256];
+    private final int[] destScratch = new int[8];
+    private final double[] center = new double[2];
+
+    private long ballsSent, ballsReceived, ghostsSent, kills;
+
+    public ShardRegion(int index, int cols, int rows, int worldWidth, int worldHeight, Rectangle room) {
+        if (cols < 1 || rows < 1 || index < 0 || index >= cols * rows) {
+            throw new IllegalArgumentException("región " + index + " fuera de una rejilla " + cols + "x" + rows);
+        }
+        if (worldWidth / cols < 2 * GHOST_MARGIN || worldHeight / rows < 2 * GHOST_MARGIN) {
+            throw new IllegalArgumentException("regiones demasiado pequeñas (mínimo " + 2 * GHOST_MARGIN + " px)");
+        }
+        this.index = index;
+        this.cols = cols;
+        this.rows = rows;
+        this.count = cols * rows;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        int c = index % cols, r = index / cols;
+        int x0 = c * worldWidth / cols, x1 = (c + 1) * worldWidth / cols;
+        int y0 = r * worldHeight / rows, y1 = (r + 1) * worldHeight / rows;
+        this.cell = new Rectangle(x0, y0, x1 - x0, y1 - y0);
+        zoneX0 = room.x - GHOST_MARGIN;
+        zoneY0 = room.y - GHOST_MARGIN;
+        zoneX1 = room.x + room.width + GHOST_MARGIN;
+        zoneY1 = room.y + room.height + GHOST_MARGIN;
+        roomOwner = cellOf(room.x + room.width / 2.0, room.y + room.height / 2.0);
+        // los bordes del mundo no lindan con nadie
+        innerX0 = x0 == 0 ? Double.NEGATIVE_INFINITY : x0 + GHOST_MARGIN;
+        innerY0 = y0 == 0 ? Double.NEGATIVE_INFINITY : y0 + GHOST_MARGIN;
+        innerX1 = x1 == worldWidth ? Double.POSITIVE_INFINITY : x1 - GHOST_MARGIN;
+        innerY1 = y1 == worldHeight ? Double.POSITIVE_INFINITY : y1 - GHOST_MARGIN;
+        nearZone = zoneX0 - GHOST_MARGIN < x1 && zoneX1 + GHOST_MARGIN > x0
+            && zoneY0 - GHOST_MARGIN < y1 && zoneY1 + GHOST_MARGIN > y0;
+        outboxes = new Outbox[count];
+        for (int i = 0; i < count; i++) outboxes[i] = new Outbox();
+    }
+
+    public int getIndex() { return index; }
+    public int getRegionCount() { return count; }
+    public int getRoomOwner() { return roomOwner; }
+    public long getBallsSent() { return ballsSent; }
+    public long getBallsReceived() { return ballsReceived; }
+    public long getGhostsSent() { return ghostsSent; }
+    public long getKills() { return kills; }
+
+    /** Celda propia: ahí aparecen las bolas nuevas. */
+    public Rectangle getSpawnArea() {
+        return new Rectangle(cell);
+    }
+
+    /** Clave global de una bola creada aquí: región en los 32 bits altos. */
+    long newKey(int id) {
+        return ((long) index << 32) | (id & 0xffffffffL);
+    }
+
+    /** Región dueña del punto (centro de una bola o proyectil). */
+    public int ownerOf(double x, double y) {
+        if (x >= zoneX0 && x < zoneX1 && y >= zoneY0 && y < zoneY1) return roomOwner;
+        return cellOf(x, y);
+    }
+
+    private int cellOf(double x, double y) {
+        int c = (int) Math.floor(x * cols / worldWidth);
+        int r = (int) Math.floor(y * rows / worldHeight);
+        c = Math.max(0, Math.min(cols - 1, c));
+        r = Math.max(0, Math.min(rows - 1, r));
+        return r * cols + c;
+    }
+
+    // --- fin de tick: lo que sale ---
+
+    void beginCollect() {
+        for (Outbox o : outboxes) o.clear();
+        emigrants.clear();
+        ghostCount = 0;
+        for (int i = 0; i < pendingCount; i++) outboxes[pendingDest[i]].putKill(pendingKey[i]);
+        pendingCount = 0;
+    }
+
+    /** Enviar la bola a su nueva región (true = ya no es de ésta) o como fantasma a las vecinas. */
+    boolean collectBall(Ball b) {
+        b.centerInto(center);
+        double cx = center[0], cy = center[1];
+        if (cx >= innerX0 && cx < innerX1 && cy >= innerY0 && cy < innerY1 && !nearZone(cx, cy)) return false;
+        int owner = ownerOf(cx, cy);
+        if (owner != index && !b.holdsRoom()) {
+            outboxes[owner].putBall(b);
+            emigrants.put(b.shardKey, owner);
+            ballsSent++;
+            return true;
+        }
+        int n = ghostDestinations(cx, cy);
+        for (int i = 0; i < n; i++) {
+            outboxes[destScratch[i]].putGhost(b);
+            ghostsSent++;
+        }
+        return false;
+    }
+
+    private boolean nearZone(double cx, double cy) {
+        return nearZone && cx >= zoneX0 - GHOST_MARGIN && cx < zoneX1 + GHOST_MARGIN
+            && cy >= zoneY0 - GHOST_MARGIN && cy < zoneY1 + GHOST_MARGIN;
+    }
+
+    boolean collectProjectile(Projectile p) {
+        int owner = ownerOf(p.getX(), p.getY());
+        if (owner == index) return false;
+        outboxes[owner].putProjectile(p);
+        return true;
+    }
+
+    /**
+     * Regiones distintas de ésta que poseen algún punto a menos del margen de (cx, cy):
+     * las celdas que tocan el cuadrado y no quedan tapadas por la zona de la habitación,
+     * más la dueña de la zona si el cuadrado la toca.
+     */
+    private int ghostDestinations(double cx, double cy) {
+        double x0 = cx - GHOST_MARGIN, x1 = cx + GHOST_MARGIN;
+        double y0 = cy - GHOST_MARGIN, y1 = cy + GHOST_MARGIN;
+        int c0 = Math.max(0, (int) Math.floor(x0 * cols / worldWidth));
+        int c1 = Math.min(cols - 1, (int) Math.floor(x1 * cols / worldWidth));
+        int r0 = Math.max(0, (int) Math.floor(y0 * rows / worldHeight));
+        int r1 = Math.min(rows - 1, (int) Math.floor(y1 * rows / worldHeight));
+        int n = 0;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int k = r * cols + c;
+                if (k == index) continue;
+                // intersección celda ∩ cuadrado; si la zona la cubre entera, esa parte es de roomOwner
+                double ix0 = Math.max(x0, (double) c * worldWidth / cols);
+                double ix1 = Math.min(x1, (double) (c + 1) * worldWidth / cols);
+                double iy0 = Math.max(y0, (double) r * worldHeight / rows);
+                double iy1 = Math.min(y1, (double) (r + 1) * worldHeight / rows);
+                boolean covered = ix0 >= zoneX0 && ix1 <= zoneX1 && iy0 >= zoneY0 && iy1 <= zoneY1;
+                if (!covered) n = addDest(n, k);
+            }
+        }
+        if (roomOwner != index && x1 > zoneX0 && x0 < zoneX1 && y1 > zoneY0 && y0 < zoneY1) {
+            n = addDest(n, roomOwner);
+        }
+        return n;
+    }
+
+    private int addDest(int n, int k) {
+        for (int i = 0; i < n; i++) if (destScratch[i] == k) return n;
+        if (n < destScratch.length) destScratch[n++] = k;
+        return n;
+    }
+
+    /**
+     * Mensaje para la región {@code dest} de este tick, listo para enviar:
+     * {@code int longitud, long tick}, y cuatro secciones con su número de elementos
+     * (bolas, proyectiles, fantasmas, órdenes de borrado). El buffer se reutiliza.
+     */
+    public ByteBuffer messageFor(int dest, long tick) {
+        return outboxes[dest].message(tick);
+    }
+
+    // --- después del intercambio: lo que entra ---
+
+    /** Leer el mensaje de {@code from}; devuelve su tick. Se llama con el modelo bloqueado. */
+    long apply(Model model, ByteBuffer in, int from) {
+        long tick = in.getLong();
+        int balls = in.getInt(), projectiles = in.getInt(), ghosts = in.getInt(), killCount = in.getInt();
+        for (int i = 0; i < balls; i++) model.adoptBall(new Ball(model, in));
+        ballsReceived += balls;
+        for (int i = 0; i < projectiles; i++) model.adoptProjectile(new Projectile(in));
+        ensureGhosts(ghostCount + ghosts);
+        for (int i = 0; i < ghosts; i++) {
+            int g = ghostCount++;
+            ghostKey[g] = in.getLong();
+            ghostX[g] = in.getDouble();
+            ghostY[g] = in.getDouble();
+            ghostDiameter[g] = in.getInt();
+            ghostRgb[g] = in.getInt();
+            ghostOwner[g] = from;
+            ghostDead[g] = false;
+        }
+        for (int i = 0; i < killCount; i++) {
+            long key = in.getLong();
+            if (model.killBall(key)) {
+                kills++;
+            } else {
+                // salió de aquí en este mismo tick: la orden sigue a la bola
+                Integer to = emigrants.get(key);
+                if (to != null) addPending(to, key);
+            }
+        }
+        return tick;
+    }
+
+    public int getGhostCount() { return ghostCount; }
+    public double getGhostX(int g) { return ghostX[g]; }
+    public double getGhostY(int g) { return ghostY[g]; }
+    public int getGhostDiameter(int g) { return ghostDiameter[g]; }
+    public int getGhostRgb(int g) { return ghostRgb[g]; }
+
+    /** Prueba barrida de un proyectil contra un fantasma (como {@link Projectile#hitTime}). */
+    double ghostHitTime(Projectile p, int g) {
+        if (ghostDead[g] || ghostKey[g] == p.getOwnerKey()) return Sweep.NO_HIT;
+        double r = ghostDiameter[g] / 2.0;
+        return p.hitTime(ghostX[g] + r, ghostY[g] + r, r);
+    }
+
+    /** Un proyectil de aquí ha alcanzado al fantasma: pedir a su dueña que quite la bola. */
+    void killGhost(int g) {
+        ghostDead[g] = true;
+        addPending(ghostOwner[g], ghostKey[g]);
+    }
+
+    private void addPending(int dest, long key) {
+        if (pendingCount == pendingKey.length) {
+            pendingKey = java.util.Arrays.copyOf(pendingKey, pendingCount * 2);
+            pendingDest = java.util.Arrays.copyOf(pendingDest, pendingCount * 2);
+        }
+        pendingKey[pendingCount] = key;
+        pendingDest[pendingCount++] = dest;
+    }
+
+    private void ensureGhosts(int n) {
+        if (ghostKey.length >= n) return;
+        int cap = Math.max(n, ghostKey.length * 2);
+        ghostKey = java.util.Arrays.copyOf(ghostKey, cap);
+        ghostX = java.util.Arrays.copyOf(ghostX, cap);
+        ghostY = java.util.Arrays.copyOf(ghostY, cap);
+        ghostDiameter = java.util.Arrays.copyOf(ghostDiameter, cap);
+        ghostRgb = java.util.Arrays.copyOf(ghostRgb, cap);
+        ghostOwner = java.util.Arrays.copyOf(ghostOwner, cap);
+        ghostDead = java.util.Arrays.copyOf(ghostDead, cap);
+    }
+
+    /** Lo que sale hacia una región en el tick actual, por secciones. */
+    private static final class Outbox {
+        ByteBuffer balls = ByteBuffer.allocate(1024);
+        ByteBuffer projectiles = ByteBuffer.allocate(256);
+        ByteBuffer ghosts = ByteBuffer.allocate(4096);
+        ByteBuffer killKeys = ByteBuffer.allocate(64);
+        ByteBuffer message = ByteBuffer.allocate(8192);
+        int ballCount, projectileCount, ghostCount, killCount;
+
+        void clear() {
+            balls.clear(); projectiles.clear(); ghosts.clear(); killKeys.clear();
+            ballCount = projectileCount = ghostCount = killCount = 0;
+        }
+
+        void putBall(Ball b) {
+            balls = ensure(balls, Ball.STATE_BYTES);
+            b.writeState(balls);
+            ballCount++;
+        }
+
+        void putProjectile(Projectile p) {
+            projectiles = ensure(projectiles, PROJECTILE_BYTES);
+            p.writeState(projectiles);
+            projectileCount++;
+        }
+
+        void putGhost(Ball b) {
+            ghosts = ensure(ghosts, GHOST_BYTES);
+            ghosts.putLong(b.shardKey).putDouble(b.getPosX()).putDouble(b.getPosY())
+                .putInt(b.getDIAMETER()).putInt(b.getCOLOR().getRGB());
+            ghostCount++;
+        }
+
+        void putKill(long key) {
+            killKeys = ensure(killKeys, 8);
+            killKeys.putLong(key);
+            killCount++;
+        }
+
+        ByteBuffer message(long tick) {
+            int body = 8 + 16 + balls.position() + projectiles.position() + ghosts.position() + killKeys.position();
+            if (message.capacity() < 4 + body) message = ByteBuffer.allocate(Math.max(4 + body, message.capacity() * 2));
+            message.clear();
+            message.putInt(body).putLong(tick)
+                .putInt(ballCount).putInt(projectileCount).putInt(ghostCount).putInt(killCount);
+            message.put(balls.flip()).put(projectiles.flip()).put(ghosts.flip()).put(killKeys.flip());
+            return message.flip();
+        }
+
+        private static ByteBuffer ensure(ByteBuffer b, int extra) {
+            if (b.remaining() >= extra) return b;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(b.capacity() * 2, b.position() + extra));
+            b.flip();
+            return bigger.put(b);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package model;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Flow;
+
+/**
+ * Copia del mundo en un fichero mapeado en memoria para otros procesos de la máquina
+ * (paneles, analítica, un segundo renderizador): leen las posiciones directamente de la
+ * memoria compartida, sin sockets ni serialización (ver {@link SharedWorldReader}).
+ *
+ * Formato (little-endian):
+ * <pre>
+ *   cabecera (64 bytes)
+ *     0  int   MAGIC                      4  int   VERSION
+ *     8  long  secuencia (seqlock)       16  long  tick
+ *    24  int   capacidad de bolas        28  int   capacidad de proyectiles
+ *    32  int   bolas                     36  int   proyectiles
+ *    40  int   ancho del mundo           44  int   alto del mundo
+ *    48  long  hora de escritura (ms epoch)
+ *   bolas, desde 64, BALL_BYTES cada una:
+ *     int id, int x, int y, int diámetro, float ángulo, int rgb
+ *   proyectiles, desde 64 + capacidad de bolas * BALL_BYTES, PROJECTILE_BYTES cada uno:
+ *     float x, float y, int tamaño, int rgb
+ * </pre>
+ *
+ * Seqlock: el escritor pone la secuencia en impar, escribe el frame y la deja en par.
+ * El lector copia el frame y lo da por bueno sólo si la secuencia era par y no ha
+ * cambiado al terminar; si no, el frame estaba a medio escribir y se reintenta. El
+ * escritor nunca espera a nadie: un lector lento sólo pierde frames.
+ *
+ * Se suscribe al {@link FramePublisher} de la simulación, así que escribe en su propio
+ * hilo de entrega y con el frame más reciente (si se retrasa, se salta los intermedios).
+ * Si el mundo no cabe, el fichero crece (el doble) y los lectores lo vuelven a mapear.
+ */
+public final class SharedWorldExport implements Flow.Subscriber<FrameSnapshot> {
+    public static final int MAGIC = 0x424F4C53; // "BOLS"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int BALL_BYTES = 24;
+    public static final int PROJECTILE_BYTES = 16;
+    /** Nombre del fichero (en el directorio temporal) que usan la ventana y {@code --shm-read}. */
+    public static final String DEFAULT_FILE = "bolas-world.shm";
+    static final int SEQUENCE = 8, TICK = 16, BALL_CAPACITY = 24, PROJECTILE_CAPACITY = 28;
+    static final int BALL_COUNT = 32, PROJECTILE_COUNT = 36, WIDTH = 40, HEIGHT = 44, WRITTEN_AT = 48;
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+    private final Model model;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int ballCapacity, projectileCapacity;
+    private long sequence = 0;
+    private volatile Flow.Subscription subscription;
+    private volatile long framesWritten = 0;
+    private volatile double lastWriteMs = 0.0;
+    private volatile boolean closed = false;
+
+    /** Crear (o vaciar) el fichero con sitio para {@code balls} bolas; crece si hace falta. */
+    public SharedWorldExport(Path path, Model model, int balls) throws IOException {
+        this.path = path;
+        this.model = model;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        map(Math.max(64, balls), 256);
+    }
+
+    public Path getPath() { return path; }
+    public long getFramesWritten() { return framesWritten; }
+    public double getLastWriteMs() { return lastWriteMs; }
+
+    /** Dejar de exportar; los lectores ven el último frame completo. */
+    public void close() {
+        Flow.Subscription s = subscription;
+        if (s != null) s.cancel();
+        // el mapeo sigue siendo válido aunque se cierre el canal
+        closeChannel();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (closed) subscription.cancel();
+        else subscription.request(1);
+    }
+
+    @Override
+    public void onNext(FrameSnapshot frame) {
+        try {
+            write(frame);
+        } catch (IOException e) {
+            // sin sitio en disco para crecer: se deja de exportar
+            close();
+            return;
+        }
+        if (!closed) subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        closeChannel();
+    }
+
+    @Override
+    public void onComplete() {
+        closeChannel();
+    }
+
+    /** Escribir un frame entero dentro de la sección del seqlock (un solo escritor). */
+    void write(FrameSnapshot frame) throws IOException {
+        long start = System.nanoTime();
+        int balls = frame.getBallCount(), projectiles = frame.getProjectileCount();
+        if (balls > ballCapacity || projectiles > projectileCapacity) {
+            map(Math.max(ballCapacity, balls * 2), Math.max(projectileCapacity, projectiles * 2));
+        }
+        MappedByteBuffer b = buffer;
+        // impar: frame a medio escribir; la barrera evita que el cuerpo se adelante
+        LONGS.setOpaque(b, SEQUENCE, sequence + 1);
+        VarHandle.storeStoreFence();
+        b.putLong(TICK, frame.getTick());
+        b.putInt(BALL_CAPACITY, ballCapacity);
+        b.putInt(PROJECTILE_CAPACITY, projectileCapacity);
+        b.putInt(BALL_COUNT, balls);
+        b.putInt(PROJECTILE_COUNT, projectiles);
+        b.putInt(WIDTH, model.getViewerWidth());
+        b.putInt(HEIGHT, model.getViewerHeight());
+        b.putLong(WRITTEN_AT, System.currentTimeMillis());
+        int at = HEADER_BYTES;
+        for (int i = 0; i < balls; i++, at += BALL_BYTES) {
+            b.putInt(at, frame.getBallId(i));
+            b.putInt(at + 4, frame.getBallX(i));
+            b.putInt(at + 8, frame.getBallY(i));
+            b.putInt(at + 12, frame.getBallDiameter(i));
+            b.putFloat(at + 16, (float) frame.getBallAngle(i));
+            b.putInt(at + 20, frame.getBallColor(i).getRGB());
+        }
+        at = HEADER_BYTES + ballCapacity * BALL_BYTES;
+        for (int i = 0; i < projectiles; i++, at += PROJECTILE_BYTES) {
+            b.putFloat(at, (float) frame.getProjectileX(i));
+            b.putFloat(at + 4, (float) frame.getProjectileY(i));
+            b.putInt(at + 8, frame.getProjectileSize(i));
+            b.putInt(at + 12, frame.getProjectileColor(i).getRGB());
+        }
+        // par: frame completo (release: todo lo anterior es visible antes)
+        sequence += 2;
+        LONGS.setRelease(b, SEQUENCE, sequence);
+        framesWritten++;
+        lastWriteMs = (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    /**
+     * Mapear el fichero con las capacidades dadas. La nueva capacidad se publica en la
+     * cabecera con el siguiente frame, así que un lector nunca la ve antes de que el
+     * fichero tenga ese tamaño.
+     */
+    private void map(int balls, int projectiles) throws IOException {
+        long size = HEADER_BYTES + (long) balls * BALL_BYTES + (long) projectiles * PROJECTILE_BYTES;
+        MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer == null) {
+            b.putInt(0, MAGIC);
+            b.putInt(4, VERSION);
+            LONGS.setRelease(b, SEQUENCE, 0L);
+        }
+        buffer = b;
+        ballCapacity = balls;
+        projectileCapacity = projectiles;
+    }
+
+    private void closeChannel() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
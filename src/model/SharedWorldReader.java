@@ -0,0 +1,158 @@
+package model;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lector del mundo que exporta otro proceso con {@link SharedWorldExport}: copia el frame
+ * del fichero mapeado a arrays propios y lo descarta si el escritor lo ha tocado mientras
+ * tanto (secuencia impar o distinta al terminar). Sólo un frame validado pasa al
+ * {@link FrameSnapshot} del llamador. Nunca bloquea al escritor.
+ */
+public final class SharedWorldReader implements AutoCloseable {
+    private static final int MAX_ATTEMPTS = 64;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long lastSequence = -1;
+    private long framesRead = 0, tornFrames = 0;
+    // colores reutilizados entre lecturas (los frames se pintan con java.awt.Color)
+    private final java.util.HashMap<Integer, Color> colors = new java.util.HashMap<>();
+    // copia del último intento, reutilizada entre lecturas (crece con el mundo)
+    private long scratchTick;
+    private int scratchBalls, scratchProjectiles;
+    private int[] ballId = new int[0], ballX = new int[0], ballY = new int[0], ballDiameter = new int[0], ballRgb = new int[0];
+    private float[] ballAngle = new float[0];
+    private float[] projX = new float[0], projY = new float[0];
+    private int[] projSize = new int[0], projRgb = new int[0];
+
+    public SharedWorldReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        remap();
+        if (buffer.capacity() < SharedWorldExport.HEADER_BYTES || buffer.getInt(0) != SharedWorldExport.MAGIC) {
+            channel.close();
+            throw new IOException("no es una exportación del mundo: " + path);
+        }
+        if (buffer.getInt(4) != SharedWorldExport.VERSION) {
+            channel.close();
+            throw new IOException("versión no soportada: " + buffer.getInt(4));
+        }
+    }
+
+    /** Frames leídos enteros. */
+    public long getFramesRead() { return framesRead; }
+
+    /** Intentos descartados por leer un frame a medio escribir. */
+    public long getTornFrames() { return tornFrames; }
+
+    /** true si el escritor ha publicado un frame que aún no se ha leído. */
+    public boolean hasNewFrame() {
+        long seq = (long) SharedWorldExport.LONGS.getAcquire(buffer, SharedWorldExport.SEQUENCE);
+        return (seq & 1) == 0 && seq != lastSequence;
+    }
+
+    /**
+     * Copiar el último frame completo en {@code frame}. false si el escritor no ha
+     * dejado de escribir en todos los intentos; entonces {@code frame} no se toca.
+     */
+    public boolean readInto(FrameSnapshot frame) throws IOException {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            MappedByteBuffer b = buffer;
+            long before = (long) SharedWorldExport.LONGS.getAcquire(b, SharedWorldExport.SEQUENCE);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int ballCapacity = b.getInt(SharedWorldExport.BALL_CAPACITY);
+            int projectileCapacity = b.getInt(SharedWorldExport.PROJECTILE_CAPACITY);
+            long needed = SharedWorldExport.HEADER_BYTES + (long) ballCapacity * SharedWorldExport.BALL_BYTES
+                + (long) projectileCapacity * SharedWorldExport.PROJECTILE_BYTES;
+            if (needed > b.capacity()) {
+                // el fichero ha crecido: volver a mapearlo y reintentar
+                remap();
+                continue;
+            }
+            int balls = Math.max(0, Math.min(b.getInt(SharedWorldExport.BALL_COUNT), ballCapacity));
+            int projectiles = Math.max(0, Math.min(b.getInt(SharedWorldExport.PROJECTILE_COUNT), projectileCapacity));
+            copyFrame(b, balls, projectiles, ballCapacity);
+            // que ninguna lectura del cuerpo se retrase más allá de la comprobación
+            VarHandle.loadLoadFence();
+            long after = (long) SharedWorldExport.LONGS.getAcquire(b, SharedWorldExport.SEQUENCE);
+            if (after == before) {
+                lastSequence = before;
+                framesRead++;
+                fill(frame);
+                return true;
+            }
+            tornFrames++;
+        }
+        return false;
+    }
+
+    // copiar el cuerpo del frame a los arrays propios (puede estar a medio escribir)
+    private void copyFrame(MappedByteBuffer b, int balls, int projectiles, int ballCapacity) {
+        if (ballId.length < balls) {
+            int n = Math.max(balls, ballId.length * 2);
+            ballId = new int[n]; ballX = new int[n]; ballY = new int[n];
+            ballDiameter = new int[n]; ballRgb = new int[n]; ballAngle = new float[n];
+        }
+        if (projX.length < projectiles) {
+            int n = Math.max(projectiles, projX.length * 2);
+            projX = new float[n]; projY = new float[n]; projSize = new int[n]; projRgb = new int[n];
+        }
+        scratchTick = b.getLong(SharedWorldExport.TICK);
+        scratchBalls = balls;
+        scratchProjectiles = projectiles;
+        int at = SharedWorldExport.HEADER_BYTES;
+        for (int i = 0; i < balls; i++, at += SharedWorldExport.BALL_BYTES) {
+            ballId[i] = b.getInt(at);
+            ballX[i] = b.getInt(at + 4);
+            ballY[i] = b.getInt(at + 8);
+            ballDiameter[i] = b.getInt(at + 12);
+            ballAngle[i] = b.getFloat(at + 16);
+            ballRgb[i] = b.getInt(at + 20);
+        }
+        at = SharedWorldExport.HEADER_BYTES + ballCapacity * SharedWorldExport.BALL_BYTES;
+        for (int i = 0; i < projectiles; i++, at += SharedWorldExport.PROJECTILE_BYTES) {
+            projX[i] = b.getFloat(at);
+            projY[i] = b.getFloat(at + 4);
+            projSize[i] = b.getInt(at + 8);
+            projRgb[i] = b.getInt(at + 12);
+        }
+    }
+
+    // pasar al frame del llamador la copia ya validada
+    private void fill(FrameSnapshot frame) {
+        frame.begin(scratchTick);
+        for (int i = 0; i < scratchBalls; i++) {
+            frame.addBall(null, ballId[i], ballX[i], ballY[i], ballDiameter[i], ballAngle[i], color(ballRgb[i]));
+        }
+        for (int i = 0; i < scratchProjectiles; i++) {
+            frame.addProjectile(projX[i], projY[i], projSize[i], color(projRgb[i]));
+        }
+    }
+
+    /** Ancho y alto del mundo del último frame publicado (0 si aún no hay ninguno). */
+    public int getWorldWidth() { return buffer.getInt(SharedWorldExport.WIDTH); }
+    public int getWorldHeight() { return buffer.getInt(SharedWorldExport.HEIGHT); }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void remap() throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private Color color(int argb) {
+        return colors.computeIfAbsent(argb, c -> new Color(c, true));
+    }
+}
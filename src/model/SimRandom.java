@@ -0,0 +1,75 @@
+package model;
+
+/**
+ * Generador pseudoaleatorio divisible (SplitMix64, el mismo algoritmo que
+ * {@link java.util.SplittableRandom}) con estado accesible, para poder guardarlo
+ * en un checkpoint. Con la misma semilla produce siempre la misma secuencia.
+ *
+ * No es thread-safe: cada subsistema tiene el suyo y lo usa bajo el monitor del modelo.
+ */
+public final class SimRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long seed;
+    private final long gamma;
+
+    public SimRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private SimRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /** Restaurar un generador a partir de su estado ({@link #getState()}, {@link #getGamma()}). */
+    public static SimRandom restore(long state, long gamma) {
+        return new SimRandom(state, gamma | 1L);
+    }
+
+    /** Nuevo generador independiente; avanza el estado de éste. */
+    public SimRandom split() {
+        return new SimRandom(mix64(nextSeed()), mixGamma(nextSeed()));
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    /** Uniforme en [0, 1). */
+    public double nextDouble() {
+        return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+    }
+
+    public float nextFloat() {
+        return (mix64(nextSeed()) >>> 40) * 0x1.0p-24f;
+    }
+
+    /** Uniforme en [0, bound). */
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound debe ser positivo");
+        return (int) ((nextLong() >>> 33) % bound);
+    }
+
+    public long getState() { return seed; }
+    public long getGamma() { return gamma; }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
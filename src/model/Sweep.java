@@ -0,0 +1,153 @@
+package model;
+
+/**
+ * Pruebas de colisión continuas (barridas): en lugar de comprobar sólo la
+ * posición final de un paso, calculan el instante exacto de impacto t ∈ [0, 1]
+ * a lo largo del desplazamiento. Así un objeto rápido no atraviesa a otro
+ * pequeño aunque el paso sea grande, y el resultado no depende del framerate.
+ */
+public final class Sweep {
+    /** Valor devuelto cuando no hay impacto dentro del paso. */
+    public static final double NO_HIT = -1.0;
+
+    private Sweep() {}
+
+    /**
+     * Primer instante en que el segmento (x0,y0)→(x1,y1) entra en el círculo de
+     * centro (cx,cy) y radio r. Devuelve 0 si el origen ya está dentro.
+     */
+    public static double segmentCircle(double x0, double y0, double x1, double y1,
+                                       double cx, double cy, double r) {
+        double dx = x1 - x0, dy = y1 - y0;
+        double fx = x0 - cx, fy = y0 - cy;
+        double c = fx * fx + fy * fy - r * r;
+        if (c <= 0) return 0.0;
+        double a = dx * dx + dy * dy;
+        if (a == 0) return NO_HIT;
+        double b = fx * dx + fy * dy;
+        if (b >= 0) return NO_HIT; // alejándose
+        double disc = b * b - a * c;
+        if (disc < 0) return NO_HIT;
+        double t = (-b - Math.sqrt(disc)) / a;
+        return t <= 1.0 ? t : NO_HIT;
+    }
+
+    /**
+     * Primer instante en que un círculo de radio r, cuyo centro se desplaza de
+     * (x0,y0) en (dx,dy), toca el rectángulo [rx, rx+rw] x [ry, ry+rh].
+     * Se resuelve como un rayo contra la suma de Minkowski (rectángulo redondeado).
+     * Si hay impacto, normalOut recibe la normal unitaria de la superficie en el
+     * punto de contacto (apuntando hacia fuera del rectángulo).
+     * Un círculo que ya solapa al inicio sólo cuenta como impacto si se mueve hacia dentro.
+     */
+    public static double circleRect(double x0, double y0, double dx, double dy, double r,
+                                    double rx, double ry, double rw, double rh,
+                                    double[] normalOut) {
+        double minX = rx, maxX = rx + rw, minY = ry, maxY = ry + rh;
+
+        // solape inicial
+        double qx = clamp(x0, minX, maxX), qy = clamp(y0, minY, maxY);
+        double ox = x0 - qx, oy = y0 - qy;
+        if (ox * ox + oy * oy < r * r) {
+            double nx, ny;
+            if (ox == 0 && oy == 0) {
+                // centro dentro del rectángulo: salir por la cara más cercana
+                double l = x0 - minX, rt = maxX - x0, t = y0 - minY, b = maxY - y0;
+                double m = Math.min(Math.min(l, rt), Math.min(t, b));
+                nx = m == l ? -1 : m == rt ? 1 : 0;
+                ny = nx != 0 ? 0 : (m == t ? -1 : 1);
+            } else {
+                double len = Math.sqrt(ox * ox + oy * oy);
+                nx = ox / len; ny = oy / len;
+            }
+            if (dx * nx + dy * ny >= 0) return NO_HIT; // ya saliendo
+            normalOut[0] = nx; normalOut[1] = ny;
+            return 0.0;
+        }
+
+        // rayo contra el rectángulo expandido r por cada lado (método de slabs)
+        double tEnter = 0.0, tExit = 1.0;
+        int axis = -1;
+        double sign = 0;
+        if (dx == 0) {
+            if (x0 < minX - r || x0 > maxX + r) return NO_HIT;
+        } else {
+            double inv = 1.0 / dx;
+            double t1 = (minX - r - x0) * inv, t2 = (maxX + r - x0) * inv;
+            double near = Math.min(t1, t2), far = Math.max(t1, t2);
+            if (near > tEnter) { tEnter = near; axis = 0; sign = dx > 0 ? -1 : 1; }
+            tExit = Math.min(tExit, far);
+        }
+        if (dy == 0) {
+            if (y0 < minY - r || y0 > maxY + r) return NO_HIT;
+        } else {
+            double inv = 1.0 / dy;
+            double t1 = (minY - r - y0) * inv, t2 = (maxY + r - y0) * inv;
+            double near = Math.min(t1, t2), far = Math.max(t1, t2);
+            if (near > tEnter) { tEnter = near; axis = 1; sign = dy > 0 ? -1 : 1; }
+            tExit = Math.min(tExit, far);
+        }
+        if (tEnter > tExit) return NO_HIT;
+        // axis < 0: el centro ya estaba dentro del rectángulo expandido (zona de esquina)
+
+        // ¿el punto de entrada cae en una esquina redondeada?
+        double hx = x0 + dx * tEnter, hy = y0 + dy * tEnter;
+        boolean outX = hx < minX || hx > maxX;
+        boolean outY = hy < minY || hy > maxY;
+        if (outX && outY) {
+            double cx = hx < minX ? minX : maxX;
+            double cy = hy < minY ? minY : maxY;
+            double t = segmentCircle(x0, y0, x0 + dx, y0 + dy, cx, cy, r);
+            if (t == NO_HIT) return NO_HIT;
+            double px = x0 + dx * t - cx, py = y0 + dy * t - cy;
+            double len = Math.sqrt(px * px + py * py);
+            if (len == 0) return NO_HIT;
+            normalOut[0] = px / len; normalOut[1] = py / len;
+            return t;
+        }
+        if (axis < 0) return NO_HIT;
+        normalOut[0] = axis == 0 ? sign : 0;
+        normalOut[1] = axis == 1 ? sign : 0;
+        return tEnter;
+    }
+
+    /**
+     * true si el círculo de centro (cx,cy) y radio r solapa el rectángulo
+     * [rx, rx+rw] x [ry, ry+rh]; tocarlo en un solo punto no cuenta, como en
+     * {@link #circleRect}.
+     */
+    public static boolean circleOverlapsRect(double cx, double cy, double r,
+                                             double rx, double ry, double rw, double rh) {
+        double ox = cx - clamp(cx, rx, rx + rw), oy = cy - clamp(cy, ry, ry + rh);
+        return ox * ox + oy * oy < r * r;
+    }
+
+    /**
+     * Primer instante en que el segmento (x0,y0)→(x1,y1) entra en el rectángulo
+     * [minX, maxX] x [minY, maxY]. Devuelve 0 si el origen ya está dentro.
+     */
+    public static double segmentRect(double x0, double y0, double x1, double y1,
+                                     double minX, double minY, double maxX, double maxY) {
+        double dx = x1 - x0, dy = y1 - y0;
+        double tEnter = 0.0, tExit = 1.0;
+        if (dx == 0) {
+            if (x0 < minX || x0 > maxX) return NO_HIT;
+        } else {
+            double t1 = (minX - x0) / dx, t2 = (maxX - x0) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (y0 < minY || y0 > maxY) return NO_HIT;
+        } else {
+            double t1 = (minY - y0) / dy, t2 = (maxY - y0) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        return tEnter <= tExit ? tEnter : NO_HIT;
+    }
+
+    private static double clamp(double v, double lo, double hi) {
+        return v < lo ? lo : (v > hi ? hi : v);
+    }
+}
@@ -0,0 +1,258 @@
+package model;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copia completa del estado del mundo (bolas, proyectiles, explosiones y ocupación
+ * de la habitación) en arrays primitivos, con formato binario versionado.
+ *
+ * Guardar es "copy-on-snapshot": {@link Model#captureCheckpoint()} sólo copia campos
+ * bajo el monitor del modelo (O(n), sin E/S) y la escritura a disco se hace después,
+ * fuera de cualquier lock, a través de un {@link MappedByteBuffer}. Los datos van por
+ * columnas (todas las X, luego todas las Y, ...) para volcarlos con copias en bloque.
+ *
+ * Formato (big-endian):
+ * <pre>
+ * int magic 'BOLA', int versión, long creado (ms epoch), int ancho, int alto,
+ * int bolas, int proyectiles, int explosiones, int partículas, int ocupante (-1 = libre)
+ * bolas:       double posX[], posY[], velX[], velY[], accX[], accY[], angle[]; int diámetro[], rgb[]
+ *              int etiquetas[]; double espera de disparo[]
+ * proyectiles: double x[], y[], prevX[], prevY[], velX[], velY[]; int rgb[], dueño[] (índice de bola, -1 = ninguno)
+ * explosiones: double transcurrido[]; int rgb[], partículas[]
+ * partículas:  double x[], y[], velX[], velY[]
+ * generadores: long semilla, int determinista, 4 x (long estado, long gamma)
+ * sistemas:    long ejecuciones (el tick con que {@link BallBatch#random} sortea)
+ * </pre>
+ * Sólo se lee la versión actual.
+ */
+public final class WorldCheckpoint {
+    static final int MAGIC = 0x424F4C41; // "BOLA"
+    static final int VERSION = 2;
+    // magic, versión, creado, y siete int: ancho, alto, cuatro recuentos y ocupante
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 7 * 4;
+    // orden de los generadores: aparición, tamaño, controlador, explosiones (ver Model.setSeed)
+    static final int RANDOM_STREAMS = 4;
+    private static final int RANDOM_BYTES = Long.BYTES + Integer.BYTES + RANDOM_STREAMS * 2 * Long.BYTES;
+    private static final int BALL_BYTES = 8 * Double.BYTES + 3 * Integer.BYTES;
+    private static final int SYSTEM_BYTES = Long.BYTES;
+    private static final int PROJECTILE_BYTES = 6 * Double.BYTES + 2 * Integer.BYTES;
+    private static final int EXPLOSION_BYTES = Double.BYTES + 2 * Integer.BYTES;
+    private static final int PARTICLE_BYTES = 4 * Double.BYTES;
+
+    long createdAtMillis;
+    int width, height;
+    int occupant = -1;
+
+    int ballCount;
+    double[] ballPosX, ballPosY, ballVelX, ballVelY, ballAccX, ballAccY, ballAngle;
+    int[] ballDiameter, ballRgb;
+    // componentes de los sistemas de comportamiento
+    int[] ballTags;
+    double[] ballFireCooldown;
+
+    int projectileCount;
+    double[] projX, projY, projPrevX, projPrevY, projVelX, projVelY;
+    int[] projRgb;
+    // bola que disparó cada proyectil (índice en este checkpoint), -1 si ya no existe
+    int[] projOwner;
+
+    int explosionCount;
+    double[] explosionElapsed;
+    int[] explosionRgb, explosionParticles;
+
+    int particleCount;
+    double[] partX, partY, partVelX, partVelY;
+
+    // estado de los generadores
+    long seed;
+    boolean deterministic;
+    final long[] rngState = new long[RANDOM_STREAMS], rngGamma = new long[RANDOM_STREAMS];
+    // ejecuciones de los sistemas de comportamiento
+    long systemRuns;
+
+    WorldCheckpoint(int balls, int projectiles, int explosions, int particles) {
+        ballCount = balls;
+        ballPosX = new double[balls]; ballPosY = new double[balls];
+        ballVelX = new double[balls]; ballVelY = new double[balls];
+        ballAccX = new double[balls]; ballAccY = new double[balls];
+        ballAngle = new double[balls];
+        ballDiameter = new int[balls]; ballRgb = new int[balls];
+        ballTags = new int[balls]; ballFireCooldown = new double[balls];
+
+        projectileCount = projectiles;
+        projX = new double[projectiles]; projY = new double[projectiles];
+        projPrevX = new double[projectiles]; projPrevY = new double[projectiles];
+        projVelX = new double[projectiles]; projVelY = new double[projectiles];
+        projRgb = new int[projectiles]; projOwner = new int[projectiles];
+
+        explosionCount = explosions;
+        explosionElapsed = new double[explosions];
+        explosionRgb = new int[explosions]; explosionParticles = new int[explosions];
+
+        particleCount = particles;
+        partX = new double[particles]; partY = new double[particles];
+        partVelX = new double[particles]; partVelY = new double[particles];
+    }
+
+    public int getBallCount() { return ballCount; }
+    public int getProjectileCount() { return projectileCount; }
+    public int getExplosionCount() { return explosionCount; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
+
+    long byteSize() {
+        return byteSize(ballCount, projectileCount, explosionCount, particleCount);
+    }
+
+    /** Tamaño del fichero con estos recuentos (en long, sin desbordar). */
+    private static long byteSize(int balls, int projectiles, int explosions, int particles) {
+        return HEADER_BYTES
+            + (long) balls * BALL_BYTES
+            + (long) projectiles * PROJECTILE_BYTES
+            + (long) explosions * EXPLOSION_BYTES
+            + (long) particles * PARTICLE_BYTES
+            + RANDOM_BYTES + SYSTEM_BYTES;
+    }
+
+    /** Escribir el checkpoint en un fichero (lo crea o lo sobrescribe). */
+    public void write(Path file) throws IOException {
+        long size = byteSize();
+        if (size > Integer.MAX_VALUE) throw new IOException("Checkpoint demasiado grande: " + size + " bytes");
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.BIG_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(createdAtMillis);
+            buf.putInt(width).putInt(height);
+            buf.putInt(ballCount).putInt(projectileCount).putInt(explosionCount).putInt(particleCount);
+            buf.putInt(occupant);
+
+            putDoubles(buf, ballPosX, ballCount); putDoubles(buf, ballPosY, ballCount);
+            putDoubles(buf, ballVelX, ballCount); putDoubles(buf, ballVelY, ballCount);
+            putDoubles(buf, ballAccX, ballCount); putDoubles(buf, ballAccY, ballCount);
+            putDoubles(buf, ballAngle, ballCount);
+            putInts(buf, ballDiameter, ballCount); putInts(buf, ballRgb, ballCount);
+            putInts(buf, ballTags, ballCount); putDoubles(buf, ballFireCooldown, ballCount);
+
+            putDoubles(buf, projX, projectileCount); putDoubles(buf, projY, projectileCount);
+            putDoubles(buf, projPrevX, projectileCount); putDoubles(buf, projPrevY, projectileCount);
+            putDoubles(buf, projVelX, projectileCount); putDoubles(buf, projVelY, projectileCount);
+            putInts(buf, projRgb, projectileCount); putInts(buf, projOwner, projectileCount);
+
+            putDoubles(buf, explosionElapsed, explosionCount);
+            putInts(buf, explosionRgb, explosionCount); putInts(buf, explosionParticles, explosionCount);
+
+            putDoubles(buf, partX, particleCount); putDoubles(buf, partY, particleCount);
+            putDoubles(buf, partVelX, particleCount); putDoubles(buf, partVelY, particleCount);
+
+            buf.putLong(seed).putInt(deterministic ? 1 : 0);
+            for (int i = 0; i < RANDOM_STREAMS; i++) buf.putLong(rngState[i]).putLong(rngGamma[i]);
+            buf.putLong(systemRuns);
+            buf.force();
+        }
+    }
+
+    /** Leer un checkpoint; valida cabecera, versión, recuentos y tamaño antes de reservar memoria. */
+    public static WorldCheckpoint read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = ch.size();
+            if (fileSize < HEADER_BYTES) throw new IOException(file + ": no es un checkpoint (demasiado corto)");
+            if (fileSize > Integer.MAX_VALUE) throw new IOException(file + ": checkpoint demasiado grande");
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buf.order(ByteOrder.BIG_ENDIAN);
+            if (buf.getInt() != MAGIC) throw new IOException(file + ": no es un checkpoint (cabecera)");
+            int version = buf.getInt();
+            if (version != VERSION) throw new IOException(file + ": versión de checkpoint no soportada: " + version);
+            long created = buf.getLong();
+            int w = buf.getInt(), h = buf.getInt();
+            int balls = buf.getInt(), projectiles = buf.getInt(), explosions = buf.getInt(), particles = buf.getInt();
+            int occ = buf.getInt();
+            if (balls < 0 || projectiles < 0 || explosions < 0 || particles < 0 || occ < -1 || occ >= balls) {
+                throw new IOException(file + ": cabecera de checkpoint corrupta");
+            }
+            if (byteSize(balls, projectiles, explosions, particles) != fileSize) {
+                throw new IOException(file + ": tamaño de checkpoint inconsistente");
+            }
+            WorldCheckpoint cp = new WorldCheckpoint(balls, projectiles, explosions, particles);
+            cp.createdAtMillis = created;
+            cp.width = w;
+            cp.height = h;
+            cp.occupant = occ;
+
+            getDoubles(buf, cp.ballPosX, balls); getDoubles(buf, cp.ballPosY, balls);
+            getDoubles(buf, cp.ballVelX, balls); getDoubles(buf, cp.ballVelY, balls);
+            getDoubles(buf, cp.ballAccX, balls); getDoubles(buf, cp.ballAccY, balls);
+            getDoubles(buf, cp.ballAngle, balls);
+            getInts(buf, cp.ballDiameter, balls); getInts(buf, cp.ballRgb, balls);
+            getInts(buf, cp.ballTags, balls); getDoubles(buf, cp.ballFireCooldown, balls);
+
+            getDoubles(buf, cp.projX, projectiles); getDoubles(buf, cp.projY, projectiles);
+            getDoubles(buf, cp.projPrevX, projectiles); getDoubles(buf, cp.projPrevY, projectiles);
+            getDoubles(buf, cp.projVelX, projectiles); getDoubles(buf, cp.projVelY, projectiles);
+            getInts(buf, cp.projRgb, projectiles); getInts(buf, cp.projOwner, projectiles);
+            for (int i = 0; i < projectiles; i++) {
+                if (cp.projOwner[i] < -1 || cp.projOwner[i] >= balls) throw new IOException(file + ": dueño de proyectil fuera de rango");
+            }
+
+            getDoubles(buf, cp.explosionElapsed, explosions);
+            getInts(buf, cp.explosionRgb, explosions); getInts(buf, cp.explosionParticles, explosions);
+            // cada explosión se queda con un tramo de las partículas: ninguno negativo y sin desbordar
+            int total = 0;
+            for (int i = 0; i < explosions; i++) {
+                int n = cp.explosionParticles[i];
+                if (n < 0) throw new IOException(file + ": recuento de partículas negativo");
+                try {
+                    total = Math.addExact(total, n);
+                } catch (ArithmeticException e) {
+                    throw new IOException(file + ": recuento de partículas inconsistente");
+                }
+            }
+            if (total != particles) throw new IOException(file + ": recuento de partículas inconsistente");
+
+            getDoubles(buf, cp.partX, particles); getDoubles(buf, cp.partY, particles);
+            getDoubles(buf, cp.partVelX, particles); getDoubles(buf, cp.partVelY, particles);
+
+            cp.seed = buf.getLong();
+            cp.deterministic = buf.getInt() != 0;
+            for (int i = 0; i < RANDOM_STREAMS; i++) {
+                cp.rngState[i] = buf.getLong();
+                cp.rngGamma[i] = buf.getLong();
+            }
+            cp.systemRuns = buf.getLong();
+            return cp;
+        }
+    }
+
+    /** Reconstruir la explosión i con sus partículas (primera partícula en {@code firstParticle}). */
+    Explosion explosionAt(int i, int firstParticle) {
+        int n = explosionParticles[i];
+        Color color = new Color(explosionRgb[i], true);
+        return new Explosion(explosionElapsed[i], color, partX, partY, partVelX, partVelY, firstParticle, n);
+    }
+
+    private static void putDoubles(ByteBuffer buf, double[] a, int n) {
+        buf.asDoubleBuffer().put(a, 0, n);
+        buf.position(buf.position() + n * Double.BYTES);
+    }
+
+    private static void putInts(ByteBuffer buf, int[] a, int n) {
+        buf.asIntBuffer().put(a, 0, n);
+        buf.position(buf.position() + n * Integer.BYTES);
+    }
+
+    private static void getDoubles(ByteBuffer buf, double[] a, int n) {
+        buf.asDoubleBuffer().get(a, 0, n);
+        buf.position(buf.position() + n * Double.BYTES);
+    }
+
+    private static void getInts(ByteBuffer buf, int[] a, int n) {
+        buf.asIntBuffer().get(a, 0, n);
+        buf.position(buf.position() + n * Integer.BYTES);
+    }
+}
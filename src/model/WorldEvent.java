@@ -0,0 +1,35 @@
+package model;
+
+import java.awt.Color;
+
+/**
+ * Eventos discretos del mundo que no se deducen de comparar dos frames. Se publican en
+ * el {@link EventBus} del modelo desde cualquier hilo (simulación, hilos de bola, EDT)
+ * y los suscriptores los reciben por lotes una vez por tick, en el hilo de simulación.
+ */
+public sealed interface WorldEvent {
+    /** Por qué ha desaparecido una bola. */
+    enum Cause { HIT, CLEARED }
+
+    /** Bola nueva (añadida desde los controles, automática o por reinicio). */
+    record BallSpawned(int ballId, double x, double y, int diameter, Color color) implements WorldEvent {}
+
+    /** Bola eliminada del mundo. */
+    record BallDestroyed(int ballId, Cause cause) implements WorldEvent {}
+
+    /** Una bola ha disparado desde (x, y) con el ángulo dado (rad). */
+    record ProjectileFired(int shooterId, double x, double y, double angle) implements WorldEvent {}
+
+    /**
+     * Un proyectil ha alcanzado una bola en (x, y) (centro de la bola) y ahí se crea su
+     * explosión. {@code ballId} es -1 si la bola era el fantasma de otra región (ver
+     * {@link ShardRegion}): la quita la región que la simula.
+     */
+    record Hit(int ballId, double x, double y, Color color, int diameter) implements WorldEvent {}
+
+    /** Una bola ha entrado en la habitación (ahora es su ocupante). */
+    record RoomEntered(int ballId) implements WorldEvent {}
+
+    /** El ocupante ha salido de la habitación (o ha sido eliminado dentro). */
+    record RoomExited(int ballId) implements WorldEvent {}
+}
@@ -14,6 +14,18 @@ public class ControlPanel extends JPanel {
     private final JLabel FPS_LABEL;
     private final JButton PAUSE_BUTTON;
     private final JButton CLEAR_BUTTON;
+    private final JButton NBODY_BUTTON;
+    private final JButton LOAD_LEVEL_BUTTON;
+    private final JButton SAVE_STATE_BUTTON;
+    private final JButton RESTORE_STATE_BUTTON;
+    private final JButton RECORD_BUTTON;
+    private final JButton OPEN_REPLAY_BUTTON;
+    private final JButton SEED_BUTTON;
+    private final JButton SERVER_BUTTON;
+    private final JButton RENDER_BUTTON;
+    private final JButton LOD_BUTTON;
+    private final JButton SHARE_BUTTON;
+    private final JButton BEHAVIOR_BUTTON;
 
     public ControlPanel() {
         setLayout(new GridBagLayout());
@@ -49,15 +61,62 @@ public class ControlPanel extends JPanel {
         this.SIZE_MAX = new JSpinner(new SpinnerNumberModel(24, 2, 400, 1));
         gbc.gridx = 1; add(SIZE_MAX, gbc);
 
-        gbc.gridx = 0; gbc.gridy = 11; gbc.gridwidth = 2;
-    FPS_LABEL = new JLabel("FPS: -- | Paint: -- ms");
+        gbc.gridx = 0; gbc.gridy = 6; gbc.gridwidth = 2;
+        NBODY_BUTTON = new JButton("Gravedad N: OFF");
+        add(NBODY_BUTTON, gbc);
+
+        gbc.gridy = 7;
+        LOAD_LEVEL_BUTTON = new JButton("Cargar nivel...");
+        add(LOAD_LEVEL_BUTTON, gbc);
+
+        gbc.gridy = 8; gbc.gridwidth = 1;
+        SAVE_STATE_BUTTON = new JButton("Guardar estado");
+        add(SAVE_STATE_BUTTON, gbc);
+        gbc.gridx = 1;
+        RESTORE_STATE_BUTTON = new JButton("Restaurar estado");
+        add(RESTORE_STATE_BUTTON, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 9; gbc.gridwidth = 2;
+        RECORD_BUTTON = new JButton("Grabar: OFF");
+        add(RECORD_BUTTON, gbc);
+
+        gbc.gridy = 10;
+        OPEN_REPLAY_BUTTON = new JButton("Abrir grabación...");
+        add(OPEN_REPLAY_BUTTON, gbc);
+
+        gbc.gridy = 11;
+        SEED_BUTTON = new JButton("Semilla...");
+        add(SEED_BUTTON, gbc);
+
+        gbc.gridy = 12;
+        SERVER_BUTTON = new JButton("Emitir: OFF");
+        add(SERVER_BUTTON, gbc);
+
+        gbc.gridy = 13;
+        RENDER_BUTTON = new JButton("Render: Java2D");
+        add(RENDER_BUTTON, gbc);
+
+        gbc.gridy = 14;
+        LOD_BUTTON = new JButton("Vista: Auto");
+        add(LOD_BUTTON, gbc);
+
+        gbc.gridy = 15;
+        SHARE_BUTTON = new JButton("Compartir: OFF");
+        add(SHARE_BUTTON, gbc);
+
+        gbc.gridy = 16;
+        BEHAVIOR_BUTTON = new JButton("Comportamiento: Ninguno");
+        add(BEHAVIOR_BUTTON, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 17; gbc.gridwidth = 2;
+    FPS_LABEL = new JLabel("FPS: -- | Paint: -- ms | Calidad: -- | Sim: -- ms | Input: -- ms");
     add(FPS_LABEL, gbc);
-        gbc.gridy = 12; gbc.gridwidth = 1; gbc.gridx = 0;
+        gbc.gridy = 18; gbc.gridwidth = 1; gbc.gridx = 0;
         PAUSE_BUTTON = new JButton("Pausa: OFF");
         add(PAUSE_BUTTON, gbc);
 
     // place 'Borrar bolas' next to pause (same row)
-    gbc.gridx = 1; gbc.gridy = 12;
+    gbc.gridx = 1; gbc.gridy = 18;
         CLEAR_BUTTON = new JButton("Borrar bolas");
         add(CLEAR_BUTTON, gbc);
     }
@@ -72,6 +131,25 @@ public class ControlPanel extends JPanel {
     public void setFpsLabel(String s) { FPS_LABEL.setText(s); }
     public JButton getPauseButton() { return PAUSE_BUTTON; }
     public JButton getClearButton() { return CLEAR_BUTTON; }
+    public JButton getNBodyButton() { return NBODY_BUTTON; }
+    public JButton getLoadLevelButton() { return LOAD_LEVEL_BUTTON; }
+    public JButton getSaveStateButton() { return SAVE_STATE_BUTTON; }
+    public JButton getRestoreStateButton() { return RESTORE_STATE_BUTTON; }
+    public JButton getRecordButton() { return RECORD_BUTTON; }
+    public JButton getOpenReplayButton() { return OPEN_REPLAY_BUTTON; }
+    public JButton getSeedButton() { return SEED_BUTTON; }
+    public JButton getServerButton() { return SERVER_BUTTON; }
+    public JButton getRenderButton() { return RENDER_BUTTON; }
+    public JButton getLodButton() { return LOD_BUTTON; }
+    public JButton getShareButton() { return SHARE_BUTTON; }
+    public JButton getBehaviorButton() { return BEHAVIOR_BUTTON; }
+
+    /** Espectador: nada de lo que hay aquí actúa sobre el mundo emitido (salvo cómo se pinta). */
+    public void setControlsEnabled(boolean enabled) {
+        for (Component c : getComponents()) {
+            if (c != FPS_LABEL && c != RENDER_BUTTON && c != LOD_BUTTON) c.setEnabled(enabled);
+        }
+    }
     // acceleration getters removed
 
     
@@ -0,0 +1,295 @@
+package view;
+
+import model.FrameSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Zonas del viewer que hay que repintar entre un frame y el siguiente, en baldosas de
+ * {@link #TILE} px. Una bola que no ha cambiado (posición, tamaño, color y selección)
+ * no ensucia nada; de las que sí, se marca su caja anterior y la actual. Proyectiles y
+ * partículas se mueven siempre, así que se marcan todos.
+ *
+ * Las bolas del frame vienen ordenadas por id, así que el diff con el frame anterior es
+ * una mezcla lineal de dos listas ordenadas. Si no lo están (frame ajeno), se pide un
+ * repintado completo. Sólo se usa desde el EDT.
+ */
+final class DamageTracker {
+    static final int TILE = 32;
+
+    private int width, height, tilesX, tilesY;
+    private boolean[] dirty = new boolean[0];
+    private int dirtyTiles = 0;
+    private boolean all = true;
+
+    // bolas del frame anterior, por id, con su caja (x0, y0, x1, y1)
+    private int prevCount = 0;
+    private int[] prevId = new int[256], prevX = new int[256], prevY = new int[256];
+    private int[] prevDiameter = new int[256], prevRgb = new int[256];
+    private boolean[] prevSelected = new boolean[256];
+    private int[] prevBox = new int[256 * 4];
+    // proyectiles y partículas del frame anterior (sólo cajas)
+    private int prevOtherCount = 0;
+    private int[] prevOtherBox = new int[256 * 4];
+
+    // cajas del frame actual: bolas, luego proyectiles, luego partículas (orden de pintado)
+    private int entityCount = 0, ballCount = 0;
+    private int[] box = new int[256 * 4];
+
+    // entidades por baldosa (CSR), para repintar una zona sin recorrerlo todo
+    private int[] binStart = new int[1], binItems = new int[256];
+    // por columna de inicio: rectángulo abierto que acaba en la fila anterior (collectRects)
+    private int[] open = new int[1];
+    private int[] stamp = new int[256];
+    private int stampValue = 0;
+
+    /** Ajustar la rejilla al tamaño del panel; todo queda sucio. */
+    void reset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        tilesX = Math.max(1, (width + TILE - 1) / TILE);
+        tilesY = Math.max(1, (height + TILE - 1) / TILE);
+        dirty = new boolean[tilesX * tilesY];
+        binStart = new int[tilesX * tilesY + 1];
+        open = new int[tilesX];
+        markAll();
+    }
+
+    void markAll() {
+        all = true;
+    }
+
+    /** true si hay que repintarlo todo (tamaño, fondo o frame sin ordenar). */
+    boolean isAllDirty() {
+        return all;
+    }
+
+    /** Fracción del panel que hay que repintar. */
+    double dirtyFraction() {
+        return all ? 1.0 : dirtyTiles / (double) dirty.length;
+    }
+
+    /** Olvidar las zonas sucias tras pintar. */
+    void clear() {
+        if (dirtyTiles > 0) Arrays.fill(dirty, false);
+        dirtyTiles = 0;
+        all = false;
+    }
+
+    /**
+     * Calcular las cajas del frame y marcar lo que ha cambiado respecto al anterior.
+     * {@code reach} es la caja de la bola seleccionada con su nave y su estela (o null).
+     */
+    void update(FrameSnapshot frame, model.Ball selected, int[] reach) {
+        int nb = frame.getBallCount(), np = frame.getProjectileCount(), nq = frame.getParticleCount();
+        ensureEntities(nb + np + nq);
+        entityCount = nb + np + nq;
+        ballCount = nb;
+
+        boolean sorted = true;
+        for (int i = 0; i < nb; i++) {
+            int x = frame.getBallX(i), y = frame.getBallY(i), d = frame.getBallDiameter(i);
+            if (reach != null && frame.getBall(i) == selected) {
+                setBox(i, reach[0], reach[1], reach[2], reach[3]);
+            } else {
+                setBox(i, x - 1, y - 1, x + d + 1, y + d + 1);
+            }
+            if (i > 0 && frame.getBallId(i) <= frame.getBallId(i - 1)) sorted = false;
+        }
+        for (int i = 0; i < np; i++) {
+            int s = frame.getProjectileSize(i);
+            int x = (int) (frame.getProjectileX(i) - s / 2), y = (int) (frame.getProjectileY(i) - s / 2);
+            setBox(nb + i, x - 2, y - 2, x + s + 2, y + s + 2);
+        }
+        for (int i = 0; i < nq; i++) {
+            int s = frame.getParticleSize(i);
+            int x = (int) (frame.getParticleX(i) - s / 2), y = (int) (frame.getParticleY(i) - s / 2);
+            setBox(nb + np + i, x - 1, y - 1, x + s + 1, y + s + 1);
+        }
+        if (!sorted) all = true;
+
+        if (!all) {
+            // bolas: mezcla de las dos listas ordenadas por id
+            int a = 0, b = 0;
+            while (a < prevCount || b < nb) {
+                int pid = a < prevCount ? prevId[a] : Integer.MAX_VALUE;
+                int cid = b < nb ? frame.getBallId(b) : Integer.MAX_VALUE;
+                if (pid < cid) {
+                    markBox(prevBox, a++);
+                } else if (cid < pid) {
+                    markBox(box, b++);
+                } else {
+                    boolean sel = frame.getBall(b) == selected;
+                    if (sel || prevSelected[a] || prevX[a] != frame.getBallX(b) || prevY[a] != frame.getBallY(b)
+                            || prevDiameter[a] != frame.getBallDiameter(b) || prevRgb[a] != frame.getBallColor(b).getRGB()) {
+                        markBox(prevBox, a);
+                        markBox(box, b);
+                    }
+                    a++;
+                    b++;
+                }
+            }
+            for (int i = 0; i < prevOtherCount; i++) markBox(prevOtherBox, i);
+            for (int i = nb; i < entityCount; i++) markBox(box, i);
+        }
+
+        // el frame actual pasa a ser el anterior
+        if (prevId.length < nb) {
+            int cap = Math.max(nb, prevId.length * 2);
+            prevId = new int[cap]; prevX = new int[cap]; prevY = new int[cap];
+            prevDiameter = new int[cap]; prevRgb = new int[cap];
+            prevSelected = new boolean[cap];
+            prevBox = new int[cap * 4];
+        }
+        for (int i = 0; i < nb; i++) {
+            prevId[i] = frame.getBallId(i);
+            prevX[i] = frame.getBallX(i);
+            prevY[i] = frame.getBallY(i);
+            prevDiameter[i] = frame.getBallDiameter(i);
+            prevRgb[i] = frame.getBallColor(i).getRGB();
+            prevSelected[i] = frame.getBall(i) == selected;
+        }
+        System.arraycopy(box, 0, prevBox, 0, nb * 4);
+        prevCount = nb;
+        int others = entityCount - nb;
+        if (prevOtherBox.length < others * 4) prevOtherBox = new int[Math.max(others * 4, prevOtherBox.length * 2)];
+        System.arraycopy(box, nb * 4, prevOtherBox, 0, others * 4);
+        prevOtherCount = others;
+    }
+
+    /**
+     * Rectángulos sucios (x, y, ancho, alto en px) en {@code out}, uniendo baldosas
+     * contiguas de una fila y filas con el mismo tramo. Devuelve cuántos hay.
+     */
+    int collectRects(int[][] out) {
+        int count = 0;
+        int[] rects = out[0];
+        Arrays.fill(open, -1);
+        for (int ty = 0; ty < tilesY; ty++) {
+            int row = ty * tilesX;
+            int tx = 0;
+            while (tx < tilesX) {
+                if (!dirty[row + tx]) { tx++; continue; }
+                int start = tx;
+                while (tx < tilesX && dirty[row + tx]) tx++;
+                int o = open[start];
+                if (o >= 0 && rects[o * 4 + 2] == tx && rects[o * 4 + 3] == ty) {
+                    rects[o * 4 + 3] = ty + 1;
+                } else {
+                    if (rects.length < (count + 1) * 4) out[0] = rects = Arrays.copyOf(rects, Math.max(64, rects.length * 2));
+                    rects[count * 4] = start;
+                    rects[count * 4 + 1] = ty;
+                    rects[count * 4 + 2] = tx;
+                    rects[count * 4 + 3] = ty + 1;
+                    open[start] = count++;
+                }
+            }
+        }
+        // de baldosas a píxeles
+        for (int i = 0; i < count; i++) {
+            int x0 = rects[i * 4] * TILE, y0 = rects[i * 4 + 1] * TILE;
+            rects[i * 4] = x0;
+            rects[i * 4 + 1] = y0;
+            rects[i * 4 + 2] = Math.min(width, rects[i * 4 + 2] * TILE) - x0;
+            rects[i * 4 + 3] = Math.min(height, rects[i * 4 + 3] * TILE) - y0;
+        }
+        return count;
+    }
+
+    /** Repartir las entidades del frame por baldosa (antes de {@link #collectEntities}). */
+    void bin() {
+        Arrays.fill(binStart, 0);
+        int total = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                // recuento -> inicio de cada baldosa
+                int sum = 0;
+                for (int t = 0; t < binStart.length - 1; t++) {
+                    int c = binStart[t];
+                    binStart[t] = sum;
+                    sum += c;
+                }
+                binStart[binStart.length - 1] = sum;
+                total = sum;
+                if (binItems.length < total) binItems = new int[Math.max(total, binItems.length * 2)];
+            }
+            for (int e = 0; e < entityCount; e++) {
+                int tx0 = clampX(box[e * 4] / TILE), ty0 = clampY(box[e * 4 + 1] / TILE);
+                int tx1 = clampX((box[e * 4 + 2] - 1) / TILE), ty1 = clampY((box[e * 4 + 3] - 1) / TILE);
+                if (box[e * 4 + 2] <= 0 || box[e * 4 + 3] <= 0 || box[e * 4] >= width || box[e * 4 + 1] >= height) continue;
+                for (int ty = ty0; ty <= ty1; ty++) {
+                    for (int tx = tx0; tx <= tx1; tx++) {
+                        int t = ty * tilesX + tx;
+                        if (pass == 0) binStart[t]++;
+                        else binItems[binStart[t]++] = e;
+                    }
+                }
+            }
+        }
+        // el segundo pase ha dejado en binStart el final de cada baldosa: desplazar
+        System.arraycopy(binStart, 0, binStart, 1, binStart.length - 1);
+        binStart[0] = 0;
+    }
+
+    /**
+     * Entidades cuya caja toca el rectángulo (px), sin repetir y en orden de pintado.
+     * Devuelve cuántas ha dejado en {@code out[0]}.
+     */
+    int collectEntities(int x, int y, int w, int h, int[][] out) {
+        if (stamp.length < entityCount) stamp = new int[Math.max(entityCount, stamp.length * 2)];
+        if (++stampValue == 0) {
+            Arrays.fill(stamp, 0);
+            stampValue = 1;
+        }
+        int[] items = out[0];
+        int count = 0;
+        int tx0 = clampX(x / TILE), ty0 = clampY(y / TILE);
+        int tx1 = clampX((x + w - 1) / TILE), ty1 = clampY((y + h - 1) / TILE);
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                int t = ty * tilesX + tx;
+                for (int k = binStart[t]; k < binStart[t + 1]; k++) {
+                    int e = binItems[k];
+                    if (stamp[e] == stampValue) continue;
+                    stamp[e] = stampValue;
+                    if (count == items.length) out[0] = items = Arrays.copyOf(items, Math.max(16, items.length * 2));
+                    items[count++] = e;
+                }
+            }
+        }
+        Arrays.sort(items, 0, count);
+        return count;
+    }
+
+    int getBallCount() { return ballCount; }
+
+    private void setBox(int e, int x0, int y0, int x1, int y1) {
+        box[e * 4] = x0;
+        box[e * 4 + 1] = y0;
+        box[e * 4 + 2] = x1;
+        box[e * 4 + 3] = y1;
+    }
+
+    private void markBox(int[] boxes, int e) {
+        int x0 = boxes[e * 4], y0 = boxes[e * 4 + 1], x1 = boxes[e * 4 + 2], y1 = boxes[e * 4 + 3];
+        if (x1 <= 0 || y1 <= 0 || x0 >= width || y0 >= height) return;
+        int tx0 = clampX(x0 / TILE), ty0 = clampY(y0 / TILE);
+        int tx1 = clampX((x1 - 1) / TILE), ty1 = clampY((y1 - 1) / TILE);
+        for (int ty = ty0; ty <= ty1; ty++) {
+            int row = ty * tilesX;
+            for (int tx = tx0; tx <= tx1; tx++) {
+                if (!dirty[row + tx]) {
+                    dirty[row + tx] = true;
+                    dirtyTiles++;
+                }
+            }
+        }
+    }
+
+    private int clampX(int tx) { return tx < 0 ? 0 : Math.min(tx, tilesX - 1); }
+    private int clampY(int ty) { return ty < 0 ? 0 : Math.min(ty, tilesY - 1); }
+
+    private void ensureEntities(int n) {
+        if (box.length < n * 4) box = new int[Math.max(n * 4, box.length * 2)];
+    }
+}
@@ -0,0 +1,61 @@
+package view;
+
+import model.FrameSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de calor de la rejilla de densidad de un frame ({@link FrameSnapshot#buildDensityGrid}):
+ * cada celda con bolas se rellena de un color según cuántas hay o su velocidad media,
+ * directamente en los píxeles del lienzo. El coste depende de las celdas (como mucho,
+ * del área del lienzo), sea cual sea el número de bolas.
+ */
+final class DensityHeatmap {
+    // paleta opaca de frío a caliente (azul oscuro, morado, naranja, amarillo)
+    private static final int[] PALETTE = buildPalette(new int[] { 0x1a1a5c, 0x7b2a8c, 0xe8602c, 0xfbe94a });
+
+    /**
+     * Pintar la rejilla del frame (debe tenerla) sobre {@code pixels} (w x h, RGB). Las
+     * celdas vacías no se tocan: se sigue viendo lo que hubiera debajo.
+     */
+    void paint(FrameSnapshot frame, boolean velocity, int[] pixels, int w, int h) {
+        int cols = frame.getGridCols(), rows = frame.getGridRows(), cell = frame.getGridCellSize();
+        int cells = cols * rows;
+        // escala: densidad logarítmica (unas pocas celdas muy llenas no apagan el resto)
+        float max = 0f;
+        for (int c = 0; c < cells; c++) max = Math.max(max, value(frame, c, velocity));
+        float scale = max > 0f ? (PALETTE.length - 1) / max : 0f;
+        for (int cy = 0; cy < rows; cy++) {
+            int y0 = cy * cell, y1 = Math.min(h, y0 + cell);
+            if (y0 >= h) break;
+            for (int cx = 0; cx < cols; cx++) {
+                int c = cy * cols + cx;
+                if (frame.getGridCount(c) == 0) continue;
+                int x0 = cx * cell, x1 = Math.min(w, x0 + cell);
+                if (x0 >= w) break;
+                int rgb = PALETTE[(int) (value(frame, c, velocity) * scale)];
+                for (int y = y0; y < y1; y++) Arrays.fill(pixels, y * w + x0, y * w + x1, rgb);
+            }
+        }
+    }
+
+    private static float value(FrameSnapshot frame, int c, boolean velocity) {
+        return velocity ? frame.getGridMeanSpeed(c) : (float) Math.log1p(frame.getGridCount(c));
+    }
+
+    /** 256 colores interpolando linealmente entre las paradas dadas. */
+    private static int[] buildPalette(int[] stops) {
+        int[] palette = new int[256];
+        for (int i = 0; i < palette.length; i++) {
+            float t = i / 255f * (stops.length - 1);
+            int k = Math.min((int) t, stops.length - 2);
+            float f = t - k;
+            int a = stops[k], b = stops[k + 1];
+            int r = Math.round(((a >> 16) & 0xff) * (1 - f) + ((b >> 16) & 0xff) * f);
+            int gr = Math.round(((a >> 8) & 0xff) * (1 - f) + ((b >> 8) & 0xff) * f);
+            int bl = Math.round((a & 0xff) * (1 - f) + (b & 0xff) * f);
+            palette[i] = 0xff000000 | (r << 16) | (gr << 8) | bl;
+        }
+        return palette;
+    }
+}
@@ -0,0 +1,84 @@
+package view;
+
+/**
+ * Calidad visual adaptativa: si pintar un frame se pasa del presupuesto, en vez de perder
+ * frames se baja un nivel (estela más corta, menos partículas, proyectiles sin capas,
+ * sin antialias, sin bolas diminutas); cuando vuelve a sobrar tiempo se sube.
+ *
+ * Histéresis para no oscilar: se baja tras unos pocos frames seguidos por encima del
+ * presupuesto, pero sólo se sube tras muchos por debajo de una fracción de él, y tras
+ * cada cambio se deja asentar la media unos frames antes de volver a decidir.
+ */
+final class QualityGovernor {
+    static final int MAX_LEVEL = 3; // 0 = calidad máxima
+    private static final String[] LABELS = { "Máxima", "Alta", "Media", "Baja" };
+    // fracción de la estela que se pinta, 1 de cada N partículas, capas de cada
+    // proyectil (borde, cuerpo, brillo) y diámetro mínimo para pintar una bola
+    private static final double[] TRAIL_FRACTION = { 1.0, 0.5, 0.25, 0.0 };
+    private static final int[] PARTICLE_STRIDE = { 1, 2, 4, 8 };
+    private static final int[] PROJECTILE_LAYERS = { 3, 2, 1, 1 };
+    private static final int[] MIN_BALL_DIAMETER = { 0, 0, 0, 3 };
+
+    private static final double SMOOTHING = 0.2;
+    private static final int DEGRADE_AFTER = 3;     // frames seguidos por encima del presupuesto
+    private static final int RESTORE_AFTER = 60;    // frames seguidos con holgura
+    private static final double RESTORE_BELOW = 0.6; // holgura = media por debajo de esta fracción
+    private static final int SETTLE_FRAMES = 10;    // tras un cambio, no decidir durante estos frames
+
+    private double averageMs = 0.0;
+    private int over, under, settle;
+    private volatile int level = 0;
+
+    /**
+     * Apuntar lo que ha costado pintar el último frame y ajustar el nivel. Devuelve true
+     * si ha cambiado (lo ya pintado con el nivel anterior queda desfasado).
+     */
+    boolean record(double paintMs, double budgetMs) {
+        averageMs = averageMs == 0.0 ? paintMs : (1 - SMOOTHING) * averageMs + SMOOTHING * paintMs;
+        if (settle > 0) {
+            settle--;
+            return false;
+        }
+        if (averageMs > budgetMs) {
+            under = 0;
+            if (++over >= DEGRADE_AFTER && level < MAX_LEVEL) return change(level + 1);
+        } else if (averageMs < budgetMs * RESTORE_BELOW) {
+            over = 0;
+            if (++under >= RESTORE_AFTER && level > 0) return change(level - 1);
+        } else {
+            // dentro de la banda: ni subir ni bajar
+            over = 0;
+            under = 0;
+        }
+        return false;
+    }
+
+    /** Volver a calidad máxima (ej. al desactivar el ajuste automático). */
+    boolean reset() {
+        averageMs = 0.0;
+        return level != 0 && change(0);
+    }
+
+    private boolean change(int next) {
+        level = next;
+        over = 0;
+        under = 0;
+        settle = SETTLE_FRAMES;
+        return true;
+    }
+
+    int getLevel() { return level; }
+
+    String getLabel() { return LABELS[level]; }
+
+    /** Cuántos puntos de una estela de {@code length} se pintan. */
+    int trailLength(int length) { return (int) (length * TRAIL_FRACTION[level]); }
+
+    boolean drawParticle(int i) { return i % PARTICLE_STRIDE[level] == 0; }
+
+    int projectileLayers() { return PROJECTILE_LAYERS[level]; }
+
+    boolean antialias() { return level == 0; }
+
+    boolean drawBall(int diameter) { return diameter >= MIN_BALL_DIAMETER[level]; }
+}
@@ -0,0 +1,389 @@
+package view;
+
+import model.Ball;
+import model.FrameSnapshot;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Renderizador por software para escenas densas: en vez de una llamada a Java2D por
+ * figura, rasteriza círculos, la nave (triángulo) y las partículas directamente en el
+ * {@code int[]} de un {@link java.awt.image.BufferedImage} TYPE_INT_RGB, que luego se
+ * vuelca a pantalla de una vez.
+ *
+ * El frame se divide en baldosas de {@link #TILE} px. Primero se reparten las figuras
+ * por baldosa (listas CSR, en orden de pintado); después cada baldosa copia su trozo de
+ * la capa estática y pinta sus figuras recortadas a ella, repartidas en el ForkJoinPool
+ * común. Ninguna baldosa escribe fuera de su rectángulo, así que no hay sincronización.
+ *
+ * Sólo se usa desde el EDT; los arrays se reutilizan entre frames.
+ */
+final class RasterRenderer {
+    static final int TILE = 64;
+    // baldosas por tarea hoja del ForkJoinPool
+    private static final int TASK_TILES = 2;
+
+    private static final int KIND_BALL = 0;
+    private static final int KIND_PROJECTILE = 1;
+    private static final int KIND_PARTICLE = 2;
+    private static final int KIND_SHIP = 3;
+
+    private static final int PROJECTILE_BORDER = 0x640000;
+    private static final int PROJECTILE_GLOW = 0xFFC832;
+    private static final int TIP_COLOR = 0xFF6400;
+    private static final int ROOM_FILL = 0xC8C8C8;
+    private static final int ROOM_FILL_ALPHA = 80 * 256 / 255;
+    private static final int ROOM_BORDER = 0x404040;
+    // grosor (mitad) del borde de la nave y del círculo de la punta, como en Viewer
+    private static final double SHIP_HALF_STROKE = 1.5;
+    private static final int TIP_SIZE = 6;
+
+    private int width, height, tilesX, tilesY;
+    private int[] pixels, backgroundPixels;
+    private int roomX, roomY, roomW, roomH;
+    private boolean hasRoom;
+
+    // figuras del frame, en orden de pintado
+    private int count = 0;
+    private byte[] kind = new byte[1024];
+    private int[] ix = new int[1024], iy = new int[1024], size = new int[1024];
+    private int[] rgb = new int[1024], alpha = new int[1024];
+    private double[] fx = new double[1024], fy = new double[1024];
+    private int[] box = new int[1024 * 4];
+
+    // nave de la bola seleccionada (vértices y punta)
+    private final double[] shipX = new double[3], shipY = new double[3];
+    private double tipX, tipY;
+    // capas de los proyectiles en este frame (calidad adaptativa)
+    private int projectileLayers = 3;
+
+    // figuras por baldosa (CSR)
+    private int[] binStart = new int[1], binItems = new int[1024];
+
+    /**
+     * Pintar el frame en {@code pixels} ({@code width} x {@code height}, TYPE_INT_RGB)
+     * sobre la capa estática {@code background} del mismo tamaño. La estela de la bola
+     * seleccionada llega ya copiada (y recortada según {@code quality}) en
+     * {@code trailXs}/{@code trailYs}.
+     */
+    void render(FrameSnapshot frame, Ball selected, double[] trailXs, double[] trailYs, int trailSize,
+                model.Habitacion room, int[] pixels, int[] background, int width, int height,
+                QualityGovernor quality) {
+        this.pixels = pixels;
+        this.backgroundPixels = background;
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            tilesX = Math.max(1, (width + TILE - 1) / TILE);
+            tilesY = Math.max(1, (height + TILE - 1) / TILE);
+            binStart = new int[tilesX * tilesY + 1];
+        }
+        hasRoom = room != null;
+        if (hasRoom) {
+            roomX = room.getX(); roomY = room.getY(); roomW = room.getWidth(); roomH = room.getHeight();
+        }
+
+        projectileLayers = quality.projectileLayers();
+        collect(frame, selected, trailXs, trailYs, trailSize, quality);
+        bin();
+        ForkJoinPool.commonPool().invoke(new TileRange(0, tilesX * tilesY));
+    }
+
+    // ------------------------------------------------------------------ figuras
+
+    private void collect(FrameSnapshot frame, Ball selected, double[] trailXs, double[] trailYs, int trailSize,
+                         QualityGovernor quality) {
+        count = 0;
+        int balls = frame.getBallCount();
+        for (int i = 0; i < balls; i++) {
+            int x = frame.getBallX(i), y = frame.getBallY(i), d = frame.getBallDiameter(i);
+            int color = frame.getBallColor(i).getRGB() & 0xFFFFFF;
+            if (selected != null && frame.getBall(i) == selected) {
+                // estela debajo de la nave: puntos que se desvanecen hacia atrás
+                for (int k = 0; k < trailSize; k++) {
+                    float a = (1.0f - (k / (float) trailSize)) * 0.6f;
+                    int s = Math.max(2, (int) ((1.0f - (k / (float) trailSize)) * 5));
+                    int e = add(KIND_PARTICLE, (int) (trailXs[k] - s / 2), (int) (trailYs[k] - s / 2), s, color);
+                    alpha[e] = Math.round(a * 256);
+                }
+                addShip(x, y, d, frame.getBallAngle(i), color);
+                continue;
+            }
+            if (quality.drawBall(d)) add(KIND_BALL, x, y, d, color);
+        }
+        for (int i = 0; i < frame.getProjectileCount(); i++) {
+            int s = frame.getProjectileSize(i);
+            double px = frame.getProjectileX(i), py = frame.getProjectileY(i);
+            int e = add(KIND_PROJECTILE, (int) (px - s / 2), (int) (py - s / 2), s, frame.getProjectileColor(i).getRGB() & 0xFFFFFF);
+            fx[e] = px;
+            fy[e] = py;
+            setBox(e, ix[e] - 1, iy[e] - 1, ix[e] + s + 1, iy[e] + s + 1);
+        }
+        for (int i = 0; i < frame.getParticleCount(); i++) {
+            if (!quality.drawParticle(i)) continue;
+            int s = frame.getParticleSize(i);
+            int e = add(KIND_PARTICLE, (int) (frame.getParticleX(i) - s / 2), (int) (frame.getParticleY(i) - s / 2), s,
+                frame.getParticleColor(i).getRGB() & 0xFFFFFF);
+            alpha[e] = Math.round(Math.max(0f, Math.min(1f, frame.getParticleAlpha(i))) * 256);
+        }
+    }
+
+    private int add(int k, int x, int y, int s, int color) {
+        if (count == kind.length) grow();
+        int e = count++;
+        kind[e] = (byte) k;
+        ix[e] = x;
+        iy[e] = y;
+        size[e] = s;
+        rgb[e] = color;
+        alpha[e] = 256;
+        setBox(e, x, y, x + s, y + s);
+        return e;
+    }
+
+    /** Misma geometría que {@link Viewer#paintBall} para la bola seleccionada. */
+    private void addShip(int x, int y, int d, double angle, int color) {
+        double radius = d / 2.0;
+        double cx = x + radius, cy = y + radius;
+        double tipLen = radius * 1.4, baseDist = radius * 0.6, baseHalf = radius * 1.1;
+        double ux = Math.cos(angle), uy = Math.sin(angle);
+        double px = -uy, py = ux;
+        shipX[0] = Math.round(cx + ux * tipLen);
+        shipY[0] = Math.round(cy + uy * tipLen);
+        shipX[1] = Math.round(cx - ux * baseDist + px * baseHalf);
+        shipY[1] = Math.round(cy - uy * baseDist + py * baseHalf);
+        shipX[2] = Math.round(cx - ux * baseDist - px * baseHalf);
+        shipY[2] = Math.round(cy - uy * baseDist - py * baseHalf);
+        tipX = shipX[0];
+        tipY = shipY[0];
+        int e = add(KIND_SHIP, x, y, d, color);
+        int reach = (int) Math.ceil(tipLen + TIP_SIZE / 2.0 + 2);
+        setBox(e, (int) cx - reach, (int) cy - reach, (int) cx + reach + 1, (int) cy + reach + 1);
+    }
+
+    private void setBox(int e, int x0, int y0, int x1, int y1) {
+        box[e * 4] = x0;
+        box[e * 4 + 1] = y0;
+        box[e * 4 + 2] = x1;
+        box[e * 4 + 3] = y1;
+    }
+
+    private void grow() {
+        int cap = kind.length * 2;
+        kind = Arrays.copyOf(kind, cap);
+        ix = Arrays.copyOf(ix, cap);
+        iy = Arrays.copyOf(iy, cap);
+        size = Arrays.copyOf(size, cap);
+        rgb = Arrays.copyOf(rgb, cap);
+        alpha = Arrays.copyOf(alpha, cap);
+        fx = Arrays.copyOf(fx, cap);
+        fy = Arrays.copyOf(fy, cap);
+        box = Arrays.copyOf(box, cap * 4);
+    }
+
+    /** Repartir las figuras por baldosa; dentro de cada una quedan en orden de pintado. */
+    private void bin() {
+        Arrays.fill(binStart, 0);
+        int tiles = tilesX * tilesY;
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                int sum = 0;
+                for (int t = 0; t < tiles; t++) {
+                    int c = binStart[t];
+                    binStart[t] = sum;
+                    sum += c;
+                }
+                binStart[tiles] = sum;
+                if (binItems.length < sum) binItems = new int[Math.max(sum, binItems.length * 2)];
+            }
+            for (int e = 0; e < count; e++) {
+                int x0 = box[e * 4], y0 = box[e * 4 + 1], x1 = box[e * 4 + 2], y1 = box[e * 4 + 3];
+                if (x1 <= 0 || y1 <= 0 || x0 >= width || y0 >= height) continue;
+                int tx0 = Math.max(0, x0) / TILE, ty0 = Math.max(0, y0) / TILE;
+                int tx1 = Math.min(width - 1, x1 - 1) / TILE, ty1 = Math.min(height - 1, y1 - 1) / TILE;
+                for (int ty = ty0; ty <= ty1; ty++) {
+                    for (int tx = tx0; tx <= tx1; tx++) {
+                        int t = ty * tilesX + tx;
+                        if (pass == 0) binStart[t]++;
+                        else binItems[binStart[t]++] = e;
+                    }
+                }
+            }
+        }
+        // el segundo pase deja en binStart el final de cada baldosa
+        System.arraycopy(binStart, 0, binStart, 1, tiles);
+        binStart[0] = 0;
+    }
+
+    // ------------------------------------------------------------------ baldosas
+
+    @SuppressWarnings("serial")
+    private final class TileRange extends RecursiveAction {
+        private final int from, to;
+
+        TileRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_TILES) {
+                for (int t = from; t < to; t++) renderTile(t);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileRange(from, mid), new TileRange(mid, to));
+        }
+    }
+
+    private void renderTile(int t) {
+        int tx = t % tilesX, ty = t / tilesX;
+        int x0 = tx * TILE, y0 = ty * TILE;
+        int x1 = Math.min(width, x0 + TILE), y1 = Math.min(height, y0 + TILE);
+        for (int y = y0; y < y1; y++) {
+            System.arraycopy(backgroundPixels, y * width + x0, pixels, y * width + x0, x1 - x0);
+        }
+        for (int k = binStart[t]; k < binStart[t + 1]; k++) {
+            int e = binItems[k];
+            switch (kind[e]) {
+                case KIND_BALL:
+                    fillCircle(ix[e], iy[e], size[e], rgb[e], 256, x0, y0, x1, y1);
+                    break;
+                case KIND_PARTICLE:
+                    fillCircle(ix[e], iy[e], size[e], rgb[e], alpha[e], x0, y0, x1, y1);
+                    break;
+                case KIND_PROJECTILE: {
+                    int s = size[e];
+                    // borde oscuro, color del proyectil y brillo en el centro
+                    if (projectileLayers >= 2) fillCircle(ix[e] - 1, iy[e] - 1, s + 2, PROJECTILE_BORDER, 256, x0, y0, x1, y1);
+                    fillCircle(ix[e], iy[e], s, rgb[e], 256, x0, y0, x1, y1);
+                    if (projectileLayers >= 3) {
+                        fillCircle((int) (fx[e] - s / 4), (int) (fy[e] - s / 4), s / 2, PROJECTILE_GLOW, 256, x0, y0, x1, y1);
+                    }
+                    break;
+                }
+                default:
+                    fillShip(rgb[e], x0, y0, x1, y1);
+            }
+        }
+        if (hasRoom) paintRoom(x0, y0, x1, y1);
+    }
+
+    /**
+     * Círculo inscrito en el cuadrado (x, y, d), recortado a [cx0, cx1) x [cy0, cy1).
+     * Un píxel se pinta si su centro cae dentro; {@code a} en 0..256 (256 = opaco).
+     */
+    private void fillCircle(int x, int y, int d, int color, int a, int cx0, int cy0, int cx1, int cy1) {
+        if (d <= 0 || a <= 0) return;
+        int ya = Math.max(y, cy0), yb = Math.min(y + d, cy1);
+        if (ya >= yb || x >= cx1 || x + d <= cx0) return;
+        int[] px = pixels;
+        int w = width;
+        if (d <= 2) {
+            int xa = Math.max(x, cx0), xb = Math.min(x + d, cx1);
+            for (int yy = ya; yy < yb; yy++) span(px, yy * w, xa, xb, color, a);
+            return;
+        }
+        double r = d / 2.0, cx = x + r, cy = y + r, r2 = r * r;
+        for (int yy = ya; yy < yb; yy++) {
+            double dy = yy + 0.5 - cy;
+            double h2 = r2 - dy * dy;
+            if (h2 < 0) continue;
+            double half = Math.sqrt(h2);
+            int xa = Math.max(cx0, (int) Math.ceil(cx - half - 0.5));
+            int xb = Math.min(cx1, (int) Math.floor(cx + half - 0.5) + 1);
+            if (xa < xb) span(px, yy * w, xa, xb, color, a);
+        }
+    }
+
+    private static void span(int[] px, int row, int xa, int xb, int color, int a) {
+        if (a >= 256) {
+            Arrays.fill(px, row + xa, row + xb, color);
+            return;
+        }
+        int sr = (color >> 16) & 0xFF, sg = (color >> 8) & 0xFF, sb = color & 0xFF;
+        int inv = 256 - a;
+        for (int i = row + xa; i < row + xb; i++) {
+            int dst = px[i];
+            int r = (sr * a + ((dst >> 16) & 0xFF) * inv) >> 8;
+            int g = (sg * a + ((dst >> 8) & 0xFF) * inv) >> 8;
+            int b = (sb * a + (dst & 0xFF) * inv) >> 8;
+            px[i] = (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /** Nave: relleno del color de la bola con borde negro de 3 px y la punta marcada. */
+    private void fillShip(int color, int cx0, int cy0, int cx1, int cy1) {
+        double minX = Math.min(shipX[0], Math.min(shipX[1], shipX[2])) - 2;
+        double maxX = Math.max(shipX[0], Math.max(shipX[1], shipX[2])) + 2;
+        double minY = Math.min(shipY[0], Math.min(shipY[1], shipY[2])) - 2;
+        double maxY = Math.max(shipY[0], Math.max(shipY[1], shipY[2])) + 2;
+        int xa = Math.max(cx0, (int) Math.floor(minX)), xb = Math.min(cx1, (int) Math.ceil(maxX) + 1);
+        int ya = Math.max(cy0, (int) Math.floor(minY)), yb = Math.min(cy1, (int) Math.ceil(maxY) + 1);
+        // orientación del triángulo, para que "dentro" sea el mismo signo en las tres aristas
+        double area = (shipX[1] - shipX[0]) * (shipY[2] - shipY[0]) - (shipY[1] - shipY[0]) * (shipX[2] - shipX[0]);
+        double sign = area < 0 ? -1 : 1;
+        for (int y = ya; y < yb; y++) {
+            double py = y + 0.5;
+            int row = y * width;
+            for (int x = xa; x < xb; x++) {
+                double px = x + 0.5;
+                boolean inside = true;
+                double edge = Double.MAX_VALUE;
+                for (int i = 0; i < 3; i++) {
+                    int j = (i + 1) % 3;
+                    double ex = shipX[j] - shipX[i], ey = shipY[j] - shipY[i];
+                    double cross = (ex * (py - shipY[i]) - ey * (px - shipX[i])) * sign;
+                    if (cross < 0) inside = false;
+                    edge = Math.min(edge, segmentDistance(px, py, shipX[i], shipY[i], ex, ey));
+                }
+                if (edge <= SHIP_HALF_STROKE) pixels[row + x] = 0;
+                else if (inside) pixels[row + x] = color;
+            }
+        }
+        // círculo de la punta: naranja con borde negro de 2 px
+        double tr = TIP_SIZE / 2.0;
+        int txa = Math.max(cx0, (int) Math.floor(tipX - tr - 1)), txb = Math.min(cx1, (int) Math.ceil(tipX + tr + 1) + 1);
+        int tya = Math.max(cy0, (int) Math.floor(tipY - tr - 1)), tyb = Math.min(cy1, (int) Math.ceil(tipY + tr + 1) + 1);
+        for (int y = tya; y < tyb; y++) {
+            for (int x = txa; x < txb; x++) {
+                double dx = x + 0.5 - tipX, dy = y + 0.5 - tipY;
+                double dist = Math.sqrt(dx * dx + dy * dy);
+                if (Math.abs(dist - tr) <= 1.0) pixels[y * width + x] = 0;
+                else if (dist < tr) pixels[y * width + x] = TIP_COLOR;
+            }
+        }
+    }
+
+    private static double segmentDistance(double px, double py, double ax, double ay, double ex, double ey) {
+        double len2 = ex * ex + ey * ey;
+        double t = len2 > 0 ? ((px - ax) * ex + (py - ay) * ey) / len2 : 0;
+        t = Math.max(0, Math.min(1, t));
+        double dx = px - (ax + t * ex), dy = py - (ay + t * ey);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /** Habitación encima de todo: relleno semitransparente y borde de 2 px. */
+    private void paintRoom(int cx0, int cy0, int cx1, int cy1) {
+        int xa = Math.max(cx0, roomX), xb = Math.min(cx1, roomX + roomW);
+        int ya = Math.max(cy0, roomY), yb = Math.min(cy1, roomY + roomH);
+        if (xa < xb) {
+            for (int y = ya; y < yb; y++) span(pixels, y * width, xa, xb, ROOM_FILL, ROOM_FILL_ALPHA);
+        }
+        // borde centrado en el contorno, como drawRect con trazo de 2
+        fillRect(roomX - 1, roomY - 1, roomW + 2, 2, cx0, cy0, cx1, cy1);
+        fillRect(roomX - 1, roomY + roomH - 1, roomW + 2, 2, cx0, cy0, cx1, cy1);
+        fillRect(roomX - 1, roomY - 1, 2, roomH + 2, cx0, cy0, cx1, cy1);
+        fillRect(roomX + roomW - 1, roomY - 1, 2, roomH + 2, cx0, cy0, cx1, cy1);
+    }
+
+    private void fillRect(int x, int y, int w, int h, int cx0, int cy0, int cx1, int cy1) {
+        int xa = Math.max(cx0, x), xb = Math.min(cx1, x + w);
+        int ya = Math.max(cy0, y), yb = Math.min(cy1, y + h);
+        if (xa >= xb) return;
+        for (int yy = ya; yy < yb; yy++) Arrays.fill(pixels, yy * width + xa, yy * width + xb, ROOM_BORDER);
+    }
+}
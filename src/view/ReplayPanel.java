@@ -0,0 +1,73 @@
+package view;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Controles de reproducción de una sesión grabada: play/pausa, línea de tiempo
+ * (en ticks), velocidad y cierre. Sólo visible mientras hay una grabación abierta.
+ * Al rebobinar la simulación se usa el mismo panel con el botón de reanudar.
+ */
+@SuppressWarnings("serial")
+public class ReplayPanel extends JPanel {
+    private static final String[] SPEEDS = { "0.25x", "0.5x", "1x", "2x", "4x", "8x", "16x" };
+
+    private final JButton PLAY_BUTTON;
+    private final JSlider TIMELINE;
+    private final JComboBox<String> SPEED_BOX;
+    private final JLabel TICK_LABEL;
+    private final JButton CLOSE_BUTTON;
+    private final JButton RESUME_BUTTON;
+
+    public ReplayPanel() {
+        setLayout(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(4,6,4,6);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        PLAY_BUTTON = new JButton("Pausa");
+        gbc.gridx = 0; gbc.gridy = 0;
+        add(PLAY_BUTTON, gbc);
+
+        TIMELINE = new JSlider(0, 1, 0);
+        gbc.gridx = 1; gbc.weightx = 1.0;
+        add(TIMELINE, gbc);
+
+        TICK_LABEL = new JLabel("Tick: --");
+        gbc.gridx = 2; gbc.weightx = 0;
+        add(TICK_LABEL, gbc);
+
+        SPEED_BOX = new JComboBox<>(SPEEDS);
+        SPEED_BOX.setSelectedItem("1x");
+        gbc.gridx = 3;
+        add(SPEED_BOX, gbc);
+
+        RESUME_BUTTON = new JButton("Reanudar aquí");
+        RESUME_BUTTON.setVisible(false);
+        gbc.gridx = 4;
+        add(RESUME_BUTTON, gbc);
+
+        CLOSE_BUTTON = new JButton("Cerrar grabación");
+        gbc.gridx = 5;
+        add(CLOSE_BUTTON, gbc);
+    }
+
+    /** Modo rebobinado: se puede reanudar la simulación desde el tick mostrado. */
+    public void setRewindMode(boolean rewind) {
+        RESUME_BUTTON.setVisible(rewind);
+        CLOSE_BUTTON.setText(rewind ? "Volver al presente" : "Cerrar grabación");
+    }
+
+    public JButton getPlayButton() { return PLAY_BUTTON; }
+    public JSlider getTimeline() { return TIMELINE; }
+    public JButton getCloseButton() { return CLOSE_BUTTON; }
+    public JButton getResumeButton() { return RESUME_BUTTON; }
+    public JComboBox<String> getSpeedBox() { return SPEED_BOX; }
+    public void setTickLabel(String s) { TICK_LABEL.setText(s); }
+
+    /** Velocidad seleccionada como factor (ej. "0.25x" -> 0.25). */
+    public double getSelectedSpeed() {
+        String s = (String) SPEED_BOX.getSelectedItem();
+        return s == null ? 1.0 : Double.parseDouble(s.substring(0, s.length() - 1));
+    }
+}
@@ -12,11 +12,13 @@ public class View extends JFrame {
     private final Controller controller;
     private final ControlPanel controlPanel;
     private final Viewer viewer;
+    private final ReplayPanel replayPanel;
 
     public View(Controller controller) {
         this.controller = controller;
         this.controlPanel = new ControlPanel();
         this.viewer = new Viewer(this);
+        this.replayPanel = new ReplayPanel();
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(800,600);
@@ -42,6 +44,15 @@ public class View extends JFrame {
         gbc.weighty = 1.0;
         content.add(viewer, gbc);
 
+        // --- Controles de reproducción (abajo, ocultos hasta abrir una grabación) ---
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.gridwidth = 2;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weighty = 0;
+        replayPanel.setVisible(false);
+        content.add(replayPanel, gbc);
+
         add(content);
         setLocationRelativeTo(null);
         setVisible(true);
@@ -62,4 +73,10 @@ public class View extends JFrame {
     }
     public ControlPanel getControlPanel() { return controlPanel; }
     public Viewer getViewer() { return viewer; }
+    public ReplayPanel getReplayPanel() { return replayPanel; }
+
+    public void showReplayPanel(boolean visible) {
+        replayPanel.setVisible(visible);
+        revalidate();
+    }
 }
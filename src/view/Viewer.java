@@ -1,28 +1,99 @@
 package view;
 
 import model.Ball;
+import model.FrameSnapshot;
+import controller.InputQueue;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
 public class Viewer extends JPanel implements Runnable {
     private Thread thread;
     private final View view;
-    private Ball selectedBall;
+    private volatile Ball selectedBall;
     private volatile boolean running = false;
     private volatile double fps = 0.0;
     private volatile double lastPaintMs = 0.0;
-    private volatile boolean rotatingLeft = false;
-    private volatile boolean rotatingRight = false;
-    private volatile boolean thrusting = false;
-    private volatile boolean braking = false;
-    // rotation speed in radians per second (adjustable)
-    private static final double ROTATION_RAD_PER_SEC = Math.toRadians(180); // 180°/s
-    // thrust magnitude in px/ms per frame (~60fps) - ajusta según necesites
-    private static final double THRUST_MAGNITUDE = 0.008; // aceleración por frame
-    private static final double BRAKE_FACTOR = 0.95; // factor de frenado
+    private long lastPaintEnd = System.nanoTime(); // sólo se usa en el EDT
+    private static final double FPS_SMOOTHING = 0.1;
+    private volatile boolean repaintPending = false;
+
+    // Recursos de pintado reutilizados: el frame en régimen estacionario no asigna objetos
+    private static final Color ROOM_FILL = new Color(200, 200, 200, 80);
+    private static final Color TIP_COLOR = new Color(255, 100, 0); // Naranja brillante
+    private static final Color PROJECTILE_BORDER = new Color(100, 0, 0);
+    private static final Color PROJECTILE_GLOW = new Color(255, 200, 50);
+    private static final BasicStroke ROOM_STROKE = new BasicStroke(2);
+    private static final BasicStroke SHIP_STROKE = new BasicStroke(3f);
+    private static final BasicStroke TIP_STROKE = new BasicStroke(2f);
+    private static final Color ATTRACTOR_COLOR = new Color(40, 120, 220, 90);
+    private static final Color REPULSOR_COLOR = new Color(220, 60, 40, 90);
+    private static final Color WIND_COLOR = new Color(60, 180, 90, 50);
+    private static final Color OBSTACLE_FILL = new Color(90, 90, 110);
+    private static final Color OBSTACLE_BORDER = new Color(40, 40, 50);
+    // niveles de transparencia precalculados (estela y explosiones)
+    private static final int ALPHA_LEVELS = 32;
+    private static final AlphaComposite[] ALPHA_COMPOSITES = new AlphaComposite[ALPHA_LEVELS + 1];
+    static {
+        for (int i = 0; i <= ALPHA_LEVELS; i++) {
+            ALPHA_COMPOSITES[i] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, i / (float) ALPHA_LEVELS);
+        }
+    }
+    private final Polygon shipPolygon = new Polygon(new int[3], new int[3], 3);
+    private final double[] trailXs = new double[Ball.getMaxTrailLength()];
+    private final double[] trailYs = new double[Ball.getMaxTrailLength()];
+    private final Runnable repaintTask = this::repaint;
+    // formas awt de los obstáculos, reconstruidas sólo cuando cambia el nivel (sólo EDT)
+    private model.ObstacleBVH cachedObstacles;
+    private Shape[] obstacleShapes = new Shape[0];
+
+    // Repintado incremental (sólo EDT): el frame se pinta en un lienzo persistente y sólo
+    // se rehacen las zonas que han cambiado, sobre una capa estática cacheada
+    private static final double DEFAULT_DIRTY_AREA_THRESHOLD = 0.4;
+    private volatile double dirtyAreaThreshold = DEFAULT_DIRTY_AREA_THRESHOLD;
+    private volatile double lastDirtyFraction = 1.0;
+    private final DamageTracker damage = new DamageTracker();
+    private BufferedImage canvas, background;
+    private boolean backgroundValid = false;
+    private model.ForceField.Source[] backgroundSources;
+    private model.ObstacleBVH backgroundObstacles;
+    private final Rectangle backgroundRoom = new Rectangle();
+    private final int[] selectedReach = new int[4];
+    private int trailSize = 0;
+    private final int[][] rectBuffer = { new int[256] };
+    private final int[][] entityBuffer = { new int[1024] };
+    // renderizador por software para escenas densas (alternativa a Java2D)
+    private volatile boolean rasterRendering = false;
+    private final RasterRenderer raster = new RasterRenderer();
+    private int[] canvasPixels, backgroundPixels;
+    // nivel de detalle: con demasiadas bolas, mapa de calor de la rejilla de densidad
+    private static final int DEFAULT_LOD_THRESHOLD = 50_000;
+    private static final int NEIGHBOURHOOD_PX = 48; // alrededor de la seleccionada se pintan bolas
+    private volatile LodMode lodMode = LodMode.AUTO;
+    private volatile int lodThreshold = DEFAULT_LOD_THRESHOLD;
+    private final DensityHeatmap heatmap = new DensityHeatmap();
+    // calidad adaptativa: se rebaja lo accesorio si el pintado se pasa del presupuesto
+    private static final double DEFAULT_FRAME_BUDGET_MS = 1000.0 / 60;
+    private volatile boolean adaptiveQuality = true;
+    private volatile double frameBudgetMs = DEFAULT_FRAME_BUDGET_MS;
+    private final QualityGovernor quality = new QualityGovernor();
+
+    /** Cómo se pintan las bolas: una a una, como mapa de calor, o según cuántas haya. */
+    public enum LodMode {
+        AUTO("Auto"), BALLS("Bolas"), DENSITY("Densidad"), VELOCITY("Velocidad");
+
+        private final String label;
+
+        LodMode(String label) { this.label = label; }
+
+        public String getLabel() { return label; }
+    }
 
     public Viewer(View view) {
         this.view = view;
@@ -39,6 +110,14 @@ public class Viewer extends JPanel implements Runnable {
             @Override
             public void mouseClicked(MouseEvent e) {
                 Point p = e.getPoint();
+                // botón derecho: editar el campo de fuerzas (Shift = repulsor, Ctrl = borrar)
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    if (e.isControlDown()) view.getController().removeForceSourceAt(p);
+                    else if (e.isShiftDown()) view.getController().addRepulsorAt(p);
+                    else view.getController().addAttractorAt(p);
+                    repaint();
+                    return;
+                }
                 Ball found = view.getController().findBallAt(p);
                 selectedBall = found;
                 // repaint to show selection
@@ -51,39 +130,37 @@ public class Viewer extends JPanel implements Runnable {
         // Key bindings for WASD to control the selected ball (Asteroids style)
         InputMap im = getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
         ActionMap am = getActionMap();
+        // Las teclas se convierten en comandos con marca de tiempo que la simulación
+        // integra en cada tick (ver controller.InputQueue)
         // rotate left (A) - pressed / released for smooth continuous rotation
-        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_A, 0, false), "rotateLeftPressed");
-        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_A, 0, true), "rotateLeftReleased");
-        am.put("rotateLeftPressed", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { rotatingLeft = true; } });
-        am.put("rotateLeftReleased", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { rotatingLeft = false; } });
+        bindHeld(im, am, KeyEvent.VK_A, "rotateLeft", InputQueue.Control.ROTATE_LEFT);
         // rotate right (D)
-        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_D, 0, false), "rotateRightPressed");
-        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_D, 0, true), "rotateRightReleased");
-        am.put("rotateRightPressed", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { rotatingRight = true; } });
-        am.put("rotateRightReleased", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { rotatingRight = false; } });
+        bindHeld(im, am, KeyEvent.VK_D, "rotateRight", InputQueue.Control.ROTATE_RIGHT);
         // thrust (W) -> apply thrust in direction of orientation (Asteroids style)
-        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_W, 0, false), "thrustPressed");
-        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_W, 0, true), "thrustReleased");
-        am.put("thrustPressed", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { thrusting = true; } });
-        am.put("thrustReleased", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { thrusting = false; } });
+        bindHeld(im, am, KeyEvent.VK_W, "thrust", InputQueue.Control.THRUST);
         // brake (S) -> reduce speed (friction)
-        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_S, 0, false), "brakePressed");
-        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_S, 0, true), "brakeReleased");
-        am.put("brakePressed", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { braking = true; } });
-        am.put("brakeReleased", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { braking = false; } });
+        bindHeld(im, am, KeyEvent.VK_S, "brake", InputQueue.Control.BRAKE);
         // fire (SPACE) -> disparar proyectil
         im.put(KeyStroke.getKeyStroke(KeyEvent.VK_SPACE, 0, false), "fire");
         am.put("fire", new AbstractAction() { 
             @Override 
             public void actionPerformed(java.awt.event.ActionEvent e) { 
-                if (selectedBall != null && view.getController() != null) {
-                    view.getController().fireBullet(selectedBall);
+                InputQueue input = inputQueue();
+                if (selectedBall != null && input != null) {
+                    input.press(InputQueue.Control.FIRE);
                 }
             } 
         });
     // Deselect on Escape
     im.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0, false), "deselect");
     am.put("deselect", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) { selectedBall = null; Viewer.this.repaint(); } });
+        // rebobinar los últimos segundos (R): abre el historial en el panel de reproducción
+        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_R, 0, false), "rewind");
+        am.put("rewind", new AbstractAction() {
+            @Override public void actionPerformed(java.awt.event.ActionEvent e) {
+                view.getController().openRewind();
+            }
+        });
         // Navigate selection with arrow keys: right = next, left = previous
         im.put(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, 0, false), "selectNext");
         am.put("selectNext", new AbstractAction() {
@@ -105,98 +182,274 @@ public class Viewer extends JPanel implements Runnable {
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
         long paintStart = System.nanoTime();
+        repaintPending = false;
 
         // Verificar que el controller esté disponible
-        if (view.getController() == null) {
+        if (view.getController() == null || getWidth() <= 0 || getHeight() <= 0) {
+            super.paintComponent(g);
             return;
         }
 
-        // Dibujar todas las bolas (snapshot)
-        List<Ball> balls = view.getController().getAllBalls();
-        if (balls != null) {
-            for (Ball ball : balls) {
-                if (ball == null) continue; // Saltar bolas nulas
-                // dibujar estela primero (debajo de la bola)
-                if (ball == selectedBall) {
-                    paintTrail(ball, g2);
-                }
-                paintBall(ball, g2);
-            }
+        // Pintar el último frame publicado por la simulación, sin tocar el monitor del modelo
+        FrameSnapshot frame = view.getController().getFrameExchange().acquireLatest();
+        ensureLayers();
+
+        Ball selected = selectedBall;
+        int[] reach = prepareSelected(frame, selected);
+        double fraction = 1.0;
+        LodMode mode = lodMode;
+        if (mode != LodMode.BALLS && frame.hasDensityGrid()) {
+            // la simulación sólo agrupa las bolas cuando este modo lo necesita
+            paintHeatmap(frame, selected, mode == LodMode.VELOCITY);
+            damage.markAll();
+        } else if (rasterRendering) {
+            // todo el frame por software en el int[] del lienzo, en paralelo por baldosas
+            if (canvasPixels == null) bindPixels();
+            raster.render(frame, selected, trailXs, trailYs, trailSize, view.getController().getHabitacion(),
+                canvasPixels, backgroundPixels, canvas.getWidth(), canvas.getHeight(), quality);
+            // al volver a Java2D no hay frame anterior con el que comparar
+            damage.markAll();
+        } else {
+            paintDamaged(frame, selected, reach);
+            fraction = damage.dirtyFraction();
+            damage.clear();
         }
-        
-        // Dibujar proyectiles
-        List<model.Projectile> projectiles = view.getController().getAllProjectiles();
-        if (projectiles != null) {
-            for (model.Projectile proj : projectiles) {
-                if (proj != null && proj.isActive()) {
-                    paintProjectile(proj, g2);
+        g.drawImage(canvas, 0, 0, null);
+
+        long paintEnd = System.nanoTime();
+        lastPaintMs = (paintEnd - paintStart) / 1_000_000.0;
+        lastDirtyFraction = fraction;
+        // con otro nivel de calidad, lo que quedó en el lienzo ya no vale
+        if (adaptiveQuality && quality.record(lastPaintMs, frameBudgetMs)) damage.markAll();
+        // FPS = frames realmente pintados
+        double instantaneousFps = 1_000_000_000.0 / Math.max(1, (paintEnd - lastPaintEnd));
+        fps = (1 - FPS_SMOOTHING) * fps + FPS_SMOOTHING * instantaneousFps;
+        lastPaintEnd = paintEnd;
+    }
+
+    /** Repintado con Java2D de lo que ha cambiado desde el frame anterior (o de todo). */
+    private void paintDamaged(FrameSnapshot frame, Ball selected, int[] reach) {
+        damage.update(frame, selected, reach);
+        double fraction = damage.dirtyFraction();
+
+        Graphics2D cg = canvas.createGraphics();
+        try {
+            if (damage.isAllDirty() || fraction > dirtyAreaThreshold) {
+                // demasiado sucio: sale más barato repintarlo todo
+                cg.drawImage(background, 0, 0, null);
+                resetState(cg);
+                int entities = frame.getBallCount() + frame.getProjectileCount() + frame.getParticleCount();
+                for (int e = 0; e < entities; e++) paintEntity(frame, e, selected, cg);
+                paintRoom(cg);
+            } else if (fraction > 0) {
+                // restaurar el fondo sólo en las zonas sucias y repintar lo que las toca
+                damage.bin();
+                int rectCount = damage.collectRects(rectBuffer);
+                int[] rects = rectBuffer[0];
+                for (int r = 0; r < rectCount; r++) {
+                    int x = rects[r * 4], y = rects[r * 4 + 1], w = rects[r * 4 + 2], h = rects[r * 4 + 3];
+                    cg.setClip(x, y, w, h);
+                    cg.drawImage(background, x, y, x + w, y + h, x, y, x + w, y + h, null);
+                    resetState(cg);
+                    int n = damage.collectEntities(x, y, w, h, entityBuffer);
+                    int[] entities = entityBuffer[0];
+                    for (int k = 0; k < n; k++) paintEntity(frame, entities[k], selected, cg);
+                    paintRoom(cg);
                 }
             }
+        } finally {
+            cg.dispose();
         }
-        
-        // Dibujar explosiones
-        List<model.Explosion> explosions = view.getController().getAllExplosions();
-        if (explosions != null) {
-            for (model.Explosion exp : explosions) {
-                if (exp != null && !exp.isFinished()) {
-                    paintExplosion(exp, g2);
+    }
+
+    /**
+     * Mapa de calor en vez de bolas: coste O(celdas). La seleccionada y sus vecinas se
+     * siguen pintando una a una, buscándolas en las celdas de alrededor.
+     */
+    private void paintHeatmap(FrameSnapshot frame, Ball selected, boolean velocity) {
+        int w = canvas.getWidth(), h = canvas.getHeight();
+        if (canvasPixels == null) bindPixels();
+        System.arraycopy(backgroundPixels, 0, canvasPixels, 0, w * h);
+        heatmap.paint(frame, velocity, canvasPixels, w, h);
+        Graphics2D cg = canvas.createGraphics();
+        try {
+            resetState(cg);
+            int s = selected != null ? frame.indexOfBallId(selected.getId()) : -1;
+            if (s >= 0 && frame.getBall(s) == selected) {
+                int cell = frame.getGridCellSize(), cols = frame.getGridCols(), rows = frame.getGridRows();
+                int reach = (NEIGHBOURHOOD_PX + cell - 1) / cell;
+                int r = frame.getBallDiameter(s) / 2;
+                int cx = (frame.getBallX(s) + r) / cell, cy = (frame.getBallY(s) + r) / cell;
+                for (int y = Math.max(0, cy - reach); y <= Math.min(rows - 1, cy + reach); y++) {
+                    for (int x = Math.max(0, cx - reach); x <= Math.min(cols - 1, cx + reach); x++) {
+                        int c = y * cols + x;
+                        for (int k = frame.getGridStart(c); k < frame.getGridStart(c + 1); k++) {
+                            int i = frame.getGridItem(k);
+                            if (i != s) paintBall(frame, i, cg);
+                        }
+                    }
                 }
+                // la nave encima de sus vecinas
+                paintTrail(frame.getBallColor(s), cg);
+                paintBall(frame, s, cg);
             }
+            int balls = frame.getBallCount();
+            int others = frame.getProjectileCount() + frame.getParticleCount();
+            for (int e = 0; e < others; e++) paintEntity(frame, balls + e, selected, cg);
+            paintRoom(cg);
+        } finally {
+            cg.dispose();
         }
-        
-        // Dibujar la habitación (si existe)
+    }
+
+    /** Acceso directo a los píxeles del lienzo y de la capa estática (software). */
+    private void bindPixels() {
+        canvasPixels = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+        backgroundPixels = ((DataBufferInt) background.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Lienzo persistente y capa estática (fondo, fuentes del campo y obstáculos) del
+     * tamaño del panel. Si cambia el tamaño o algo de la capa estática, todo queda sucio.
+     */
+    private void ensureLayers() {
+        int w = getWidth(), h = getHeight();
+        if (canvas == null || canvas.getWidth() != w || canvas.getHeight() != h) {
+            // TYPE_INT_RGB: el renderizador por software escribe directamente en sus píxeles
+            canvas = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            background = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            canvasPixels = null;
+            backgroundPixels = null;
+            damage.reset(w, h);
+            backgroundValid = false;
+        }
+        model.ForceField field = view.getController().getForceField();
+        model.ForceField.Source[] sources = field != null ? field.getSources() : null;
+        model.ObstacleBVH obstacles = view.getController().getObstacles();
         model.Habitacion hab = view.getController().getHabitacion();
-        if (hab != null) {
-            java.awt.Rectangle area = hab.getArea();
-            // relleno semitransparente
-            Color fill = new Color(200, 200, 200, 80);
-            g2.setColor(fill);
-            g2.fillRect(area.x, area.y, area.width, area.height);
-            // borde
-            g2.setColor(Color.DARK_GRAY);
-            g2.setStroke(new BasicStroke(2));
-            g2.drawRect(area.x, area.y, area.width, area.height);
+        boolean roomChanged = hab != null
+            ? backgroundRoom.x != hab.getX() || backgroundRoom.y != hab.getY()
+                || backgroundRoom.width != hab.getWidth() || backgroundRoom.height != hab.getHeight()
+            : !backgroundRoom.isEmpty();
+        if (backgroundValid && sources == backgroundSources && obstacles == backgroundObstacles && !roomChanged) return;
+
+        Graphics2D bg = background.createGraphics();
+        try {
+            bg.setColor(getBackground());
+            bg.fillRect(0, 0, w, h);
+            // Fuentes del campo de fuerzas, debajo de todo lo demás
+            paintForceSources(field, bg);
+            paintObstacles(obstacles, bg);
+        } finally {
+            bg.dispose();
         }
-        long paintEnd = System.nanoTime();
-        lastPaintMs = (paintEnd - paintStart) / 1_000_000.0;
+        backgroundSources = sources;
+        backgroundObstacles = obstacles;
+        if (hab != null) backgroundRoom.setBounds(hab.getX(), hab.getY(), hab.getWidth(), hab.getHeight());
+        else backgroundRoom.setBounds(0, 0, 0, 0);
+        backgroundValid = true;
+        damage.markAll();
+    }
+
+    /**
+     * Copiar la estela de la bola seleccionada y devolver la caja que ocupan la nave y
+     * la estela (null si no está en el frame).
+     */
+    private int[] prepareSelected(FrameSnapshot frame, Ball selected) {
+        trailSize = 0;
+        if (selected == null) return null;
+        int i = frame.indexOfBallId(selected.getId());
+        if (i >= 0 && frame.getBall(i) == selected) {
+            double radius = frame.getBallDiameter(i) / 2.0;
+            double cx = frame.getBallX(i) + radius, cy = frame.getBallY(i) + radius;
+            // punta de la nave (1.4 r), círculo de la punta y grosor del borde
+            int reachPx = (int) Math.ceil(radius * 1.5) + 6;
+            int x0 = (int) cx - reachPx, y0 = (int) cy - reachPx;
+            int x1 = (int) cx + reachPx + 1, y1 = (int) cy + reachPx + 1;
+            trailSize = quality.trailLength(selected.copyTrail(trailXs, trailYs));
+            for (int k = 0; k < trailSize; k++) {
+                x0 = Math.min(x0, (int) trailXs[k] - 4);
+                y0 = Math.min(y0, (int) trailYs[k] - 4);
+                x1 = Math.max(x1, (int) trailXs[k] + 5);
+                y1 = Math.max(y1, (int) trailYs[k] + 5);
+            }
+            selectedReach[0] = x0; selectedReach[1] = y0; selectedReach[2] = x1; selectedReach[3] = y1;
+            return selectedReach;
+        }
+        return null;
+    }
+
+    /** Entidad {@code e} del frame: bolas, luego proyectiles, luego partículas (orden de pintado). */
+    private void paintEntity(FrameSnapshot frame, int e, Ball selected, Graphics2D g) {
+        int balls = frame.getBallCount();
+        if (e < balls) {
+            // dibujar estela primero (debajo de la bola)
+            if (selected != null && frame.getBall(e) == selected) paintTrail(frame.getBallColor(e), g);
+            paintBall(frame, e, g);
+            return;
+        }
+        e -= balls;
+        if (e < frame.getProjectileCount()) {
+            paintProjectile(frame, e, g);
+            return;
+        }
+        e -= frame.getProjectileCount();
+        if (quality.drawParticle(e)) paintParticle(frame, e, g);
+    }
+
+    /**
+     * Mismo estado al empezar cada zona que en el repintado completo: el trazo cambia
+     * cómo se rasterizan los óvalos. Es el que dejaban los obstáculos antes de las bolas.
+     */
+    private static void resetState(Graphics2D g) {
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setStroke(ROOM_STROKE);
+    }
+
+    /** La habitación (si existe), encima de todo: su relleno es semitransparente. */
+    private void paintRoom(Graphics2D g) {
+        model.Habitacion hab = view.getController().getHabitacion();
+        if (hab == null) return;
+        g.setComposite(AlphaComposite.SrcOver);
+        // relleno semitransparente
+        g.setColor(ROOM_FILL);
+        g.fillRect(hab.getX(), hab.getY(), hab.getWidth(), hab.getHeight());
+        // borde
+        g.setColor(Color.DARK_GRAY);
+        g.setStroke(ROOM_STROKE);
+        g.drawRect(hab.getX(), hab.getY(), hab.getWidth(), hab.getHeight());
+    }
+
+    private void bindHeld(InputMap im, ActionMap am, int keyCode, String name, InputQueue.Control control) {
+        im.put(KeyStroke.getKeyStroke(keyCode, 0, false), name + "Pressed");
+        im.put(KeyStroke.getKeyStroke(keyCode, 0, true), name + "Released");
+        am.put(name + "Pressed", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) {
+            InputQueue input = inputQueue();
+            if (input != null) input.press(control);
+        } });
+        am.put(name + "Released", new AbstractAction() { @Override public void actionPerformed(java.awt.event.ActionEvent e) {
+            InputQueue input = inputQueue();
+            if (input != null) input.release(control);
+        } });
+    }
+
+    private InputQueue inputQueue() {
+        return view.getController() != null ? view.getController().getInputQueue() : null;
     }
 
     @Override
     public void run() {
         running = true;
-        long last = System.nanoTime();
-        final double alpha = 0.1; // smoothing
         while (running) {
-            long now = System.nanoTime();
-            double dtSeconds = (now - last) / 1_000_000_000.0; // seconds since last loop
-            double instantaneousFps = 1_000_000_000.0 / Math.max(1, (now - last));
-            fps = (1 - alpha) * fps + alpha * instantaneousFps;
-            last = now;
-            
-            // actualizar proyectiles y explosiones
-            double dtMs = dtSeconds * 1000.0;
-            if (view.getController() != null) {
-                view.getController().updateProjectilesAndExplosions(dtMs);
-            }
-            
-            // apply continuous rotation of orientation and thrust (Asteroids style)
-            Ball sel = selectedBall;
-            if (sel != null && view.getController() != null) {
-                // rotar orientación (no velocidad)
-                if (rotatingLeft) view.getController().rotateBallOrientation(sel, -ROTATION_RAD_PER_SEC * dtSeconds);
-                if (rotatingRight) view.getController().rotateBallOrientation(sel, ROTATION_RAD_PER_SEC * dtSeconds);
-                // aplicar empuje en dirección de orientación
-                if (thrusting) view.getController().applyThrustToBall(sel, THRUST_MAGNITUDE);
-                // frenar (reducir velocidad gradualmente)
-                if (braking) view.getController().scaleSpeed(sel, BRAKE_FACTOR);
+            // pedir repintado sólo cuando la simulación ha publicado un frame nuevo
+            if (view.getController() != null && !repaintPending
+                    && view.getController().getFrameExchange().hasFreshFrame()) {
+                repaintPending = true;
+                SwingUtilities.invokeLater(repaintTask);
             }
-            // request a repaint on EDT
-            SwingUtilities.invokeLater(this::repaint);
             try {
-                Thread.sleep(16); // ~60 FPS
+                Thread.sleep(4); // sondeo corto: latencia baja sin pintar más de lo que se simula
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -218,6 +471,90 @@ public class Viewer extends JPanel implements Runnable {
 
     public double getLastPaintMs() { return lastPaintMs; }
 
+    /** Fracción del panel repintada en el último frame (1 = completo). */
+    public double getLastDirtyFraction() { return lastDirtyFraction; }
+
+    /**
+     * Fracción de área sucia a partir de la cual se repinta todo el panel en vez de
+     * sólo las zonas que han cambiado (0 = repintar siempre todo).
+     */
+    public void setDirtyAreaThreshold(double fraction) {
+        this.dirtyAreaThreshold = Math.max(0.0, Math.min(1.0, fraction));
+    }
+
+    public double getDirtyAreaThreshold() { return dirtyAreaThreshold; }
+
+    /**
+     * Pintar con el renderizador por software ({@link RasterRenderer}) en vez de Java2D:
+     * más rápido con decenas de miles de bolas, siempre repinta el frame completo.
+     */
+    public void setRasterRendering(boolean enabled) {
+        this.rasterRendering = enabled;
+        repaint();
+    }
+
+    public boolean isRasterRendering() { return rasterRendering; }
+
+    /**
+     * Ajuste automático de la calidad ({@link QualityGovernor}): si pintar un frame cuesta
+     * más que el presupuesto se simplifica el dibujo en vez de perder frames.
+     */
+    public void setAdaptiveQuality(boolean enabled) {
+        this.adaptiveQuality = enabled;
+        if (!enabled) SwingUtilities.invokeLater(() -> {
+            if (quality.reset()) damage.markAll();
+            repaint();
+        });
+    }
+
+    public boolean isAdaptiveQuality() { return adaptiveQuality; }
+
+    /** Tiempo de pintado por frame por encima del cual se rebaja la calidad. */
+    public void setFrameBudgetMs(double ms) {
+        this.frameBudgetMs = Math.max(1.0, ms);
+    }
+
+    public double getFrameBudgetMs() { return frameBudgetMs; }
+
+    /** Nivel de calidad actual: 0 = máxima, hasta {@code QualityGovernor.MAX_LEVEL}. */
+    public int getQualityLevel() { return quality.getLevel(); }
+
+    public String getQualityLabel() { return quality.getLabel(); }
+
+    /**
+     * Nivel de detalle: {@code AUTO} pasa al mapa de densidad a partir de
+     * {@link #setLodThreshold} bolas; los demás modos lo fijan. Avisa al controlador
+     * para que la simulación agrupe las bolas sólo cuando hace falta.
+     */
+    public void setLodMode(LodMode mode) {
+        this.lodMode = mode;
+        applyDensityGridThreshold();
+        repaint();
+    }
+
+    public LodMode getLodMode() { return lodMode; }
+
+    /** Número de bolas a partir del cual el modo {@code AUTO} pinta el mapa de calor. */
+    public void setLodThreshold(int balls) {
+        this.lodThreshold = Math.max(0, balls);
+        applyDensityGridThreshold();
+    }
+
+    public int getLodThreshold() { return lodThreshold; }
+
+    /** A partir de cuántas bolas necesita este viewer la rejilla de densidad en cada frame. */
+    public int getDensityGridThreshold() {
+        switch (lodMode) {
+            case AUTO: return lodThreshold;
+            case BALLS: return Integer.MAX_VALUE;
+            default: return 0;
+        }
+    }
+
+    private void applyDensityGridThreshold() {
+        if (view.getController() != null) view.getController().setDensityGridThreshold(getDensityGridThreshold());
+    }
+
     /** Return currently selected ball or null. */
     public Ball getSelectedBall() { return selectedBall; }
 
@@ -230,18 +567,18 @@ public class Viewer extends JPanel implements Runnable {
         return this.thread;
     }
 
-    public void paintBall(Ball ball, Graphics2D g) {
-        int diameter = ball.getDIAMETER();
-        int x = ball.getX();
-        int y = ball.getY();
-        Color color = ball.getCOLOR();
+    public void paintBall(FrameSnapshot frame, int i, Graphics2D g) {
+        int diameter = frame.getBallDiameter(i);
+        int x = frame.getBallX(i);
+        int y = frame.getBallY(i);
+        Color color = frame.getBallColor(i);
         // if this ball is currently selected, draw a triangle pointing in orientation direction (Asteroids)
-        if (ball == selectedBall) {
+        if (frame.getBall(i) == selectedBall) {
             // compute center
             double cx = x + diameter / 2.0;
             double cy = y + diameter / 2.0;
             // usar ángulo de orientación en vez de dirección de velocidad
-            double angle = ball.getAngle();
+            double angle = frame.getBallAngle(i);
             // tip length and base distance (make tip longer than radius)
             double radius = diameter / 2.0;
             // make the triangle stubbier/wider so it's not too thin
@@ -264,104 +601,151 @@ public class Viewer extends JPanel implements Runnable {
             int bx2 = (int) Math.round(cx - ux * baseDist - px * baseHalf);
             int by2 = (int) Math.round(cy - uy * baseDist - py * baseHalf);
 
-            Polygon poly = new Polygon(new int[]{tx, bx1, bx2}, new int[]{ty, by1, by2}, 3);
-            
+            Polygon poly = shipPolygon;
+            poly.xpoints[0] = tx; poly.xpoints[1] = bx1; poly.xpoints[2] = bx2;
+            poly.ypoints[0] = ty; poly.ypoints[1] = by1; poly.ypoints[2] = by2;
+            poly.invalidate();
+
+            // antialias sólo en la nave y sólo con calidad máxima
+            boolean smooth = quality.antialias();
+            if (smooth) g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
             // Dibujar triángulo con borde grueso
             g.setColor(color);
             g.fill(poly);
             g.setColor(Color.BLACK);
-            g.setStroke(new BasicStroke(3f));
+            g.setStroke(SHIP_STROKE);
             g.draw(poly);
             
             // Dibujar círculo indicador en la punta para mostrar claramente hacia dónde apunta
             int tipSize = 6;
-            g.setColor(new Color(255, 100, 0)); // Naranja brillante
+            g.setColor(TIP_COLOR);
             g.fillOval(tx - tipSize/2, ty - tipSize/2, tipSize, tipSize);
             // Borde del círculo de la punta
             g.setColor(Color.BLACK);
-            g.setStroke(new BasicStroke(2f));
+            g.setStroke(TIP_STROKE);
             g.drawOval(tx - tipSize/2, ty - tipSize/2, tipSize, tipSize);
+            if (smooth) g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
         } else {
+            // con poca calidad, las bolas diminutas no se pintan
+            if (!quality.drawBall(diameter)) return;
             g.setColor(color);
             g.fillOval(x, y, diameter, diameter);
         }
     }
     
-    private void paintTrail(Ball ball, Graphics2D g) {
-        if (ball == null) return;
-        
-        List<Ball.TrailPoint> trail = ball.getTrail();
-        if (trail == null || trail.isEmpty()) return;
-        
-        Color baseColor = ball.getCOLOR();
-        if (baseColor == null) return;
-        
-        int size = trail.size();
+    private void paintTrail(Color baseColor, Graphics2D g) {
+        int size = trailSize;
+        if (size == 0 || baseColor == null) return;
         
+        Composite previous = g.getComposite();
+        g.setColor(baseColor);
         for (int i = 0; i < size; i++) {
-            Ball.TrailPoint tp = trail.get(i);
-            if (tp == null) continue; // Saltar puntos nulos
-            
             // alfa decrece hacia atrás
             float alpha = (1.0f - (i / (float)size)) * 0.6f;
             int sizePoint = Math.max(2, (int)((1.0f - (i / (float)size)) * 5));
             
-            Color trailColor = new Color(
-                baseColor.getRed() / 255f,
-                baseColor.getGreen() / 255f,
-                baseColor.getBlue() / 255f,
-                alpha
-            );
-            
-            g.setColor(trailColor);
-            g.fillOval((int)(tp.x - sizePoint/2), (int)(tp.y - sizePoint/2), sizePoint, sizePoint);
+            g.setComposite(alphaComposite(alpha));
+            g.fillOval((int)(trailXs[i] - sizePoint/2), (int)(trailYs[i] - sizePoint/2), sizePoint, sizePoint);
         }
+        g.setComposite(previous);
     }
     
-    private void paintProjectile(model.Projectile proj, Graphics2D g) {
-        if (!proj.isActive()) return;
-        
-        int size = proj.getSize();
-        int x = (int)(proj.getX() - size/2);
-        int y = (int)(proj.getY() - size/2);
+    private void paintProjectile(FrameSnapshot frame, int i, Graphics2D g) {
+        int size = frame.getProjectileSize(i);
+        double px = frame.getProjectileX(i);
+        double py = frame.getProjectileY(i);
+        int x = (int)(px - size/2);
+        int y = (int)(py - size/2);
         
+        int layers = quality.projectileLayers();
+
         // Borde oscuro para contraste
-        g.setColor(new Color(100, 0, 0));
-        g.fillOval(x - 1, y - 1, size + 2, size + 2);
+        if (layers >= 2) {
+            g.setColor(PROJECTILE_BORDER);
+            g.fillOval(x - 1, y - 1, size + 2, size + 2);
+        }
         
         // Color principal del proyectil
-        g.setColor(proj.getColor());
+        g.setColor(frame.getProjectileColor(i));
         g.fillOval(x, y, size, size);
         
         // Brillo naranja/amarillo en el centro
-        g.setColor(new Color(255, 200, 50));
-        g.fillOval((int)(proj.getX() - size/4), (int)(proj.getY() - size/4), size/2, size/2);
+        if (layers >= 3) {
+            g.setColor(PROJECTILE_GLOW);
+            g.fillOval((int)(px - size/4), (int)(py - size/4), size/2, size/2);
+        }
     }
     
-    private void paintExplosion(model.Explosion exp, Graphics2D g) {
-        if (exp == null) return;
-        
-        List<model.Explosion.Particle> particles = exp.getParticles();
-        if (particles == null) return;
-        
-        double progress = exp.getProgress();
-        
-        for (model.Explosion.Particle p : particles) {
-            if (p == null) continue; // Saltar partículas nulas
-            
-            // alfa decrece con el tiempo
-            float alpha = (float)(1.0 - progress) * 0.8f;
-            Color c = p.getColor();
-            Color particleColor = new Color(
-                c.getRed() / 255f,
-                c.getGreen() / 255f,
-                c.getBlue() / 255f,
-                alpha
-            );
-            
-            g.setColor(particleColor);
-            int size = (int)(4 * (1.0 - progress * 0.5)); // se encogen
-            g.fillOval((int)(p.getX() - size/2), (int)(p.getY() - size/2), size, size);
+    private void paintParticle(FrameSnapshot frame, int i, Graphics2D g) {
+        // alfa y tamaño ya vienen calculados según el progreso de su explosión
+        int size = frame.getParticleSize(i);
+        Composite previous = g.getComposite();
+        g.setComposite(alphaComposite(frame.getParticleAlpha(i)));
+        g.setColor(frame.getParticleColor(i));
+        g.fillOval((int)(frame.getParticleX(i) - size/2), (int)(frame.getParticleY(i) - size/2), size, size);
+        g.setComposite(previous);
+    }
+
+    private void paintForceSources(model.ForceField field, Graphics2D g) {
+        if (field == null) return;
+        model.ForceField.Source[] sources = field.getSources();
+        for (int i = 0; i < sources.length; i++) {
+            model.ForceField.Source s = sources[i];
+            if (s.getType() == model.ForceField.Type.WIND) {
+                g.setColor(WIND_COLOR);
+                g.fillRect((int) s.getX(), (int) s.getY(), (int) s.getWidth(), (int) s.getHeight());
+                continue;
+            }
+            int r = (int) s.getRadius();
+            int cx = (int) s.getX(), cy = (int) s.getY();
+            g.setColor(s.getType() == model.ForceField.Type.ATTRACTOR ? ATTRACTOR_COLOR : REPULSOR_COLOR);
+            g.setStroke(ROOM_STROKE);
+            g.drawOval(cx - r, cy - r, 2 * r, 2 * r);
+            g.fillOval(cx - 4, cy - 4, 8, 8);
+        }
+    }
+
+    private void paintObstacles(model.ObstacleBVH obstacles, Graphics2D g) {
+        if (obstacles != cachedObstacles) {
+            Shape[] shapes = new Shape[obstacles.size()];
+            for (int i = 0; i < shapes.length; i++) shapes[i] = toShape(obstacles.get(i));
+            obstacleShapes = shapes;
+            cachedObstacles = obstacles;
+        }
+        g.setStroke(ROOM_STROKE);
+        for (int i = 0; i < obstacleShapes.length; i++) {
+            g.setColor(OBSTACLE_FILL);
+            g.fill(obstacleShapes[i]);
+            g.setColor(OBSTACLE_BORDER);
+            g.draw(obstacleShapes[i]);
         }
     }
+
+    private static Shape toShape(model.Obstacle o) {
+        if (o instanceof model.Obstacle.Rect) {
+            model.Obstacle.Rect r = (model.Obstacle.Rect) o;
+            return new Rectangle2D.Double(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+        }
+        if (o instanceof model.Obstacle.Circle) {
+            model.Obstacle.Circle c = (model.Obstacle.Circle) o;
+            double r = c.getRadius();
+            return new Ellipse2D.Double(c.getCenterX() - r, c.getCenterY() - r, 2 * r, 2 * r);
+        }
+        if (o instanceof model.Obstacle.ConvexPolygon) {
+            model.Obstacle.ConvexPolygon p = (model.Obstacle.ConvexPolygon) o;
+            Path2D.Double path = new Path2D.Double();
+            path.moveTo(p.getVertexX(0), p.getVertexY(0));
+            for (int i = 1; i < p.getVertexCount(); i++) path.lineTo(p.getVertexX(i), p.getVertexY(i));
+            path.closePath();
+            return path;
+        }
+        return new Rectangle2D.Double(o.getMinX(), o.getMinY(), o.getMaxX() - o.getMinX(), o.getMaxY() - o.getMinY());
+    }
+
+    /** Composite precalculado más cercano al alfa pedido (evita crear uno por llamada). */
+    private static AlphaComposite alphaComposite(float alpha) {
+        int level = Math.round(Math.max(0f, Math.min(1f, alpha)) * ALPHA_LEVELS);
+        return ALPHA_COMPOSITES[level];
+    }
 }